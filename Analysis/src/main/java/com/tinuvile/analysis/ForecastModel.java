@@ -0,0 +1,28 @@
+package com.tinuvile.analysis;
+
+/**
+ * 已拟合的预测模型
+ * 拟合一次后可对任意多个时间点外推，实例不可变，可在线程间共享
+ *
+ * @author tinuvile
+ */
+public interface ForecastModel {
+
+    /**
+     * 预测方法名，写入PredictionData.predictionMethod
+     */
+    String getMethod();
+
+    /**
+     * 预测值
+     *
+     * @param hours 距序列首个点的小时数，回归类模型使用
+     * @param step  距序列最后一个点的步数（从1开始），平滑类模型使用
+     */
+    double predict(double hours, int step);
+
+    /**
+     * 第step步预测的置信度
+     */
+    double confidence(int step);
+}
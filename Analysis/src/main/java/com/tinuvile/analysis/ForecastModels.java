@@ -0,0 +1,305 @@
+package com.tinuvile.analysis;
+
+import org.apache.commons.math3.analysis.polynomials.PolynomialFunction;
+import org.apache.commons.math3.fitting.PolynomialCurveFitter;
+import org.apache.commons.math3.fitting.WeightedObservedPoints;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+
+/**
+ * 预测模型拟合
+ * 输入为按时间升序的序列，hours[i]为第i个点距首个点的小时数，values[i]为数值；
+ * 只使用前length个点，训练段与全量数据可在同一组数组上拟合而无需复制
+ *
+ * @author tinuvile
+ */
+public final class ForecastModels {
+
+    public static final String LINEAR = "linear_regression";
+    public static final String POLYNOMIAL = "polynomial_regression";
+    public static final String MOVING_AVERAGE = "moving_average";
+    public static final String EXPONENTIAL_SMOOTHING = "exponential_smoothing";
+
+    private ForecastModels() {
+    }
+
+    /**
+     * 线性回归
+     */
+    public static ForecastModel linear(double[] hours, double[] values, int length) {
+        SimpleRegression regression = new SimpleRegression();
+        for (int i = 0; i < length; i++) {
+            regression.addData(hours[i], values[i]);
+        }
+        return new LinearModel(regression.getSlope(), regression.getIntercept(), regression.getRSquare());
+    }
+
+    /**
+     * 加权多项式回归，越新的点权重越高，最高三次
+     *
+     * @throws org.apache.commons.math3.exception.MathIllegalArgumentException 拟合失败时
+     */
+    public static ForecastModel polynomial(double[] hours, double[] values, int length) {
+        int n = length;
+        WeightedObservedPoints points = new WeightedObservedPoints();
+        for (int i = 0; i < n; i++) {
+            // 权重范围 1.0 到 1.5
+            points.add(1.0 + (i / (double) n) * 0.5, hours[i], values[i]);
+        }
+
+        int degree = Math.max(1, Math.min(3, n - 1));
+        PolynomialFunction polynomial = new PolynomialFunction(PolynomialCurveFitter.create(degree).fit(points.toList()));
+        double rSquare = rSquare(hours, values, n, polynomial);
+        double lastValue = values[n - 1];
+        double lastTrend = n > 1 ? lastValue - values[n - 2] : 0;
+        return new PolynomialModel(polynomial, rSquare, hours[n - 1], lastValue, lastTrend);
+    }
+
+    /**
+     * 带趋势衰减的移动平均，点数少于窗口时使用全部点，只有一个点时趋势为0
+     */
+    public static ForecastModel movingAverage(double[] values, int length) {
+        int n = length;
+        int windowSize = Math.min(n, Math.min(8, Math.max(3, n / 3)));
+
+        DescriptiveStatistics stats = new DescriptiveStatistics();
+        DescriptiveStatistics trendStats = new DescriptiveStatistics();
+        for (int i = n - windowSize; i < n; i++) {
+            stats.addValue(values[i]);
+            if (i > n - windowSize) {
+                trendStats.addValue(values[i] - values[i - 1]);
+            }
+        }
+
+        double movingAverage = stats.getMean();
+        double dataStability = Math.max(0.1, 1.0 - (stats.getStandardDeviation() / Math.abs(movingAverage)));
+        boolean hasTrend = trendStats.getN() > 0;
+        double trendStability = 1.0 / (1.0 + (hasTrend ? trendStats.getStandardDeviation() : 0));
+        double averageTrend = hasTrend ? trendStats.getMean() : 0;
+        return new MovingAverageModel(movingAverage, averageTrend, dataStability, trendStability);
+    }
+
+    /**
+     * Holt双指数平滑，平滑参数按变异系数自适应
+     */
+    public static ForecastModel holt(double[] values, int length) {
+        int n = length;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += values[i];
+        }
+        double mean = sum / n;
+        double squaredDeviations = 0;
+        for (int i = 0; i < n; i++) {
+            squaredDeviations += (values[i] - mean) * (values[i] - mean);
+        }
+        // 样本标准差，与DescriptiveStatistics一致
+        double standardDeviation = n > 1 ? Math.sqrt(squaredDeviations / (n - 1)) : 0;
+        double coefficientOfVariation = standardDeviation / Math.abs(mean);
+
+        double alpha = Math.min(0.5, Math.max(0.1, 0.3 + coefficientOfVariation * 0.2));
+        double beta = Math.min(0.3, Math.max(0.05, alpha * 0.4));
+
+        // 首个点的拟合值即为自身，样本内误差从第二个点开始累计
+        double level = values[0];
+        double trend = n > 1 ? values[1] - values[0] : 0;
+        double sumSquaredErrors = 0;
+        for (int i = 1; i < n; i++) {
+            double prevLevel = level;
+            level = alpha * values[i] + (1 - alpha) * (prevLevel + trend);
+            trend = beta * (level - prevLevel) + (1 - beta) * trend;
+            double error = values[i] - (level + trend);
+            sumSquaredErrors += error * error;
+        }
+
+        double errorFactor = Math.max(0.5, 1.0 - Math.sqrt(sumSquaredErrors / n) / mean);
+        return new HoltModel(level, trend, errorFactor);
+    }
+
+    /**
+     * 均方误差 (MSE)，忽略NaN预测值
+     */
+    public static double meanSquaredError(double[] actual, double[] predicted) {
+        if (actual.length != predicted.length) {
+            return Double.MAX_VALUE;
+        }
+        return meanSquaredError(actual, 0, predicted);
+    }
+
+    /**
+     * actual[offset + i]与predicted[i]之间的均方误差，忽略NaN预测值
+     */
+    public static double meanSquaredError(double[] actual, int offset, double[] predicted) {
+        double sumSquaredErrors = 0;
+        int count = 0;
+        for (int i = 0; i < predicted.length; i++) {
+            if (!Double.isNaN(predicted[i])) {
+                double error = actual[offset + i] - predicted[i];
+                sumSquaredErrors += error * error;
+                count++;
+            }
+        }
+        return count > 0 ? sumSquaredErrors / count : Double.MAX_VALUE;
+    }
+
+    /**
+     * 平均绝对误差 (MAE)，忽略NaN预测值
+     */
+    public static double meanAbsoluteError(double[] actual, double[] predicted) {
+        if (actual.length != predicted.length) {
+            return Double.MAX_VALUE;
+        }
+        return meanAbsoluteError(actual, 0, predicted);
+    }
+
+    /**
+     * actual[offset + i]与predicted[i]之间的平均绝对误差，忽略NaN预测值
+     */
+    public static double meanAbsoluteError(double[] actual, int offset, double[] predicted) {
+        double sumAbsoluteErrors = 0;
+        int count = 0;
+        for (int i = 0; i < predicted.length; i++) {
+            if (!Double.isNaN(predicted[i])) {
+                sumAbsoluteErrors += Math.abs(actual[offset + i] - predicted[i]);
+                count++;
+            }
+        }
+        return count > 0 ? sumAbsoluteErrors / count : Double.MAX_VALUE;
+    }
+
+    private static double rSquare(double[] x, double[] y, int length, PolynomialFunction polynomial) {
+        double mean = 0;
+        for (int i = 0; i < length; i++) {
+            mean += y[i];
+        }
+        mean /= length;
+
+        double totalSumSquares = 0;
+        double residualSumSquares = 0;
+        for (int i = 0; i < length; i++) {
+            double residual = y[i] - polynomial.value(x[i]);
+            totalSumSquares += (y[i] - mean) * (y[i] - mean);
+            residualSumSquares += residual * residual;
+        }
+        return totalSumSquares != 0 ? 1.0 - (residualSumSquares / totalSumSquares) : 0;
+    }
+
+    private static final class LinearModel implements ForecastModel {
+        private final double slope;
+        private final double intercept;
+        private final double rSquare;
+
+        LinearModel(double slope, double intercept, double rSquare) {
+            this.slope = slope;
+            this.intercept = intercept;
+            this.rSquare = rSquare;
+        }
+
+        @Override
+        public String getMethod() {
+            return LINEAR;
+        }
+
+        @Override
+        public double predict(double hours, int step) {
+            return intercept + slope * hours;
+        }
+
+        @Override
+        public double confidence(int step) {
+            return Math.max(0.2, rSquare * Math.max(0.5, 1.0 - step * 0.03));
+        }
+    }
+
+    private static final class PolynomialModel implements ForecastModel {
+        private final PolynomialFunction polynomial;
+        private final double rSquare;
+        private final double lastHours;
+        private final double lastValue;
+        private final double lastTrend;
+
+        PolynomialModel(PolynomialFunction polynomial, double rSquare, double lastHours,
+                        double lastValue, double lastTrend) {
+            this.polynomial = polynomial;
+            this.rSquare = rSquare;
+            this.lastHours = lastHours;
+            this.lastValue = lastValue;
+            this.lastTrend = lastTrend;
+        }
+
+        @Override
+        public String getMethod() {
+            return POLYNOMIAL;
+        }
+
+        @Override
+        public double predict(double hours, int step) {
+            // 超出历史范围50%时高次项发散，改用末端线性外推
+            if (hours > lastHours * 1.5) {
+                return lastValue + lastTrend * step;
+            }
+            return polynomial.value(hours);
+        }
+
+        @Override
+        public double confidence(int step) {
+            return Math.max(0.1, rSquare * Math.max(0.3, 1.0 - (step - 1) * 0.04));
+        }
+    }
+
+    private static final class MovingAverageModel implements ForecastModel {
+        private final double movingAverage;
+        private final double averageTrend;
+        private final double dataStability;
+        private final double trendStability;
+
+        MovingAverageModel(double movingAverage, double averageTrend, double dataStability, double trendStability) {
+            this.movingAverage = movingAverage;
+            this.averageTrend = averageTrend;
+            this.dataStability = dataStability;
+            this.trendStability = trendStability;
+        }
+
+        @Override
+        public String getMethod() {
+            return MOVING_AVERAGE;
+        }
+
+        @Override
+        public double predict(double hours, int step) {
+            return movingAverage + averageTrend * step * Math.pow(0.95, step - 1);
+        }
+
+        @Override
+        public double confidence(int step) {
+            return Math.max(0.2, (dataStability * 0.6 + trendStability * 0.4) * Math.max(0.3, 1.0 - step * 0.03));
+        }
+    }
+
+    private static final class HoltModel implements ForecastModel {
+        private final double level;
+        private final double trend;
+        private final double errorFactor;
+
+        HoltModel(double level, double trend, double errorFactor) {
+            this.level = level;
+            this.trend = trend;
+            this.errorFactor = errorFactor;
+        }
+
+        @Override
+        public String getMethod() {
+            return EXPONENTIAL_SMOOTHING;
+        }
+
+        @Override
+        public double predict(double hours, int step) {
+            return level + trend * step;
+        }
+
+        @Override
+        public double confidence(int step) {
+            return Math.max(0.3, errorFactor * Math.max(0.3, 1.0 - step * 0.02));
+        }
+    }
+}
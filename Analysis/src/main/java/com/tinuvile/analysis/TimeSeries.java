@@ -0,0 +1,95 @@
+package com.tinuvile.analysis;
+
+import java.util.Arrays;
+
+/**
+ * 基本类型数组存储的时间序列
+ * 时间为数据时间戳按UTC换算的毫秒数，按追加顺序（即时间升序）保存；
+ * times()/values()直接返回底层数组，长度可能大于size()，只有前size()个元素有效
+ *
+ * @author tinuvile
+ */
+public final class TimeSeries {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    private long[] times;
+    private double[] values;
+    private int size = 0;
+
+    public TimeSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TimeSeries(int capacity) {
+        int initial = Math.max(1, capacity);
+        this.times = new long[initial];
+        this.values = new double[initial];
+    }
+
+    /**
+     * 追加一个点，时间须不早于上一个点
+     */
+    public void add(long timeMillis, double value) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        times[size] = timeMillis;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public long getFirstTime() {
+        return times[0];
+    }
+
+    public long getLastTime() {
+        return times[size - 1];
+    }
+
+    /**
+     * 底层时间数组，不复制
+     */
+    public long[] times() {
+        return times;
+    }
+
+    /**
+     * 底层数值数组，不复制
+     */
+    public double[] values() {
+        return values;
+    }
+
+    /**
+     * 各点距首个点的小时数
+     */
+    public double[] hoursSinceStart() {
+        double[] hours = new double[size];
+        long base = size > 0 ? times[0] : 0;
+        for (int i = 0; i < size; i++) {
+            hours[i] = (times[i] - base) / MILLIS_PER_HOUR;
+        }
+        return hours;
+    }
+}
@@ -0,0 +1,315 @@
+package com.tinuvile.analysis;
+
+import java.util.Locale;
+
+/**
+ * 单遍流式时间序列降采样器
+ * 按时间顺序逐点输入，内存只与目标点数有关，与输入点数无关：
+ * 总点数不超过目标点数时原样返回，否则按时间等宽分桶，
+ * LTTB模式先在2倍目标点数的桶内预选最小/最大值点，再对预选点做LTTB（MinMaxLTTB）
+ *
+ * @author tinuvile
+ */
+public class TimeSeriesDownsampler {
+
+    /**
+     * 降采样方式
+     */
+    public enum Mode {
+        /** 保留视觉形状的最大三角形算法 */
+        LTTB,
+        /** 每桶保留最小值点和最大值点，保留尖峰 */
+        MINMAX,
+        /** 每桶输出平均值，平滑曲线 */
+        AVG;
+
+        public static Mode fromCode(String code) {
+            return valueOf(code.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    // LTTB预选桶数与目标点数之比，每个预选桶最多贡献2个点
+    private static final int LTTB_PRESELECT_RATIO = 2;
+
+    private final Mode mode;
+    private final int maxPoints;
+    private final long startMillis;
+    private final long spanMillis;
+
+    // 点数未超过maxPoints前保留原始点
+    private long[] rawTimes;
+    private double[] rawValues;
+    private int count = 0;
+
+    private final int bucketCount;
+    private final long[] minTimes;
+    private final double[] minValues;
+    private final long[] maxTimes;
+    private final double[] maxValues;
+    private final double[] sums;
+    private final double[] timeOffsetSums;
+    private final int[] counts;
+
+    private long firstTime;
+    private double firstValue;
+    private long lastTime;
+    private double lastValue;
+
+    /**
+     * @param startMillis 时间范围起点（毫秒）
+     * @param endMillis   时间范围终点（毫秒）
+     * @param maxPoints   目标点数，至少为1；LTTB和MINMAX模式不足3点时只保留首尾点（1点时为末点）
+     */
+    public TimeSeriesDownsampler(Mode mode, long startMillis, long endMillis, int maxPoints) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints不能小于1");
+        }
+        this.mode = mode;
+        this.maxPoints = maxPoints;
+        this.startMillis = startMillis;
+        this.spanMillis = Math.max(1, endMillis - startMillis + 1);
+        this.rawTimes = new long[maxPoints];
+        this.rawValues = new double[maxPoints];
+
+        switch (mode) {
+            case LTTB:
+                bucketCount = Math.max(1, (maxPoints - 2) * LTTB_PRESELECT_RATIO);
+                break;
+            case MINMAX:
+                // 首尾点另算
+                bucketCount = Math.max(1, (maxPoints - 2) / 2);
+                break;
+            default:
+                bucketCount = maxPoints;
+        }
+        this.minTimes = new long[bucketCount];
+        this.minValues = new double[bucketCount];
+        this.maxTimes = new long[bucketCount];
+        this.maxValues = new double[bucketCount];
+        this.counts = new int[bucketCount];
+        boolean averaging = mode == Mode.AVG;
+        this.sums = averaging ? new double[bucketCount] : null;
+        this.timeOffsetSums = averaging ? new double[bucketCount] : null;
+    }
+
+    /**
+     * 输入一个点，时间须不早于上一个点
+     */
+    public void add(long time, double value) {
+        if (count == 0) {
+            firstTime = time;
+            firstValue = value;
+        }
+        lastTime = time;
+        lastValue = value;
+
+        if (rawTimes != null) {
+            if (count < maxPoints) {
+                rawTimes[count] = time;
+                rawValues[count] = value;
+            } else {
+                rawTimes = null;
+                rawValues = null;
+            }
+        }
+        count++;
+
+        int bucket = bucketOf(time);
+        if (counts[bucket] == 0) {
+            minTimes[bucket] = time;
+            minValues[bucket] = value;
+            maxTimes[bucket] = time;
+            maxValues[bucket] = value;
+        } else if (value < minValues[bucket]) {
+            minTimes[bucket] = time;
+            minValues[bucket] = value;
+        } else if (value > maxValues[bucket]) {
+            maxTimes[bucket] = time;
+            maxValues[bucket] = value;
+        }
+        counts[bucket]++;
+        if (sums != null) {
+            sums[bucket] += value;
+            timeOffsetSums[bucket] += time - startMillis;
+        }
+    }
+
+    /**
+     * 已输入的点数
+     */
+    public int getInputCount() {
+        return count;
+    }
+
+    /**
+     * 计算降采样结果
+     */
+    public Series result() {
+        if (rawTimes != null) {
+            return new Series(copyOf(rawTimes, count), copyOf(rawValues, count));
+        }
+        switch (mode) {
+            case LTTB:
+                return lttb(preselect());
+            case MINMAX:
+                // 目标点数过小时首尾点加每桶两点会超出目标，再用LTTB裁剪
+                Series selected = preselect();
+                return selected.size <= maxPoints ? selected : lttb(selected);
+            default:
+                return averages();
+        }
+    }
+
+    private int bucketOf(long time) {
+        long offset = time - startMillis;
+        if (offset <= 0) {
+            return 0;
+        }
+        return (int) Math.min(bucketCount - 1, offset * bucketCount / spanMillis);
+    }
+
+    /**
+     * 每个非空桶按时间顺序输出最小值点和最大值点，并保证包含首尾点
+     */
+    private Series preselect() {
+        Series series = new Series(bucketCount * 2 + 2);
+        series.append(firstTime, firstValue);
+        for (int i = 0; i < bucketCount; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (minTimes[i] <= maxTimes[i]) {
+                series.appendIfNew(minTimes[i], minValues[i]);
+                series.appendIfNew(maxTimes[i], maxValues[i]);
+            } else {
+                series.appendIfNew(maxTimes[i], maxValues[i]);
+                series.appendIfNew(minTimes[i], minValues[i]);
+            }
+        }
+        series.appendIfNew(lastTime, lastValue);
+        return series;
+    }
+
+    private Series averages() {
+        Series series = new Series(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            if (counts[i] > 0) {
+                series.append(startMillis + Math.round(timeOffsetSums[i] / counts[i]), sums[i] / counts[i]);
+            }
+        }
+        return series;
+    }
+
+    /**
+     * 标准LTTB：首尾点固定，中间按点序分为maxPoints-2个桶，
+     * 每桶选出与上一选中点和下一桶均值点构成三角形面积最大的点
+     */
+    private Series lttb(Series input) {
+        int n = input.size;
+        if (n <= maxPoints) {
+            return input;
+        }
+        long[] times = input.times;
+        double[] values = input.values;
+        Series output = new Series(maxPoints);
+        if (maxPoints == 1) {
+            output.append(times[n - 1], values[n - 1]);
+            return output;
+        }
+        output.append(times[0], values[0]);
+
+        double every = (double) (n - 2) / (maxPoints - 2);
+        int selected = 0;
+        for (int i = 0; i < maxPoints - 2; i++) {
+            int nextStart = (int) Math.floor((i + 1) * every) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgTime = 0;
+            double avgValue = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgTime += times[j];
+                avgValue += values[j];
+            }
+            int nextLength = nextEnd - nextStart;
+            avgTime /= nextLength;
+            avgValue /= nextLength;
+
+            int start = (int) Math.floor(i * every) + 1;
+            int end = (int) Math.floor((i + 1) * every) + 1;
+            double pointTime = times[selected];
+            double pointValue = values[selected];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((pointTime - avgTime) * (values[j] - pointValue)
+                        - (pointTime - times[j]) * (avgValue - pointValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            output.append(times[maxIndex], values[maxIndex]);
+            selected = maxIndex;
+        }
+
+        output.append(times[n - 1], values[n - 1]);
+        return output;
+    }
+
+    private static long[] copyOf(long[] array, int length) {
+        long[] copy = new long[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static double[] copyOf(double[] array, int length) {
+        double[] copy = new double[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    /**
+     * 降采样结果，按时间升序
+     */
+    public static class Series {
+        private final long[] times;
+        private final double[] values;
+        private int size;
+
+        Series(int capacity) {
+            this.times = new long[capacity];
+            this.values = new double[capacity];
+            this.size = 0;
+        }
+
+        Series(long[] times, double[] values) {
+            this.times = times;
+            this.values = values;
+            this.size = times.length;
+        }
+
+        void append(long time, double value) {
+            times[size] = time;
+            values[size] = value;
+            size++;
+        }
+
+        void appendIfNew(long time, double value) {
+            if (size > 0 && times[size - 1] == time && values[size - 1] == value) {
+                return;
+            }
+            append(time, value);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getTime(int index) {
+            return times[index];
+        }
+
+        public double getValue(int index) {
+            return values[index];
+        }
+    }
+}
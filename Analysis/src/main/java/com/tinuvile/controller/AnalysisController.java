@@ -1,20 +1,28 @@
 package com.tinuvile.controller;
 
+import com.tinuvile.analysis.TimeSeriesDownsampler;
 import com.tinuvile.model.AnalysisData;
 import com.tinuvile.model.PredictionData;
 import com.tinuvile.model.SensorType;
 import com.tinuvile.model.StatisticsData;
+import com.tinuvile.service.AnalysisCacheService;
+import com.tinuvile.service.BatchPredictionService;
 import com.tinuvile.service.DataAnalysisService;
+import com.tinuvile.service.DataExportService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +42,15 @@ public class AnalysisController {
     @Autowired
     private DataAnalysisService dataAnalysisService;
     
+    @Autowired
+    private DataExportService dataExportService;
+    
+    @Autowired
+    private AnalysisCacheService analysisCacheService;
+    
+    @Autowired
+    private BatchPredictionService batchPredictionService;
+    
     /**
      * 分析主页
      */
@@ -70,7 +87,9 @@ public class AnalysisController {
     public ResponseEntity<Map<String, Object>> getHistoryData(
             @RequestParam("sensorType") String sensorTypeStr,
             @RequestParam("startTime") String startTimeStr,
-            @RequestParam("endTime") String endTimeStr) {
+            @RequestParam("endTime") String endTimeStr,
+            @RequestParam(value = "maxPoints", defaultValue = "0") int maxPoints,
+            @RequestParam(value = "downsample", defaultValue = "lttb") String downsampleStr) {
         
         try {
             SensorType sensorType = SensorType.valueOf(sensorTypeStr);
@@ -79,7 +98,11 @@ public class AnalysisController {
             LocalDateTime startTime = LocalDateTime.parse(startTimeStr);
             LocalDateTime endTime = LocalDateTime.parse(endTimeStr);
             
-            List<AnalysisData> data = dataAnalysisService.getHistoryData(sensorType, startTime, endTime);
+            // maxPoints为0时返回全部原始数据
+            List<AnalysisData> data = maxPoints > 0
+                    ? dataAnalysisService.getHistoryData(sensorType, startTime, endTime,
+                            maxPoints, TimeSeriesDownsampler.Mode.fromCode(downsampleStr))
+                    : dataAnalysisService.getHistoryData(sensorType, startTime, endTime);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -103,6 +126,57 @@ public class AnalysisController {
         }
     }
     
+    /**
+     * 流式导出历史数据API
+     * 按页读取、边读边写，every为每N条取一条，bucketSeconds大于0时按时间桶输出avg/min/max
+     */
+    @GetMapping("/api/export")
+    public ResponseEntity<?> exportData(
+            @RequestParam("sensorType") String sensorTypeStr,
+            @RequestParam("startTime") String startTimeStr,
+            @RequestParam("endTime") String endTimeStr,
+            @RequestParam(value = "format", defaultValue = "ndjson") String formatStr,
+            @RequestParam(value = "every", defaultValue = "1") int every,
+            @RequestParam(value = "bucketSeconds", defaultValue = "0") int bucketSeconds) {
+        
+        SensorType sensorType;
+        LocalDateTime startTime;
+        LocalDateTime endTime;
+        DataExportService.Format format;
+        try {
+            sensorType = SensorType.valueOf(sensorTypeStr);
+            startTime = LocalDateTime.parse(startTimeStr);
+            endTime = LocalDateTime.parse(endTimeStr);
+            format = DataExportService.Format.valueOf(formatStr.toUpperCase());
+            if (startTime.isAfter(endTime)) {
+                throw new IllegalArgumentException("开始时间不能晚于结束时间");
+            }
+            if (every < 1 || bucketSeconds < 0) {
+                throw new IllegalArgumentException("every必须大于0，bucketSeconds不能为负数");
+            }
+        } catch (Exception e) {
+            logger.warn("导出参数无效: sensorType={}, startTime={}, endTime={}, format={}, error={}", 
+                    sensorTypeStr, startTimeStr, endTimeStr, formatStr, e.getMessage());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        String filename = String.format("%s_%s_%s.%s", sensorType.getValue(),
+                startTime.format(DateTimeFormatter.BASIC_ISO_DATE),
+                endTime.format(DateTimeFormatter.BASIC_ISO_DATE), format.getExtension());
+        StreamingResponseBody body = out -> dataExportService.export(
+                sensorType, startTime, endTime, format, every, bucketSeconds, out);
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+    
     /**
      * 获取最新数据API
      */
@@ -146,7 +220,7 @@ public class AnalysisController {
             @RequestParam("startTime") String startTimeStr,
             @RequestParam("endTime") String endTimeStr) {
         
-        logger.info("获取统计数据请求: sensorType={}, startTime={}, endTime={}", 
+        logger.debug("获取统计数据请求: sensorType={}, startTime={}, endTime={}", 
                 sensorTypeStr, startTimeStr, endTimeStr);
         
         try {
@@ -156,11 +230,9 @@ public class AnalysisController {
             LocalDateTime startTime = LocalDateTime.parse(startTimeStr);
             LocalDateTime endTime = LocalDateTime.parse(endTimeStr);
             
-            logger.info("解析后的时间: startTime={}, endTime={}", startTime, endTime);
-            
             StatisticsData statistics = dataAnalysisService.getStatistics(sensorType, startTime, endTime);
             
-            logger.info("统计结果: {}", statistics);
+            logger.debug("统计结果: {}", statistics);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -272,17 +344,7 @@ public class AnalysisController {
             }
             
             // 验证预测方法
-            String[] validMethods = {"auto", "linear", "polynomial", "moving_average", "exponential_smoothing"};
-            boolean isValidMethod = false;
-            for (String validMethod : validMethods) {
-                if (validMethod.equals(method.toLowerCase())) {
-                    isValidMethod = true;
-                    break;
-                }
-            }
-            if (!isValidMethod) {
-                method = "auto"; // 默认使用auto方法
-            }
+            method = normalizePredictionMethod(method);
             
             logger.info("解析后的时间: startTime={}, endTime={}", startTime, endTime);
             
@@ -317,6 +379,93 @@ public class AnalysisController {
         }
     }
     
+    /**
+     * 获取分析结果缓存统计API
+     */
+    @GetMapping("/api/cache/statistics")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("statistics", analysisCacheService.getStatistics());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 清空分析结果缓存API
+     */
+    @PostMapping("/api/cache/clear")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> clearCache() {
+        analysisCacheService.clear();
+        logger.info("分析结果缓存已清空");
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 批量预测API
+     * 一次查询加载所有序列，并发拟合，每个序列完成后立即以一行JSON写出
+     */
+    @GetMapping("/api/prediction/batch")
+    public ResponseEntity<?> getBatchPrediction(
+            @RequestParam(value = "sensorTypes", required = false) List<String> sensorTypeStrs,
+            @RequestParam(value = "nodeIds", required = false) List<Integer> nodeIds,
+            @RequestParam(value = "groupByNode", defaultValue = "false") boolean groupByNode,
+            @RequestParam("startTime") String startTimeStr,
+            @RequestParam("endTime") String endTimeStr,
+            @RequestParam(value = "predictionHours", defaultValue = "24") int predictionHours,
+            @RequestParam(value = "method", defaultValue = "auto") String method) {
+        
+        List<SensorType> sensorTypes = new ArrayList<>();
+        LocalDateTime startTime;
+        LocalDateTime endTime;
+        try {
+            if (sensorTypeStrs != null) {
+                for (String sensorTypeStr : sensorTypeStrs) {
+                    sensorTypes.add(SensorType.valueOf(sensorTypeStr.trim()));
+                }
+            }
+            startTime = LocalDateTime.parse(startTimeStr);
+            endTime = LocalDateTime.parse(endTimeStr);
+            if (predictionHours < 1 || predictionHours > 168) { // 最多预测7天
+                throw new IllegalArgumentException("预测时长必须在1-168小时之间");
+            }
+        } catch (Exception e) {
+            logger.warn("批量预测参数无效: sensorTypes={}, startTime={}, endTime={}, error={}", 
+                    sensorTypeStrs, startTimeStr, endTimeStr, e.getMessage());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        String predictionMethod = normalizePredictionMethod(method);
+        StreamingResponseBody body = out -> batchPredictionService.predict(sensorTypes, nodeIds, groupByNode,
+                startTime, endTime, predictionHours, predictionMethod, out);
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"))
+                .body(body);
+    }
+    
+    /**
+     * 不支持的预测方法按auto处理
+     */
+    private String normalizePredictionMethod(String method) {
+        String[] validMethods = {"auto", "linear", "polynomial", "moving_average", "exponential_smoothing"};
+        for (String validMethod : validMethods) {
+            if (validMethod.equals(method.toLowerCase())) {
+                return method;
+            }
+        }
+        return "auto";
+    }
+    
     /**
      * 获取预测方法描述
      */
@@ -0,0 +1,45 @@
+package com.tinuvile.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * sensor_data的只读行投影
+ * 流式读取时同一个实例逐行复用，调用方不能在回调之外持有它
+ *
+ * @author tinuvile
+ */
+public class SensorDataRow {
+
+    private long id;
+    private int nodeId;
+    private String sensorLocation;
+    private double value;
+    private String unit;
+    private LocalDateTime timestamp;
+    private LocalDateTime receivedTime;
+    private boolean anomalyDetected;
+
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    public int getNodeId() { return nodeId; }
+    public void setNodeId(int nodeId) { this.nodeId = nodeId; }
+
+    public String getSensorLocation() { return sensorLocation; }
+    public void setSensorLocation(String sensorLocation) { this.sensorLocation = sensorLocation; }
+
+    public double getValue() { return value; }
+    public void setValue(double value) { this.value = value; }
+
+    public String getUnit() { return unit; }
+    public void setUnit(String unit) { this.unit = unit; }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+
+    public LocalDateTime getReceivedTime() { return receivedTime; }
+    public void setReceivedTime(LocalDateTime receivedTime) { this.receivedTime = receivedTime; }
+
+    public boolean isAnomalyDetected() { return anomalyDetected; }
+    public void setAnomalyDetected(boolean anomalyDetected) { this.anomalyDetected = anomalyDetected; }
+}
@@ -20,6 +20,11 @@ public class StatisticsData {
     private BigDecimal maxValue;
     private Long totalCount;
     private Long validCount;
+    private BigDecimal stdDevValue;
+    private BigDecimal p50Value;
+    private BigDecimal p90Value;
+    private BigDecimal p95Value;
+    private BigDecimal p99Value;
     private String unit;
     
     public StatisticsData() {}
@@ -61,6 +66,26 @@ public class StatisticsData {
     public Long getValidCount() { return validCount; }
     public void setValidCount(Long validCount) { this.validCount = validCount; }
     
+    @JsonProperty("stdDevValue")
+    public BigDecimal getStdDevValue() { return stdDevValue; }
+    public void setStdDevValue(BigDecimal stdDevValue) { this.stdDevValue = stdDevValue; }
+    
+    @JsonProperty("p50Value")
+    public BigDecimal getP50Value() { return p50Value; }
+    public void setP50Value(BigDecimal p50Value) { this.p50Value = p50Value; }
+    
+    @JsonProperty("p90Value")
+    public BigDecimal getP90Value() { return p90Value; }
+    public void setP90Value(BigDecimal p90Value) { this.p90Value = p90Value; }
+    
+    @JsonProperty("p95Value")
+    public BigDecimal getP95Value() { return p95Value; }
+    public void setP95Value(BigDecimal p95Value) { this.p95Value = p95Value; }
+    
+    @JsonProperty("p99Value")
+    public BigDecimal getP99Value() { return p99Value; }
+    public void setP99Value(BigDecimal p99Value) { this.p99Value = p99Value; }
+    
     @JsonProperty("unit")
     public String getUnit() { return unit; }
     public void setUnit(String unit) { this.unit = unit; }
@@ -86,6 +111,11 @@ public class StatisticsData {
                 ", maxValue=" + maxValue +
                 ", totalCount=" + totalCount +
                 ", validCount=" + validCount +
+                ", stdDevValue=" + stdDevValue +
+                ", p50Value=" + p50Value +
+                ", p90Value=" + p90Value +
+                ", p95Value=" + p95Value +
+                ", p99Value=" + p99Value +
                 ", unit='" + unit + '\'' +
                 '}';
     }
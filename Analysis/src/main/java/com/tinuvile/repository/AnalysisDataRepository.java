@@ -0,0 +1,93 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.AnalysisData;
+import com.tinuvile.model.SensorType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 图表数据只读仓储
+ * 只查询图表需要的timestamp、value、unit列，直接映射为AnalysisData，
+ * 不读取raw_data等大字段，也不经过JPA实体和持久化上下文
+ *
+ * @author tinuvile
+ */
+@Repository
+public class AnalysisDataRepository {
+
+    private static final String SELECT_HISTORY =
+            "SELECT timestamp, value, unit FROM sensor_data " +
+            "WHERE sensor_type = ? AND timestamp BETWEEN ? AND ? AND received_time >= ? AND is_valid = TRUE " +
+            "ORDER BY timestamp ASC, id ASC";
+
+    private static final String SELECT_LATEST =
+            "SELECT timestamp, value, unit FROM sensor_data " +
+            "WHERE sensor_type = ? AND received_time >= ? " +
+            "ORDER BY timestamp DESC " +
+            "LIMIT ?";
+
+    // 每种类型id最大的有效记录
+    private static final String SELECT_LATEST_ALL_TYPES =
+            "SELECT s.sensor_type, s.timestamp, s.value, s.unit FROM sensor_data s " +
+            "JOIN (SELECT MAX(id) AS id FROM sensor_data WHERE is_valid = TRUE GROUP BY sensor_type) m " +
+            "ON s.id = m.id " +
+            "ORDER BY s.sensor_type ASC";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 读取时间范围内的有效数据，按时间升序
+     *
+     * @param receivedFrom 接收时间下界，用于分区裁剪
+     */
+    public List<AnalysisData> findHistory(SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                                          LocalDateTime receivedFrom) {
+        Object[] args = {sensorType.getValue(), startTime, endTime, receivedFrom};
+        List<AnalysisData> result = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_HISTORY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // 流式读取，避免驱动先缓存整个结果集再由调用方复制一遍
+            ps.setFetchSize(Integer.MIN_VALUE);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, rs -> {
+            result.add(mapRow(rs, sensorType));
+        });
+        return result;
+    }
+
+    /**
+     * 读取指定类型最新的limit条数据，按时间降序
+     *
+     * @param receivedFrom 接收时间下界，用于分区裁剪
+     */
+    public List<AnalysisData> findLatest(SensorType sensorType, LocalDateTime receivedFrom, int limit) {
+        return jdbcTemplate.query(SELECT_LATEST, (rs, rowNum) -> mapRow(rs, sensorType),
+                sensorType.getValue(), receivedFrom, limit);
+    }
+
+    /**
+     * 读取每种传感器类型的最新一条有效数据
+     */
+    public List<AnalysisData> findLatestForAllTypes() {
+        return jdbcTemplate.query(SELECT_LATEST_ALL_TYPES,
+                (rs, rowNum) -> new AnalysisData(rs.getTimestamp(2).toLocalDateTime(), rs.getBigDecimal(3),
+                        SensorType.fromValue(rs.getString(1)), rs.getString(4)));
+    }
+
+    private static AnalysisData mapRow(ResultSet rs, SensorType sensorType) throws SQLException {
+        return new AnalysisData(rs.getTimestamp(1).toLocalDateTime(), rs.getBigDecimal(2),
+                sensorType, rs.getString(3));
+    }
+}
@@ -0,0 +1,68 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.SensorType;
+import com.tinuvile.model.StatisticsData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 数据统计表(data_statistics)只读仓储
+ * 小时汇总由订阅端在入库时维护，这里按小时合并各节点的汇总行
+ *
+ * @author tinuvile
+ */
+@Repository
+public class DataStatisticsRepository {
+
+    // 各节点的小时均值按有效条数加权合并
+    private static final String SELECT_HOURLY =
+            "SELECT stat_date, stat_hour, " +
+            "SUM(avg_value * count_valid) / NULLIF(SUM(count_valid), 0) AS avg_value, " +
+            "MIN(min_value) AS min_value, MAX(max_value) AS max_value, " +
+            "SUM(count_total) AS count_total, SUM(count_valid) AS count_valid " +
+            "FROM data_statistics " +
+            "WHERE sensor_type = ? AND stat_date BETWEEN ? AND ? AND stat_hour IS NOT NULL " +
+            "GROUP BY stat_date, stat_hour " +
+            "ORDER BY stat_date ASC, stat_hour ASC";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 查询[fromHour, toHour)内各整点小时的汇总
+     *
+     * @param fromHour 起始整点(含)
+     * @param toHour   结束整点(不含)
+     */
+    public List<StatisticsData> findHourly(SensorType sensorType, LocalDateTime fromHour, LocalDateTime toHour) {
+        List<StatisticsData> rows = jdbcTemplate.query(SELECT_HOURLY, (rs, rowNum) -> {
+            LocalDateTime hour = rs.getDate("stat_date").toLocalDate().atTime(rs.getInt("stat_hour"), 0);
+
+            StatisticsData statistics = new StatisticsData(sensorType, hour, hour.plusHours(1));
+            statistics.setAvgValue(scale(rs.getBigDecimal("avg_value")));
+            statistics.setMinValue(orZero(rs.getBigDecimal("min_value")));
+            statistics.setMaxValue(orZero(rs.getBigDecimal("max_value")));
+            statistics.setTotalCount(rs.getLong("count_total"));
+            statistics.setValidCount(rs.getLong("count_valid"));
+            return statistics;
+        }, sensorType.getValue(), fromHour.toLocalDate(), toHour.toLocalDate());
+
+        // 按日期过滤后再裁掉首尾日期中范围外的小时
+        rows.removeIf(s -> s.getStartTime().isBefore(fromHour) || !s.getStartTime().isBefore(toHour));
+        return rows;
+    }
+
+    private static BigDecimal scale(BigDecimal value) {
+        return value != null ? value.setScale(3, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,118 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.SensorDataRow;
+import com.tinuvile.model.SensorType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * 传感器数据导出仓储
+ * 按(timestamp, id)做键集分页，每页用流式结果集逐行回调，内存占用与总行数无关
+ *
+ * @author tinuvile
+ */
+@Repository
+public class SensorDataExportRepository {
+
+    // (timestamp, id)严格大于上一页最后一行；首页传入(startTime, -1)即timestamp >= startTime
+    private static final String SELECT_PAGE =
+            "SELECT id, node_id, sensor_location, value, unit, timestamp, received_time, anomaly_detected " +
+            "FROM sensor_data " +
+            "WHERE sensor_type = ? AND is_valid = TRUE " +
+            "AND (timestamp > ? OR (timestamp = ? AND id > ?)) " +
+            "AND timestamp <= ? AND received_time >= ? " +
+            "ORDER BY timestamp ASC, id ASC " +
+            "LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // MySQL驱动仅在fetchSize为Integer.MIN_VALUE时逐行流式读取，否则整页缓存在客户端；其他驱动可配置为正数
+    @Value("${analysis.export.fetch-size:" + Integer.MIN_VALUE + "}")
+    private int fetchSize;
+
+    /**
+     * 读取一页数据并逐行回调
+     *
+     * @param afterTimestamp 上一页最后一行的timestamp
+     * @param afterId        上一页最后一行的id
+     * @param receivedFrom   接收时间下界，用于分区裁剪
+     * @param row            复用的行对象，回调返回后即被下一行覆盖
+     * @return 本页行数，小于pageSize表示已读完
+     */
+    public int streamPage(SensorType sensorType, LocalDateTime afterTimestamp, long afterId,
+                          LocalDateTime endTime, LocalDateTime receivedFrom, int pageSize,
+                          SensorDataRow row, Consumer<SensorDataRow> consumer) {
+        Object[] args = {sensorType.getValue(), afterTimestamp, afterTimestamp, afterId,
+                endTime, receivedFrom, pageSize};
+        int[] count = {0};
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_PAGE,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, rs -> {
+            row.setId(rs.getLong(1));
+            row.setNodeId(rs.getInt(2));
+            row.setSensorLocation(rs.getString(3));
+            row.setValue(rs.getDouble(4));
+            row.setUnit(rs.getString(5));
+            row.setTimestamp(toLocalDateTime(rs.getTimestamp(6)));
+            row.setReceivedTime(toLocalDateTime(rs.getTimestamp(7)));
+            row.setAnomalyDetected(rs.getBoolean(8));
+            consumer.accept(row);
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * 按页顺序读取[startTime, endTime]内的全部数据并逐行回调，行按(timestamp, id)升序
+     *
+     * @return 读取的总行数
+     */
+    public long streamRange(SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                            LocalDateTime receivedFrom, int pageSize, Consumer<SensorDataRow> consumer) {
+        return streamRange(sensorType, startTime, endTime, receivedFrom, pageSize, consumer, () -> { });
+    }
+
+    /**
+     * 按页顺序读取[startTime, endTime]内的全部数据并逐行回调，行按(timestamp, id)升序
+     *
+     * @param pageEnd 每读完一个整页后回调，调用方可借此把已写出的内容推送给客户端
+     * @return 读取的总行数
+     */
+    public long streamRange(SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                            LocalDateTime receivedFrom, int pageSize, Consumer<SensorDataRow> consumer,
+                            Runnable pageEnd) {
+        SensorDataRow row = new SensorDataRow();
+        LocalDateTime afterTimestamp = startTime;
+        long afterId = -1;
+        long total = 0;
+        while (true) {
+            int read = streamPage(sensorType, afterTimestamp, afterId, endTime, receivedFrom, pageSize, row, consumer);
+            total += read;
+            if (read < pageSize) {
+                return total;
+            }
+            afterTimestamp = row.getTimestamp();
+            afterId = row.getId();
+            pageEnd.run();
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,119 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.analysis.TimeSeries;
+import com.tinuvile.model.SensorType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多序列数值读取仓储
+ * 一条查询读取多个传感器类型/节点的(时间, 数值)，按时间升序流式回调，由调用方在内存中按序列拆分
+ *
+ * @author tinuvile
+ */
+@Repository
+public class SensorDataSeriesRepository {
+
+    private static final String SELECT_PREFIX =
+            "SELECT sensor_type, node_id, timestamp, value FROM sensor_data " +
+            "WHERE timestamp BETWEEN ? AND ? AND received_time >= ? AND is_valid = TRUE ";
+
+    private static final String ORDER_BY = " ORDER BY timestamp ASC, id ASC";
+
+    private static final String SELECT_SERIES =
+            "SELECT timestamp, value FROM sensor_data " +
+            "WHERE sensor_type = ? AND timestamp BETWEEN ? AND ? AND received_time >= ? AND is_valid = TRUE" +
+            ORDER_BY;
+
+    /**
+     * 行回调
+     */
+    @FunctionalInterface
+    public interface SeriesRowHandler {
+        /**
+         * @param timeMillis 数据时间戳按UTC换算的毫秒数
+         */
+        void onRow(SensorType sensorType, int nodeId, long timeMillis, double value);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 读取时间范围内指定类型和节点的数据
+     *
+     * @param sensorTypes 传感器类型，为空表示全部
+     * @param nodeIds     节点ID，为空表示全部
+     * @return 读取的行数
+     */
+    public long streamValues(List<SensorType> sensorTypes, List<Integer> nodeIds,
+                             LocalDateTime startTime, LocalDateTime endTime, LocalDateTime receivedFrom,
+                             SeriesRowHandler handler) {
+        StringBuilder sql = new StringBuilder(SELECT_PREFIX);
+        List<Object> args = new ArrayList<>();
+        args.add(startTime);
+        args.add(endTime);
+        args.add(receivedFrom);
+        if (sensorTypes != null && !sensorTypes.isEmpty()) {
+            sql.append("AND sensor_type IN (").append(placeholders(sensorTypes.size())).append(") ");
+            for (SensorType sensorType : sensorTypes) {
+                args.add(sensorType.getValue());
+            }
+        }
+        if (nodeIds != null && !nodeIds.isEmpty()) {
+            sql.append("AND node_id IN (").append(placeholders(nodeIds.size())).append(") ");
+            args.addAll(nodeIds);
+        }
+        sql.append(ORDER_BY);
+
+        long[] count = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL驱动仅在fetchSize为Integer.MIN_VALUE时逐行流式读取
+            ps.setFetchSize(Integer.MIN_VALUE);
+            new ArgumentPreparedStatementSetter(args.toArray()).setValues(ps);
+            return ps;
+        }, rs -> {
+            handler.onRow(SensorType.fromValue(rs.getString(1)), rs.getInt(2),
+                    rs.getTimestamp(3).toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                    rs.getDouble(4));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * 读取单个传感器类型的有效数据为基本类型数组序列，不经过JPA实体
+     */
+    public TimeSeries loadSeries(SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                                 LocalDateTime receivedFrom) {
+        TimeSeries series = new TimeSeries();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_SERIES,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            new ArgumentPreparedStatementSetter(new Object[]{sensorType.getValue(), startTime, endTime, receivedFrom})
+                    .setValues(ps);
+            return ps;
+        }, rs -> {
+            series.add(rs.getTimestamp(1).toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                    rs.getDouble(2));
+        });
+        return series;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
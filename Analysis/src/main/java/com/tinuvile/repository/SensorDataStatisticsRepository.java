@@ -0,0 +1,114 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.SensorType;
+import com.tinuvile.model.StatisticsData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 原始数据区间统计仓储
+ * 一条查询同时得到条数、均值、极值、标准差和分位数；
+ * 小时统计与data_statistics汇总表口径一致，便于与汇总结果拼接
+ *
+ * @author tinuvile
+ */
+@Repository
+public class SensorDataStatisticsRepository {
+
+    // 数值统计只针对有效数据；分位数取最近秩，rn为有效数据内按数值排序的序号
+    private static final String SELECT_STATISTICS =
+            "SELECT COUNT(*) AS count_total, COUNT(v) AS count_valid, " +
+            "AVG(v) AS avg_value, MIN(v) AS min_value, MAX(v) AS max_value, " +
+            "STDDEV_POP(v) AS stddev_value, " +
+            "MIN(CASE WHEN rn >= CEIL(0.50 * n) THEN v END) AS p50_value, " +
+            "MIN(CASE WHEN rn >= CEIL(0.90 * n) THEN v END) AS p90_value, " +
+            "MIN(CASE WHEN rn >= CEIL(0.95 * n) THEN v END) AS p95_value, " +
+            "MIN(CASE WHEN rn >= CEIL(0.99 * n) THEN v END) AS p99_value " +
+            "FROM (" +
+            "SELECT CASE WHEN is_valid THEN value END AS v, " +
+            "ROW_NUMBER() OVER (PARTITION BY is_valid ORDER BY value) AS rn, " +
+            "SUM(CASE WHEN is_valid THEN 1 ELSE 0 END) OVER () AS n " +
+            "FROM sensor_data " +
+            "WHERE sensor_type = ? AND timestamp BETWEEN ? AND ? AND received_time >= ?" +
+            ") t";
+
+    // 与汇总表相同：count_total含无效数据，数值统计和count_valid只计有效数据
+    private static final String SELECT_HOURLY =
+            "SELECT CAST(timestamp AS DATE) AS stat_date, HOUR(timestamp) AS stat_hour, " +
+            "COUNT(*) AS count_total, COUNT(v) AS count_valid, " +
+            "AVG(v) AS avg_value, MIN(v) AS min_value, MAX(v) AS max_value " +
+            "FROM (" +
+            "SELECT timestamp, CASE WHEN is_valid THEN value END AS v " +
+            "FROM sensor_data " +
+            "WHERE sensor_type = ? AND timestamp BETWEEN ? AND ? AND received_time >= ?" +
+            ") t " +
+            "GROUP BY CAST(timestamp AS DATE), HOUR(timestamp) " +
+            "ORDER BY stat_date, stat_hour";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 统计[startTime, endTime]内的数据
+     *
+     * @param receivedFrom 接收时间下界，用于分区裁剪
+     */
+    public StatisticsData findStatistics(SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                                         LocalDateTime receivedFrom) {
+        return jdbcTemplate.queryForObject(SELECT_STATISTICS, (rs, rowNum) -> {
+            StatisticsData statistics = new StatisticsData(sensorType, startTime, endTime);
+            statistics.setTotalCount(rs.getLong("count_total"));
+            statistics.setValidCount(rs.getLong("count_valid"));
+            statistics.setAvgValue(orZero(scale(rs.getBigDecimal("avg_value"))));
+            statistics.setMinValue(orZero(rs.getBigDecimal("min_value")));
+            statistics.setMaxValue(orZero(rs.getBigDecimal("max_value")));
+            statistics.setStdDevValue(scale(getDouble(rs, "stddev_value")));
+            statistics.setP50Value(rs.getBigDecimal("p50_value"));
+            statistics.setP90Value(rs.getBigDecimal("p90_value"));
+            statistics.setP95Value(rs.getBigDecimal("p95_value"));
+            statistics.setP99Value(rs.getBigDecimal("p99_value"));
+            return statistics;
+        }, sensorType.getValue(), startTime, endTime, receivedFrom);
+    }
+
+    /**
+     * 按小时统计[startTime, endTime]内的数据，用于尚未写入汇总表的小时
+     *
+     * @param receivedFrom 接收时间下界，用于分区裁剪
+     */
+    public List<StatisticsData> findHourly(SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                                           LocalDateTime receivedFrom) {
+        return jdbcTemplate.query(SELECT_HOURLY, (rs, rowNum) -> {
+            LocalDateTime hour = rs.getDate("stat_date").toLocalDate().atTime(rs.getInt("stat_hour"), 0);
+
+            StatisticsData statistics = new StatisticsData(sensorType, hour, hour.plusHours(1));
+            statistics.setTotalCount(rs.getLong("count_total"));
+            statistics.setValidCount(rs.getLong("count_valid"));
+            statistics.setAvgValue(orZero(scale(rs.getBigDecimal("avg_value"))));
+            statistics.setMinValue(orZero(rs.getBigDecimal("min_value")));
+            statistics.setMaxValue(orZero(rs.getBigDecimal("max_value")));
+            return statistics;
+        }, sensorType.getValue(), startTime, endTime, receivedFrom);
+    }
+
+    private static BigDecimal getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : BigDecimal.valueOf(value);
+    }
+
+    private static BigDecimal scale(BigDecimal value) {
+        return value != null ? value.setScale(3, RoundingMode.HALF_UP) : null;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
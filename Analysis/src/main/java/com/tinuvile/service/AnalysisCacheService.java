@@ -0,0 +1,311 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.SensorType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分析结果缓存服务
+ * 按(结果类型, 传感器类型, 对齐后的时间范围, 参数)缓存统计和预测结果，容量有上限，按最近最少使用淘汰；
+ * 结束时间早于当前时间减去时钟偏差的范围视为已封闭，正常采集不会再改变结果，保留closed-ttl；
+ * 回放或补传的历史数据仍会落入已封闭的范围，closed-ttl限定了这类数据最晚多久后可见；
+ * 与当前时间重叠的范围只保留live-ttl，过期后重新计算
+ * 缓存的结果对象由所有调用方共享，调用方不能修改
+ *
+ * @author tinuvile
+ */
+@Service
+public class AnalysisCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisCacheService.class);
+
+    public static final String CACHE_NAME = "analysis";
+
+    /**
+     * 在对齐后的时间范围上计算结果
+     */
+    @FunctionalInterface
+    public interface RangeLoader<T> {
+        T load(LocalDateTime startTime, LocalDateTime endTime);
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analysis.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analysis.cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${analysis.cache.live-ttl:10000}")
+    private long liveTtl;
+
+    // 小于等于0时已封闭范围的结果不过期
+    @Value("${analysis.cache.closed-ttl:600000}")
+    private long closedTtl;
+
+    @Value("${analysis.cache.align-seconds:60}")
+    private long alignSeconds;
+
+    // 晚到的数据仍可能落入已结束的时间范围
+    @Value("${analysis.storage.clock-skew:300000}")
+    private long clockSkew;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<CacheKey, CacheEntry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+            if (size() > maxEntries) {
+                sizeEvictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        new AnalysisCacheMetrics(this).bindTo(meterRegistry);
+    }
+
+    /**
+     * 获取缓存结果，未命中时在对齐后的时间范围上调用loader计算并缓存
+     * loader抛出的异常直接向上传播，不会被缓存
+     *
+     * @param kind    结果类型，如statistics、prediction
+     * @param variant 影响结果的其它参数，没有时传空串
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                     String variant, RangeLoader<T> loader) {
+        LocalDateTime alignedStart = alignDown(startTime);
+        LocalDateTime alignedEnd = alignUp(endTime);
+        if (!enabled) {
+            return loader.load(alignedStart, alignedEnd);
+        }
+
+        CacheKey key = new CacheKey(kind, sensorType, alignedStart, alignedEnd, variant);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                entries.remove(key);
+                expiredEvictions.increment();
+            }
+        }
+        misses.increment();
+
+        // 计算不持有锁，同一个键并发未命中时可能重复计算
+        T value = loader.load(alignedStart, alignedEnd);
+        boolean closed = alignedEnd.isBefore(LocalDateTime.now().minus(clockSkew, ChronoUnit.MILLIS));
+        long expiresAt = expiresAt(closed, System.currentTimeMillis());
+        synchronized (entries) {
+            entries.put(key, new CacheEntry(value, expiresAt));
+        }
+        puts.increment();
+        return value;
+    }
+
+    private long expiresAt(boolean closed, long now) {
+        if (!closed) {
+            return now + liveTtl;
+        }
+        return closedTtl > 0 ? now + closedTtl : Long.MAX_VALUE;
+    }
+
+    /**
+     * 定期移除已过期的结果
+     */
+    @Scheduled(fixedDelayString = "${analysis.cache.live-ttl:10000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAt <= now) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            expiredEvictions.add(removed);
+            logger.debug("移除过期分析缓存 {} 条", removed);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("size", size());
+        statistics.put("max_entries", maxEntries);
+        statistics.put("hits", hitCount);
+        statistics.put("misses", missCount);
+        statistics.put("hit_rate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        statistics.put("evictions_size", sizeEvictions.sum());
+        statistics.put("evictions_expired", expiredEvictions.sum());
+        return statistics;
+    }
+
+    private LocalDateTime alignDown(LocalDateTime time) {
+        if (alignSeconds <= 0) {
+            return time;
+        }
+        long seconds = time.toLocalTime().toSecondOfDay();
+        return time.toLocalDate().atStartOfDay().plusSeconds(seconds - seconds % alignSeconds);
+    }
+
+    private LocalDateTime alignUp(LocalDateTime time) {
+        LocalDateTime aligned = alignDown(time);
+        return aligned.equals(time) ? aligned : aligned.plusSeconds(alignSeconds);
+    }
+
+    private static final class CacheKey {
+        private final String kind;
+        private final SensorType sensorType;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final String variant;
+        private final int hash;
+
+        CacheKey(String kind, SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime, String variant) {
+            this.kind = kind;
+            this.sensorType = sensorType;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.variant = variant;
+            this.hash = Objects.hash(kind, sensorType, startTime, endTime, variant);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return sensorType == other.sensorType
+                    && kind.equals(other.kind)
+                    && startTime.equals(other.startTime)
+                    && endTime.equals(other.endTime)
+                    && Objects.equals(variant, other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CacheEntry {
+        private final Object value;
+        private final long expiresAt;
+
+        CacheEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 以Micrometer标准缓存指标(cache.gets、cache.puts、cache.evictions、cache.size)暴露
+     */
+    private static class AnalysisCacheMetrics extends CacheMeterBinder<AnalysisCacheService> {
+
+        AnalysisCacheMetrics(AnalysisCacheService cache) {
+            super(cache, CACHE_NAME, Tags.empty());
+        }
+
+        @Override
+        protected Long size() {
+            AnalysisCacheService cache = getCache();
+            return cache != null ? (long) cache.size() : null;
+        }
+
+        @Override
+        protected long hitCount() {
+            AnalysisCacheService cache = getCache();
+            return cache != null ? cache.hits.sum() : 0L;
+        }
+
+        @Override
+        protected Long missCount() {
+            AnalysisCacheService cache = getCache();
+            return cache != null ? cache.misses.sum() : null;
+        }
+
+        @Override
+        protected Long evictionCount() {
+            AnalysisCacheService cache = getCache();
+            return cache != null ? cache.sizeEvictions.sum() + cache.expiredEvictions.sum() : null;
+        }
+
+        @Override
+        protected long putCount() {
+            AnalysisCacheService cache = getCache();
+            return cache != null ? cache.puts.sum() : 0L;
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            Gauge.builder("cache.evictions.expired", this, m -> {
+                        AnalysisCacheService cache = m.getCache();
+                        return cache != null ? cache.expiredEvictions.sum() : 0;
+                    })
+                    .tags(getTagsWithCacheName())
+                    .description("因过期而移除的条目数")
+                    .register(registry);
+        }
+    }
+}
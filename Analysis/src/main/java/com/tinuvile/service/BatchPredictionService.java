@@ -0,0 +1,178 @@
+package com.tinuvile.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinuvile.analysis.TimeSeries;
+import com.tinuvile.model.PredictionData;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.SensorDataSeriesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 批量预测服务
+ * 一次查询读取所有请求序列的历史数据，在内存中按传感器类型（及节点）拆分，
+ * 各序列在预测引擎线程池中并发拟合，结果按完成顺序逐行写出(NDJSON)
+ *
+ * @author tinuvile
+ */
+@Service
+public class BatchPredictionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchPredictionService.class);
+
+    private static final int MIN_POINTS = 3;
+
+    @Autowired
+    private SensorDataSeriesRepository seriesRepository;
+
+    @Autowired
+    private PredictionEngine predictionEngine;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${analysis.storage.clock-skew:300000}")
+    private long clockSkew;
+
+    /**
+     * 批量生成预测并写入输出流，每个序列输出一行
+     *
+     * @param sensorTypes 传感器类型，为空表示全部
+     * @param nodeIds     节点ID过滤，为空表示全部
+     * @param groupByNode 为true时每个(类型, 节点)单独预测，否则同类型各节点合并为一个序列
+     * @return 输出的序列数
+     */
+    public int predict(List<SensorType> sensorTypes, List<Integer> nodeIds, boolean groupByNode,
+                       LocalDateTime startTime, LocalDateTime endTime, int predictionHours, String method,
+                       OutputStream out) throws IOException {
+        long loadStart = System.currentTimeMillis();
+        Map<SeriesKey, TimeSeries> seriesMap = new LinkedHashMap<>();
+        long rows = seriesRepository.streamValues(sensorTypes, nodeIds, startTime, endTime,
+                startTime.minus(clockSkew, ChronoUnit.MILLIS),
+                (sensorType, nodeId, timeMillis, value) -> seriesMap
+                        .computeIfAbsent(new SeriesKey(sensorType, groupByNode ? nodeId : null), k -> new TimeSeries())
+                        .add(timeMillis, value));
+        logger.info("批量预测数据加载: {} 条, {} 个序列, 耗时 {}ms", rows, seriesMap.size(),
+                System.currentTimeMillis() - loadStart);
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        // 各序列完成后放入队列，由当前线程按完成顺序写出
+        BlockingQueue<SeriesResult> completed = new LinkedBlockingQueue<>();
+        int pending = 0;
+        for (Map.Entry<SeriesKey, TimeSeries> entry : seriesMap.entrySet()) {
+            SeriesKey key = entry.getKey();
+            TimeSeries series = entry.getValue();
+            int size = series.size();
+            if (size < MIN_POINTS) {
+                writeResult(generator, new SeriesResult(key, size, Collections.emptyList(), "历史数据不足"));
+                continue;
+            }
+            pending++;
+            predictionEngine.predictAsync(key.sensorType, series, predictionHours, method)
+                    .whenComplete((predictions, error) -> completed.add(error == null
+                            ? new SeriesResult(key, size, predictions, null)
+                            : new SeriesResult(key, size, Collections.emptyList(), rootMessage(error))));
+        }
+        generator.flush();
+
+        try {
+            for (int i = 0; i < pending; i++) {
+                writeResult(generator, completed.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批量预测被中断", e);
+        }
+        if (!seriesMap.isEmpty()) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return seriesMap.size();
+    }
+
+    private void writeResult(JsonGenerator generator, SeriesResult result) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("sensorType", result.key.sensorType.getValue());
+        if (result.key.nodeId != null) {
+            generator.writeNumberField("nodeId", result.key.nodeId);
+        }
+        generator.writeNumberField("dataPoints", result.dataPoints);
+        generator.writeBooleanField("success", result.error == null);
+        if (result.error != null) {
+            generator.writeStringField("error", result.error);
+        }
+        generator.writeFieldName("predictions");
+        objectMapper.writeValue(generator, result.predictions);
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private static final class SeriesKey {
+        private final SensorType sensorType;
+        private final Integer nodeId;
+
+        SeriesKey(SensorType sensorType, Integer nodeId) {
+            this.sensorType = sensorType;
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SeriesKey)) {
+                return false;
+            }
+            SeriesKey other = (SeriesKey) o;
+            return sensorType == other.sensorType
+                    && (nodeId == null ? other.nodeId == null : nodeId.equals(other.nodeId));
+        }
+
+        @Override
+        public int hashCode() {
+            return sensorType.hashCode() * 31 + (nodeId != null ? nodeId : 0);
+        }
+    }
+
+    private static final class SeriesResult {
+        private final SeriesKey key;
+        private final int dataPoints;
+        private final List<PredictionData> predictions;
+        private final String error;
+
+        SeriesResult(SeriesKey key, int dataPoints, List<PredictionData> predictions, String error) {
+            this.key = key;
+            this.dataPoints = dataPoints;
+            this.predictions = predictions;
+            this.error = error;
+        }
+    }
+}
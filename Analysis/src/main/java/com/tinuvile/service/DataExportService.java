@@ -0,0 +1,372 @@
+package com.tinuvile.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.tinuvile.model.SensorDataRow;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.SensorDataExportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 历史数据流式导出服务
+ * 逐页读取、逐行写出，支持每N条取一条和按时间桶聚合两种服务端降采样
+ *
+ * @author tinuvile
+ */
+@Service
+public class DataExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExportService.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+
+        public String getExtension() { return extension; }
+    }
+
+    @Autowired
+    private SensorDataExportRepository exportRepository;
+
+    @Value("${analysis.export.page-size:5000}")
+    private int pageSize;
+
+    @Value("${analysis.storage.clock-skew:300000}")
+    private long clockSkew;
+
+    /**
+     * 将时间范围内的数据写入输出流
+     *
+     * @param every         每every条取一条，1表示不抽样
+     * @param bucketSeconds 大于0时按该时长聚合为avg/min/max/count，优先于every
+     * @return 写出的记录数
+     */
+    public long export(SensorType sensorType, LocalDateTime startTime, LocalDateTime endTime,
+                       Format format, int every, int bucketSeconds, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RecordSink sink = format == Format.CSV
+                ? new CsvSink(writer, bucketSeconds > 0)
+                : new NdjsonSink(writer, sensorType);
+        Sampler sampler = bucketSeconds > 0
+                ? new BucketSampler(sink, bucketSeconds)
+                : new EverySampler(sink, Math.max(1, every));
+
+        LocalDateTime receivedFrom = startTime.minus(clockSkew, ChronoUnit.MILLIS);
+        long rows;
+        try {
+            sink.begin();
+            // 每页写完推送一次，客户端尽早收到数据，也能尽早发现连接已断开
+            rows = exportRepository.streamRange(sensorType, startTime, endTime, receivedFrom, pageSize,
+                    sampler::accept, () -> flushPage(sink));
+            sampler.finish();
+            sink.end();
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            // 客户端中途断开
+            throw e.getCause();
+        }
+
+        logger.info("数据导出完成: sensorType={}, 读取 {} 条, 写出 {} 条", sensorType, rows, sink.written());
+        return sink.written();
+    }
+
+    private static void flushPage(RecordSink sink) {
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 输出格式
+     */
+    private interface RecordSink {
+        void begin() throws IOException;
+
+        void row(SensorDataRow row) throws IOException;
+
+        void bucket(LocalDateTime bucketStart, long count, double avg, double min, double max) throws IOException;
+
+        void end() throws IOException;
+
+        /**
+         * 把已写出的内容推送到输出流
+         */
+        void flush() throws IOException;
+
+        long written();
+    }
+
+    /**
+     * 每行一个JSON对象
+     */
+    private static class NdjsonSink implements RecordSink {
+        private final JsonGenerator generator;
+        private final String sensorType;
+        private long written = 0;
+
+        NdjsonSink(Writer writer, SensorType sensorType) throws IOException {
+            this.generator = JSON_FACTORY.createGenerator(writer);
+            this.generator.setRootValueSeparator(new SerializedString("\n"));
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.sensorType = sensorType.getValue();
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void row(SensorDataRow row) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", row.getId());
+            generator.writeNumberField("node_id", row.getNodeId());
+            generator.writeStringField("sensor_type", sensorType);
+            generator.writeStringField("location", row.getSensorLocation());
+            generator.writeNumberField("value", row.getValue());
+            generator.writeStringField("unit", row.getUnit());
+            generator.writeStringField("timestamp", String.valueOf(row.getTimestamp()));
+            generator.writeBooleanField("anomaly_detected", row.isAnomalyDetected());
+            generator.writeEndObject();
+            written++;
+        }
+
+        @Override
+        public void bucket(LocalDateTime bucketStart, long count, double avg, double min, double max) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("sensor_type", sensorType);
+            generator.writeStringField("bucket_start", bucketStart.toString());
+            generator.writeNumberField("count", count);
+            generator.writeNumberField("avg", avg);
+            generator.writeNumberField("min", min);
+            generator.writeNumberField("max", max);
+            generator.writeEndObject();
+            written++;
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public long written() {
+            return written;
+        }
+    }
+
+    /**
+     * 带表头的CSV
+     */
+    private static class CsvSink implements RecordSink {
+        private final Writer writer;
+        private final boolean bucketed;
+        private long written = 0;
+
+        CsvSink(Writer writer, boolean bucketed) {
+            this.writer = writer;
+            this.bucketed = bucketed;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write(bucketed
+                    ? "bucket_start,count,avg,min,max\n"
+                    : "id,node_id,location,value,unit,timestamp,anomaly_detected\n");
+        }
+
+        @Override
+        public void row(SensorDataRow row) throws IOException {
+            writer.write(Long.toString(row.getId()));
+            writer.write(',');
+            writer.write(Integer.toString(row.getNodeId()));
+            writer.write(',');
+            writeEscaped(row.getSensorLocation());
+            writer.write(',');
+            writer.write(Double.toString(row.getValue()));
+            writer.write(',');
+            writeEscaped(row.getUnit());
+            writer.write(',');
+            writer.write(String.valueOf(row.getTimestamp()));
+            writer.write(',');
+            writer.write(row.isAnomalyDetected() ? "true" : "false");
+            writer.write('\n');
+            written++;
+        }
+
+        @Override
+        public void bucket(LocalDateTime bucketStart, long count, double avg, double min, double max) throws IOException {
+            writer.write(bucketStart.toString());
+            writer.write(',');
+            writer.write(Long.toString(count));
+            writer.write(',');
+            writer.write(Double.toString(avg));
+            writer.write(',');
+            writer.write(Double.toString(min));
+            writer.write(',');
+            writer.write(Double.toString(max));
+            writer.write('\n');
+            written++;
+        }
+
+        @Override
+        public void end() {
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public long written() {
+            return written;
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * 降采样策略，按时间顺序接收每一行
+     */
+    private abstract static class Sampler {
+        protected final RecordSink sink;
+
+        Sampler(RecordSink sink) {
+            this.sink = sink;
+        }
+
+        void accept(SensorDataRow row) {
+            try {
+                onRow(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        abstract void onRow(SensorDataRow row) throws IOException;
+
+        void finish() throws IOException {
+        }
+    }
+
+    /**
+     * 每every条保留第一条
+     */
+    private static class EverySampler extends Sampler {
+        private final int every;
+        private long index = 0;
+
+        EverySampler(RecordSink sink, int every) {
+            super(sink);
+            this.every = every;
+        }
+
+        @Override
+        void onRow(SensorDataRow row) throws IOException {
+            if (index++ % every == 0) {
+                sink.row(row);
+            }
+        }
+    }
+
+    /**
+     * 按固定时长的时间桶聚合，数据已按时间排序，同一时刻只需保留一个桶
+     */
+    private static class BucketSampler extends Sampler {
+        private final long bucketSeconds;
+        private long currentBucket = Long.MIN_VALUE;
+        private long count;
+        private double sum;
+        private double min;
+        private double max;
+
+        BucketSampler(RecordSink sink, long bucketSeconds) {
+            super(sink);
+            this.bucketSeconds = bucketSeconds;
+        }
+
+        @Override
+        void onRow(SensorDataRow row) throws IOException {
+            long bucket = Math.floorDiv(row.getTimestamp().toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+            if (bucket != currentBucket) {
+                flushBucket();
+                currentBucket = bucket;
+                count = 0;
+                sum = 0.0;
+                min = Double.POSITIVE_INFINITY;
+                max = Double.NEGATIVE_INFINITY;
+            }
+            double value = row.getValue();
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        @Override
+        void finish() throws IOException {
+            flushBucket();
+        }
+
+        private void flushBucket() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            LocalDateTime bucketStart = LocalDateTime.ofEpochSecond(currentBucket * bucketSeconds, 0, ZoneOffset.UTC);
+            sink.bucket(bucketStart, count, sum / count, min, max);
+            count = 0;
+        }
+    }
+}
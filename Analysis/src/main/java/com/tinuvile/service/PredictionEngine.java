@@ -0,0 +1,269 @@
+package com.tinuvile.service;
+
+import com.tinuvile.analysis.ForecastModel;
+import com.tinuvile.analysis.ForecastModels;
+import com.tinuvile.analysis.TimeSeries;
+import com.tinuvile.model.PredictionData;
+import com.tinuvile.model.SensorType;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 多模型预测引擎
+ * auto模式下在ForkJoin线程池中并行拟合线性回归、多项式回归、移动平均和Holt平滑，
+ * 以序列末尾的留出集MSE（相同时比较MAE）评分，直接使用胜出模型在全量数据上的拟合结果外推
+ *
+ * @author tinuvile
+ */
+@Service
+public class PredictionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PredictionEngine.class);
+
+    // 少于该点数时无法切分留出集，直接使用移动平均
+    private static final int MIN_POINTS_FOR_SELECTION = 5;
+
+    /**
+     * 候选模型
+     */
+    private enum Candidate {
+        LINEAR(ForecastModels::linear),
+        POLYNOMIAL(ForecastModels::polynomial),
+        MOVING_AVERAGE((hours, values, length) -> ForecastModels.movingAverage(values, length)),
+        EXPONENTIAL_SMOOTHING((hours, values, length) -> ForecastModels.holt(values, length));
+
+        private final Fitter fitter;
+
+        Candidate(Fitter fitter) {
+            this.fitter = fitter;
+        }
+
+        /**
+         * 在前length个点上拟合
+         */
+        ForecastModel fit(double[] hours, double[] values, int length) {
+            return fitter.fit(hours, values, length);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Fitter {
+        ForecastModel fit(double[] hours, double[] values, int length);
+    }
+
+    @Value("${analysis.prediction.parallelism:0}")
+    private int parallelism;
+
+    @Value("${analysis.prediction.holdout-ratio:0.2}")
+    private double holdoutRatio;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+        logger.info("预测引擎已启动: parallelism={}, holdoutRatio={}", threads, holdoutRatio);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 生成预测
+     *
+     * @param series 按时间升序的历史序列，至少一个点
+     * @param method auto、linear、polynomial、moving_average或exponential_smoothing
+     */
+    public List<PredictionData> predict(SensorType sensorType, TimeSeries series,
+                                        int predictionHours, String method) {
+        int n = series.size();
+        double[] hours = series.hoursSinceStart();
+        double[] values = series.values();
+
+        ForecastModel model;
+        switch (method.toLowerCase()) {
+            case "linear":
+                model = Candidate.LINEAR.fit(hours, values, n);
+                break;
+            case "polynomial":
+                try {
+                    model = Candidate.POLYNOMIAL.fit(hours, values, n);
+                } catch (MathIllegalArgumentException e) {
+                    logger.warn("多项式拟合失败，降级使用线性回归: {}", e.getMessage());
+                    model = Candidate.LINEAR.fit(hours, values, n);
+                }
+                break;
+            case "moving_average":
+                model = Candidate.MOVING_AVERAGE.fit(hours, values, n);
+                break;
+            case "exponential_smoothing":
+                model = Candidate.EXPONENTIAL_SMOOTHING.fit(hours, values, n);
+                break;
+            case "auto":
+            default:
+                model = selectModel(hours, values, n);
+        }
+
+        return extrapolate(sensorType, model, series.getLastTime(), hours[n - 1], predictionHours);
+    }
+
+    /**
+     * 在引擎线程池中异步生成预测
+     */
+    public CompletableFuture<List<PredictionData>> predictAsync(SensorType sensorType, TimeSeries series,
+                                                                int predictionHours, String method) {
+        return CompletableFuture.supplyAsync(() -> predict(sensorType, series, predictionHours, method), pool);
+    }
+
+    /**
+     * 并行拟合全部候选模型并按留出集误差选出最优者
+     */
+    private ForecastModel selectModel(double[] hours, double[] values, int n) {
+        if (n < MIN_POINTS_FOR_SELECTION) {
+            logger.info("数据点不足，选择移动平均预测算法: n={}", n);
+            return Candidate.MOVING_AVERAGE.fit(hours, values, n);
+        }
+
+        int holdout = Math.max(1, (int) Math.round(n * holdoutRatio));
+        int train = Math.max(MIN_POINTS_FOR_SELECTION - 1, n - holdout);
+        holdout = n - train;
+
+        List<Callable<Evaluation>> tasks = new ArrayList<>();
+        for (Candidate candidate : Candidate.values()) {
+            tasks.add(() -> evaluate(candidate, hours, values, n, train));
+        }
+
+        Evaluation best = null;
+        for (Future<Evaluation> future : pool.invokeAll(tasks)) {
+            Evaluation evaluation;
+            try {
+                evaluation = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.debug("候选模型拟合失败: {}", e.getCause().getMessage());
+                continue;
+            }
+            if (best == null || evaluation.betterThan(best)) {
+                best = evaluation;
+            }
+        }
+
+        if (best == null) {
+            logger.warn("所有候选模型拟合失败，使用线性回归");
+            return Candidate.LINEAR.fit(hours, values, n);
+        }
+        logger.info("自动选择预测算法: {}, 留出集MSE={}, MAE={}, 训练点数={}, 留出点数={}",
+                best.model.getMethod(), best.mse, best.mae, train, holdout);
+        return best.model;
+    }
+
+    /**
+     * 在前train个点上拟合并对[train, n)评分，同时在全量n个点上拟合供外推使用
+     */
+    private Evaluation evaluate(Candidate candidate, double[] hours, double[] values, int n, int train) {
+        ForecastModel trainModel = candidate.fit(hours, values, train);
+
+        double[] predicted = new double[n - train];
+        for (int i = 0; i < predicted.length; i++) {
+            predicted[i] = trainModel.predict(hours[train + i], i + 1);
+        }
+
+        Evaluation evaluation = new Evaluation();
+        evaluation.mse = ForecastModels.meanSquaredError(values, train, predicted);
+        evaluation.mae = ForecastModels.meanAbsoluteError(values, train, predicted);
+        evaluation.model = candidate.fit(hours, values, n);
+        logger.debug("候选模型评估: method={}, MSE={}, MAE={}", evaluation.model.getMethod(), evaluation.mse, evaluation.mae);
+        return evaluation;
+    }
+
+    /**
+     * 从最后一个点起按小时外推
+     */
+    private List<PredictionData> extrapolate(SensorType sensorType, ForecastModel model,
+                                             long lastTime, double lastHours, int predictionHours) {
+        LocalDateTime last = LocalDateTime.ofEpochSecond(Math.floorDiv(lastTime, 1000L),
+                (int) Math.floorMod(lastTime, 1000L) * 1_000_000, ZoneOffset.UTC);
+        List<PredictionData> predictions = new ArrayList<>(predictionHours);
+        for (int i = 1; i <= predictionHours; i++) {
+            double value = applySensorRangeLimits(sensorType, model.predict(lastHours + i, i));
+            // 序列为常数时R²等指标无定义
+            double confidence = model.confidence(i);
+            if (Double.isNaN(confidence)) {
+                confidence = 0;
+            }
+
+            PredictionData prediction = new PredictionData();
+            prediction.setTimestamp(last.plusHours(i));
+            prediction.setPredictedValue(new BigDecimal(value).setScale(2, RoundingMode.HALF_UP));
+            prediction.setSensorType(sensorType);
+            prediction.setUnit(sensorType.getUnit());
+            prediction.setPredictionMethod(model.getMethod());
+            prediction.setConfidenceLevel(new BigDecimal(confidence).setScale(2, RoundingMode.HALF_UP));
+            predictions.add(prediction);
+        }
+        return predictions;
+    }
+
+    /**
+     * 应用传感器类型的合理范围限制
+     */
+    private double applySensorRangeLimits(SensorType sensorType, double value) {
+        switch (sensorType) {
+            case temperature:
+                // 温度范围: -40°C 到 80°C
+                return Math.max(-40, Math.min(80, value));
+            case humidity:
+                // 湿度范围: 0% 到 100%
+                return Math.max(0, Math.min(100, value));
+            case pressure:
+                // 气压范围: 800hPa 到 1200hPa
+                return Math.max(800, Math.min(1200, value));
+            case light:
+                // 光照范围: 0lux 到 100000lux
+                return Math.max(0, Math.min(100000, value));
+            case air_quality:
+                // 空气质量指数: 0 到 500
+                return Math.max(0, Math.min(500, value));
+            default:
+                return value;
+        }
+    }
+
+    private static final class Evaluation {
+        ForecastModel model;
+        double mse;
+        double mae;
+
+        boolean betterThan(Evaluation other) {
+            if (Double.isNaN(mse)) {
+                return false;
+            }
+            if (Double.isNaN(other.mse) || mse < other.mse) {
+                return true;
+            }
+            return mse == other.mse && mae < other.mae;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.tinuvile.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ForecastModelsTest {
+
+    private static final double[] HOURS = {0, 1, 2, 3, 4, 5, 6, 7};
+
+    @Test
+    void linearFitsOnlyFirstLengthPoints() {
+        // 前5个点为 y = 2x + 1，之后的点偏离直线，不应影响拟合
+        double[] values = {1, 3, 5, 7, 9, 100, 200, 300};
+
+        ForecastModel model = ForecastModels.linear(HOURS, values, 5);
+
+        assertThat(model.getMethod()).isEqualTo(ForecastModels.LINEAR);
+        assertThat(model.predict(10, 1)).isCloseTo(21.0, within(1e-9));
+        assertThat(model.confidence(1)).isCloseTo(0.97, within(1e-9));
+    }
+
+    @Test
+    void polynomialFitsQuadratic() {
+        double[] values = new double[HOURS.length];
+        for (int i = 0; i < HOURS.length; i++) {
+            values[i] = HOURS[i] * HOURS[i] - 2 * HOURS[i] + 3;
+        }
+
+        ForecastModel model = ForecastModels.polynomial(HOURS, values, HOURS.length);
+
+        assertThat(model.predict(8, 1)).isCloseTo(51.0, within(1e-6));
+        // 超出历史范围50%后改为末端线性外推：最后一点 38，最后一段趋势 11
+        assertThat(model.predict(20, 2)).isCloseTo(38.0 + 11 * 2, within(1e-6));
+    }
+
+    @Test
+    void movingAverageUsesRecentWindow() {
+        double[] values = {10, 10, 10, 10, 10, 10, 10, 10, 10, 1, 2, 3};
+
+        ForecastModel model = ForecastModels.movingAverage(values, values.length);
+
+        // 窗口为 max(3, 12/3) = 4 个点: 10, 1, 2, 3
+        assertThat(model.predict(0, 1)).isCloseTo(4.0 + (-9 + 1 + 1) / 3.0, within(1e-9));
+    }
+
+    @Test
+    void movingAverageHandlesSeriesShorterThanWindow() {
+        ForecastModel single = ForecastModels.movingAverage(new double[]{5}, 1);
+        assertThat(single.predict(0, 1)).isEqualTo(5.0);
+        assertThat(single.confidence(1)).isNotNaN();
+
+        ForecastModel pair = ForecastModels.movingAverage(new double[]{4, 6}, 2);
+        assertThat(pair.predict(0, 1)).isCloseTo(7.0, within(1e-9));
+    }
+
+    @Test
+    void holtFollowsLinearTrend() {
+        double[] values = {10, 12, 14, 16, 18, 20, 22, 24};
+
+        ForecastModel model = ForecastModels.holt(values, values.length);
+
+        assertThat(model.getMethod()).isEqualTo(ForecastModels.EXPONENTIAL_SMOOTHING);
+        assertThat(model.predict(0, 1)).isCloseTo(26.0, within(1e-9));
+        assertThat(model.predict(0, 3)).isCloseTo(30.0, within(1e-9));
+    }
+
+    @Test
+    void errorsCompareAgainstOffsetSlice() {
+        double[] actual = {100, 100, 1, 2, 3};
+        double[] predicted = {2, 2, 5};
+
+        assertThat(ForecastModels.meanSquaredError(actual, 2, predicted)).isCloseTo((1 + 0 + 4) / 3.0, within(1e-12));
+        assertThat(ForecastModels.meanAbsoluteError(actual, 2, predicted)).isCloseTo((1 + 0 + 2) / 3.0, within(1e-12));
+    }
+
+    @Test
+    void errorsIgnoreNaNPredictions() {
+        double[] actual = {1, 2, 3};
+        double[] predicted = {2, Double.NaN, 3};
+
+        assertThat(ForecastModels.meanSquaredError(actual, 0, predicted)).isEqualTo(0.5);
+        assertThat(ForecastModels.meanAbsoluteError(actual, 0, predicted)).isEqualTo(0.5);
+        assertThat(ForecastModels.meanSquaredError(actual, 0, new double[]{Double.NaN})).isEqualTo(Double.MAX_VALUE);
+    }
+
+    @Test
+    void fullArrayErrorsRequireMatchingLengths() {
+        assertThat(ForecastModels.meanSquaredError(new double[]{1, 2}, new double[]{1, 4})).isEqualTo(2.0);
+        assertThat(ForecastModels.meanAbsoluteError(new double[]{1, 2}, new double[]{1})).isEqualTo(Double.MAX_VALUE);
+    }
+}
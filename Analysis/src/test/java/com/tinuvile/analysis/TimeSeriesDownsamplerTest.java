@@ -0,0 +1,157 @@
+package com.tinuvile.analysis;
+
+import com.tinuvile.analysis.TimeSeriesDownsampler.Mode;
+import com.tinuvile.analysis.TimeSeriesDownsampler.Series;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeSeriesDownsamplerTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private static TimeSeriesDownsampler feed(Mode mode, int maxPoints, double[] values) {
+        TimeSeriesDownsampler downsampler = new TimeSeriesDownsampler(mode, START, START + values.length - 1, maxPoints);
+        for (int i = 0; i < values.length; i++) {
+            downsampler.add(START + i, values[i]);
+        }
+        return downsampler;
+    }
+
+    private static double[] sine(int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = Math.sin(i / 50.0) * 10;
+        }
+        return values;
+    }
+
+    private static void assertAscending(Series series) {
+        for (int i = 1; i < series.size(); i++) {
+            assertThat(series.getTime(i)).isGreaterThan(series.getTime(i - 1));
+        }
+    }
+
+    @Test
+    void returnsRawPointsWhenInputFits() {
+        Series series = feed(Mode.LTTB, 10, new double[]{1, 2, 3}).result();
+
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.getTime(0)).isEqualTo(START);
+        assertThat(series.getValue(2)).isEqualTo(3.0);
+    }
+
+    @Test
+    void lttbKeepsEndpointsAndPointCount() {
+        double[] values = sine(10_000);
+        TimeSeriesDownsampler downsampler = feed(Mode.LTTB, 100, values);
+        Series series = downsampler.result();
+
+        assertThat(downsampler.getInputCount()).isEqualTo(10_000);
+        assertThat(series.size()).isEqualTo(100);
+        assertThat(series.getTime(0)).isEqualTo(START);
+        assertThat(series.getTime(99)).isEqualTo(START + 9_999);
+        assertThat(series.getValue(99)).isEqualTo(values[9_999]);
+        assertAscending(series);
+    }
+
+    @Test
+    void lttbKeepsIsolatedSpike() {
+        double[] values = new double[5_000];
+        values[2_345] = 100;
+
+        Series series = feed(Mode.LTTB, 50, values).result();
+
+        boolean spikeKept = false;
+        for (int i = 0; i < series.size(); i++) {
+            if (series.getValue(i) == 100) {
+                spikeKept = series.getTime(i) == START + 2_345;
+            }
+        }
+        assertThat(spikeKept).isTrue();
+    }
+
+    @Test
+    void minMaxKeepsExtremesOfEveryBucket() {
+        double[] values = sine(10_000);
+        values[7_000] = -50;
+        values[7_001] = 50;
+
+        Series series = feed(Mode.MINMAX, 40, values).result();
+
+        assertThat(series.size()).isLessThanOrEqualTo(40);
+        assertAscending(series);
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = 0; i < series.size(); i++) {
+            min = Math.min(min, series.getValue(i));
+            max = Math.max(max, series.getValue(i));
+        }
+        assertThat(min).isEqualTo(-50);
+        assertThat(max).isEqualTo(50);
+    }
+
+    @Test
+    void averageModeOutputsBucketMeans() {
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i < 50 ? 1 : 3;
+        }
+
+        Series series = feed(Mode.AVG, 2, values).result();
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.getValue(0)).isEqualTo(1.0);
+        assertThat(series.getValue(1)).isEqualTo(3.0);
+        assertThat(series.getTime(0)).isEqualTo(START + 25);
+    }
+
+    @Test
+    void smallTargetsStayWithinMaxPoints() {
+        double[] values = sine(1_000);
+        for (Mode mode : Mode.values()) {
+            for (int maxPoints = 1; maxPoints <= 4; maxPoints++) {
+                Series series = feed(mode, maxPoints, values).result();
+                assertThat(series.size()).as("%s maxPoints=%d", mode, maxPoints).isBetween(1, maxPoints);
+                assertAscending(series);
+            }
+        }
+    }
+
+    @Test
+    void twoPointsKeepFirstAndLast() {
+        double[] values = sine(1_000);
+        for (Mode mode : new Mode[]{Mode.LTTB, Mode.MINMAX}) {
+            Series series = feed(mode, 2, values).result();
+
+            assertThat(series.size()).isEqualTo(2);
+            assertThat(series.getTime(0)).isEqualTo(START);
+            assertThat(series.getTime(1)).isEqualTo(START + 999);
+        }
+    }
+
+    @Test
+    void onePointKeepsLatest() {
+        Series series = feed(Mode.LTTB, 1, sine(1_000)).result();
+
+        assertThat(series.size()).isEqualTo(1);
+        assertThat(series.getTime(0)).isEqualTo(START + 999);
+    }
+
+    @Test
+    void rejectsNonPositiveMaxPoints() {
+        assertThatThrownBy(() -> new TimeSeriesDownsampler(Mode.LTTB, START, START + 10, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void emptyInputGivesEmptySeries() {
+        assertThat(new TimeSeriesDownsampler(Mode.MINMAX, START, START + 10, 5).result().size()).isZero();
+    }
+
+    @Test
+    void parsesModeCode() {
+        assertThat(Mode.fromCode(" minmax ")).isEqualTo(Mode.MINMAX);
+    }
+}
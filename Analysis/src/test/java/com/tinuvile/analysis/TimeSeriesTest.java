@@ -0,0 +1,83 @@
+package com.tinuvile.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TimeSeriesTest {
+
+    private static final long BASE = 1_709_251_200_000L;
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        TimeSeries series = new TimeSeries(2);
+        for (int i = 0; i < 1_000; i++) {
+            series.add(BASE + i * 1_000L, i * 0.5);
+        }
+
+        assertThat(series.size()).isEqualTo(1_000);
+        assertThat(series.getFirstTime()).isEqualTo(BASE);
+        assertThat(series.getLastTime()).isEqualTo(BASE + 999_000L);
+        assertThat(series.getValue(999)).isEqualTo(499.5);
+        assertThat(series.values().length).isGreaterThanOrEqualTo(1_000);
+    }
+
+    @Test
+    void nonPositiveCapacityStillAcceptsPoints() {
+        TimeSeries series = new TimeSeries(0);
+        assertThat(series.isEmpty()).isTrue();
+
+        series.add(BASE, 1);
+        series.add(BASE + 1, 2);
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.isEmpty()).isFalse();
+    }
+
+    @Test
+    void backingArraysAreNotCopied() {
+        TimeSeries series = new TimeSeries(4);
+        series.add(BASE, 1);
+
+        assertThat(series.values()).isSameAs(series.values());
+        assertThat(series.times()).isSameAs(series.times());
+        assertThat(series.times()[0]).isEqualTo(BASE);
+    }
+
+    @Test
+    void hoursSinceStartHasExactlySizeEntries() {
+        TimeSeries series = new TimeSeries(16);
+        series.add(BASE, 1);
+        series.add(BASE + 1_800_000L, 2);
+        series.add(BASE + 7_200_000L, 3);
+
+        double[] hours = series.hoursSinceStart();
+
+        assertThat(hours).hasSize(3);
+        assertThat(hours[0]).isZero();
+        assertThat(hours[1]).isCloseTo(0.5, within(1e-12));
+        assertThat(hours[2]).isCloseTo(2.0, within(1e-12));
+        assertThat(new TimeSeries().hoursSinceStart()).isEmpty();
+    }
+
+    @Test
+    void modelsFitPrefixOfOversizedBackingArray() {
+        // 底层数组长度大于size，拟合和误差只能使用前size个点
+        TimeSeries series = new TimeSeries(64);
+        for (int i = 0; i < 10; i++) {
+            series.add(BASE + i * 3_600_000L, 3 * i + 2);
+        }
+        double[] hours = series.hoursSinceStart();
+        double[] values = series.values();
+
+        ForecastModel model = ForecastModels.linear(hours, values, series.size());
+        double[] predicted = {model.predict(8, 1), model.predict(9, 2)};
+
+        assertThat(values.length).isGreaterThan(series.size());
+        assertThat(ForecastModels.meanSquaredError(values, 8, predicted)).isCloseTo(0.0, within(1e-18));
+        assertThat(ForecastModels.meanAbsoluteError(values, 8, predicted)).isCloseTo(0.0, within(1e-9));
+        // 按整个底层数组比较时长度不一致，与偏移版本的结果不同
+        assertThat(ForecastModels.meanSquaredError(values, predicted)).isEqualTo(Double.MAX_VALUE);
+    }
+}
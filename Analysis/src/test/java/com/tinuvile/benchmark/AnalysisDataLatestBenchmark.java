@@ -0,0 +1,134 @@
+package com.tinuvile.benchmark;
+
+import com.tinuvile.model.AnalysisData;
+import com.tinuvile.model.SensorDataEntity;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.AnalysisDataRepository;
+import com.tinuvile.repository.SensorDataTestDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 最新数据查询基准
+ * entityRows模拟原来的实体路径：读取全部列（含raw_data）映射为SensorDataEntity再转换为AnalysisData；
+ * projectionUnbounded只读图表需要的三列；projectionWithLookback再加上接收时间下界。
+ * 数据库是内存H2（MySQL兼容模式），没有Hibernate持久化上下文和分区裁剪，
+ * 实体路径的真实开销只会更高；加 -prof gc 可查看每次查询的分配字节数。
+ * 运行：
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main AnalysisDataLatestBenchmark -prof gc"
+ * </pre>
+ *
+ * @author tinuvile
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisDataLatestBenchmark {
+
+    private static final String SELECT_ENTITY_LATEST =
+            "SELECT * FROM sensor_data WHERE sensor_type = ? ORDER BY timestamp DESC LIMIT ?";
+
+    private static final String RAW_DATA = "{\"timestamp\":\"2024-03-01T12:30:05\",\"sensor_type\":\"temperature\","
+            + "\"value\":23.57,\"unit\":\"°C\",\"node_id\":12,\"location\":\"实验室A区\",\"sent_at\":1709296205123}";
+
+    /**
+     * 最新数据条数
+     */
+    @Param({"100", "1000"})
+    private int limit;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private AnalysisDataRepository repository;
+
+    private LocalDateTime receivedFrom;
+
+    private LocalDateTime allDataFrom;
+
+    @Setup
+    public void setup() {
+        SensorDataTestDatabase database = SensorDataTestDatabase.create("latest_benchmark_" + limit);
+        Random random = new Random(42);
+        // 30天、每分钟一条
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+        int rows = 30 * 24 * 60;
+        for (int i = 0; i < rows; i++) {
+            database.add(SensorType.temperature, start.plusMinutes(i), 20 + random.nextGaussian() * 3, true);
+        }
+        database.flush();
+        jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.update("UPDATE sensor_data SET raw_data = ?, mqtt_topic = ?, sensor_location = ?",
+                RAW_DATA, "iot/sensors/temperature", "实验室A区");
+        repository = new AnalysisDataRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        receivedFrom = start.plusMinutes(rows).minusHours(24);
+        allDataFrom = LocalDateTime.of(1970, 1, 1, 0, 0);
+    }
+
+    @Benchmark
+    public List<AnalysisData> entityRows() {
+        List<SensorDataEntity> entities = jdbcTemplate.query(SELECT_ENTITY_LATEST, (rs, rowNum) -> {
+            SensorDataEntity entity = new SensorDataEntity();
+            entity.setId(rs.getLong("id"));
+            entity.setNodeId(rs.getInt("node_id"));
+            entity.setSensorType(SensorType.fromValue(rs.getString("sensor_type")));
+            entity.setSensorLocation(rs.getString("sensor_location"));
+            entity.setValue(rs.getBigDecimal("value"));
+            entity.setUnit(rs.getString("unit"));
+            entity.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+            entity.setMqttTopic(rs.getString("mqtt_topic"));
+            entity.setReceivedTime(rs.getTimestamp("received_time").toLocalDateTime());
+            entity.setRawData(rs.getString("raw_data"));
+            entity.setQualityScore(rs.getInt("quality_score"));
+            entity.setAnomalyDetected(rs.getBoolean("anomaly_detected"));
+            entity.setIsValid(rs.getBoolean("is_valid"));
+            entity.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            return entity;
+        }, SensorType.temperature.getValue(), limit);
+        return entities.stream()
+                .map(entity -> new AnalysisData(entity.getTimestamp(), entity.getValue(),
+                        entity.getSensorType(), entity.getUnit()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<AnalysisData> projectionUnbounded() {
+        return repository.findLatest(SensorType.temperature, allDataFrom, limit);
+    }
+
+    @Benchmark
+    public List<AnalysisData> projectionWithLookback() {
+        return repository.findLatest(SensorType.temperature, receivedFrom, limit);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AnalysisDataLatestBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,121 @@
+package com.tinuvile.benchmark;
+
+import com.tinuvile.model.SensorType;
+import com.tinuvile.model.StatisticsData;
+import com.tinuvile.repository.SensorDataStatisticsRepository;
+import com.tinuvile.repository.SensorDataTestDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 范围统计请求延迟基准
+ * legacyCountThenAggregate是原来的"计数查询 + 聚合查询"两次往返，aggregateOnly是去掉计数后剩下的那次，
+ * 两者之差即省掉的一次扫描；singleStatisticsQuery是现在的单次统计查询，多出的部分是标准差和分位数的排序开销。
+ * 数据库是内存H2（MySQL兼容模式），没有网络往返，结果只反映查询本身的相对开销，
+ * 不能直接当作MySQL上的绝对延迟。
+ * 运行：
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main SensorDataStatisticsBenchmark"
+ * </pre>
+ *
+ * @author tinuvile
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorDataStatisticsBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    /**
+     * 原实现中仅用于打日志的计数查询
+     */
+    private static final String LEGACY_COUNT =
+            "SELECT COUNT(*) FROM sensor_data WHERE sensor_type = ? " +
+            "AND timestamp BETWEEN ? AND ? AND received_time >= ?";
+
+    /**
+     * 原实现的聚合查询（不含标准差和分位数）
+     */
+    private static final String LEGACY_AGGREGATE =
+            "SELECT COALESCE(AVG(value), 0), COALESCE(MIN(value), 0), COALESCE(MAX(value), 0), COUNT(*), " +
+            "SUM(CASE WHEN is_valid = TRUE THEN 1 ELSE 0 END) FROM sensor_data WHERE sensor_type = ? " +
+            "AND timestamp BETWEEN ? AND ? AND received_time >= ?";
+
+    /**
+     * 查询范围内每种类型的行数
+     */
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private SensorDataStatisticsRepository repository;
+
+    private LocalDateTime end;
+
+    @Setup
+    public void setup() {
+        SensorDataTestDatabase database = SensorDataTestDatabase.create("statistics_benchmark_" + rows);
+        Random random = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            LocalDateTime timestamp = START.plusSeconds(i * 5L);
+            database.add(SensorType.temperature, timestamp, 20 + random.nextGaussian() * 3, random.nextInt(100) != 0)
+                    .add(SensorType.humidity, timestamp, 50 + random.nextGaussian() * 10, true);
+        }
+        database.flush();
+        jdbcTemplate = database.getJdbcTemplate();
+        repository = new SensorDataStatisticsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        end = START.plusSeconds(rows * 5L);
+    }
+
+    @Benchmark
+    public void legacyCountThenAggregate(Blackhole blackhole) {
+        blackhole.consume(jdbcTemplate.queryForObject(LEGACY_COUNT, Long.class,
+                SensorType.temperature.getValue(), START, end, START));
+        Map<String, Object> result = jdbcTemplate.queryForMap(LEGACY_AGGREGATE,
+                SensorType.temperature.getValue(), START, end, START);
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    public Map<String, Object> aggregateOnly() {
+        return jdbcTemplate.queryForMap(LEGACY_AGGREGATE, SensorType.temperature.getValue(), START, end, START);
+    }
+
+    @Benchmark
+    public StatisticsData singleStatisticsQuery() {
+        return repository.findStatistics(SensorType.temperature, START, end, START);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SensorDataStatisticsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.AnalysisData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisDataRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private SensorDataTestDatabase database;
+
+    private AnalysisDataRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        database = SensorDataTestDatabase.create("analysis_data");
+        repository = new AnalysisDataRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", database.getJdbcTemplate());
+    }
+
+    @Test
+    void findLatestReturnsNewestFirstUpToLimit() {
+        for (int i = 0; i < 10; i++) {
+            database.add(SensorType.temperature, START.plusMinutes(i), i, true);
+        }
+        database.add(SensorType.humidity, START.plusHours(1), 99, true).flush();
+
+        List<AnalysisData> latest = repository.findLatest(SensorType.temperature, START, 3);
+
+        assertThat(latest).extracting(AnalysisData::getTimestamp)
+                .containsExactly(START.plusMinutes(9), START.plusMinutes(8), START.plusMinutes(7));
+        assertThat(latest.get(0).getValue()).isEqualByComparingTo(new BigDecimal("9"));
+        assertThat(latest.get(0).getSensorType()).isEqualTo(SensorType.temperature);
+        assertThat(latest.get(0).getUnit()).isEqualTo(SensorType.temperature.getUnit());
+    }
+
+    @Test
+    void findLatestSkipsRowsReceivedBeforeBound() {
+        for (int i = 0; i < 5; i++) {
+            database.add(SensorType.temperature, START.plusHours(i), i, true);
+        }
+        database.flush();
+
+        List<AnalysisData> latest = repository.findLatest(SensorType.temperature, START.plusHours(3), 10);
+
+        assertThat(latest).extracting(AnalysisData::getTimestamp)
+                .containsExactly(START.plusHours(4), START.plusHours(3));
+    }
+
+    @Test
+    void findLatestForAllTypesTakesLastValidRowPerType() {
+        database.add(SensorType.temperature, START, 20, true)
+                .add(SensorType.temperature, START.plusMinutes(1), 21, true)
+                .add(SensorType.temperature, START.plusMinutes(2), 500, false)
+                .add(SensorType.humidity, START, 45, true)
+                .flush();
+
+        List<AnalysisData> latest = repository.findLatestForAllTypes();
+
+        assertThat(latest).extracting(AnalysisData::getSensorType)
+                .containsExactly(SensorType.humidity, SensorType.temperature);
+        assertThat(latest.get(1).getValue()).isEqualByComparingTo(new BigDecimal("21"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.SensorDataRow;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorDataExportRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(1);
+
+    private SensorDataTestDatabase database;
+
+    private SensorDataExportRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        database = SensorDataTestDatabase.create("export");
+        repository = new SensorDataExportRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", database.getJdbcTemplate());
+        // H2不接受MySQL流式读取用的Integer.MIN_VALUE
+        ReflectionTestUtils.setField(repository, "fetchSize", 0);
+    }
+
+    private List<Long> streamIds(int pageSize, List<Integer> pageEnds) {
+        List<Long> ids = new ArrayList<>();
+        repository.streamRange(SensorType.temperature, START, END, START, pageSize,
+                row -> ids.add(row.getId()), () -> pageEnds.add(ids.size()));
+        return ids;
+    }
+
+    @Test
+    void rowsSharingATimestampAreNotLostAcrossPageBoundary() {
+        // 5条同一时刻的数据，页大小为2，翻页必须靠id区分
+        for (int i = 0; i < 5; i++) {
+            database.add(SensorType.temperature, START.plusMinutes(10), i, true);
+        }
+        database.add(SensorType.temperature, START.plusMinutes(5), 100, true)
+                .add(SensorType.temperature, START.plusMinutes(20), 200, true)
+                .flush();
+
+        List<Integer> pageEnds = new ArrayList<>();
+        List<Long> ids = streamIds(2, pageEnds);
+
+        // 按(timestamp, id)排序：先minute 5的第6行，再同一时刻的1..5，最后第7行
+        assertThat(ids).containsExactly(6L, 1L, 2L, 3L, 4L, 5L, 7L);
+        assertThat(pageEnds).containsExactly(2, 4, 6);
+    }
+
+    @Test
+    void streamPageResumesStrictlyAfterKey() {
+        database.add(SensorType.temperature, START.plusMinutes(1), 1, true)
+                .add(SensorType.temperature, START.plusMinutes(1), 2, true)
+                .add(SensorType.temperature, START.plusMinutes(2), 3, true)
+                .flush();
+
+        List<Long> ids = new ArrayList<>();
+        int read = repository.streamPage(SensorType.temperature, START.plusMinutes(1), 1L, END, START, 10,
+                new SensorDataRow(), row -> ids.add(row.getId()));
+
+        assertThat(read).isEqualTo(2);
+        assertThat(ids).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void rangeIncludesBothEndsAndSkipsInvalidAndOtherTypes() {
+        database.add(SensorType.temperature, START, 1, true)
+                .add(SensorType.temperature, START.plusHours(1), 2, false)
+                .add(SensorType.humidity, START.plusHours(2), 3, true)
+                .add(SensorType.temperature, END, 4, true)
+                .add(SensorType.temperature, END.plusSeconds(1), 5, true)
+                .flush();
+
+        List<Double> values = new ArrayList<>();
+        long total = repository.streamRange(SensorType.temperature, START, END, START, 100,
+                row -> values.add(row.getValue()));
+
+        assertThat(total).isEqualTo(2);
+        assertThat(values).containsExactly(1.0, 4.0);
+    }
+
+    @Test
+    void exactMultipleOfPageSizeEndsWithEmptyPage() {
+        for (int i = 0; i < 4; i++) {
+            database.add(SensorType.temperature, START.plusMinutes(i), i, true);
+        }
+        database.flush();
+
+        List<Integer> pageEnds = new ArrayList<>();
+        List<Long> ids = streamIds(2, pageEnds);
+
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(pageEnds).containsExactly(2, 4);
+    }
+}
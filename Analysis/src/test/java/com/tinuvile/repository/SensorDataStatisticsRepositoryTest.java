@@ -0,0 +1,150 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.SensorType;
+import com.tinuvile.model.StatisticsData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorDataStatisticsRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(1);
+
+    private SensorDataTestDatabase database;
+
+    private SensorDataStatisticsRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        database = SensorDataTestDatabase.create("statistics");
+        repository = new SensorDataStatisticsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", database.getJdbcTemplate());
+    }
+
+    private StatisticsData statistics() {
+        return repository.findStatistics(SensorType.temperature, START, END, START);
+    }
+
+    private static BigDecimal decimal(String value) {
+        return new BigDecimal(value);
+    }
+
+    @Test
+    void nearestRankPercentilesOverValidRows() {
+        // 有效数据为1..100，乱序写入
+        for (int i = 0; i < 100; i++) {
+            int value = (i * 37) % 100 + 1;
+            database.add(SensorType.temperature, START.plusMinutes(i), value, true);
+        }
+        // 无效数据、其它类型和范围外的数据都不应影响分位数
+        database.add(SensorType.temperature, START.plusMinutes(5), -500, false)
+                .add(SensorType.temperature, START.plusMinutes(6), 900, false)
+                .add(SensorType.humidity, START.plusMinutes(7), 1000, true)
+                .add(SensorType.temperature, END.plusMinutes(1), 1000, true)
+                .flush();
+
+        StatisticsData statistics = statistics();
+
+        assertThat(statistics.getTotalCount()).isEqualTo(102);
+        assertThat(statistics.getValidCount()).isEqualTo(100);
+        assertThat(statistics.getMinValue()).isEqualByComparingTo(decimal("1"));
+        assertThat(statistics.getMaxValue()).isEqualByComparingTo(decimal("100"));
+        assertThat(statistics.getAvgValue()).isEqualByComparingTo(decimal("50.500"));
+        // 总体标准差 sqrt((100^2 - 1) / 12)
+        assertThat(statistics.getStdDevValue()).isEqualByComparingTo(decimal("28.866"));
+        assertThat(statistics.getP50Value()).isEqualByComparingTo(decimal("50"));
+        assertThat(statistics.getP90Value()).isEqualByComparingTo(decimal("90"));
+        assertThat(statistics.getP95Value()).isEqualByComparingTo(decimal("95"));
+        assertThat(statistics.getP99Value()).isEqualByComparingTo(decimal("99"));
+    }
+
+    @Test
+    void percentilesRoundRankUp() {
+        // n=7: p50取第4个，p90取第7个(ceil 6.3)，p95、p99取第7个
+        double[] values = {7.5, 1.25, 3, 6, 2, 5, 4};
+        for (int i = 0; i < values.length; i++) {
+            database.add(SensorType.temperature, START.plusHours(i), values[i], true);
+        }
+        database.flush();
+
+        StatisticsData statistics = statistics();
+
+        assertThat(statistics.getP50Value()).isEqualByComparingTo(decimal("4"));
+        assertThat(statistics.getP90Value()).isEqualByComparingTo(decimal("7.5"));
+        assertThat(statistics.getP95Value()).isEqualByComparingTo(decimal("7.5"));
+        assertThat(statistics.getP99Value()).isEqualByComparingTo(decimal("7.5"));
+    }
+
+    @Test
+    void singleValidRowIsEveryPercentile() {
+        database.add(SensorType.temperature, START.plusHours(1), 21.5, true)
+                .add(SensorType.temperature, START.plusHours(2), 99, false)
+                .flush();
+
+        StatisticsData statistics = statistics();
+
+        assertThat(statistics.getValidCount()).isEqualTo(1);
+        assertThat(statistics.getStdDevValue()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(statistics.getP50Value()).isEqualByComparingTo(decimal("21.5"));
+        assertThat(statistics.getP99Value()).isEqualByComparingTo(decimal("21.5"));
+    }
+
+    @Test
+    void receivedFromBoundExcludesEarlierRows() {
+        database.add(SensorType.temperature, START.plusHours(1), 10, true).flush();
+        database.getJdbcTemplate().update("UPDATE sensor_data SET received_time = ?", START.minusDays(1));
+
+        StatisticsData statistics = statistics();
+
+        assertThat(statistics.getTotalCount()).isZero();
+    }
+
+    @Test
+    void emptyRangeHasNullPercentilesAndZeroAggregates() {
+        database.add(SensorType.temperature, START.plusHours(1), 10, false).flush();
+
+        StatisticsData statistics = statistics();
+
+        assertThat(statistics.getTotalCount()).isEqualTo(1);
+        assertThat(statistics.getValidCount()).isZero();
+        assertThat(statistics.getAvgValue()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(statistics.getStdDevValue()).isNull();
+        assertThat(statistics.getP50Value()).isNull();
+        assertThat(statistics.getP99Value()).isNull();
+    }
+
+    @Test
+    void hourlyCountsTotalAndValidLikeRollupTable() {
+        database.add(SensorType.temperature, START.plusMinutes(10), 10, true)
+                .add(SensorType.temperature, START.plusMinutes(20), 20, true)
+                .add(SensorType.temperature, START.plusMinutes(30), 500, false)
+                .add(SensorType.temperature, START.plusHours(2).plusMinutes(5), 30, true)
+                .add(SensorType.temperature, START.plusHours(3), -40, false)
+                .flush();
+
+        List<StatisticsData> hourly = repository.findHourly(SensorType.temperature, START, END, START);
+
+        assertThat(hourly).extracting(StatisticsData::getStartTime)
+                .containsExactly(START, START.plusHours(2), START.plusHours(3));
+
+        StatisticsData first = hourly.get(0);
+        assertThat(first.getEndTime()).isEqualTo(START.plusHours(1));
+        assertThat(first.getTotalCount()).isEqualTo(3);
+        assertThat(first.getValidCount()).isEqualTo(2);
+        assertThat(first.getAvgValue()).isEqualByComparingTo(decimal("15"));
+        assertThat(first.getMaxValue()).isEqualByComparingTo(decimal("20"));
+
+        // 只有无效数据的小时仍计入总数，数值统计为0
+        StatisticsData invalidOnly = hourly.get(2);
+        assertThat(invalidOnly.getTotalCount()).isEqualTo(1);
+        assertThat(invalidOnly.getValidCount()).isZero();
+        assertThat(invalidOnly.getAvgValue()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,70 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.SensorType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 仓储测试和基准共用的H2内存库（MySQL兼容模式），表结构见sensor_data_h2.sql
+ */
+public final class SensorDataTestDatabase {
+
+    private static final String INSERT = "INSERT INTO sensor_data (node_id, sensor_type, value, unit, timestamp, " +
+            "received_time, is_valid) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Object[]> pending = new ArrayList<>();
+
+    private SensorDataTestDatabase(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 创建一个新的空库，name相同的库在同一JVM内共享
+     */
+    public static SensorDataTestDatabase create(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("sensor_data_h2.sql"));
+        } catch (SQLException e) {
+            throw new IllegalStateException("初始化测试库失败", e);
+        }
+        return new SensorDataTestDatabase(jdbcTemplate);
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * 追加一行，接收时间与数据时间相同，调用flush后写入
+     */
+    public SensorDataTestDatabase add(SensorType type, LocalDateTime timestamp, double value, boolean valid) {
+        pending.add(new Object[]{1, type.getValue(), value, type.getUnit(), timestamp, timestamp, valid});
+        if (pending.size() >= 5_000) {
+            flush();
+        }
+        return this;
+    }
+
+    public SensorDataTestDatabase flush() {
+        if (!pending.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, pending);
+            pending.clear();
+        }
+        return this;
+    }
+}
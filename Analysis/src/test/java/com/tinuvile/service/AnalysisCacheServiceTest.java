@@ -0,0 +1,193 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.SensorType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnalysisCacheServiceTest {
+
+    // 早于当前时间减时钟偏差，视为已封闭的范围
+    private static final LocalDateTime CLOSED_START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime CLOSED_END = LocalDateTime.of(2024, 3, 2, 0, 0);
+
+    private AnalysisCacheService cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final List<LocalDateTime[]> loadedRanges = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cache = new AnalysisCacheService();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "liveTtl", 60_000L);
+        ReflectionTestUtils.setField(cache, "closedTtl", 600_000L);
+        ReflectionTestUtils.setField(cache, "alignSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "clockSkew", 300_000L);
+        cache.init();
+    }
+
+    private String get(SensorType type, LocalDateTime start, LocalDateTime end) {
+        return cache.get("statistics", type, start, end, "", (s, e) -> {
+            loads.incrementAndGet();
+            loadedRanges.add(new LocalDateTime[]{s, e});
+            return type.name() + "@" + s;
+        });
+    }
+
+    @Test
+    void closedRangeIsServedFromCache() {
+        String first = get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        String second = get(SensorType.temperature, CLOSED_START, CLOSED_END);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStatistics()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void alignsRangeToWholeMinutes() {
+        get(SensorType.temperature, CLOSED_START.plusSeconds(10), CLOSED_END.minusSeconds(10));
+        get(SensorType.temperature, CLOSED_START.plusSeconds(50), CLOSED_END.minusSeconds(50));
+
+        assertThat(loads).hasValue(1);
+        assertThat(loadedRanges.get(0)).containsExactly(CLOSED_START, CLOSED_END);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        get(SensorType.humidity, CLOSED_START, CLOSED_END);
+        // 访问温度后，湿度成为最久未使用的条目
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        get(SensorType.pressure, CLOSED_START, CLOSED_END);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getStatistics()).containsEntry("evictions_size", 1L);
+
+        loads.set(0);
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        get(SensorType.pressure, CLOSED_START, CLOSED_END);
+        assertThat(loads).hasValue(0);
+        get(SensorType.humidity, CLOSED_START, CLOSED_END);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void liveRangeExpiresAfterTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "liveTtl", 50L);
+        LocalDateTime end = LocalDateTime.now().plusMinutes(1);
+        LocalDateTime start = end.minusHours(1);
+
+        get(SensorType.temperature, start, end);
+        get(SensorType.temperature, start, end);
+        assertThat(loads).hasValue(1);
+
+        Thread.sleep(100);
+        get(SensorType.temperature, start, end);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getStatistics()).containsEntry("evictions_expired", 1L);
+    }
+
+    @Test
+    void closedRangeOutlivesLiveTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "liveTtl", 1L);
+
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        Thread.sleep(20);
+        cache.evictExpired();
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void closedRangeIsReloadedAfterClosedTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "closedTtl", 50L);
+        List<String> results = new ArrayList<>();
+        // 模拟回放的历史数据在两次查询之间写入已封闭的范围
+        AtomicInteger rows = new AtomicInteger(10);
+
+        results.add(cache.get("statistics", SensorType.temperature, CLOSED_START, CLOSED_END, "",
+                (s, e) -> "count=" + rows.get()));
+        rows.addAndGet(5);
+        results.add(cache.get("statistics", SensorType.temperature, CLOSED_START, CLOSED_END, "",
+                (s, e) -> "count=" + rows.get()));
+        Thread.sleep(100);
+        results.add(cache.get("statistics", SensorType.temperature, CLOSED_START, CLOSED_END, "",
+                (s, e) -> "count=" + rows.get()));
+
+        assertThat(results).containsExactly("count=10", "count=10", "count=15");
+        assertThat(cache.getStatistics()).containsEntry("evictions_expired", 1L);
+    }
+
+    @Test
+    void nonPositiveClosedTtlKeepsClosedRangeForever() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "closedTtl", 0L);
+
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        Thread.sleep(20);
+        cache.evictExpired();
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void scheduledEvictionRemovesExpiredLiveEntries() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "liveTtl", 10L);
+        LocalDateTime end = LocalDateTime.now().plusMinutes(1);
+
+        get(SensorType.temperature, end.minusHours(1), end);
+        get(SensorType.humidity, CLOSED_START, CLOSED_END);
+        Thread.sleep(50);
+        cache.evictExpired();
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getStatistics()).containsEntry("evictions_expired", 1L);
+    }
+
+    @Test
+    void loaderFailureIsNotCached() {
+        assertThatThrownBy(() -> cache.get("statistics", SensorType.temperature, CLOSED_START, CLOSED_END, "",
+                (s, e) -> {
+                    throw new IllegalStateException("查询失败");
+                })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.size()).isZero();
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void variantIsPartOfKey() {
+        cache.get("prediction", SensorType.temperature, CLOSED_START, CLOSED_END, "24", (s, e) -> loads.incrementAndGet());
+        cache.get("prediction", SensorType.temperature, CLOSED_START, CLOSED_END, "48", (s, e) -> loads.incrementAndGet());
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+        get(SensorType.temperature, CLOSED_START, CLOSED_END);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+}
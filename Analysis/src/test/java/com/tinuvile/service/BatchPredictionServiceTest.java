@@ -0,0 +1,213 @@
+package com.tinuvile.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinuvile.analysis.TimeSeries;
+import com.tinuvile.model.PredictionData;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.SensorDataSeriesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchPredictionServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(1);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private SensorDataSeriesRepository seriesRepository;
+
+    private PredictionEngine predictionEngine;
+
+    private BatchPredictionService service;
+
+    // 预测引擎收到的序列，键为"类型:点数"
+    private final Map<String, CompletableFuture<List<PredictionData>>> futures = new ConcurrentHashMap<>();
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        seriesRepository = mock(SensorDataSeriesRepository.class);
+        predictionEngine = mock(PredictionEngine.class);
+        service = new BatchPredictionService();
+        ReflectionTestUtils.setField(service, "seriesRepository", seriesRepository);
+        ReflectionTestUtils.setField(service, "predictionEngine", predictionEngine);
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "clockSkew", 0L);
+
+        doAnswer(invocation -> {
+            SensorDataSeriesRepository.SeriesRowHandler handler = invocation.getArgument(5);
+            for (Object[] row : rows) {
+                handler.onRow((SensorType) row[0], (Integer) row[1], (Long) row[2], (Double) row[3]);
+            }
+            return (long) rows.size();
+        }).when(seriesRepository).streamValues(any(), any(), any(), any(), any(), any());
+
+        when(predictionEngine.predictAsync(any(), any(), anyInt(), anyString())).thenAnswer(invocation -> {
+            SensorType type = invocation.getArgument(0);
+            TimeSeries series = invocation.getArgument(1);
+            CompletableFuture<List<PredictionData>> future = new CompletableFuture<>();
+            futures.put(type.getValue() + ":" + series.size(), future);
+            return future;
+        });
+    }
+
+    private void addRows(SensorType type, int nodeId, int count) {
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{type, nodeId, START.plusMinutes(i).toInstant(ZoneOffset.UTC).toEpochMilli(),
+                    20.0 + i});
+        }
+    }
+
+    private static List<PredictionData> predictions(SensorType type, double value) {
+        return Collections.singletonList(new PredictionData(END.plusHours(1), BigDecimal.valueOf(value),
+                type, type.getUnit()));
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream out) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    private int predict(boolean groupByNode, ByteArrayOutputStream out) throws Exception {
+        return service.predict(null, null, groupByNode, START, END, 24, "auto", out);
+    }
+
+    @Test
+    void nodesOfSameTypeAreMergedUnlessGroupedByNode() throws Exception {
+        addRows(SensorType.temperature, 1, 4);
+        addRows(SensorType.temperature, 2, 5);
+        addRows(SensorType.humidity, 1, 6);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ByteArrayOutputStream merged = new ByteArrayOutputStream();
+            Future<Integer> mergedCount = executor.submit(() -> predict(false, merged));
+            awaitFutures(2);
+            assertThat(futures).containsOnlyKeys("temperature:9", "humidity:6");
+            futures.values().forEach(f -> f.complete(Collections.emptyList()));
+            assertThat(mergedCount.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+            assertThat(lines(merged)).allSatisfy(line -> assertThat(line.has("nodeId")).isFalse());
+
+            futures.clear();
+            ByteArrayOutputStream grouped = new ByteArrayOutputStream();
+            Future<Integer> groupedCount = executor.submit(() -> predict(true, grouped));
+            awaitFutures(3);
+            assertThat(futures).containsOnlyKeys("temperature:4", "temperature:5", "humidity:6");
+            futures.values().forEach(f -> f.complete(Collections.emptyList()));
+            assertThat(groupedCount.get(5, TimeUnit.SECONDS)).isEqualTo(3);
+            assertThat(lines(grouped)).extracting(line -> line.get("sensorType").asText() + "/"
+                            + line.get("nodeId").asInt() + "/" + line.get("dataPoints").asInt())
+                    .containsExactlyInAnyOrder("temperature/1/4", "temperature/2/5", "humidity/1/6");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shortSeriesGetInsufficientDataRowWithoutCallingEngine() throws Exception {
+        addRows(SensorType.pressure, 3, 2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(service.predict(null, null, true, START, END, 24, "auto", out)).isEqualTo(1);
+
+        List<JsonNode> lines = lines(out);
+        assertThat(lines).hasSize(1);
+        JsonNode line = lines.get(0);
+        assertThat(line.get("sensorType").asText()).isEqualTo("pressure");
+        assertThat(line.get("nodeId").asInt()).isEqualTo(3);
+        assertThat(line.get("dataPoints").asInt()).isEqualTo(2);
+        assertThat(line.get("success").asBoolean()).isFalse();
+        assertThat(line.get("error").asText()).isEqualTo("历史数据不足");
+        assertThat(line.get("predictions")).isEmpty();
+        assertThat(futures).isEmpty();
+    }
+
+    @Test
+    void resultsAreStreamedInCompletionOrder() throws Exception {
+        addRows(SensorType.temperature, 1, 5);
+        addRows(SensorType.humidity, 1, 6);
+        addRows(SensorType.pressure, 1, 2);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Future<Integer> count = executor.submit(() -> predict(false, out));
+            awaitFutures(2);
+
+            // 数据不足的行不等待预测，先写出
+            awaitLines(out, 1);
+            assertThat(lines(out).get(0).get("sensorType").asText()).isEqualTo("pressure");
+
+            // 后提交的湿度先完成，应先写出，不等待温度
+            futures.get("humidity:6").complete(predictions(SensorType.humidity, 55.5));
+            awaitLines(out, 2);
+            futures.get("temperature:5").completeExceptionally(
+                    new IllegalStateException("wrapper", new ArithmeticException("singular matrix")));
+
+            assertThat(count.get(5, TimeUnit.SECONDS)).isEqualTo(3);
+            List<JsonNode> lines = lines(out);
+            assertThat(lines).extracting(line -> line.get("sensorType").asText())
+                    .containsExactly("pressure", "humidity", "temperature");
+
+            JsonNode humidity = lines.get(1);
+            assertThat(humidity.get("success").asBoolean()).isTrue();
+            assertThat(humidity.get("predictions")).hasSize(1);
+            assertThat(humidity.get("predictions").get(0).get("predictedValue").asDouble()).isEqualTo(55.5);
+
+            JsonNode temperature = lines.get(2);
+            assertThat(temperature.get("success").asBoolean()).isFalse();
+            assertThat(temperature.get("error").asText()).isEqualTo("singular matrix");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitFutures(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (futures.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(futures).hasSize(count);
+    }
+
+    private void awaitLines(ByteArrayOutputStream out, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (lines(out).size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(lines(out)).hasSize(count);
+    }
+}
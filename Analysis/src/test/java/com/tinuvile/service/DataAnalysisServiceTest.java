@@ -0,0 +1,79 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.AnalysisData;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.AnalysisDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataAnalysisServiceTest {
+
+    private static final LocalDateTime ALL_DATA_FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private AnalysisDataRepository analysisDataRepository;
+
+    private DataAnalysisService service;
+
+    @BeforeEach
+    void setUp() {
+        analysisDataRepository = mock(AnalysisDataRepository.class);
+        service = new DataAnalysisService();
+        ReflectionTestUtils.setField(service, "analysisDataRepository", analysisDataRepository);
+        ReflectionTestUtils.setField(service, "latestLookbackHours", 24);
+    }
+
+    private static AnalysisData data(int minutes) {
+        return new AnalysisData(LocalDateTime.now().minusMinutes(minutes), BigDecimal.valueOf(minutes),
+                SensorType.temperature, SensorType.temperature.getUnit());
+    }
+
+    @Test
+    void latestDataWithinLookbackNeedsOneQuery() {
+        List<AnalysisData> recent = Arrays.asList(data(1), data(2));
+        when(analysisDataRepository.findLatest(eq(SensorType.temperature), any(LocalDateTime.class), eq(2)))
+                .thenReturn(recent);
+
+        assertThat(service.getLatestData(SensorType.temperature, 2)).isSameAs(recent);
+
+        ArgumentCaptor<LocalDateTime> receivedFrom = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(analysisDataRepository).findLatest(eq(SensorType.temperature), receivedFrom.capture(), eq(2));
+        assertThat(receivedFrom.getValue()).isBetween(
+                LocalDateTime.now().minusHours(24).minusMinutes(1), LocalDateTime.now().minusHours(24));
+    }
+
+    @Test
+    void latestDataFallsBackToUnboundedQueryWhenLookbackIsShort() {
+        List<AnalysisData> older = Arrays.asList(data(1), data(60 * 48));
+        when(analysisDataRepository.findLatest(eq(SensorType.temperature), any(LocalDateTime.class), anyInt()))
+                .thenReturn(Collections.singletonList(data(1)));
+        when(analysisDataRepository.findLatest(SensorType.temperature, ALL_DATA_FROM, 2)).thenReturn(older);
+
+        assertThat(service.getLatestData(SensorType.temperature, 2)).isSameAs(older);
+        verify(analysisDataRepository, times(2)).findLatest(eq(SensorType.temperature), any(LocalDateTime.class), eq(2));
+    }
+
+    @Test
+    void latestDataFailureReturnsEmptyList() {
+        when(analysisDataRepository.findLatest(any(SensorType.class), any(LocalDateTime.class), anyInt()))
+                .thenThrow(new IllegalStateException("db down"));
+
+        assertThat(service.getLatestData(SensorType.temperature, 5)).isEmpty();
+    }
+}
@@ -0,0 +1,180 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.SensorDataRow;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.SensorDataExportRepository;
+import com.tinuvile.repository.SensorDataTestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class DataExportServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private SensorDataExportRepository exportRepository;
+
+    private DataExportService service;
+
+    @BeforeEach
+    void setUp() {
+        exportRepository = mock(SensorDataExportRepository.class);
+        service = new DataExportService();
+        ReflectionTestUtils.setField(service, "exportRepository", exportRepository);
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        ReflectionTestUtils.setField(service, "clockSkew", 0L);
+    }
+
+    /**
+     * 记录每次flush时输出流里已有的字节数
+     */
+    private static class FlushRecordingStream extends ByteArrayOutputStream {
+        final List<String> flushed = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            flushed.add(new String(toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 改用H2上的真实仓储
+     */
+    private SensorDataTestDatabase useDatabase() {
+        SensorDataTestDatabase database = SensorDataTestDatabase.create("export-service");
+        SensorDataExportRepository repository = new SensorDataExportRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", database.getJdbcTemplate());
+        ReflectionTestUtils.setField(repository, "fetchSize", 0);
+        ReflectionTestUtils.setField(service, "exportRepository", repository);
+        return database;
+    }
+
+    private String export(DataExportService.Format format, int every, int bucketSeconds) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(SensorType.temperature, START, START.plusDays(1), format, every, bucketSeconds, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubPages(int pages, int rowsPerPage) {
+        doAnswer(invocation -> {
+            Consumer<SensorDataRow> consumer = invocation.getArgument(5);
+            Runnable pageEnd = invocation.getArgument(6);
+            SensorDataRow row = new SensorDataRow();
+            long id = 0;
+            for (int page = 0; page < pages; page++) {
+                for (int i = 0; i < rowsPerPage; i++) {
+                    id++;
+                    row.setId(id);
+                    row.setNodeId(1);
+                    row.setValue(id);
+                    row.setUnit("°C");
+                    row.setTimestamp(START.plusMinutes(id));
+                    consumer.accept(row);
+                }
+                pageEnd.run();
+            }
+            return id;
+        }).when(exportRepository).streamRange(eq(SensorType.temperature), any(), any(), any(), anyInt(),
+                any(Consumer.class), any(Runnable.class));
+    }
+
+    @Test
+    void eachCompletedPageIsFlushedToTheClient() throws Exception {
+        stubPages(2, 2);
+        FlushRecordingStream out = new FlushRecordingStream();
+
+        service.export(SensorType.temperature, START, START.plusDays(1), DataExportService.Format.NDJSON,
+                1, 0, out);
+
+        // 每页写完即推送，不等整个导出结束
+        assertThat(out.flushed.size()).isGreaterThanOrEqualTo(3);
+        assertThat(out.flushed.get(0).split("\n")).hasSize(2);
+        assertThat(out.flushed.get(1).split("\n")).hasSize(4);
+    }
+
+    @Test
+    void csvPagesAreFlushedBeforeExportEnds() throws Exception {
+        stubPages(1, 2);
+        FlushRecordingStream out = new FlushRecordingStream();
+
+        service.export(SensorType.temperature, START, START.plusDays(1), DataExportService.Format.CSV,
+                1, 0, out);
+
+        assertThat(out.flushed.get(0)).startsWith("id,node_id,").contains("\n2,1,");
+    }
+
+    @Test
+    void everyKeepsFirstRowOfEachGroupAcrossPages() throws Exception {
+        SensorDataTestDatabase database = useDatabase();
+        for (int i = 0; i < 7; i++) {
+            database.add(SensorType.temperature, START.plusMinutes(i), i, true);
+        }
+        database.flush();
+
+        String csv = export(DataExportService.Format.CSV, 3, 0);
+
+        // 页大小为2，抽样计数跨页连续：保留第1、4、7条
+        assertThat(csv.split("\n")).containsExactly(
+                "id,node_id,location,value,unit,timestamp,anomaly_detected",
+                "1,1,,0.0,°C,2024-03-01T00:00,false",
+                "4,1,,3.0,°C,2024-03-01T00:03,false",
+                "7,1,,6.0,°C,2024-03-01T00:06,false");
+    }
+
+    @Test
+    void bucketsAggregateRowsByFixedDuration() throws Exception {
+        SensorDataTestDatabase database = useDatabase();
+        database.add(SensorType.temperature, START, 1, true)
+                .add(SensorType.temperature, START.plusMinutes(1), 2, true)
+                .add(SensorType.temperature, START.plusMinutes(4), 6, true)
+                .add(SensorType.temperature, START.plusMinutes(11), 10, true)
+                .flush();
+
+        String csv = export(DataExportService.Format.CSV, 1, 300);
+
+        // 空桶(00:05)不输出，最后一个桶在结束时写出
+        assertThat(csv.split("\n")).containsExactly(
+                "bucket_start,count,avg,min,max",
+                "2024-03-01T00:00,3,3.0,1.0,6.0",
+                "2024-03-01T00:10,1,10.0,10.0,10.0");
+
+        String ndjson = export(DataExportService.Format.NDJSON, 1, 300);
+        assertThat(ndjson.split("\n")).hasSize(2);
+        assertThat(ndjson).startsWith("{\"sensor_type\":\"temperature\",\"bucket_start\":\"2024-03-01T00:00\","
+                + "\"count\":3,\"avg\":3.0,\"min\":1.0,\"max\":6.0}");
+    }
+
+    @Test
+    void csvQuotesFieldsWithSeparatorsAndQuotes() throws Exception {
+        SensorDataTestDatabase database = useDatabase();
+        database.add(SensorType.temperature, START, 20.5, true)
+                .add(SensorType.temperature, START.plusMinutes(1), 21.5, true)
+                .flush();
+        database.getJdbcTemplate().update("UPDATE sensor_data SET sensor_location = ? WHERE id = 1",
+                "Lab \"A\", floor 2");
+        database.getJdbcTemplate().update("UPDATE sensor_data SET sensor_location = ? WHERE id = 2",
+                "roof");
+
+        String csv = export(DataExportService.Format.CSV, 1, 0);
+
+        assertThat(csv.split("\n")).containsExactly(
+                "id,node_id,location,value,unit,timestamp,anomaly_detected",
+                "1,1,\"Lab \"\"A\"\", floor 2\",20.5,°C,2024-03-01T00:00,false",
+                "2,1,roof,21.5,°C,2024-03-01T00:01,false");
+    }
+}
@@ -0,0 +1,139 @@
+package com.tinuvile.service;
+
+import com.tinuvile.analysis.ForecastModels;
+import com.tinuvile.analysis.TimeSeries;
+import com.tinuvile.model.PredictionData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PredictionEngineTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private static final long HOUR = 3_600_000L;
+
+    private PredictionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new PredictionEngine();
+        ReflectionTestUtils.setField(engine, "parallelism", 2);
+        ReflectionTestUtils.setField(engine, "holdoutRatio", 0.2);
+        engine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    private static TimeSeries hourly(double... values) {
+        TimeSeries series = new TimeSeries(values.length);
+        long base = START.toInstant(ZoneOffset.UTC).toEpochMilli();
+        for (int i = 0; i < values.length; i++) {
+            series.add(base + i * HOUR, values[i]);
+        }
+        return series;
+    }
+
+    @Test
+    void autoSelectsModelWithLowestHoldoutError() {
+        // 二次曲线：多项式在留出段上误差为0，线性、移动平均和Holt都会滞后
+        double[] values = new double[20];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 0.05 * i * i + 10;
+        }
+
+        List<PredictionData> predictions = engine.predict(SensorType.temperature, hourly(values), 3, "auto");
+
+        assertThat(predictions).hasSize(3);
+        assertThat(predictions).allSatisfy(p ->
+                assertThat(p.getPredictionMethod()).isEqualTo(ForecastModels.POLYNOMIAL));
+        // 使用全量数据上的拟合结果外推: 0.05 * 20^2 + 10
+        assertThat(predictions.get(0).getPredictedValue().doubleValue()).isEqualTo(30.0);
+    }
+
+    @Test
+    void autoPrefersSmoothingForNoisyLevelSeries() {
+        double[] values = new double[30];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 50 + (i % 2 == 0 ? 1 : -1);
+        }
+
+        List<PredictionData> predictions = engine.predict(SensorType.humidity, hourly(values), 2, "auto");
+
+        assertThat(predictions.get(0).getPredictionMethod()).isNotEqualTo(ForecastModels.POLYNOMIAL);
+        assertThat(predictions.get(0).getPredictedValue().doubleValue()).isBetween(48.0, 52.0);
+    }
+
+    @Test
+    void seriesShorterThanHoldoutUsesMovingAverage() {
+        for (int n = 1; n < 5; n++) {
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = 20 + i;
+            }
+
+            List<PredictionData> predictions = engine.predict(SensorType.temperature, hourly(values), 2, "auto");
+
+            assertThat(predictions).as("n=%d", n).hasSize(2);
+            assertThat(predictions.get(0).getPredictionMethod()).isEqualTo(ForecastModels.MOVING_AVERAGE);
+        }
+    }
+
+    @Test
+    void largeHoldoutRatioStillKeepsTrainingPoints() {
+        ReflectionTestUtils.setField(engine, "holdoutRatio", 0.95);
+
+        List<PredictionData> predictions = engine.predict(SensorType.temperature, hourly(20, 21, 22, 23, 24), 1, "auto");
+
+        assertThat(predictions).hasSize(1);
+        assertThat(predictions.get(0).getPredictedValue().doubleValue()).isBetween(20.0, 30.0);
+    }
+
+    @Test
+    void explicitMethodSkipsSelection() {
+        List<PredictionData> predictions = engine.predict(SensorType.temperature,
+                hourly(10, 12, 14, 16, 18, 20), 2, "linear");
+
+        assertThat(predictions.get(0).getPredictionMethod()).isEqualTo(ForecastModels.LINEAR);
+        assertThat(predictions.get(0).getPredictedValue().doubleValue()).isEqualTo(22.0);
+        assertThat(predictions.get(1).getPredictedValue().doubleValue()).isEqualTo(24.0);
+    }
+
+    @Test
+    void predictionsStartAfterLastPointAndRespectSensorRange() {
+        List<PredictionData> predictions = engine.predict(SensorType.humidity,
+                hourly(80, 85, 90, 95, 100, 105), 2, "linear");
+
+        assertThat(predictions.get(0).getTimestamp()).isEqualTo(START.plusHours(6));
+        assertThat(predictions.get(1).getTimestamp()).isEqualTo(START.plusHours(7));
+        assertThat(predictions).allSatisfy(p -> {
+            assertThat(p.getPredictedValue().doubleValue()).isEqualTo(100.0);
+            assertThat(p.getUnit()).isEqualTo(SensorType.humidity.getUnit());
+        });
+    }
+
+    @Test
+    void asyncPredictionMatchesSynchronous() throws Exception {
+        TimeSeries series = hourly(10, 11, 13, 12, 14, 15, 17, 16, 18, 19);
+
+        List<PredictionData> sync = engine.predict(SensorType.temperature, series, 3, "auto");
+        List<PredictionData> async = engine.predictAsync(SensorType.temperature, series, 3, "auto").get();
+
+        assertThat(async).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(async.get(i).getPredictedValue()).isEqualTo(sync.get(i).getPredictedValue());
+            assertThat(async.get(i).getPredictionMethod()).isEqualTo(sync.get(i).getPredictionMethod());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+-- sensor_data的测试用表结构，列与docs/devops/mysql/sql/init.sql一致，省略分区和非查询用索引
+CREATE TABLE sensor_data (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    node_id INT NOT NULL,
+    sensor_type VARCHAR(20) NOT NULL,
+    sensor_location VARCHAR(100),
+    value DECIMAL(10,3) NOT NULL,
+    unit VARCHAR(10) NOT NULL,
+    timestamp DATETIME NOT NULL,
+    mqtt_topic VARCHAR(255),
+    received_time DATETIME NOT NULL,
+    raw_data VARCHAR(4000),
+    quality_score TINYINT DEFAULT 100,
+    anomaly_detected BOOLEAN DEFAULT FALSE,
+    is_valid BOOLEAN DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX idx_type_timestamp ON sensor_data (sensor_type, timestamp);
+CREATE INDEX idx_received_time ON sensor_data (received_time);
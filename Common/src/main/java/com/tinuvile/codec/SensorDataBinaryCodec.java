@@ -0,0 +1,116 @@
+package com.tinuvile.codec;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 传感器数据二进制编解码器
+ * Publisher与Subscriber共用，按各模块自己的SensorData和SensorType编译。紧凑的定长格式：
+ * <pre>
+ * 偏移  长度  字段
+ * 0     1     格式版本
+ * 1     1     传感器类型序号(SensorType.ordinal)
+ * 2     4     节点ID(0表示未知，节点ID从1开始自增)
+ * 6     8     时间戳(按UTC换算的epoch毫秒)
+ * 14    8     数值(double)
+ * 22    8     发送时间(epoch毫秒，0表示未知)
+ * 30    n     位置(UTF-8，可为空)
+ * </pre>
+ * 单位由传感器类型推导，不随消息传输。
+ * 版本1没有发送时间字段，位置从偏移22开始，解码时仍然兼容
+ *
+ * @author tinuvile
+ */
+public final class SensorDataBinaryCodec {
+
+    public static final byte VERSION = 2;
+
+    public static final int HEADER_LENGTH = 30;
+
+    private static final byte VERSION_1 = 1;
+
+    private static final int VERSION_1_HEADER_LENGTH = 22;
+
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private SensorDataBinaryCodec() {}
+
+    /**
+     * 编码一条传感器数据
+     */
+    public static byte[] encode(SensorData sensorData) {
+        byte[] location = sensorData.getLocation() != null
+                ? sensorData.getLocation().getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + location.length);
+        buffer.put(VERSION);
+        buffer.put((byte) sensorData.getSensorType().ordinal());
+        buffer.putInt(sensorData.getNodeId() != null ? sensorData.getNodeId() : 0);
+        buffer.putLong(sensorData.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        buffer.putDouble(sensorData.getValue());
+        buffer.putLong(sensorData.getSentAt() != null ? sensorData.getSentAt() : 0L);
+        buffer.put(location);
+        return buffer.array();
+    }
+
+    /**
+     * 解码一条传感器数据
+     *
+     * @throws IllegalArgumentException 负载长度、版本或类型序号不合法
+     */
+    public static SensorData decode(byte[] payload) {
+        if (payload.length < VERSION_1_HEADER_LENGTH) {
+            throw new IllegalArgumentException("二进制负载长度不足: " + payload.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte version = buffer.get();
+        int headerLength;
+        if (version == VERSION) {
+            headerLength = HEADER_LENGTH;
+        } else if (version == VERSION_1) {
+            headerLength = VERSION_1_HEADER_LENGTH;
+        } else {
+            throw new IllegalArgumentException("不支持的二进制格式版本: " + version);
+        }
+        if (payload.length < headerLength) {
+            throw new IllegalArgumentException("二进制负载长度不足: " + payload.length);
+        }
+
+        int ordinal = buffer.get() & 0xFF;
+        if (ordinal >= SENSOR_TYPES.length) {
+            throw new IllegalArgumentException("未知的传感器类型序号: " + ordinal);
+        }
+        SensorType sensorType = SENSOR_TYPES[ordinal];
+
+        int nodeId = buffer.getInt();
+        long epochMillis = buffer.getLong();
+        double value = buffer.getDouble();
+        long sentAt = version == VERSION ? buffer.getLong() : 0L;
+
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(
+                Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000,
+                ZoneOffset.UTC);
+
+        SensorData sensorData = new SensorData(timestamp, sensorType, value, sensorType.getUnit());
+        // 0表示发送端没有节点ID，保留构造函数的默认节点，与JSON路径入库时的默认节点一致
+        if (nodeId != 0) {
+            sensorData.setNodeId(nodeId);
+        }
+        if (sentAt != 0L) {
+            sensorData.setSentAt(sentAt);
+        }
+        if (payload.length > headerLength) {
+            sensorData.setLocation(new String(payload, headerLength,
+                    payload.length - headerLength, StandardCharsets.UTF_8));
+        }
+        return sensorData;
+    }
+}
@@ -0,0 +1,47 @@
+package com.tinuvile.metrics;
+
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟快照格式化
+ * 发布端和订阅端的延迟指标共用，把Timer快照转换为以毫秒为单位的分位数摘要
+ *
+ * @author tinuvile
+ */
+public final class LatencySummary {
+
+    private LatencySummary() {
+    }
+
+    /**
+     * 转换为 count、pXX_ms、max_ms 组成的摘要，毫秒保留三位小数
+     */
+    public static Map<String, Object> of(HistogramSnapshot snapshot) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", snapshot.count());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            summary.put(percentileKey(percentile.percentile()), roundMillis(percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        summary.put("max_ms", roundMillis(snapshot.max(TimeUnit.MILLISECONDS)));
+        return summary;
+    }
+
+    private static String percentileKey(double percentile) {
+        if (percentile == 0.5) {
+            return "p50_ms";
+        }
+        if (percentile == 0.99) {
+            return "p99_ms";
+        }
+        return "p999_ms";
+    }
+
+    private static double roundMillis(double millis) {
+        return Math.round(millis * 1000.0) / 1000.0;
+    }
+}
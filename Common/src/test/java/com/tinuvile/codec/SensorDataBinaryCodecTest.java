@@ -0,0 +1,126 @@
+package com.tinuvile.codec;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SensorDataBinaryCodecTest {
+
+    private static SensorData reading(SensorType type, double value, String location) {
+        SensorData data = new SensorData(LocalDateTime.of(2024, 3, 1, 12, 30, 5, 123_000_000), type, value, type.getUnit());
+        data.setNodeId(42);
+        data.setLocation(location);
+        data.setSentAt(1709296205456L);
+        return data;
+    }
+
+    @Test
+    void roundTripsEveryField() {
+        for (SensorType type : SensorType.values()) {
+            SensorData original = reading(type, -12.345, "楼顶气象站");
+
+            SensorData decoded = SensorDataBinaryCodec.decode(SensorDataBinaryCodec.encode(original));
+
+            assertThat(decoded.getSensorType()).isEqualTo(type);
+            assertThat(decoded.getValue()).isEqualTo(-12.345);
+            assertThat(decoded.getUnit()).isEqualTo(type.getUnit());
+            assertThat(decoded.getNodeId()).isEqualTo(42);
+            assertThat(decoded.getTimestamp()).isEqualTo(original.getTimestamp());
+            assertThat(decoded.getLocation()).isEqualTo("楼顶气象站");
+            assertThat(decoded.getSentAt()).isEqualTo(1709296205456L);
+        }
+    }
+
+    @Test
+    void roundTripsEdgeValues() {
+        double[] values = {0.0, -0.0, Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, 1e-300};
+        for (double value : values) {
+            SensorData decoded = SensorDataBinaryCodec.decode(
+                    SensorDataBinaryCodec.encode(reading(SensorType.PRESSURE, value, null)));
+            assertThat(Double.doubleToRawLongBits(decoded.getValue())).isEqualTo(Double.doubleToRawLongBits(value));
+        }
+    }
+
+    @Test
+    void roundTripsTimestampsBeforeEpoch() {
+        SensorData original = reading(SensorType.TEMPERATURE, 1, null);
+        original.setTimestamp(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000));
+
+        SensorData decoded = SensorDataBinaryCodec.decode(SensorDataBinaryCodec.encode(original));
+
+        assertThat(decoded.getTimestamp()).isEqualTo(original.getTimestamp());
+    }
+
+    @Test
+    void headerOnlyWhenLocationMissing() {
+        SensorData original = reading(SensorType.HUMIDITY, 55.5, null);
+        original.setSentAt(null);
+
+        byte[] payload = SensorDataBinaryCodec.encode(original);
+        SensorData decoded = SensorDataBinaryCodec.decode(payload);
+
+        assertThat(payload).hasSize(SensorDataBinaryCodec.HEADER_LENGTH);
+        assertThat(decoded.getSentAt()).isNull();
+        // 解码时不带位置则使用构造函数的默认位置
+        assertThat(decoded.getLocation()).isEqualTo("实验室A区");
+    }
+
+    @Test
+    void missingNodeIdDecodesToDefaultNode() {
+        SensorData original = reading(SensorType.HUMIDITY, 48.5, null);
+        original.setNodeId(null);
+
+        SensorData decoded = SensorDataBinaryCodec.decode(SensorDataBinaryCodec.encode(original));
+
+        // 不能解码成不存在的节点0
+        assertThat(decoded.getNodeId()).isEqualTo(1);
+    }
+
+    @Test
+    void decodesVersion1Payload() {
+        byte[] location = "A".getBytes(StandardCharsets.UTF_8);
+        long millis = LocalDateTime.of(2024, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        ByteBuffer buffer = ByteBuffer.allocate(22 + location.length);
+        buffer.put((byte) 1).put((byte) SensorType.PRESSURE.ordinal()).putInt(3).putLong(millis).putDouble(1013.25)
+                .put(location);
+
+        SensorData decoded = SensorDataBinaryCodec.decode(buffer.array());
+
+        assertThat(decoded.getSensorType()).isEqualTo(SensorType.PRESSURE);
+        assertThat(decoded.getNodeId()).isEqualTo(3);
+        assertThat(decoded.getValue()).isEqualTo(1013.25);
+        assertThat(decoded.getTimestamp()).isEqualTo(LocalDateTime.of(2024, 1, 1, 0, 0));
+        assertThat(decoded.getSentAt()).isNull();
+        assertThat(decoded.getLocation()).isEqualTo("A");
+    }
+
+    @Test
+    void rejectsMalformedPayloads() {
+        byte[] valid = SensorDataBinaryCodec.encode(reading(SensorType.TEMPERATURE, 1, null));
+
+        assertThatThrownBy(() -> SensorDataBinaryCodec.decode(Arrays.copyOf(valid, 21)))
+                .isInstanceOf(IllegalArgumentException.class);
+        // 版本2头部不完整
+        assertThatThrownBy(() -> SensorDataBinaryCodec.decode(Arrays.copyOf(valid, 25)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        byte[] badVersion = valid.clone();
+        badVersion[0] = 9;
+        assertThatThrownBy(() -> SensorDataBinaryCodec.decode(badVersion))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        byte[] badType = valid.clone();
+        badType[1] = (byte) SensorType.values().length;
+        assertThatThrownBy(() -> SensorDataBinaryCodec.decode(badType))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,161 @@
+package com.tinuvile.fleet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 时间轮调度器
+ * 单个线程按固定刻度推进，把到期任务交给回调处理。
+ * 任意线程提交的任务先进入无锁待处理队列，由时间轮线程在每个刻度转入对应槽位，
+ * 槽位本身只被时间轮线程访问，调度开销与任务总数无关
+ *
+ * @author tinuvile
+ */
+public class TimerWheel<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final String name;
+    private final long tickMillis;
+    private final int mask;
+    private final Queue<Entry<T>>[] buckets;
+    private final Queue<Entry<T>> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<T> onExpire;
+
+    private volatile boolean running = false;
+    private Thread workerThread;
+
+    /**
+     * @param tickMillis 刻度长度（毫秒）
+     * @param wheelSize  槽位数，会向上取整为2的幂
+     * @param onExpire   到期回调，在时间轮线程中执行，应尽快返回
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickMillis, int wheelSize, Consumer<T> onExpire) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("时间轮刻度和槽位数必须大于0");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.onExpire = onExpire;
+    }
+
+    /**
+     * 调度任务在指定时间点到期，可由任意线程调用
+     */
+    public void schedule(T task, long deadlineMillis) {
+        pending.offer(new Entry<>(task, deadlineMillis));
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        workerThread = new Thread(this::run, name);
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (workerThread != null) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            workerThread = null;
+        }
+        pending.clear();
+        for (Queue<Entry<T>> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 时间轮线程主循环
+     */
+    private void run() {
+        long tick = System.currentTimeMillis() / tickMillis;
+
+        while (running) {
+            long now = System.currentTimeMillis();
+            long target = now / tickMillis;
+
+            // 落后超过一圈时，每个槽位处理一次即可
+            tick = Math.max(tick, target - buckets.length);
+            while (tick < target) {
+                tick++;
+                transferPending(tick);
+                expire(tick);
+            }
+
+            try {
+                Thread.sleep(tickMillis - System.currentTimeMillis() % tickMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 将待处理任务放入槽位，已过期的任务放入当前刻度的槽位
+     */
+    private void transferPending(long currentTick) {
+        Entry<T> entry;
+        while ((entry = pending.poll()) != null) {
+            long entryTick = Math.max(entry.deadline / tickMillis, currentTick);
+            buckets[(int) (entryTick & mask)].offer(entry);
+        }
+    }
+
+    /**
+     * 处理当前槽位，尚未到期（属于后续轮次）的任务放回原槽位
+     */
+    private void expire(long currentTick) {
+        Queue<Entry<T>> bucket = buckets[(int) (currentTick & mask)];
+        for (int i = bucket.size(); i > 0; i--) {
+            Entry<T> entry = bucket.poll();
+            if (entry.deadline / tickMillis > currentTick) {
+                bucket.offer(entry);
+                continue;
+            }
+            try {
+                onExpire.accept(entry.task);
+            } catch (Exception e) {
+                logger.error("时间轮 {} 任务执行失败: {}", name, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T task;
+        private final long deadline;
+
+        private Entry(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
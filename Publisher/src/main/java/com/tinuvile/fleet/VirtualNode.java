@@ -0,0 +1,37 @@
+package com.tinuvile.fleet;
+
+/**
+ * 仿真设备节点
+ * 每个节点有独立的节点ID、位置和回放游标，并按各自的相位和抖动发布数据
+ *
+ * @author tinuvile
+ */
+public class VirtualNode {
+
+    private final int nodeId;
+    private final String location;
+    private final String cursorName;
+    private final long phaseMillis;
+
+    // 不含抖动的下一次计划发布时间，只由当前处理该节点的线程修改
+    private long nextDeadline;
+
+    public VirtualNode(int nodeId, String location, String cursorName, long phaseMillis) {
+        this.nodeId = nodeId;
+        this.location = location;
+        this.cursorName = cursorName;
+        this.phaseMillis = phaseMillis;
+    }
+
+    public int getNodeId() { return nodeId; }
+
+    public String getLocation() { return location; }
+
+    public String getCursorName() { return cursorName; }
+
+    public long getPhaseMillis() { return phaseMillis; }
+
+    public long getNextDeadline() { return nextDeadline; }
+
+    public void setNextDeadline(long nextDeadline) { this.nextDeadline = nextDeadline; }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * 发布状态模型
@@ -44,6 +45,9 @@ public class PublishStatus {
     @JsonProperty("publish_rate")
     private double publishRate; // 每秒发布数量
     
+    @JsonProperty("latency")
+    private Map<String, Object> latency; // 按类型和阶段的延迟分位数(毫秒)
+    
     public PublishStatus() {
         this.running = false;
         this.totalPublished = 0;
@@ -54,7 +58,7 @@ public class PublishStatus {
         this.publishRate = 0.0;
     }
     
-    public void incrementCounter(SensorType sensorType) {
+    public synchronized void incrementCounter(SensorType sensorType) {
         this.totalPublished++;
         switch (sensorType) {
             case TEMPERATURE:
@@ -70,7 +74,7 @@ public class PublishStatus {
         this.lastPublishTime = LocalDateTime.now();
     }
     
-    public void incrementErrorCount() {
+    public synchronized void incrementErrorCount() {
         this.errorCount++;
     }
     
@@ -157,4 +161,12 @@ public class PublishStatus {
     public void setPublishRate(double publishRate) {
         this.publishRate = publishRate;
     }
+    
+    public Map<String, Object> getLatency() {
+        return latency;
+    }
+    
+    public void setLatency(Map<String, Object> latency) {
+        this.latency = latency;
+    }
 }
\ No newline at end of file
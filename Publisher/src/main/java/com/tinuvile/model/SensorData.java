@@ -1,6 +1,7 @@
 package com.tinuvile.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
@@ -32,6 +33,10 @@ public class SensorData {
     @JsonProperty("location")
     private String location;
     
+    @JsonProperty("sent_at")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long sentAt; // 发布端发送时间(epoch毫秒)，用于端到端延迟统计
+    
     public SensorData() {}
     
     public SensorData(LocalDateTime timestamp, SensorType sensorType, Double value, String unit) {
@@ -55,6 +60,21 @@ public class SensorData {
         }
     }
     
+    /**
+     * 复制一份用于单次发布，回放缓存中的对象在多个发布线程间共享，不能直接修改
+     */
+    public SensorData copy() {
+        SensorData copy = new SensorData();
+        copy.timestamp = timestamp;
+        copy.sensorType = sensorType;
+        copy.value = value;
+        copy.unit = unit;
+        copy.nodeId = nodeId;
+        copy.location = location;
+        copy.sentAt = sentAt;
+        return copy;
+    }
+    
     // Getters and Setters
     public LocalDateTime getTimestamp() {
         return timestamp;
@@ -104,6 +124,14 @@ public class SensorData {
         this.location = location;
     }
     
+    public Long getSentAt() {
+        return sentAt;
+    }
+    
+    public void setSentAt(Long sentAt) {
+        this.sentAt = sentAt;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
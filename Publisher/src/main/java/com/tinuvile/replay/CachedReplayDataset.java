@@ -0,0 +1,58 @@
+package com.tinuvile.replay;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+
+import java.util.List;
+
+/**
+ * 全量缓存的回放数据集
+ * 启动时将所有记录解析为SensorData对象常驻内存
+ *
+ * @author tinuvile
+ */
+public class CachedReplayDataset implements ReplayDataset {
+
+    /**
+     * 每条记录的堆占用（64位JVM，开启压缩指针）：
+     * SensorData 40 + LocalDateTime 24 + LocalDate 24 + LocalTime 24 + Double 16 + 列表引用 4，
+     * 另有ArrayList扩容留下的空槽约4字节。单位、位置字符串和节点ID在所有记录间共享，不计入。
+     * 取值为ReplayDatasetFootprintTest用JOL实测10万条记录的结果（136.3字节/条），测试同时校验该值
+     */
+    public static final int ESTIMATED_BYTES_PER_RECORD = 136;
+
+    private final SensorType sensorType;
+    private final List<SensorData> records;
+
+    public CachedReplayDataset(SensorType sensorType, List<SensorData> records) {
+        this.sensorType = sensorType;
+        this.records = records;
+    }
+
+    @Override
+    public SensorType getSensorType() {
+        return sensorType;
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public SensorData get(int index) {
+        return records.get(index);
+    }
+
+    @Override
+    public long estimateHeapBytes() {
+        return estimateHeapBytes(records.size());
+    }
+
+    /**
+     * 估算以SensorData对象形式缓存指定条数记录所需的堆内存
+     */
+    public static long estimateHeapBytes(int recordCount) {
+        return (long) recordCount * ESTIMATED_BYTES_PER_RECORD;
+    }
+}
@@ -0,0 +1,66 @@
+package com.tinuvile.replay;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 列式缓存的回放数据集
+ * 以并行的long[]时间戳和double[]数值常驻内存，单位和位置等元数据由传感器类型共享，
+ * 只在发布时才构造SensorData对象
+ *
+ * @author tinuvile
+ */
+public class ColumnarReplayDataset implements ReplayDataset {
+
+    private final SensorType sensorType;
+    private final long[] epochSeconds;
+    private final double[] values;
+
+    public ColumnarReplayDataset(SensorType sensorType, long[] epochSeconds, double[] values) {
+        if (epochSeconds.length != values.length) {
+            throw new IllegalArgumentException("时间戳与数值列长度不一致");
+        }
+        this.sensorType = sensorType;
+        this.epochSeconds = epochSeconds;
+        this.values = values;
+    }
+
+    /**
+     * 从内存映射数据集物化为列式数组，之后映射区即可释放
+     */
+    public static ColumnarReplayDataset from(MappedReplayDataset source) {
+        int size = source.size();
+        long[] epochSeconds = new long[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            epochSeconds[i] = source.getEpochSecond(i);
+            values[i] = source.getValue(i);
+        }
+        return new ColumnarReplayDataset(source.getSensorType(), epochSeconds, values);
+    }
+
+    @Override
+    public SensorType getSensorType() {
+        return sensorType;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public SensorData get(int index) {
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(epochSeconds[index], 0, ZoneOffset.UTC);
+        return new SensorData(timestamp, sensorType, values[index], sensorType.getUnit());
+    }
+
+    @Override
+    public long estimateHeapBytes() {
+        // 两个基本类型数组：8字节时间戳 + 8字节数值，外加数组对象头
+        return 16L * values.length + 32;
+    }
+}
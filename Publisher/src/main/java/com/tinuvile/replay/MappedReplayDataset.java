@@ -0,0 +1,389 @@
+package com.tinuvile.replay;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * 内存映射的回放数据集
+ * 启动时只扫描一遍数据文件，为每条记录保存时间戳和数值在文件中的偏移，
+ * 读取时再从映射区按需解码。堆上仅占用每条记录16字节的索引，
+ * 数据本身由操作系统页缓存承载，可回放远大于堆的历史文件
+ *
+ * 数据文件格式: 每行一个JSON对象 {"2014-02-13T06:20:00": "3.0", ...}
+ *
+ * @author tinuvile
+ */
+public class MappedReplayDataset implements ReplayDataset {
+
+    // 单个映射段大小，MappedByteBuffer最大只能映射2GB
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    // 相邻映射段的重叠字节数，保证从段内开始的记录可以在同一段内读完
+    private static final int SEGMENT_OVERLAP = 4096;
+
+    // 时间戳键长度: yyyy-MM-ddTHH:mm:ss
+    private static final int TIMESTAMP_LENGTH = 19;
+
+    private static final long INVALID_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final SensorType sensorType;
+    private final MappedByteBuffer[] segments;
+    private final long[] epochSeconds;
+    private final long[] valueOffsets;
+    private final int size;
+
+    private MappedReplayDataset(SensorType sensorType, MappedByteBuffer[] segments,
+                                long[] epochSeconds, long[] valueOffsets, int size) {
+        this.sensorType = sensorType;
+        this.segments = segments;
+        this.epochSeconds = epochSeconds;
+        this.valueOffsets = valueOffsets;
+        this.size = size;
+    }
+
+    /**
+     * 映射数据文件并建立偏移索引
+     */
+    public static MappedReplayDataset open(SensorType sensorType, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int segmentCount = (int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+
+            // 映射在通道关闭后依然有效
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = i * SEGMENT_SIZE;
+                long length = Math.min(fileSize - start, SEGMENT_SIZE + SEGMENT_OVERLAP);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+
+            IndexBuilder index = new IndexBuilder();
+            scan(segments, fileSize, index);
+            index.sortByTimestamp();
+
+            return new MappedReplayDataset(sensorType, segments,
+                    index.epochSeconds, index.valueOffsets, index.size);
+        }
+    }
+
+    @Override
+    public SensorType getSensorType() {
+        return sensorType;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SensorData get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(epochSeconds[index], 0, ZoneOffset.UTC);
+        return new SensorData(timestamp, sensorType, getValue(index), sensorType.getUnit());
+    }
+
+    @Override
+    public long estimateHeapBytes() {
+        // 两个索引数组，映射区位于堆外
+        return 16L * epochSeconds.length + 32;
+    }
+
+    /**
+     * 按需解码指定下标记录的数值
+     */
+    public double getValue(int index) {
+        long offset = valueOffsets[index];
+        int segment = (int) (offset / SEGMENT_SIZE);
+        ByteBuffer buffer = segments[segment];
+        int start = (int) (offset - segment * SEGMENT_SIZE);
+        return parseValue(buffer, start, findValueEnd(buffer, start, buffer.limit()));
+    }
+
+    /**
+     * 获取指定下标记录的时间戳（按UTC换算的epoch秒）
+     */
+    public long getEpochSecond(int index) {
+        return epochSeconds[index];
+    }
+
+    /**
+     * 顺序扫描所有映射段，收集有效记录
+     */
+    private static void scan(MappedByteBuffer[] segments, long fileSize, IndexBuilder index) {
+        long position = 0;
+        while (position < fileSize) {
+            int segment = (int) (position / SEGMENT_SIZE);
+            ByteBuffer buffer = segments[segment];
+            long base = segment * SEGMENT_SIZE;
+            int limit = buffer.limit();
+            // 只在本段“拥有”的区间内开始新记录，重叠区留给下一段
+            int ownedEnd = (int) Math.min(SEGMENT_SIZE, limit);
+
+            int p = (int) (position - base);
+            while (p < ownedEnd) {
+                if (buffer.get(p) != '"') {
+                    p++;
+                    continue;
+                }
+                p = scanEntry(buffer, p, limit, base, index);
+            }
+            position = base + p;
+        }
+    }
+
+    /**
+     * 从键的起始引号开始解析一个 "时间戳": "数值" 条目
+     *
+     * @return 下一个扫描位置
+     */
+    private static int scanEntry(ByteBuffer buffer, int p, int limit, long base, IndexBuilder index) {
+        int keyStart = p + 1;
+        int keyEnd = indexOf(buffer, (byte) '"', keyStart, limit);
+        if (keyEnd < 0) {
+            return limit;
+        }
+        if (keyEnd - keyStart != TIMESTAMP_LENGTH) {
+            return keyEnd + 1;
+        }
+
+        long epochSecond = parseTimestamp(buffer, keyStart);
+        if (epochSecond == INVALID_TIMESTAMP) {
+            return keyEnd + 1;
+        }
+
+        int q = skipWhitespace(buffer, keyEnd + 1, limit);
+        if (q >= limit || buffer.get(q) != ':') {
+            return keyEnd + 1;
+        }
+        q = skipWhitespace(buffer, q + 1, limit);
+        if (q >= limit) {
+            return limit;
+        }
+
+        int valueStart;
+        int valueEnd;
+        int next;
+        if (buffer.get(q) == '"') {
+            valueStart = q + 1;
+            valueEnd = indexOf(buffer, (byte) '"', valueStart, limit);
+            if (valueEnd < 0) {
+                return limit;
+            }
+            next = valueEnd + 1;
+        } else {
+            valueStart = q;
+            valueEnd = findValueEnd(buffer, valueStart, limit);
+            next = valueEnd;
+        }
+
+        // 跳过空值或无效值
+        if (valueEnd > valueStart && !Double.isNaN(parseValue(buffer, valueStart, valueEnd))) {
+            index.add(epochSecond, base + valueStart);
+        }
+        return next;
+    }
+
+    private static long parseTimestamp(ByteBuffer buffer, int start) {
+        if (buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-' || buffer.get(start + 10) != 'T'
+                || buffer.get(start + 13) != ':' || buffer.get(start + 16) != ':') {
+            return INVALID_TIMESTAMP;
+        }
+
+        int year = parseDigits(buffer, start, 4);
+        int month = parseDigits(buffer, start + 5, 2);
+        int day = parseDigits(buffer, start + 8, 2);
+        int hour = parseDigits(buffer, start + 11, 2);
+        int minute = parseDigits(buffer, start + 14, 2);
+        int second = parseDigits(buffer, start + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return INVALID_TIMESTAMP;
+        }
+
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            return INVALID_TIMESTAMP;
+        }
+    }
+
+    private static int parseDigits(ByteBuffer buffer, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * 解析数值，常见的短小数走快速路径，其余交给Double.parseDouble
+     *
+     * @return 解析结果，无效时返回NaN
+     */
+    private static double parseValue(ByteBuffer buffer, int start, int end) {
+        int p = start;
+        boolean negative = false;
+        if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+            negative = buffer.get(p) == '-';
+            p++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        for (; p < end; p++) {
+            byte b = buffer.get(p);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (seenDot) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                break;
+            }
+        }
+
+        // 尾数不超过2^53且10的幂可精确表示时，一次除法即可得到正确舍入的结果
+        if (p == end && digits > 0 && digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static int findValueEnd(ByteBuffer buffer, int start, int limit) {
+        int p = start;
+        while (p < limit) {
+            byte b = buffer.get(p);
+            if (b == '"' || b == ',' || b == '}' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                break;
+            }
+            p++;
+        }
+        return p;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte target, int start, int limit) {
+        for (int p = start; p < limit; p++) {
+            if (buffer.get(p) == target) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int start, int limit) {
+        int p = start;
+        while (p < limit) {
+            byte b = buffer.get(p);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                break;
+            }
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * 可增长的偏移索引
+     */
+    private static final class IndexBuilder {
+        long[] epochSeconds = new long[1024];
+        long[] valueOffsets = new long[1024];
+        int size = 0;
+
+        void add(long epochSecond, long valueOffset) {
+            if (size == epochSeconds.length) {
+                int capacity = size + (size >> 1);
+                epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+                valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+            }
+            epochSeconds[size] = epochSecond;
+            valueOffsets[size] = valueOffset;
+            size++;
+        }
+
+        /**
+         * 按时间戳稳定排序（自底向上归并），同一时间戳保持文件中的先后顺序
+         */
+        void sortByTimestamp() {
+            long[] keys = Arrays.copyOf(epochSeconds, size);
+            long[] values = Arrays.copyOf(valueOffsets, size);
+            long[] keyBuffer = new long[size];
+            long[] valueBuffer = new long[size];
+
+            for (int width = 1; width < size; width <<= 1) {
+                for (int left = 0; left < size; left += width << 1) {
+                    int mid = Math.min(left + width, size);
+                    int right = Math.min(left + (width << 1), size);
+                    int i = left;
+                    int j = mid;
+                    int k = left;
+                    while (i < mid && j < right) {
+                        if (keys[j] < keys[i]) {
+                            keyBuffer[k] = keys[j];
+                            valueBuffer[k++] = values[j++];
+                        } else {
+                            keyBuffer[k] = keys[i];
+                            valueBuffer[k++] = values[i++];
+                        }
+                    }
+                    while (i < mid) {
+                        keyBuffer[k] = keys[i];
+                        valueBuffer[k++] = values[i++];
+                    }
+                    while (j < right) {
+                        keyBuffer[k] = keys[j];
+                        valueBuffer[k++] = values[j++];
+                    }
+                }
+                long[] swapKeys = keys;
+                keys = keyBuffer;
+                keyBuffer = swapKeys;
+                long[] swapValues = values;
+                values = valueBuffer;
+                valueBuffer = swapValues;
+            }
+
+            epochSeconds = keys;
+            valueOffsets = values;
+        }
+    }
+}
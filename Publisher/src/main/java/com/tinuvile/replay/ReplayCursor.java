@@ -0,0 +1,54 @@
+package com.tinuvile.replay;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回放读取游标
+ * 内部是一个单调递增的原子计数，读取时通过一次原子加法预占一段连续区间，
+ * 调用方再按数据集大小取模得到实际下标，多个线程并发读取无需加锁
+ *
+ * @author tinuvile
+ */
+public class ReplayCursor {
+
+    private final String name;
+    private final AtomicLong position = new AtomicLong(0);
+
+    public ReplayCursor(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 预占count条记录
+     *
+     * @return 预占区间的起始位置（未取模）
+     */
+    public long claim(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("预占数量必须大于0: " + count);
+        }
+        return position.getAndAdd(count);
+    }
+
+    /**
+     * 当前位置（未取模），即已预占的记录总数
+     */
+    public long position() {
+        return position.get();
+    }
+
+    public void reset() {
+        position.set(0);
+    }
+
+    /**
+     * 将游标移动到指定位置
+     */
+    public void seek(long newPosition) {
+        position.set(newPosition);
+    }
+}
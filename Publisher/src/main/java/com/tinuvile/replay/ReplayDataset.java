@@ -0,0 +1,33 @@
+package com.tinuvile.replay;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+
+/**
+ * 回放数据集
+ * 按时间排序的某一类型传感器数据，支持按下标随机访问
+ *
+ * @author tinuvile
+ */
+public interface ReplayDataset {
+
+    /**
+     * 数据集对应的传感器类型
+     */
+    SensorType getSensorType();
+
+    /**
+     * 记录总数
+     */
+    int size();
+
+    /**
+     * 获取指定下标的记录，下标范围 [0, size())
+     */
+    SensorData get(int index);
+
+    /**
+     * 估算数据集占用的堆内存字节数
+     */
+    long estimateHeapBytes();
+}
@@ -4,6 +4,11 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tinuvile.model.SensorData;
 import com.tinuvile.model.SensorType;
+import com.tinuvile.replay.CachedReplayDataset;
+import com.tinuvile.replay.ColumnarReplayDataset;
+import com.tinuvile.replay.MappedReplayDataset;
+import com.tinuvile.replay.ReplayCursor;
+import com.tinuvile.replay.ReplayDataset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,6 +23,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 数据文件读取服务
@@ -42,23 +48,28 @@ public class DataReaderService {
     @Value("${publisher.data.files.pressure}")
     private String pressureFile;
 
+    @Value("${publisher.data.replay-mode:cache}")
+    private String replayMode;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // 缓存所有传感器数据，按类型分组
-    private final Map<SensorType, List<SensorData>> sensorDataCache = new ConcurrentHashMap<>();
+    // 所有传感器回放数据集，按类型分组
+    private final Map<SensorType, ReplayDataset> datasets = new ConcurrentHashMap<>();
+
+    // 默认游标名称，定时发布任务使用
+    public static final String DEFAULT_CURSOR = "default";
 
-    // 当前读取位置指针
-    private final Map<SensorType, Integer> readPointers = new ConcurrentHashMap<>();
+    // 具名读取游标，每个名称在每种传感器类型上各有一个独立游标
+    private final Map<String, Map<SensorType, ReplayCursor>> cursors = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
         logger.info("初始化数据读取服务...");
         logger.info("数据目录: {}", dataDirectory);
+        logger.info("回放模式: {}", replayMode);
 
-        // 初始化读取位置指针
-        for (SensorType type : SensorType.values()) {
-            readPointers.put(type, 0);
-        }
+        // 初始化默认游标
+        cursors.put(DEFAULT_CURSOR, createCursors(DEFAULT_CURSOR));
 
         loadAllSensorData();
     }
@@ -83,44 +94,61 @@ public class DataReaderService {
      * 加载指定类型的传感器数据
      */
     private void loadSensorTypeData(SensorType sensorType, String filename) {
-        try {
-            Path filePath = Paths.get(dataDirectory, filename);
-            if (!Files.exists(filePath)) {
-                logger.warn("数据文件不存在: {}", filePath);
-                sensorDataCache.put(sensorType, new ArrayList<>());
-                return;
-            }
-
-            logger.info("读取 {} 数据文件: {}", sensorType.getDisplayName(), filePath);
-
-            List<String> lines = Files.readAllLines(filePath);
-            List<SensorData> dataList = new ArrayList<>();
+        Path filePath = Paths.get(dataDirectory, filename);
+        if (!Files.exists(filePath)) {
+            logger.warn("数据文件不存在: {}", filePath);
+            datasets.put(sensorType, new CachedReplayDataset(sensorType, new ArrayList<>()));
+            return;
+        }
 
-            for (String line : lines) {
-                if (line.trim().isEmpty())
-                    continue;
+        logger.info("读取 {} 数据文件: {}", sensorType.getDisplayName(), filePath);
 
-                try {
-                    JsonNode jsonNode = objectMapper.readTree(line);
-                    List<SensorData> lineData = parseLine(jsonNode, sensorType);
-                    dataList.addAll(lineData);
-                } catch (Exception e) {
-                    logger.warn("解析数据行失败: {}, 错误: {}", line, e.getMessage());
-                }
+        try {
+            ReplayDataset dataset;
+            if ("mmap".equalsIgnoreCase(replayMode)) {
+                // 内存映射，仅建立偏移索引，记录在读取时按需解码
+                dataset = MappedReplayDataset.open(sensorType, filePath);
+            } else if ("columnar".equalsIgnoreCase(replayMode)) {
+                // 借助映射扫描一次性物化为基本类型数组，映射区随后即可回收
+                dataset = ColumnarReplayDataset.from(MappedReplayDataset.open(sensorType, filePath));
+            } else {
+                dataset = new CachedReplayDataset(sensorType, readAllSensorData(sensorType, filePath));
             }
 
-            // 按时间排序
-            dataList.sort(Comparator.comparing(SensorData::getTimestamp));
-
-            sensorDataCache.put(sensorType, dataList);
-            logger.info("成功加载 {} 数据: {} 条记录", sensorType.getDisplayName(), dataList.size());
+            datasets.put(sensorType, dataset);
+            logger.info("成功加载 {} 数据: {} 条记录", sensorType.getDisplayName(), dataset.size());
 
         } catch (IOException e) {
             logger.error("读取文件失败: {}", filename, e);
-            sensorDataCache.put(sensorType, new ArrayList<>());
+            datasets.put(sensorType, new CachedReplayDataset(sensorType, new ArrayList<>()));
         }
     }
 
+    /**
+     * 读取并解析整个数据文件
+     */
+    private List<SensorData> readAllSensorData(SensorType sensorType, Path filePath) throws IOException {
+        List<String> lines = Files.readAllLines(filePath);
+        List<SensorData> dataList = new ArrayList<>();
+
+        for (String line : lines) {
+            if (line.trim().isEmpty())
+                continue;
+
+            try {
+                JsonNode jsonNode = objectMapper.readTree(line);
+                List<SensorData> lineData = parseLine(jsonNode, sensorType);
+                dataList.addAll(lineData);
+            } catch (Exception e) {
+                logger.warn("解析数据行失败: {}, 错误: {}", line, e.getMessage());
+            }
+        }
+
+        // 按时间排序
+        dataList.sort(Comparator.comparing(SensorData::getTimestamp));
+        return dataList;
+    }
+
     /**
      * 解析JSON数据行
      * 格式: {"2014-02-13T06:20:00": "3.0", "2014-02-13T13:50:00": "7.0", ...}
@@ -157,53 +185,101 @@ public class DataReaderService {
     }
 
     /**
-     * 获取下一个传感器数据
+     * 获取下一个传感器数据（默认游标）
      */
     public SensorData getNextSensorData(SensorType sensorType) {
-        List<SensorData> dataList = sensorDataCache.get(sensorType);
-        if (dataList == null || dataList.isEmpty()) {
-            return null;
+        return getNextSensorData(DEFAULT_CURSOR, sensorType);
+    }
+
+    /**
+     * 从指定游标获取下一个传感器数据
+     */
+    public SensorData getNextSensorData(String cursorName, SensorType sensorType) {
+        List<SensorData> results = getNextBatchSensorData(cursorName, sensorType, 1);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * 获取多个传感器数据（默认游标）
+     */
+    public List<SensorData> getNextBatchSensorData(SensorType sensorType, int batchSize) {
+        return getNextBatchSensorData(DEFAULT_CURSOR, sensorType, batchSize);
+    }
+
+    /**
+     * 从指定游标获取多个传感器数据
+     * 整批只做一次原子预占，读到末尾后从头循环
+     */
+    public List<SensorData> getNextBatchSensorData(String cursorName, SensorType sensorType, int batchSize) {
+        ReplayDataset dataset = datasets.get(sensorType);
+        if (dataset == null || dataset.size() == 0 || batchSize <= 0) {
+            return new ArrayList<>();
         }
 
-        int currentPointer = readPointers.get(sensorType);
-        if (currentPointer >= dataList.size()) {
-            // 重置到开头，循环读取
-            currentPointer = 0;
-            readPointers.put(sensorType, 0);
-            logger.info("{} 数据读取完毕，重新开始循环读取", sensorType.getDisplayName());
+        int size = dataset.size();
+        long start = getCursor(cursorName, sensorType).claim(batchSize);
+        if (start / size != (start + batchSize) / size) {
+            logger.info("{} 数据读取完毕，重新开始循环读取 (游标: {})", sensorType.getDisplayName(), cursorName);
+        }
+
+        List<SensorData> results = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            results.add(dataset.get((int) ((start + i) % size)));
         }
+        return results;
+    }
 
-        SensorData data = dataList.get(currentPointer);
-        readPointers.put(sensorType, currentPointer + 1);
+    /**
+     * 获取指定名称和类型的游标，不存在时创建
+     */
+    private ReplayCursor getCursor(String cursorName, SensorType sensorType) {
+        return cursors.computeIfAbsent(cursorName, DataReaderService::createCursors).get(sensorType);
+    }
 
-        return data;
+    private static Map<SensorType, ReplayCursor> createCursors(String cursorName) {
+        // 创建后不再修改，可以安全地并发读取
+        Map<SensorType, ReplayCursor> typeCursors = new EnumMap<>(SensorType.class);
+        for (SensorType type : SensorType.values()) {
+            typeCursors.put(type, new ReplayCursor(cursorName));
+        }
+        return typeCursors;
     }
 
     /**
-     * 获取多个传感器数据
+     * 将指定名称的游标在所有传感器类型上移动到同一位置，游标不存在时创建
      */
-    public List<SensorData> getNextBatchSensorData(SensorType sensorType, int batchSize) {
-        List<SensorData> results = new ArrayList<>();
-        for (int i = 0; i < batchSize; i++) {
-            SensorData data = getNextSensorData(sensorType);
-            if (data != null) {
-                results.add(data);
-            }
+    public void seekCursor(String cursorName, long position) {
+        for (ReplayCursor cursor : cursors.computeIfAbsent(cursorName, DataReaderService::createCursors).values()) {
+            cursor.seek(position);
         }
-        return results;
+    }
+
+    /**
+     * 移除指定名称的游标
+     */
+    public void removeCursor(String cursorName) {
+        if (!DEFAULT_CURSOR.equals(cursorName)) {
+            cursors.remove(cursorName);
+        }
+    }
+
+    /**
+     * 获取当前所有游标名称
+     */
+    public Set<String> getCursorNames() {
+        return new TreeSet<>(cursors.keySet());
     }
 
     /**
      * 随机获取一个传感器数据（用于模拟实时数据）
      */
     public SensorData getRandomSensorData(SensorType sensorType) {
-        List<SensorData> dataList = sensorDataCache.get(sensorType);
-        if (dataList == null || dataList.isEmpty()) {
+        ReplayDataset dataset = datasets.get(sensorType);
+        if (dataset == null || dataset.size() == 0) {
             return null;
         }
 
-        Random random = new Random();
-        SensorData originalData = dataList.get(random.nextInt(dataList.size()));
+        SensorData originalData = dataset.get(ThreadLocalRandom.current().nextInt(dataset.size()));
 
         // 创建一个新的数据对象，时间戳设为当前时间
         SensorData newData = new SensorData(
@@ -221,16 +297,16 @@ public class DataReaderService {
      * 获取传感器数据总数
      */
     public int getSensorDataCount(SensorType sensorType) {
-        List<SensorData> dataList = sensorDataCache.get(sensorType);
-        return dataList != null ? dataList.size() : 0;
+        ReplayDataset dataset = datasets.get(sensorType);
+        return dataset != null ? dataset.size() : 0;
     }
 
     /**
      * 获取所有传感器数据总数
      */
     public int getTotalDataCount() {
-        return sensorDataCache.values().stream()
-                .mapToInt(List::size)
+        return datasets.values().stream()
+                .mapToInt(ReplayDataset::size)
                 .sum();
     }
 
@@ -238,8 +314,10 @@ public class DataReaderService {
      * 重置读取指针
      */
     public void resetReadPointers() {
-        for (SensorType type : SensorType.values()) {
-            readPointers.put(type, 0);
+        for (Map<SensorType, ReplayCursor> typeCursors : cursors.values()) {
+            for (ReplayCursor cursor : typeCursors.values()) {
+                cursor.reset();
+            }
         }
         logger.info("已重置所有数据读取指针");
     }
@@ -252,8 +330,9 @@ public class DataReaderService {
 
         for (SensorType type : SensorType.values()) {
             Map<String, Object> typeProgress = new HashMap<>();
-            int current = readPointers.get(type);
             int total = getSensorDataCount(type);
+            long position = getCursor(DEFAULT_CURSOR, type).position();
+            int current = total > 0 ? (int) (position % total) : 0;
             double percentage = total > 0 ? (double) current / total * 100 : 0;
 
             typeProgress.put("current", current);
@@ -262,10 +341,44 @@ public class DataReaderService {
 
             progress.put(type.getCode(), typeProgress);
         }
+        progress.put("cursor_count", cursors.size());
 
         return progress;
     }
 
+    /**
+     * 获取回放数据集的堆内存占用估算
+     * 同时给出以SensorData对象缓存同样记录所需的堆内存，便于对比不同回放模式
+     */
+    public Map<String, Object> getHeapFootprint() {
+        Map<String, Object> footprint = new HashMap<>();
+        long totalHeapBytes = 0;
+        long totalObjectCacheBytes = 0;
+
+        for (SensorType type : SensorType.values()) {
+            ReplayDataset dataset = datasets.get(type);
+            if (dataset == null) {
+                continue;
+            }
+
+            long heapBytes = dataset.estimateHeapBytes();
+            long objectCacheBytes = CachedReplayDataset.estimateHeapBytes(dataset.size());
+            totalHeapBytes += heapBytes;
+            totalObjectCacheBytes += objectCacheBytes;
+
+            Map<String, Object> typeFootprint = new HashMap<>();
+            typeFootprint.put("records", dataset.size());
+            typeFootprint.put("heap_bytes", heapBytes);
+            typeFootprint.put("object_cache_heap_bytes", objectCacheBytes);
+            footprint.put(type.getCode(), typeFootprint);
+        }
+
+        footprint.put("replay_mode", replayMode);
+        footprint.put("total_heap_bytes", totalHeapBytes);
+        footprint.put("total_object_cache_heap_bytes", totalObjectCacheBytes);
+        return footprint;
+    }
+
     /**
      * 检查数据文件是否存在
      */
@@ -0,0 +1,237 @@
+package com.tinuvile.service;
+
+import com.tinuvile.fleet.TimerWheel;
+import com.tinuvile.fleet.VirtualNode;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 设备集群仿真服务
+ * 在单个发布实例中模拟大量虚拟传感器节点，每个节点独立回放三种传感器数据。
+ * 所有节点由一个时间轮调度，到期节点交给固定大小的工作线程池发布，
+ * 节点规模不受平台线程数限制
+ *
+ * @author tinuvile
+ */
+@Service
+public class FleetSimulationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetSimulationService.class);
+
+    // 支持的最大节点数
+    public static final int MAX_NODE_COUNT = 100_000;
+
+    // 游标起始位置步长，错开各节点回放的数据
+    private static final long CURSOR_STRIDE = 7919;
+
+    private static final String CURSOR_PREFIX = "fleet-node-";
+
+    @Autowired
+    private DataReaderService dataReaderService;
+
+    @Autowired
+    private MqttClientService mqttClientService;
+
+    @Value("${publisher.fleet.enabled:false}")
+    private boolean enabled;
+
+    @Value("${publisher.fleet.node-count:1000}")
+    private int nodeCount;
+
+    @Value("${publisher.fleet.node-id-start:1001}")
+    private int nodeIdStart;
+
+    @Value("${publisher.fleet.interval:${publisher.publish.interval}}")
+    private long interval;
+
+    @Value("${publisher.fleet.jitter:500}")
+    private long jitter;
+
+    @Value("${publisher.fleet.tick:10}")
+    private long tickMillis;
+
+    @Value("${publisher.fleet.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${publisher.fleet.worker-threads:4}")
+    private int workerThreads;
+
+    private volatile List<VirtualNode> nodes = Collections.emptyList();
+    private volatile TimerWheel<VirtualNode> timerWheel;
+    private volatile ExecutorService workerPool;
+    private volatile BiConsumer<SensorType, Boolean> resultListener;
+
+    /**
+     * 启动集群仿真
+     *
+     * @param resultListener 每条数据发布完成后的回调（传感器类型，是否成功）
+     */
+    public synchronized void start(BiConsumer<SensorType, Boolean> resultListener) {
+        if (timerWheel != null) {
+            logger.warn("设备集群仿真已在运行中");
+            return;
+        }
+
+        int count = Math.max(1, Math.min(nodeCount, MAX_NODE_COUNT));
+        if (count != nodeCount) {
+            logger.warn("集群节点数 {} 超出范围，调整为 {}", nodeCount, count);
+        }
+
+        this.resultListener = resultListener;
+        this.nodes = createNodes(count);
+
+        // 每个节点同一时刻只会在时间轮或任务队列中出现一次，队列长度不会超过节点数
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        workerPool = Executors.newFixedThreadPool(Math.max(1, workerThreads), r -> {
+            Thread thread = new Thread(r, "fleet-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        timerWheel = new TimerWheel<>("fleet-timer", tickMillis, wheelSize, this::dispatch);
+
+        long now = System.currentTimeMillis();
+        for (VirtualNode node : nodes) {
+            node.setNextDeadline(now + node.getPhaseMillis());
+            timerWheel.schedule(node, node.getNextDeadline());
+        }
+        timerWheel.start();
+
+        logger.info("设备集群仿真已启动: 节点数={}, 节点ID={}~{}, 发布间隔={}ms, 抖动=±{}ms, 工作线程={}",
+                count, nodeIdStart, nodeIdStart + count - 1, interval, jitter, workerThreads);
+    }
+
+    /**
+     * 停止集群仿真并释放节点游标
+     */
+    public synchronized void stop() {
+        if (timerWheel == null) {
+            return;
+        }
+
+        timerWheel.stop();
+        timerWheel = null;
+
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(5, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        workerPool = null;
+
+        for (VirtualNode node : nodes) {
+            dataReaderService.removeCursor(node.getCursorName());
+        }
+        logger.info("设备集群仿真已停止，释放 {} 个虚拟节点", nodes.size());
+        nodes = Collections.emptyList();
+    }
+
+    private List<VirtualNode> createNodes(int count) {
+        List<VirtualNode> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int nodeId = nodeIdStart + i;
+            String location = String.format("仿真区域%02d-%04d", i / 1000 + 1, i % 1000 + 1);
+            String cursorName = CURSOR_PREFIX + nodeId;
+            // 相位在一个发布周期内均匀分布，避免所有节点同时发布
+            long phase = interval * i / count;
+
+            dataReaderService.seekCursor(cursorName, i * CURSOR_STRIDE);
+            created.add(new VirtualNode(nodeId, location, cursorName, phase));
+        }
+        return created;
+    }
+
+    /**
+     * 时间轮回调，只负责把到期节点交给工作线程
+     */
+    private void dispatch(VirtualNode node) {
+        ExecutorService pool = workerPool;
+        if (pool != null && !pool.isShutdown()) {
+            pool.execute(() -> publishNode(node));
+        }
+    }
+
+    /**
+     * 发布一个节点的三种传感器数据，并调度下一次发布
+     */
+    private void publishNode(VirtualNode node) {
+        for (SensorType sensorType : SensorType.values()) {
+            SensorData source = dataReaderService.getNextSensorData(node.getCursorName(), sensorType);
+            if (source == null) {
+                continue;
+            }
+            // cache模式下返回的是回放缓存中的共享对象，节点信息写在副本上
+            SensorData data = source.copy();
+            data.setNodeId(node.getNodeId());
+            data.setLocation(node.getLocation());
+
+            // 发送窗口满时在此阻塞，形成对时间轮的背压；结果在投递确认后回调
+            mqttClientService.publishSensorData(data).whenComplete((success, ex) -> {
+                BiConsumer<SensorType, Boolean> listener = resultListener;
+                if (listener != null) {
+                    listener.accept(sensorType, ex == null && Boolean.TRUE.equals(success));
+                }
+            });
+        }
+
+        // 计划时间按固定间隔推进，抖动只影响单次实际发布时间，不会累积漂移
+        TimerWheel<VirtualNode> wheel = timerWheel;
+        if (wheel != null) {
+            long deadline = node.getNextDeadline() + interval;
+            node.setNextDeadline(deadline);
+            long offset = jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0;
+            wheel.schedule(node, deadline + offset);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isRunning() {
+        return timerWheel != null;
+    }
+
+    /**
+     * 获取集群仿真信息
+     */
+    public Map<String, Object> getFleetInfo() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("enabled", enabled);
+        info.put("running", isRunning());
+        info.put("node_count", nodes.size());
+        info.put("configured_node_count", nodeCount);
+        info.put("node_id_start", nodeIdStart);
+        info.put("interval", interval);
+        info.put("jitter", jitter);
+        info.put("worker_threads", workerThreads);
+        return info;
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        stop();
+    }
+}
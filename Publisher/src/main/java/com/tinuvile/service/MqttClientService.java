@@ -1,18 +1,25 @@
 package com.tinuvile.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinuvile.codec.SensorDataBinaryCodec;
 import com.tinuvile.model.SensorData;
 import com.tinuvile.model.SensorType;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MQTT客户端服务
@@ -21,7 +28,7 @@ import java.util.concurrent.CompletableFuture;
  * @author tinuvile
  */
 @Service
-public class MqttClientService implements MqttCallback {
+public class MqttClientService implements MqttCallbackExtended {
     
     private static final Logger logger = LoggerFactory.getLogger(MqttClientService.class);
     
@@ -52,10 +59,50 @@ public class MqttClientService implements MqttCallback {
     @Value("${mqtt.retained}")
     private boolean retained;
     
-    private MqttClient mqttClient;
+    @Value("${mqtt.payload-format:json}")
+    private String payloadFormat;
+    
+    @Value("${mqtt.binary-topic-suffix:/bin}")
+    private String binaryTopicSuffix;
+    
+    @Value("${mqtt.max-inflight:1000}")
+    private int maxInflight;
+    
+    @Value("${mqtt.inflight-wait-timeout:5000}")
+    private long inflightWaitTimeout;
+    
+    private MqttAsyncClient mqttClient;
     private final ObjectMapper objectMapper;
     private volatile boolean connected = false;
     
+    // 发送窗口，每条未确认的消息占用一个许可，窗口满时发布方阻塞等待
+    private Semaphore inflightPermits;
+    private final AtomicLong windowFullCount = new AtomicLong(0);
+    // 断线期间丢弃的消息数，断线后由Paho自动重连，发布路径不做同步重连
+    private final AtomicLong disconnectedDropCount = new AtomicLong(0);
+    
+    @Autowired
+    private PublishLatencyMetrics latencyMetrics;
+    
+    // 所有发布共用的确认回调，通过userContext找到对应的待确认消息
+    private final IMqttActionListener deliveryListener = new IMqttActionListener() {
+        @Override
+        public void onSuccess(IMqttToken token) {
+            inflightPermits.release();
+            PendingPublish pending = (PendingPublish) token.getUserContext();
+            latencyMetrics.record(pending.sensorType, PublishLatencyMetrics.Stage.ACK,
+                    System.nanoTime() - pending.startNanos);
+            pending.result.complete(true);
+        }
+        
+        @Override
+        public void onFailure(IMqttToken token, Throwable exception) {
+            inflightPermits.release();
+            logger.error("消息投递失败: {}", exception != null ? exception.getMessage() : "未知原因");
+            ((PendingPublish) token.getUserContext()).result.complete(false);
+        }
+    };
+    
     // 构造函数中初始化ObjectMapper
     public MqttClientService() {
         this.objectMapper = new ObjectMapper();
@@ -67,29 +114,38 @@ public class MqttClientService implements MqttCallback {
         logger.info("初始化MQTT客户端...");
         logger.info("Broker URL: {}", brokerUrl);
         logger.info("Client ID: {}", clientId);
+        logger.info("负载格式: {}", isBinaryFormat() ? "binary" : "json");
+        logger.info("发送窗口: {}", maxInflight);
+        inflightPermits = new Semaphore(maxInflight);
         connectToBroker();
     }
     
     /**
      * 连接到MQTT代理
      */
-    public void connectToBroker() {
+    public synchronized void connectToBroker() {
         try {
             if (mqttClient != null && mqttClient.isConnected()) {
                 logger.info("MQTT客户端已连接");
+                connected = true;
                 return;
             }
             
             logger.info("连接到MQTT代理: {}", brokerUrl);
             
-            MemoryPersistence persistence = new MemoryPersistence();
-            mqttClient = new MqttClient(brokerUrl, clientId, persistence);
+            if (mqttClient == null) {
+                MemoryPersistence persistence = new MemoryPersistence();
+                mqttClient = new MqttAsyncClient(brokerUrl, clientId, persistence);
+                // 设置回调
+                mqttClient.setCallback(this);
+            }
             
             MqttConnectOptions connectOptions = new MqttConnectOptions();
             connectOptions.setCleanSession(true);
             connectOptions.setKeepAliveInterval(60);
             connectOptions.setConnectionTimeout(30);
             connectOptions.setAutomaticReconnect(true);
+            connectOptions.setMaxInflight(maxInflight);
             
             // 设置用户名密码（如果有）
             if (username != null && !username.trim().isEmpty()) {
@@ -99,11 +155,8 @@ public class MqttClientService implements MqttCallback {
                 }
             }
             
-            // 设置回调
-            mqttClient.setCallback(this);
-            
             // 连接
-            mqttClient.connect(connectOptions);
+            mqttClient.connect(connectOptions).waitForCompletion(TimeUnit.SECONDS.toMillis(30));
             connected = true;
             
             logger.info("MQTT客户端连接成功！");
@@ -117,53 +170,96 @@ public class MqttClientService implements MqttCallback {
     
     /**
      * 发布传感器数据
+     * 消息交给异步客户端后立即返回，结果在代理确认（QoS 0为写出）后完成。
+     * 未确认消息数达到发送窗口上限时，调用方最多阻塞inflight-wait-timeout毫秒。
+     * 连接断开时直接丢弃并计数，等待客户端自动重连，不在发布线程上阻塞建连
      */
     public CompletableFuture<Boolean> publishSensorData(SensorData sensorData) {
-        return CompletableFuture.supplyAsync(() -> {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            if (!isConnected()) {
+                long count = disconnectedDropCount.incrementAndGet();
+                if (count % 1000 == 1) {
+                    logger.warn("MQTT客户端未连接，等待自动重连，累计丢弃 {} 条", count);
+                }
+                result.complete(false);
+                return result;
+            }
+            
+            // 先占用发送窗口再打发送时间，订阅端的传输延迟不包含发布端等待窗口的时间
+            if (!inflightPermits.tryAcquire(inflightWaitTimeout, TimeUnit.MILLISECONDS)) {
+                long count = windowFullCount.incrementAndGet();
+                if (count % 1000 == 1) {
+                    logger.warn("发送窗口已满({})，等待超时，累计丢弃 {} 条", maxInflight, count);
+                }
+                result.complete(false);
+                return result;
+            }
+            
+            SensorType sensorType = sensorData.getSensorType();
+            String topic = getTopicForSensorType(sensorType);
+            SensorData message;
+            byte[] payload;
+            long publishStart;
             try {
-                if (!isConnected()) {
-                    logger.warn("MQTT客户端未连接，尝试重连...");
-                    connectToBroker();
+                // 携带发送时间，订阅端据此统计端到端延迟；传入的可能是回放缓存中的共享对象，时间戳写在副本上
+                message = sensorData.copy();
+                message.setSentAt(System.currentTimeMillis());
+                long serializeStart = System.nanoTime();
+                if (isBinaryFormat()) {
+                    // 二进制格式通过主题后缀区分，订阅端据此选择解码器
+                    topic = topic + binaryTopicSuffix;
+                    payload = SensorDataBinaryCodec.encode(message);
+                } else {
+                    payload = objectMapper.writeValueAsBytes(message);
                 }
+                latencyMetrics.record(sensorType, PublishLatencyMetrics.Stage.SERIALIZE,
+                        System.nanoTime() - serializeStart);
                 
-                String topic = getTopicForSensorType(sensorData.getSensorType());
-                String jsonPayload = objectMapper.writeValueAsString(sensorData);
-                
-                MqttMessage message = new MqttMessage(jsonPayload.getBytes());
-                message.setQos(qos);
-                message.setRetained(retained);
-                
-                mqttClient.publish(topic, message);
-                
-                logger.debug("发布数据成功: {} -> {}", topic, jsonPayload);
-                return true;
-                
+                publishStart = System.nanoTime();
+                mqttClient.publish(topic, payload, qos, retained,
+                        new PendingPublish(sensorType, publishStart, result), deliveryListener);
             } catch (Exception e) {
-                logger.error("发布数据失败: {}", e.getMessage(), e);
-                return false;
+                // 未交给客户端的消息不会有投递回调，在此归还窗口
+                inflightPermits.release();
+                throw e;
             }
-        });
+            latencyMetrics.record(sensorType, PublishLatencyMetrics.Stage.PUBLISH_CALL,
+                    System.nanoTime() - publishStart);
+            
+            logger.debug("提交发布: {} -> {} ({} 字节)", topic, message, payload.length);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.complete(false);
+        } catch (Exception e) {
+            logger.error("发布数据失败: {}", e.getMessage(), e);
+            result.complete(false);
+        }
+        return result;
     }
     
     /**
      * 批量发布传感器数据
+     * 整批消息在发送窗口内流水线发送，全部确认后返回成功条数
      */
-    public CompletableFuture<Integer> publishSensorDataBatch(java.util.List<SensorData> dataList) {
-        return CompletableFuture.supplyAsync(() -> {
-            int successCount = 0;
-            for (SensorData data : dataList) {
-                try {
-                    boolean success = publishSensorData(data).get();
-                    if (success) {
-                        successCount++;
+    public CompletableFuture<Integer> publishSensorDataBatch(List<SensorData> dataList) {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(dataList.size());
+        for (SensorData data : dataList) {
+            results.add(publishSensorData(data));
+        }
+        
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    int successCount = 0;
+                    for (CompletableFuture<Boolean> result : results) {
+                        if (result.join()) {
+                            successCount++;
+                        }
                     }
-                } catch (Exception e) {
-                    logger.error("批量发布数据项失败: {}", e.getMessage());
-                }
-            }
-            logger.info("批量发布完成: {}/{} 成功", successCount, dataList.size());
-            return successCount;
-        });
+                    logger.debug("批量发布完成: {}/{} 成功", successCount, dataList.size());
+                    return successCount;
+                });
     }
     
     /**
@@ -182,6 +278,13 @@ public class MqttClientService implements MqttCallback {
         }
     }
     
+    /**
+     * 是否使用二进制负载格式
+     */
+    public boolean isBinaryFormat() {
+        return "binary".equalsIgnoreCase(payloadFormat);
+    }
+    
     /**
      * 检查连接状态
      */
@@ -198,6 +301,10 @@ public class MqttClientService implements MqttCallback {
         info.setClientId(clientId);
         info.setConnected(isConnected());
         info.setUsername(username);
+        info.setMaxInflight(maxInflight);
+        info.setInflight(inflightPermits != null ? maxInflight - inflightPermits.availablePermits() : 0);
+        info.setWindowFullCount(windowFullCount.get());
+        info.setDisconnectedDropCount(disconnectedDropCount.get());
         
         if (mqttClient != null) {
             try {
@@ -216,7 +323,7 @@ public class MqttClientService implements MqttCallback {
     public void disconnect() {
         try {
             if (mqttClient != null && mqttClient.isConnected()) {
-                mqttClient.disconnect();
+                mqttClient.disconnect().waitForCompletion(TimeUnit.SECONDS.toMillis(10));
                 logger.info("MQTT客户端已断开连接");
             }
             connected = false;
@@ -239,21 +346,19 @@ public class MqttClientService implements MqttCallback {
     }
     
     // MQTT回调方法
+    @Override
+    public void connectComplete(boolean reconnect, String serverURI) {
+        connected = true;
+        if (reconnect) {
+            logger.info("MQTT客户端已自动重连: {}", serverURI);
+        }
+    }
+    
     @Override
     public void connectionLost(Throwable cause) {
-        logger.warn("MQTT连接丢失: {}", cause.getMessage());
+        // 异步客户端开启了自动重连，重连成功后由connectComplete恢复状态
+        logger.warn("MQTT连接丢失，等待自动重连: {}", cause.getMessage());
         connected = false;
-        
-        // 自动重连逻辑
-        new Thread(() -> {
-            try {
-                Thread.sleep(5000); // 等待5秒后重连
-                logger.info("尝试重新连接MQTT代理...");
-                connectToBroker();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
     }
     
     @Override
@@ -264,7 +369,22 @@ public class MqttClientService implements MqttCallback {
     
     @Override
     public void deliveryComplete(IMqttDeliveryToken token) {
-        logger.debug("消息发送完成: {}", token.getMessageId());
+        // 投递结果由deliveryListener处理
+    }
+    
+    /**
+     * 待确认的发布，作为userContext随投递令牌传递
+     */
+    private static final class PendingPublish {
+        private final SensorType sensorType;
+        private final long startNanos;
+        private final CompletableFuture<Boolean> result;
+        
+        private PendingPublish(SensorType sensorType, long startNanos, CompletableFuture<Boolean> result) {
+            this.sensorType = sensorType;
+            this.startNanos = startNanos;
+            this.result = result;
+        }
     }
     
     /**
@@ -276,6 +396,10 @@ public class MqttClientService implements MqttCallback {
         private String serverURI;
         private boolean connected;
         private String username;
+        private int maxInflight;
+        private int inflight;
+        private long windowFullCount;
+        private long disconnectedDropCount;
         
         // Getters and Setters
         public String getBrokerUrl() { return brokerUrl; }
@@ -292,5 +416,17 @@ public class MqttClientService implements MqttCallback {
         
         public String getUsername() { return username; }
         public void setUsername(String username) { this.username = username; }
+        
+        public int getMaxInflight() { return maxInflight; }
+        public void setMaxInflight(int maxInflight) { this.maxInflight = maxInflight; }
+        
+        public int getInflight() { return inflight; }
+        public void setInflight(int inflight) { this.inflight = inflight; }
+        
+        public long getWindowFullCount() { return windowFullCount; }
+        public void setWindowFullCount(long windowFullCount) { this.windowFullCount = windowFullCount; }
+        
+        public long getDisconnectedDropCount() { return disconnectedDropCount; }
+        public void setDisconnectedDropCount(long disconnectedDropCount) { this.disconnectedDropCount = disconnectedDropCount; }
     }
 }
\ No newline at end of file
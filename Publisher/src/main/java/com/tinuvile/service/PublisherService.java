@@ -34,6 +34,12 @@ public class PublisherService {
     @Autowired
     private MqttClientService mqttClientService;
     
+    @Autowired
+    private FleetSimulationService fleetSimulationService;
+    
+    @Autowired
+    private PublishLatencyMetrics latencyMetrics;
+    
     @Value("${publisher.publish.interval}")
     private long publishInterval;
     
@@ -74,6 +80,10 @@ public class PublisherService {
         lastPublishCount = publishCount.get();
         lastRateCalculation = LocalDateTime.now();
         
+        if (fleetSimulationService.isEnabled()) {
+            return startFleetPublishing();
+        }
+        
         scheduledExecutor = Executors.newScheduledThreadPool(3);
         
         publishingTask = CompletableFuture.runAsync(() -> {
@@ -118,6 +128,33 @@ public class PublisherService {
         return publishingTask;
     }
     
+    /**
+     * 以设备集群仿真模式开始发布
+     */
+    private CompletableFuture<Void> startFleetPublishing() {
+        logger.info("使用设备集群仿真模式发布");
+        
+        fleetSimulationService.start(this::recordPublishResult);
+        // 集群模式由时间轮调度发布，这里只需要一个线程刷新统计
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        scheduledExecutor.scheduleAtFixedRate(this::updateStatistics, 1, 1, TimeUnit.SECONDS);
+        
+        publishingTask = CompletableFuture.completedFuture(null);
+        return publishingTask;
+    }
+    
+    /**
+     * 记录一条数据的发布结果
+     */
+    private void recordPublishResult(SensorType sensorType, boolean success) {
+        if (success) {
+            publishStatus.incrementCounter(sensorType);
+            publishCount.incrementAndGet();
+        } else {
+            publishStatus.incrementErrorCount();
+        }
+    }
+    
     /**
      * 停止发布数据
      */
@@ -131,6 +168,8 @@ public class PublisherService {
         isPublishing.set(false);
         publishStatus.setRunning(false);
         
+        fleetSimulationService.stop();
+        
         if (scheduledExecutor != null) {
             scheduledExecutor.shutdown();
             try {
@@ -161,34 +200,18 @@ public class PublisherService {
             
             publishStatus.setCurrentSensorType(sensorType);
             
+            // 发布结果在代理确认后回调计数，定时任务不等待确认
             if (batchSize <= 1) {
                 // 单条发布
                 SensorData data = dataReaderService.getNextSensorData(sensorType);
                 if (data != null) {
-                    CompletableFuture<Boolean> result = mqttClientService.publishSensorData(data);
-                    if (result.get()) {
-                        publishStatus.incrementCounter(sensorType);
-                        publishCount.incrementAndGet();
-                    } else {
-                        publishStatus.incrementErrorCount();
-                    }
+                    publishAndRecord(data);
                 }
             } else {
                 // 批量发布
                 List<SensorData> dataList = dataReaderService.getNextBatchSensorData(sensorType, batchSize);
-                if (!dataList.isEmpty()) {
-                    CompletableFuture<Integer> result = mqttClientService.publishSensorDataBatch(dataList);
-                    int successCount = result.get();
-                    
-                    for (int i = 0; i < successCount; i++) {
-                        publishStatus.incrementCounter(sensorType);
-                        publishCount.incrementAndGet();
-                    }
-                    
-                    int errorCount = dataList.size() - successCount;
-                    for (int i = 0; i < errorCount; i++) {
-                        publishStatus.incrementErrorCount();
-                    }
+                for (SensorData data : dataList) {
+                    publishAndRecord(data);
                 }
             }
             
@@ -198,34 +221,34 @@ public class PublisherService {
         }
     }
     
+    /**
+     * 发布单条数据，并在投递确认后记录结果
+     */
+    private void publishAndRecord(SensorData data) {
+        mqttClientService.publishSensorData(data)
+                .whenComplete((success, ex) -> recordPublishResult(data.getSensorType(),
+                        ex == null && Boolean.TRUE.equals(success)));
+    }
+    
     /**
      * 发布单条随机数据（用于测试）
      */
     public CompletableFuture<Boolean> publishSingleData(SensorType sensorType) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                SensorData data = dataReaderService.getRandomSensorData(sensorType);
-                if (data != null) {
-                    boolean success = mqttClientService.publishSensorData(data).get();
-                    if (success) {
-                        publishStatus.incrementCounter(sensorType);
-                        publishCount.incrementAndGet();
-                        logger.info("手动发布成功: {}", data);
-                        return true;
-                    } else {
-                        publishStatus.incrementErrorCount();
-                        logger.warn("手动发布失败: {}", data);
-                        return false;
-                    }
-                } else {
-                    logger.warn("没有可用的 {} 数据", sensorType.getDisplayName());
-                    return false;
-                }
-            } catch (Exception e) {
-                logger.error("手动发布数据失败: {}", e.getMessage(), e);
-                publishStatus.incrementErrorCount();
-                return false;
+        SensorData data = dataReaderService.getRandomSensorData(sensorType);
+        if (data == null) {
+            logger.warn("没有可用的 {} 数据", sensorType.getDisplayName());
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        return mqttClientService.publishSensorData(data).handle((success, ex) -> {
+            boolean ok = ex == null && Boolean.TRUE.equals(success);
+            recordPublishResult(sensorType, ok);
+            if (ok) {
+                logger.info("手动发布成功: {}", data);
+            } else {
+                logger.warn("手动发布失败: {}", data);
             }
+            return ok;
         });
     }
     
@@ -252,6 +275,7 @@ public class PublisherService {
      * 获取发布状态
      */
     public PublishStatus getPublishStatus() {
+        publishStatus.setLatency(latencyMetrics.snapshot());
         return publishStatus;
     }
     
@@ -275,6 +299,12 @@ public class PublisherService {
         // 读取进度
         info.setReadProgress(dataReaderService.getReadProgress());
         
+        // 回放数据堆内存占用
+        info.setHeapFootprint(dataReaderService.getHeapFootprint());
+        
+        // 设备集群仿真
+        info.setFleet(fleetSimulationService.getFleetInfo());
+        
         // 发布配置
         info.setPublishInterval(publishInterval);
         info.setBatchSize(batchSize);
@@ -314,6 +344,8 @@ public class PublisherService {
         private int humidityCount;
         private int pressureCount;
         private Object readProgress;
+        private Object heapFootprint;
+        private Object fleet;
         private long publishInterval;
         private int batchSize;
         private boolean autoStart;
@@ -345,6 +377,12 @@ public class PublisherService {
         public Object getReadProgress() { return readProgress; }
         public void setReadProgress(Object readProgress) { this.readProgress = readProgress; }
         
+        public Object getHeapFootprint() { return heapFootprint; }
+        public void setHeapFootprint(Object heapFootprint) { this.heapFootprint = heapFootprint; }
+        
+        public Object getFleet() { return fleet; }
+        public void setFleet(Object fleet) { this.fleet = fleet; }
+        
         public long getPublishInterval() { return publishInterval; }
         public void setPublishInterval(long publishInterval) { this.publishInterval = publishInterval; }
         
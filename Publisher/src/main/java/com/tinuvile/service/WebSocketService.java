@@ -26,7 +26,7 @@ public class WebSocketService {
     private PublisherService publisherService;
     
     /**
-     * 定期推送发布状态（每2秒一次）
+     * 定期推送发布状态（每2秒一次），包含各阶段延迟分位数
      */
     @Scheduled(fixedRate = 2000)
     public void sendPublishStatusUpdate() {
@@ -0,0 +1,107 @@
+package com.tinuvile.fleet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTest {
+
+    private static final long TICK = 5;
+
+    private TimerWheel<String> wheel;
+
+    @AfterEach
+    void tearDown() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void periodicRescheduleFromDeadlineDoesNotDrift() throws InterruptedException {
+        long period = 20;
+        int rounds = 40;
+        List<Long> lateness = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.currentTimeMillis() + period;
+        AtomicReference<TimerWheel<String>> self = new AtomicReference<>();
+
+        wheel = new TimerWheel<>("test-wheel", TICK, 8, task -> {
+            int round = lateness.size();
+            long deadline = start + round * period;
+            lateness.add(System.currentTimeMillis() - deadline);
+            if (round + 1 < rounds) {
+                // 与集群仿真相同，下一次按计划时间而不是实际触发时间推进
+                self.get().schedule(task, deadline + period);
+            } else {
+                done.countDown();
+            }
+        });
+        self.set(wheel);
+        wheel.schedule("node", start);
+        wheel.start();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(lateness).hasSize(rounds);
+        // 不会提前触发，延迟不随轮次累积
+        assertThat(lateness).allSatisfy(late -> assertThat(late).isGreaterThanOrEqualTo(-TICK));
+        long lastRounds = lateness.subList(rounds - 5, rounds).stream().mapToLong(Long::longValue).max().orElse(0);
+        assertThat(lastRounds).isLessThan(period);
+    }
+
+    @Test
+    void deadlineBeyondOneRevolutionWaitsForItsRound() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicReference<Long> firedAt = new AtomicReference<>();
+        wheel = new TimerWheel<>("test-wheel", TICK, 4, task -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        });
+        wheel.start();
+
+        // 4个槽位一圈只有20ms，任务在第10圈之后才到期
+        long deadline = System.currentTimeMillis() + 200;
+        wheel.schedule("late", deadline);
+
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get()).isGreaterThanOrEqualTo(deadline - TICK);
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(2);
+        wheel = new TimerWheel<>("test-wheel", TICK, 16, task -> fired.countDown());
+        wheel.start();
+
+        wheel.schedule("a", System.currentTimeMillis() - 1000);
+        wheel.schedule("b", 0);
+
+        assertThat(fired.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void failingCallbackDoesNotStopWheel() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel = new TimerWheel<>("test-wheel", TICK, 16, task -> {
+            if ("bad".equals(task)) {
+                throw new IllegalStateException("boom");
+            }
+            fired.countDown();
+        });
+        wheel.start();
+
+        long now = System.currentTimeMillis();
+        wheel.schedule("bad", now);
+        wheel.schedule("good", now + 3 * TICK);
+
+        assertThat(fired.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(wheel.isRunning()).isTrue();
+    }
+}
@@ -0,0 +1,97 @@
+package com.tinuvile.replay;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 用JOL遍历对象图，测量对象缓存与列式缓存的实际堆占用，
+ * 并校验DataReaderService上报的估算值与实测一致
+ */
+class ReplayDatasetFootprintTest {
+
+    private static final int RECORDS = 100_000;
+
+    private static final int RECORDS_PER_LINE = 1_000;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void measuredFootprintMatchesEstimates() throws IOException {
+        Path file = writeDataFile(tempDir.resolve("pressure.json"));
+
+        CachedReplayDataset cached = new CachedReplayDataset(SensorType.PRESSURE, readAsObjects(file));
+        ColumnarReplayDataset columnar = ColumnarReplayDataset.from(MappedReplayDataset.open(SensorType.PRESSURE, file));
+        assertThat(cached.size()).isEqualTo(RECORDS);
+        assertThat(columnar.size()).isEqualTo(RECORDS);
+
+        // SensorType枚举及其字符串两种数据集都可达，测量时扣除
+        long shared = GraphLayout.parseInstance(SensorType.PRESSURE).totalSize();
+        long cachedBytes = GraphLayout.parseInstance(cached).totalSize() - shared;
+        long columnarBytes = GraphLayout.parseInstance(columnar).totalSize() - shared;
+
+        System.out.printf("回放缓存实测堆占用(%d条): cache=%d字节(%.1f/条), columnar=%d字节(%.1f/条)%n",
+                RECORDS, cachedBytes, cachedBytes / (double) RECORDS,
+                columnarBytes, columnarBytes / (double) RECORDS);
+
+        assertThat(cachedBytes / (double) RECORDS)
+                .isCloseTo(CachedReplayDataset.ESTIMATED_BYTES_PER_RECORD,
+                        within(CachedReplayDataset.ESTIMATED_BYTES_PER_RECORD * 0.1));
+        assertThat((double) columnarBytes).isCloseTo(columnar.estimateHeapBytes(), within(columnarBytes * 0.01));
+        assertThat(columnarBytes * 5).isLessThan(cachedBytes);
+    }
+
+    /**
+     * 按DataReaderService的对象缓存方式解析：每条记录一个SensorData，单位取自传感器类型
+     */
+    private static List<SensorData> readAsObjects(Path file) throws IOException {
+        List<SensorData> records = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            for (String entry : line.substring(1, line.length() - 1).split(",")) {
+                String[] pair = entry.split("\":\"");
+                LocalDateTime timestamp = LocalDateTime.parse(pair[0].substring(1), FORMATTER);
+                Double value = Double.parseDouble(pair[1].substring(0, pair[1].length() - 1));
+                records.add(new SensorData(timestamp, SensorType.PRESSURE, value, SensorType.PRESSURE.getUnit()));
+            }
+        }
+        records.sort(Comparator.comparing(SensorData::getTimestamp));
+        return records;
+    }
+
+    /**
+     * 每10分钟一条，与仓库附带的数据文件格式相同
+     */
+    private static Path writeDataFile(Path file) throws IOException {
+        LocalDateTime time = LocalDateTime.of(2014, 2, 13, 6, 20);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < RECORDS; i++) {
+                writer.write(i % RECORDS_PER_LINE == 0 ? "{" : ",");
+                writer.write("\"" + time.format(FORMATTER) + "\":\"" + (1000 + (i % 400) / 10.0) + "\"");
+                if (i % RECORDS_PER_LINE == RECORDS_PER_LINE - 1) {
+                    writer.write("}\n");
+                }
+                time = time.plusMinutes(10);
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,94 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FleetSimulationServiceTest {
+
+    private static final int NODE_COUNT = 40;
+
+    private static final long INTERVAL = 100;
+
+    private final Map<Integer, AtomicInteger> publishesByNode = new ConcurrentHashMap<>();
+
+    private final AtomicInteger results = new AtomicInteger();
+
+    private FleetSimulationService service;
+
+    @BeforeEach
+    void setUp() {
+        DataReaderService dataReaderService = mock(DataReaderService.class);
+        when(dataReaderService.getNextSensorData(anyString(), any(SensorType.class))).thenAnswer(invocation -> {
+            SensorType type = invocation.getArgument(1);
+            return new SensorData(LocalDateTime.of(2024, 3, 1, 12, 0), type, 1.0, type.getUnit());
+        });
+
+        MqttClientService mqttClientService = mock(MqttClientService.class);
+        when(mqttClientService.publishSensorData(any(SensorData.class))).thenAnswer(invocation -> {
+            SensorData data = invocation.getArgument(0);
+            if (data.getSensorType() == SensorType.TEMPERATURE) {
+                publishesByNode.computeIfAbsent(data.getNodeId(), id -> new AtomicInteger()).incrementAndGet();
+            }
+            return CompletableFuture.completedFuture(true);
+        });
+
+        service = new FleetSimulationService();
+        ReflectionTestUtils.setField(service, "dataReaderService", dataReaderService);
+        ReflectionTestUtils.setField(service, "mqttClientService", mqttClientService);
+        ReflectionTestUtils.setField(service, "nodeCount", NODE_COUNT);
+        ReflectionTestUtils.setField(service, "nodeIdStart", 1001);
+        ReflectionTestUtils.setField(service, "interval", INTERVAL);
+        ReflectionTestUtils.setField(service, "jitter", 20L);
+        ReflectionTestUtils.setField(service, "tickMillis", 5L);
+        ReflectionTestUtils.setField(service, "wheelSize", 64);
+        ReflectionTestUtils.setField(service, "workerThreads", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void everyNodePublishesOncePerPeriod() throws InterruptedException {
+        service.start((type, success) -> results.incrementAndGet());
+        Thread.sleep(INTERVAL * 10);
+        service.stop();
+
+        assertThat(publishesByNode).hasSize(NODE_COUNT);
+        assertThat(publishesByNode.keySet()).allSatisfy(id -> assertThat(id).isBetween(1001, 1000 + NODE_COUNT));
+        // 1秒内每个节点应发布约10次，抖动和启动相位最多带来一次误差
+        assertThat(publishesByNode.values()).allSatisfy(count -> assertThat(count.get()).isBetween(9, 11));
+        int total = publishesByNode.values().stream().mapToInt(AtomicInteger::get).sum();
+        assertThat(results.get()).isEqualTo(total * SensorType.values().length);
+    }
+
+    @Test
+    void stopReleasesNodesAndAllowsRestart() throws InterruptedException {
+        service.start((type, success) -> { });
+        assertThat(service.isRunning()).isTrue();
+        service.stop();
+        assertThat(service.isRunning()).isFalse();
+        assertThat(service.getFleetInfo()).containsEntry("node_count", 0);
+
+        service.start((type, success) -> { });
+        Thread.sleep(INTERVAL * 2);
+        assertThat(publishesByNode).isNotEmpty();
+    }
+}
@@ -0,0 +1,238 @@
+package com.tinuvile.analysis;
+
+import com.tinuvile.model.SensorType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * alert_rules表中一条已启用规则的内存表示
+ * 阈值为NULL时以NaN表示，与NaN的比较恒为false，对应条件自然不触发
+ *
+ * @author tinuvile
+ */
+public class AlertRule {
+
+    /**
+     * 规则条件类型，对应alert_rules.condition_type
+     */
+    public enum Condition {
+        GREATER_THAN("greater_than"),
+        LESS_THAN("less_than"),
+        RANGE("range"),
+        DEVIATION("deviation");
+
+        private final String code;
+
+        Condition(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public static Condition fromCode(String code) {
+            for (Condition condition : values()) {
+                if (condition.code.equals(code)) {
+                    return condition;
+                }
+            }
+            throw new IllegalArgumentException("Unknown condition type: " + code);
+        }
+    }
+
+    // onViolation的判定结果
+    public static final int FIRED = 0;
+    public static final int DUPLICATE = 1;
+    public static final int COOLDOWN = 2;
+
+    /**
+     * 规则在单个节点上的触发状态，由MQTT回调线程更新，定时任务只做过期清理
+     */
+    private static class AlertState {
+        volatile boolean active;    // 当前是否处于越限状态，持续越限期间不重复告警
+        volatile long lastFiredAt;  // 上次产生告警的时间(毫秒)
+    }
+
+    private final int id;
+    private final Integer nodeId;
+    private final SensorType sensorType;
+    private final String ruleName;
+    private final Condition condition;
+    private final double thresholdMin;
+    private final double thresholdMax;
+
+    // 节点ID -> 触发状态，热加载时由同ID的新规则沿用
+    private final Map<Integer, AlertState> states;
+
+    public AlertRule(int id, Integer nodeId, SensorType sensorType, String ruleName,
+                     Condition condition, double thresholdMin, double thresholdMax) {
+        this(id, nodeId, sensorType, ruleName, condition, thresholdMin, thresholdMax,
+                new ConcurrentHashMap<>());
+    }
+
+    private AlertRule(int id, Integer nodeId, SensorType sensorType, String ruleName,
+                      Condition condition, double thresholdMin, double thresholdMax,
+                      Map<Integer, AlertState> states) {
+        this.id = id;
+        this.nodeId = nodeId;
+        this.sensorType = sensorType;
+        this.ruleName = ruleName;
+        this.condition = condition;
+        this.thresholdMin = thresholdMin;
+        this.thresholdMax = thresholdMax;
+        this.states = states;
+    }
+
+    /**
+     * 沿用旧规则的节点触发状态，避免热加载后对持续越限的节点重复告警
+     */
+    public AlertRule withStatesOf(AlertRule previous) {
+        return new AlertRule(id, nodeId, sensorType, ruleName, condition,
+                thresholdMin, thresholdMax, previous.states);
+    }
+
+    /**
+     * 计算读数超出阈值的量
+     *
+     * @param value    当前读数
+     * @param previous 同节点同类型的上一次读数，没有时为NaN
+     * @return 超出量，未触发时为0
+     */
+    public double excess(double value, double previous) {
+        switch (condition) {
+            case GREATER_THAN: {
+                double threshold = upperBound();
+                return value > threshold ? value - threshold : 0.0;
+            }
+            case LESS_THAN: {
+                double threshold = lowerBound();
+                return value < threshold ? threshold - value : 0.0;
+            }
+            case RANGE:
+                if (value < thresholdMin) {
+                    return thresholdMin - value;
+                }
+                return value > thresholdMax ? value - thresholdMax : 0.0;
+            case DEVIATION: {
+                double delta = Math.abs(value - previous);
+                double threshold = upperBound();
+                return delta > threshold ? delta - threshold : 0.0;
+            }
+            default:
+                return 0.0;
+        }
+    }
+
+    /**
+     * 按超出量相对阈值尺度的比例确定告警级别
+     */
+    public String levelFor(double excess) {
+        double scale;
+        if (condition == Condition.RANGE && !Double.isNaN(thresholdMin) && !Double.isNaN(thresholdMax)) {
+            scale = thresholdMax - thresholdMin;
+        } else if (condition == Condition.LESS_THAN) {
+            scale = Math.abs(lowerBound());
+        } else {
+            scale = Math.abs(upperBound());
+        }
+
+        double ratio = excess / Math.max(scale, 1.0);
+        if (ratio < 0.1) {
+            return "warning";
+        }
+        return ratio < 0.3 ? "error" : "critical";
+    }
+
+    /**
+     * 记录节点的一次越限
+     * 持续越限只在进入越限时告警一次；恢复后再次越限，距上次告警不足冷却期也不告警
+     *
+     * @return FIRED、DUPLICATE或COOLDOWN
+     */
+    public int onViolation(Integer nodeId, long now, long cooldownMillis) {
+        AlertState state = states.computeIfAbsent(nodeId, k -> new AlertState());
+        synchronized (state) {
+            if (state.active) {
+                return DUPLICATE;
+            }
+            state.active = true;
+            if (state.lastFiredAt != 0 && now - state.lastFiredAt < cooldownMillis) {
+                return COOLDOWN;
+            }
+            state.lastFiredAt = now;
+            return FIRED;
+        }
+    }
+
+    /**
+     * 节点上次产生告警的时间，没有时为0
+     */
+    public long getLastFiredAt(Integer nodeId) {
+        AlertState state = states.get(nodeId);
+        return state != null ? state.lastFiredAt : 0L;
+    }
+
+    /**
+     * 撤销一次告警触发，用于告警所在数据未能入库的情况
+     * 恢复触发前的上次告警时间并退出越限状态，下一次越限可以重新告警；
+     * 状态已被之后的触发覆盖时不做处理
+     *
+     * @param firedAt         被撤销的告警的触发时间
+     * @param previousFiredAt 触发前的上次告警时间
+     */
+    public void revertFiring(Integer nodeId, long firedAt, long previousFiredAt) {
+        AlertState state = states.get(nodeId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.lastFiredAt == firedAt) {
+                state.lastFiredAt = previousFiredAt;
+                state.active = false;
+            }
+        }
+    }
+
+    /**
+     * 记录节点读数回到正常范围
+     */
+    public void onRecovery(Integer nodeId) {
+        AlertState state = states.get(nodeId);
+        if (state != null) {
+            state.active = false;
+        }
+    }
+
+    /**
+     * 清理超过冷却期且已恢复的节点状态
+     */
+    public void expireStates(long before) {
+        states.values().removeIf(state -> !state.active && state.lastFiredAt < before);
+    }
+
+    private double upperBound() {
+        return Double.isNaN(thresholdMax) ? thresholdMin : thresholdMax;
+    }
+
+    private double lowerBound() {
+        return Double.isNaN(thresholdMin) ? thresholdMax : thresholdMin;
+    }
+
+    public int getId() { return id; }
+
+    public Integer getNodeId() { return nodeId; }
+
+    public SensorType getSensorType() { return sensorType; }
+
+    public String getRuleName() { return ruleName; }
+
+    public Condition getCondition() { return condition; }
+
+    public double getThresholdMin() { return thresholdMin; }
+
+    public double getThresholdMax() { return thresholdMax; }
+
+    public boolean isGlobal() { return nodeId == null; }
+}
@@ -0,0 +1,103 @@
+package com.tinuvile.analysis;
+
+import com.tinuvile.model.SensorType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 告警规则索引
+ * 按(node_id, sensor_type)预先分组，全局规则(node_id为NULL)单独按类型存放；
+ * 构建后不可变，热加载时整体替换引用，读路径无需加锁
+ *
+ * @author tinuvile
+ */
+public class AlertRuleIndex {
+
+    private static final int SENSOR_TYPE_COUNT = SensorType.values().length;
+
+    private static final AlertRule[] NONE = new AlertRule[0];
+
+    public static final AlertRuleIndex EMPTY = build(new ArrayList<>());
+
+    // 节点ID -> 按SensorType序号排列的规则数组
+    private final Map<Integer, AlertRule[][]> nodeRules;
+
+    // 按SensorType序号排列的全局规则
+    private final AlertRule[][] globalRules;
+
+    private final List<AlertRule> allRules;
+
+    private AlertRuleIndex(Map<Integer, AlertRule[][]> nodeRules, AlertRule[][] globalRules,
+                           List<AlertRule> allRules) {
+        this.nodeRules = nodeRules;
+        this.globalRules = globalRules;
+        this.allRules = allRules;
+    }
+
+    public static AlertRuleIndex build(Collection<AlertRule> rules) {
+        Map<Integer, List<List<AlertRule>>> grouped = new HashMap<>();
+        List<List<AlertRule>> global = newTypeBuckets();
+
+        for (AlertRule rule : rules) {
+            List<List<AlertRule>> buckets = rule.isGlobal()
+                    ? global
+                    : grouped.computeIfAbsent(rule.getNodeId(), k -> newTypeBuckets());
+            buckets.get(rule.getSensorType().ordinal()).add(rule);
+        }
+
+        Map<Integer, AlertRule[][]> nodeRules = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<Integer, List<List<AlertRule>>> entry : grouped.entrySet()) {
+            nodeRules.put(entry.getKey(), toArrays(entry.getValue()));
+        }
+
+        return new AlertRuleIndex(nodeRules, toArrays(global), new ArrayList<>(rules));
+    }
+
+    /**
+     * 获取某节点某类型的专属规则
+     */
+    public AlertRule[] nodeRules(Integer nodeId, SensorType type) {
+        AlertRule[][] byType = nodeRules.get(nodeId);
+        return byType != null ? byType[type.ordinal()] : NONE;
+    }
+
+    /**
+     * 获取某类型的全局规则
+     */
+    public AlertRule[] globalRules(SensorType type) {
+        return globalRules[type.ordinal()];
+    }
+
+    public List<AlertRule> getAllRules() {
+        return allRules;
+    }
+
+    public int size() {
+        return allRules.size();
+    }
+
+    public int nodeCount() {
+        return nodeRules.size();
+    }
+
+    private static List<List<AlertRule>> newTypeBuckets() {
+        List<List<AlertRule>> buckets = new ArrayList<>(SENSOR_TYPE_COUNT);
+        for (int i = 0; i < SENSOR_TYPE_COUNT; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        return buckets;
+    }
+
+    private static AlertRule[][] toArrays(List<List<AlertRule>> buckets) {
+        AlertRule[][] arrays = new AlertRule[SENSOR_TYPE_COUNT][];
+        for (int i = 0; i < SENSOR_TYPE_COUNT; i++) {
+            List<AlertRule> bucket = buckets.get(i);
+            arrays[i] = bucket.isEmpty() ? NONE : bucket.toArray(NONE);
+        }
+        return arrays;
+    }
+}
@@ -0,0 +1,46 @@
+package com.tinuvile.analysis;
+
+/**
+ * 单个传感器类型的异常检测规则
+ *
+ * @author tinuvile
+ */
+public class AnomalyRule {
+
+    private final double minValue;
+    private final double maxValue;
+    private final double maxStep;
+    private final double alpha;
+    private final double zThreshold;
+    private final int warmup;
+
+    /**
+     * @param minValue   合法范围下限
+     * @param maxValue   合法范围上限
+     * @param maxStep    相邻两次读数允许的最大变化量，不大于0表示不检查
+     * @param alpha      EWMA平滑系数(0, 1]
+     * @param zThreshold z分数阈值
+     * @param warmup     开始z分数判定前需要的样本数
+     */
+    public AnomalyRule(double minValue, double maxValue, double maxStep,
+                       double alpha, double zThreshold, int warmup) {
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.maxStep = maxStep;
+        this.alpha = alpha;
+        this.zThreshold = zThreshold;
+        this.warmup = warmup;
+    }
+
+    public double getMinValue() { return minValue; }
+
+    public double getMaxValue() { return maxValue; }
+
+    public double getMaxStep() { return maxStep; }
+
+    public double getAlpha() { return alpha; }
+
+    public double getZThreshold() { return zThreshold; }
+
+    public int getWarmup() { return warmup; }
+}
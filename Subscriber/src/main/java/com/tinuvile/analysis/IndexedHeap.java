@@ -0,0 +1,124 @@
+package com.tinuvile.analysis;
+
+import java.util.Arrays;
+
+/**
+ * 支持按槽位删除的二叉堆
+ * 堆中保存的是滑动窗口环形缓冲区的槽位号，比较时读取槽位上的数值，
+ * 并记录每个槽位在堆中的位置，使任意元素的删除为O(log n)
+ *
+ * @author tinuvile
+ */
+class IndexedHeap {
+
+    private final double[] values;
+    private final boolean maxHeap;
+    private final int[] heap;
+    private final int[] positions;
+    private int size;
+
+    /**
+     * @param values  环形缓冲区的数值数组（共享，不复制）
+     * @param maxHeap true为大顶堆，false为小顶堆
+     */
+    IndexedHeap(double[] values, boolean maxHeap) {
+        this.values = values;
+        this.maxHeap = maxHeap;
+        this.heap = new int[values.length];
+        this.positions = new int[values.length];
+        Arrays.fill(positions, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int slot) {
+        return positions[slot] >= 0;
+    }
+
+    int peek() {
+        return heap[0];
+    }
+
+    double peekValue() {
+        return values[heap[0]];
+    }
+
+    void push(int slot) {
+        heap[size] = slot;
+        positions[slot] = size;
+        siftUp(size++);
+    }
+
+    int pop() {
+        int top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    void remove(int slot) {
+        removeAt(positions[slot]);
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int index) {
+        int removed = heap[index];
+        positions[removed] = -1;
+        size--;
+        if (index == size) {
+            return;
+        }
+
+        int last = heap[size];
+        heap[index] = last;
+        positions[last] = index;
+        siftUp(index);
+        siftDown(positions[last]);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(heap[index], heap[parent])) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                break;
+            }
+            int child = left + 1 < size && before(heap[left + 1], heap[left]) ? left + 1 : left;
+            if (!before(heap[child], heap[index])) {
+                break;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private boolean before(int a, int b) {
+        return maxHeap ? values[a] > values[b] : values[a] < values[b];
+    }
+
+    private void swap(int i, int j) {
+        int a = heap[i];
+        int b = heap[j];
+        heap[i] = b;
+        heap[j] = a;
+        positions[b] = i;
+        positions[a] = j;
+    }
+}
@@ -0,0 +1,314 @@
+package com.tinuvile.analysis;
+
+/**
+ * 固定容量的滑动窗口统计
+ * 数据写入环形缓冲区，每次写入（以及窗口满时淘汰最旧数据）都以增量方式维护：
+ * <ul>
+ *     <li>均值/方差：Welford算法，支持删除</li>
+ *     <li>最小/最大值：单调队列，均摊O(1)</li>
+ *     <li>中位数：一对可按槽位删除的大顶堆/小顶堆，O(log n)</li>
+ *     <li>趋势：以窗口内序号为x的在线线性回归，O(1)</li>
+ *     <li>异常数、零值数：计数器</li>
+ * </ul>
+ * 所有查询均为O(1)。非线程安全，由调用方同步
+ *
+ * @author tinuvile
+ */
+public class SlidingWindowStats {
+
+    private final int capacity;
+
+    // 环形缓冲区
+    private final double[] values;
+    private final long[] times;
+    private final boolean[] anomalies;
+    private int head;   // 最旧数据的槽位
+    private int count;
+
+    // Welford
+    private double mean;
+    private double m2;
+
+    // 在线回归：sumY = Σy，sumIY = Σ i*y，i为窗口内序号（最旧为0）
+    private double sumY;
+    private double sumIY;
+
+    // 单调队列，保存槽位号；队首为当前最小/最大值
+    private final int[] minDeque;
+    private final int[] maxDeque;
+    private int minHead, minSize;
+    private int maxHead, maxSize;
+
+    // 中位数双堆：low保存较小的一半（大顶堆），high保存较大的一半（小顶堆）
+    private final IndexedHeap low;
+    private final IndexedHeap high;
+
+    private int anomalyCount;
+    private int zeroCount;
+
+    // 自上次重新累加以来的淘汰次数，用于定期消除浮点误差
+    private int evictionsSinceRecompute;
+
+    public SlidingWindowStats(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("窗口容量必须大于0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.values = new double[capacity];
+        this.times = new long[capacity];
+        this.anomalies = new boolean[capacity];
+        this.minDeque = new int[capacity];
+        this.maxDeque = new int[capacity];
+        this.low = new IndexedHeap(values, true);
+        this.high = new IndexedHeap(values, false);
+    }
+
+    /**
+     * 加入一个数据点，窗口已满时淘汰最旧的数据点
+     *
+     * @param value      数值
+     * @param timeMillis 接收时间（epoch毫秒）
+     * @param anomaly    入库前是否已被标记为异常
+     */
+    public void add(double value, long timeMillis, boolean anomaly) {
+        if (count == capacity) {
+            evictOldest();
+        }
+
+        int slot = (head + count) % capacity;
+        values[slot] = value;
+        times[slot] = timeMillis;
+        anomalies[slot] = anomaly;
+
+        // 回归：新点序号为count
+        sumIY += count * value;
+        sumY += value;
+        count++;
+
+        // Welford
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        pushMin(slot);
+        pushMax(slot);
+        pushMedian(slot);
+
+        if (anomaly) {
+            anomalyCount++;
+        }
+        if (value == 0) {
+            zeroCount++;
+        }
+    }
+
+    private void evictOldest() {
+        int slot = head;
+        double value = values[slot];
+
+        // 回归：其余点序号整体减1
+        sumY -= value;
+        sumIY -= sumY;
+
+        // Welford逆运算
+        if (count == 1) {
+            mean = 0;
+            m2 = 0;
+        } else {
+            double delta = value - mean;
+            mean -= delta / (count - 1);
+            m2 -= delta * (value - mean);
+        }
+
+        if (minSize > 0 && minDeque[minHead] == slot) {
+            minHead = (minHead + 1) % capacity;
+            minSize--;
+        }
+        if (maxSize > 0 && maxDeque[maxHead] == slot) {
+            maxHead = (maxHead + 1) % capacity;
+            maxSize--;
+        }
+        removeMedian(slot);
+
+        if (anomalies[slot]) {
+            anomalyCount--;
+        }
+        if (value == 0) {
+            zeroCount--;
+        }
+
+        head = (head + 1) % capacity;
+        count--;
+
+        if (++evictionsSinceRecompute >= capacity) {
+            recomputeSums();
+        }
+    }
+
+    /**
+     * 按缓冲区内容重新累加均值、方差和回归和，消除长期增删带来的浮点误差
+     */
+    private void recomputeSums() {
+        double newMean = 0;
+        double newM2 = 0;
+        double newSumY = 0;
+        double newSumIY = 0;
+        for (int i = 0; i < count; i++) {
+            double value = values[(head + i) % capacity];
+            double delta = value - newMean;
+            newMean += delta / (i + 1);
+            newM2 += delta * (value - newMean);
+            newSumY += value;
+            newSumIY += i * value;
+        }
+        mean = newMean;
+        m2 = newM2;
+        sumY = newSumY;
+        sumIY = newSumIY;
+        evictionsSinceRecompute = 0;
+    }
+
+    private void pushMin(int slot) {
+        while (minSize > 0 && values[minDeque[(minHead + minSize - 1) % capacity]] > values[slot]) {
+            minSize--;
+        }
+        minDeque[(minHead + minSize) % capacity] = slot;
+        minSize++;
+    }
+
+    private void pushMax(int slot) {
+        while (maxSize > 0 && values[maxDeque[(maxHead + maxSize - 1) % capacity]] < values[slot]) {
+            maxSize--;
+        }
+        maxDeque[(maxHead + maxSize) % capacity] = slot;
+        maxSize++;
+    }
+
+    private void pushMedian(int slot) {
+        if (low.size() == 0 || values[slot] <= low.peekValue()) {
+            low.push(slot);
+        } else {
+            high.push(slot);
+        }
+        rebalance();
+    }
+
+    private void removeMedian(int slot) {
+        if (low.contains(slot)) {
+            low.remove(slot);
+        } else {
+            high.remove(slot);
+        }
+        rebalance();
+    }
+
+    private void rebalance() {
+        if (low.size() > high.size() + 1) {
+            high.push(low.pop());
+        } else if (high.size() > low.size()) {
+            low.push(high.pop());
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return count > 0 ? values[minDeque[minHead]] : 0.0;
+    }
+
+    public double getMax() {
+        return count > 0 ? values[maxDeque[maxHead]] : 0.0;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * 总体方差
+     */
+    public double getVariance() {
+        return count > 0 ? Math.max(m2 / count, 0.0) : 0.0;
+    }
+
+    public double getMedian() {
+        if (count == 0) {
+            return 0.0;
+        }
+        if (low.size() > high.size()) {
+            return low.peekValue();
+        }
+        return (low.peekValue() + high.peekValue()) / 2.0;
+    }
+
+    /**
+     * 以窗口内序号为自变量的回归斜率，正值表示数值随时间上升
+     */
+    public double getSlope() {
+        if (count < 2) {
+            return 0.0;
+        }
+        double n = count;
+        double sumX = n * (n - 1) / 2.0;
+        double sumX2 = (n - 1) * n * (2 * n - 1) / 6.0;
+        double denominator = n * sumX2 - sumX * sumX;
+        if (Math.abs(denominator) < 1e-10) {
+            return 0.0;
+        }
+        return (n * sumIY - sumX * sumY) / denominator;
+    }
+
+    /**
+     * 最近k个数据点的回归斜率，x为这k个点按时间先后的序号，O(k)
+     */
+    public double getRecentSlope(int k) {
+        int n = Math.min(k, count);
+        if (n < 2) {
+            return 0.0;
+        }
+        double sumY = 0;
+        double sumIY = 0;
+        for (int i = 0; i < n; i++) {
+            double value = values[(head + count - n + i) % capacity];
+            sumY += value;
+            sumIY += i * value;
+        }
+        double sumX = n * (n - 1) / 2.0;
+        double sumX2 = (n - 1) * n * (2.0 * n - 1) / 6.0;
+        double denominator = n * sumX2 - sumX * sumX;
+        return (n * sumIY - sumX * sumY) / denominator;
+    }
+
+    /**
+     * 最近k个数据点的平均值
+     */
+    public double getRecentMean(int k) {
+        int n = Math.min(k, count);
+        if (n == 0) {
+            return 0.0;
+        }
+        double sum = 0;
+        for (int i = count - n; i < count; i++) {
+            sum += values[(head + i) % capacity];
+        }
+        return sum / n;
+    }
+
+    public int getAnomalyCount() {
+        return anomalyCount;
+    }
+
+    public int getZeroCount() {
+        return zeroCount;
+    }
+
+    public long getOldestTime() {
+        return count > 0 ? times[head] : 0L;
+    }
+
+    public long getNewestTime() {
+        return count > 0 ? times[(head + count - 1) % capacity] : 0L;
+    }
+}
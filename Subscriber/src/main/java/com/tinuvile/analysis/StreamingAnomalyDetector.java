@@ -0,0 +1,89 @@
+package com.tinuvile.analysis;
+
+/**
+ * 单个传感器序列的流式异常检测器
+ * 依次检查范围、变化率和EWMA z分数三条规则，只保存几个double状态，
+ * 每次检测不分配对象。非线程安全，由调用方保证同一序列串行访问
+ *
+ * @author tinuvile
+ */
+public class StreamingAnomalyDetector {
+
+    /**
+     * 检测结果：正常
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * 检测结果：超出合法范围
+     */
+    public static final int OUT_OF_RANGE = 1;
+
+    /**
+     * 检测结果：相邻读数变化过大
+     */
+    public static final int RATE_OF_CHANGE = 2;
+
+    /**
+     * 检测结果：偏离EWMA均值的z分数过大
+     */
+    public static final int Z_SCORE = 3;
+
+    private final AnomalyRule rule;
+
+    private long count;
+    private double mean;
+    private double variance;
+    private double last;
+
+    public StreamingAnomalyDetector(AnomalyRule rule) {
+        this.rule = rule;
+    }
+
+    /**
+     * 检测一个读数并更新状态
+     *
+     * @return 检测结果，NORMAL表示正常
+     */
+    public int update(double value) {
+        int verdict = NORMAL;
+
+        if (value < rule.getMinValue() || value > rule.getMaxValue()) {
+            verdict = OUT_OF_RANGE;
+        } else if (count > 0 && rule.getMaxStep() > 0 && Math.abs(value - last) > rule.getMaxStep()) {
+            verdict = RATE_OF_CHANGE;
+        } else if (count >= rule.getWarmup() && variance > 1e-12
+                && Math.abs(value - mean) > rule.getZThreshold() * Math.sqrt(variance)) {
+            verdict = Z_SCORE;
+        }
+
+        // 超出合法范围的读数视为坏值，不进入统计
+        if (verdict != OUT_OF_RANGE) {
+            if (count == 0) {
+                mean = value;
+                variance = 0;
+            } else {
+                double alpha = rule.getAlpha();
+                double diff = value - mean;
+                mean += alpha * diff;
+                variance = (1 - alpha) * (variance + alpha * diff * diff);
+            }
+            last = value;
+            count++;
+        }
+
+        return verdict;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,180 @@
+package com.tinuvile.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * 传感器数据JSON解码器
+ * 使用Jackson流式解析器直接从MQTT负载字节数组解析SensorData，
+ * 不经过String中转，也不走ObjectMapper的反射绑定
+ *
+ * @author tinuvile
+ */
+public class SensorDataJsonDecoder {
+
+    private final JsonFactory jsonFactory;
+
+    public SensorDataJsonDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * 解码一条传感器数据
+     *
+     * @throws IOException 负载不是合法的传感器数据JSON
+     */
+    public SensorData decode(byte[] payload) throws IOException {
+        return decode(payload, 0, payload.length);
+    }
+
+    public SensorData decode(byte[] payload, int offset, int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("传感器数据必须是JSON对象");
+            }
+
+            SensorData sensorData = new SensorData();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+
+                switch (field) {
+                    case "timestamp":
+                        sensorData.setTimestamp(readTimestamp(parser));
+                        break;
+                    case "sensor_type":
+                        sensorData.setSensorType(SensorType.fromCode(parser.getText()));
+                        break;
+                    case "value":
+                        sensorData.setValue(readDouble(parser, field));
+                        break;
+                    case "unit":
+                        sensorData.setUnit(parser.getText());
+                        break;
+                    case "node_id":
+                        sensorData.setNodeId((int) readLong(parser, field, Integer.MIN_VALUE, Integer.MAX_VALUE));
+                        break;
+                    case "location":
+                        sensorData.setLocation(parser.getText());
+                        break;
+                    case "sent_at":
+                        sensorData.setSentAt(readLong(parser, field, Long.MIN_VALUE, Long.MAX_VALUE));
+                        break;
+                    default:
+                        // 忽略未知字段
+                        parser.skipChildren();
+                        break;
+                }
+            }
+
+            if (sensorData.getSensorType() == null || sensorData.getValue() == null
+                    || sensorData.getTimestamp() == null) {
+                throw new IOException("传感器数据缺少必填字段: timestamp/sensor_type/value");
+            }
+            return sensorData;
+        }
+    }
+
+    /**
+     * 读取时间戳字段
+     * 发布端固定输出yyyy-MM-dd'T'HH:mm:ss，直接在解析器的字符缓冲上读取各字段；
+     * 其他ISO格式（如带小数秒）退回LocalDateTime.parse
+     */
+    private static LocalDateTime readTimestamp(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING && parser.getTextLength() == 19) {
+            char[] text = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            if (text[offset + 4] == '-' && text[offset + 7] == '-' && text[offset + 10] == 'T'
+                    && text[offset + 13] == ':' && text[offset + 16] == ':') {
+                int year = digits(text, offset, 4);
+                int month = digits(text, offset + 5, 2);
+                int day = digits(text, offset + 8, 2);
+                int hour = digits(text, offset + 11, 2);
+                int minute = digits(text, offset + 14, 2);
+                int second = digits(text, offset + 17, 2);
+                if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                    // 字段越界时抛出DateTimeException，与LocalDateTime.parse一致
+                    return LocalDateTime.of(year, month, day, hour, minute, second);
+                }
+            }
+        }
+        return LocalDateTime.parse(parser.getText());
+    }
+
+    /**
+     * 解析定长十进制数字，含非数字字符时返回-1
+     */
+    private static int digits(char[] text, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 读取数值字段，接受JSON数字和数字字符串
+     * getValueAsDouble会把无法解析的值静默变成0，这里改为拒绝整条消息
+     *
+     * @throws IOException 值不是有限数字
+     */
+    private static double readDouble(JsonParser parser, String field) throws IOException {
+        double value;
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            value = parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            try {
+                value = Double.parseDouble(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("字段" + field + "不是合法数字: " + parser.getText());
+            }
+        } else {
+            throw new IOException("字段" + field + "不是数字: " + token);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IOException("字段" + field + "不是有限数字: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * 读取整数字段，接受JSON整数和整数字符串
+     *
+     * @throws IOException 值不是整数或超出[min, max]
+     */
+    private static long readLong(JsonParser parser, String field, long min, long max) throws IOException {
+        long value;
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            // 超出long范围时getLongValue抛出InputCoercionException
+            value = parser.getLongValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            try {
+                value = Long.parseLong(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("字段" + field + "不是合法整数: " + parser.getText());
+            }
+        } else {
+            throw new IOException("字段" + field + "不是整数: " + token);
+        }
+        if (value < min || value > max) {
+            throw new IOException("字段" + field + "超出范围: " + value);
+        }
+        return value;
+    }
+}
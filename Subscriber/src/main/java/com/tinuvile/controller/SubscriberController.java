@@ -4,9 +4,14 @@ import com.tinuvile.model.AnalysisResult;
 import com.tinuvile.model.ReceivedData;
 import com.tinuvile.model.SensorType;
 import com.tinuvile.model.SubscriberStatus;
+import com.tinuvile.service.AlertEngineService;
+import com.tinuvile.service.AnomalyDetectionService;
 import com.tinuvile.service.DataAnalysisService;
 import com.tinuvile.service.DataStorageService;
 import com.tinuvile.service.MqttSubscriberService;
+import com.tinuvile.service.PartitionMaintenanceService;
+import com.tinuvile.service.RetentionService;
+import com.tinuvile.service.StatisticsRollupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +47,21 @@ public class SubscriberController {
     @Autowired
     private DataAnalysisService dataAnalysisService;
     
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+    
+    @Autowired
+    private AlertEngineService alertEngineService;
+    
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+    
+    @Autowired
+    private PartitionMaintenanceService partitionMaintenanceService;
+    
+    @Autowired
+    private RetentionService retentionService;
+    
     /**
      * 开始订阅数据
      */
@@ -174,6 +194,60 @@ public class SubscriberController {
         }
     }
     
+    /**
+     * 获取最新的异常数据
+     */
+    @GetMapping("/data/anomalies")
+    public ResponseEntity<List<ReceivedData>> getLatestAnomalies(
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(dataStorageService.getLatestAnomalies(limit));
+            
+        } catch (Exception e) {
+            logger.error("获取异常数据失败: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * 获取流式异常检测统计
+     */
+    @GetMapping("/anomaly/statistics")
+    public ResponseEntity<Map<String, Object>> getAnomalyStatistics() {
+        return ResponseEntity.ok(anomalyDetectionService.getStatistics());
+    }
+    
+    /**
+     * 获取规则告警引擎统计
+     */
+    @GetMapping("/alert/statistics")
+    public ResponseEntity<Map<String, Object>> getAlertStatistics() {
+        return ResponseEntity.ok(alertEngineService.getStatistics());
+    }
+    
+    /**
+     * 立即重新加载告警规则
+     */
+    @PostMapping("/alert/reload")
+    public ResponseEntity<Map<String, Object>> reloadAlertRules() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int ruleCount = alertEngineService.reload();
+            response.put("success", true);
+            response.put("rule_count", ruleCount);
+            response.put("message", "告警规则已重新加载");
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("重新加载告警规则失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "重新加载告警规则失败: " + e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
     /**
      * 获取指定类型的最新数据
      */
@@ -327,6 +401,58 @@ public class SubscriberController {
         }
     }
     
+    /**
+     * 获取sensor_data分区状态
+     */
+    @GetMapping("/storage/partitions")
+    public ResponseEntity<Map<String, Object>> getPartitionInfo() {
+        try {
+            return ResponseEntity.ok(partitionMaintenanceService.getPartitionInfo());
+        } catch (Exception e) {
+            logger.error("获取分区状态失败: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * 获取数据保留清理状态
+     */
+    @GetMapping("/storage/retention")
+    public ResponseEntity<Map<String, Object>> getRetentionStatus() {
+        return ResponseEntity.ok(retentionService.getStatus());
+    }
+    
+    /**
+     * 立即执行一次数据保留清理，受单次时长上限约束
+     */
+    @PostMapping("/storage/retention/run")
+    public ResponseEntity<Map<String, Object>> runRetention() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            long deleted = retentionService.runRetention();
+            response.put("success", deleted >= 0);
+            response.put("deleted", Math.max(deleted, 0));
+            response.put("message", deleted >= 0 ? "数据保留清理已执行" : "已有清理任务在运行");
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("执行数据保留清理失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "执行数据保留清理失败: " + e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
+    /**
+     * 获取小时/日统计汇总状态
+     */
+    @GetMapping("/rollup/statistics")
+    public ResponseEntity<Map<String, Object>> getRollupStatistics() {
+        return ResponseEntity.ok(statisticsRollupService.getStatistics());
+    }
+    
     /**
      * 清空所有数据
      */
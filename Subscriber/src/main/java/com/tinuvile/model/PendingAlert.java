@@ -0,0 +1,45 @@
+package com.tinuvile.model;
+
+/**
+ * 待写入alerts表的告警
+ * 在消息路径上生成并挂在ReceivedData上，数据行写入并拿到自增ID后再随批次写入；
+ * 同时记录触发时规则状态的变化，数据未能入库时据此撤销
+ *
+ * @author tinuvile
+ */
+public class PendingAlert {
+
+    private final int ruleId;
+    private final String alertLevel;
+    private final String alertMessage;
+    private final Integer nodeId;
+    private final long firedAt;
+    private final long previousFiredAt;
+    private Long dataId;
+
+    public PendingAlert(int ruleId, String alertLevel, String alertMessage,
+                        Integer nodeId, long firedAt, long previousFiredAt) {
+        this.ruleId = ruleId;
+        this.alertLevel = alertLevel;
+        this.alertMessage = alertMessage;
+        this.nodeId = nodeId;
+        this.firedAt = firedAt;
+        this.previousFiredAt = previousFiredAt;
+    }
+
+    public int getRuleId() { return ruleId; }
+
+    public String getAlertLevel() { return alertLevel; }
+
+    public String getAlertMessage() { return alertMessage; }
+
+    public Integer getNodeId() { return nodeId; }
+
+    public long getFiredAt() { return firedAt; }
+
+    public long getPreviousFiredAt() { return previousFiredAt; }
+
+    public Long getDataId() { return dataId; }
+
+    public void setDataId(Long dataId) { this.dataId = dataId; }
+}
@@ -1,9 +1,12 @@
 package com.tinuvile.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -39,6 +42,12 @@ public class ReceivedData {
     @JsonProperty("anomaly_detected")
     private boolean anomalyDetected = false;
     
+    @JsonIgnore
+    private long enqueuedNanos; // 进入入库队列的时间(System.nanoTime)
+    
+    @JsonIgnore
+    private List<PendingAlert> pendingAlerts; // 随本条数据入库的告警，未触发时为null
+    
     public ReceivedData() {
         this.receivedTime = LocalDateTime.now();
     }
@@ -77,6 +86,33 @@ public class ReceivedData {
         return originalData != null ? originalData.getLocation() : null;
     }
     
+    public Integer getNodeId() {
+        return originalData != null ? originalData.getNodeId() : null;
+    }
+    
+    public Long getSentAt() {
+        return originalData != null ? originalData.getSentAt() : null;
+    }
+    
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+    
+    public void setEnqueuedNanos(long enqueuedNanos) {
+        this.enqueuedNanos = enqueuedNanos;
+    }
+    
+    public List<PendingAlert> getPendingAlerts() {
+        return pendingAlerts;
+    }
+    
+    public void addPendingAlert(PendingAlert alert) {
+        if (pendingAlerts == null) {
+            pendingAlerts = new ArrayList<>(2);
+        }
+        pendingAlerts.add(alert);
+    }
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_timestamp", columnList = "timestamp"),
     @Index(name = "idx_received_time", columnList = "received_time"),
     @Index(name = "idx_node_sensor", columnList = "node_id,sensor_type"),
-    @Index(name = "idx_timestamp_type", columnList = "timestamp,sensor_type")
+    @Index(name = "idx_timestamp_type", columnList = "timestamp,sensor_type"),
+    @Index(name = "idx_anomaly_received", columnList = "anomaly_detected,received_time")
 })
 public class SensorDataEntity {
     
@@ -74,10 +75,10 @@ public class SensorDataEntity {
         }
     }
     
-    // 从ReceivedData转换的便利构造函数
+    // 从ReceivedData转换的便利构造函数，raw_data由RawDataWriter按存储模式另行设置
     public static SensorDataEntity fromReceivedData(ReceivedData receivedData) {
         SensorDataEntity entity = new SensorDataEntity();
-        entity.setNodeId(1); // 默认节点ID
+        entity.setNodeId(receivedData.getNodeId() != null ? receivedData.getNodeId() : 1); // 缺省时使用默认节点
         entity.setSensorType(receivedData.getSensorType());
         entity.setSensorLocation(receivedData.getLocation());
         entity.setValue(new BigDecimal(String.valueOf(receivedData.getValue())));
@@ -90,29 +91,6 @@ public class SensorDataEntity {
         entity.setAnomalyDetected(receivedData.isAnomalyDetected());
         entity.setIsValid(true);
         
-        // 将原始数据转为JSON字符串
-        try {
-            // 使用ObjectMapper正确序列化JSON
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            mapper.findAndRegisterModules(); // 处理日期时间格式
-            
-            String originalDataJson = mapper.writeValueAsString(receivedData.getOriginalData());
-            
-            entity.setRawData(String.format(
-                "{\"sensor_data\":%s,\"mqtt_topic\":\"%s\",\"received_time\":\"%s\"}", 
-                originalDataJson,
-                receivedData.getMqttTopic(),
-                receivedData.getReceivedTime()
-            ));
-        } catch (Exception e) {
-            // 如果序列化失败，设置最小化的JSON
-            entity.setRawData(String.format(
-                "{\"sensor_data\":{\"error\":\"serialization_failed\"},\"mqtt_topic\":\"%s\",\"received_time\":\"%s\"}", 
-                receivedData.getMqttTopic() != null ? receivedData.getMqttTopic() : "unknown",
-                receivedData.getReceivedTime() != null ? receivedData.getReceivedTime().toString() : "unknown"
-            ));
-        }
-        
         return entity;
     }
     
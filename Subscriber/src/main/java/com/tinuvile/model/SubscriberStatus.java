@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -48,6 +49,40 @@ public class SubscriberStatus {
     @JsonProperty("current_sensor_type")
     private SensorType currentSensorType;
     
+    // 入库流水线统计
+    @JsonProperty("stored_count")
+    private long storedCount;
+    
+    @JsonProperty("store_failed_count")
+    private long storeFailedCount;
+    
+    @JsonProperty("dropped_count")
+    private long droppedCount;
+    
+    @JsonProperty("queue_size")
+    private int queueSize;
+    
+    @JsonProperty("queue_capacity")
+    private int queueCapacity;
+    
+    @JsonProperty("store_rate")
+    private double storeRate = 0.0; // 每秒入库数量
+    
+    @JsonProperty("last_batch_size")
+    private int lastBatchSize;
+    
+    @JsonProperty("avg_batch_size")
+    private double avgBatchSize;
+    
+    @JsonProperty("last_flush_latency_ms")
+    private double lastFlushLatencyMs;
+    
+    @JsonProperty("avg_flush_latency_ms")
+    private double avgFlushLatencyMs;
+    
+    @JsonProperty("latency")
+    private Map<String, Object> latency; // 入库各阶段延迟分位数(毫秒)
+    
     public SubscriberStatus() {}
     
     // 增加计数器
@@ -168,4 +203,92 @@ public class SubscriberStatus {
     public void setCurrentSensorType(SensorType currentSensorType) {
         this.currentSensorType = currentSensorType;
     }
+    
+    public long getStoredCount() {
+        return storedCount;
+    }
+    
+    public void setStoredCount(long storedCount) {
+        this.storedCount = storedCount;
+    }
+    
+    public long getStoreFailedCount() {
+        return storeFailedCount;
+    }
+    
+    public void setStoreFailedCount(long storeFailedCount) {
+        this.storeFailedCount = storeFailedCount;
+    }
+    
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+    
+    public void setDroppedCount(long droppedCount) {
+        this.droppedCount = droppedCount;
+    }
+    
+    public int getQueueSize() {
+        return queueSize;
+    }
+    
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+    
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+    
+    public double getStoreRate() {
+        return storeRate;
+    }
+    
+    public void setStoreRate(double storeRate) {
+        this.storeRate = storeRate;
+    }
+    
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+    
+    public void setLastBatchSize(int lastBatchSize) {
+        this.lastBatchSize = lastBatchSize;
+    }
+    
+    public double getAvgBatchSize() {
+        return avgBatchSize;
+    }
+    
+    public void setAvgBatchSize(double avgBatchSize) {
+        this.avgBatchSize = avgBatchSize;
+    }
+    
+    public double getLastFlushLatencyMs() {
+        return lastFlushLatencyMs;
+    }
+    
+    public void setLastFlushLatencyMs(double lastFlushLatencyMs) {
+        this.lastFlushLatencyMs = lastFlushLatencyMs;
+    }
+    
+    public double getAvgFlushLatencyMs() {
+        return avgFlushLatencyMs;
+    }
+    
+    public void setAvgFlushLatencyMs(double avgFlushLatencyMs) {
+        this.avgFlushLatencyMs = avgFlushLatencyMs;
+    }
+    
+    public Map<String, Object> getLatency() {
+        return latency;
+    }
+    
+    public void setLatency(Map<String, Object> latency) {
+        this.latency = latency;
+    }
 }
@@ -0,0 +1,175 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.analysis.AlertRule;
+import com.tinuvile.model.PendingAlert;
+import com.tinuvile.model.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 告警规则与告警记录仓储
+ * 规则整表加载到内存索引，告警记录按批次多行INSERT写入
+ *
+ * @author tinuvile
+ */
+@Repository
+public class AlertRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertRepository.class);
+
+    private static final String SELECT_ENABLED_RULES =
+            "SELECT id, node_id, sensor_type, rule_name, condition_type, threshold_min, threshold_max " +
+            "FROM alert_rules WHERE is_enabled = TRUE";
+
+    // 规则表的变更指纹：增删改任意一条规则都会改变其中至少一项
+    private static final String SELECT_RULES_FINGERPRINT =
+            "SELECT CONCAT(COUNT(*), ':', COALESCE(SUM(id), 0), ':', " +
+            "COALESCE(MAX(updated_at), '')) FROM alert_rules";
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO alerts (rule_id, data_id, alert_level, alert_message) VALUES ";
+
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?)";
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    // alerts.data_id引用sensor_data.id，删除数据前先删除其告警
+    private static final String DELETE_BY_DATA_RECEIVED_BEFORE =
+            "DELETE a FROM alerts a JOIN sensor_data d ON a.data_id = d.id WHERE d.received_time < ?";
+
+    private static final String DELETE_BY_DATA_ID_RANGE =
+            "DELETE FROM alerts WHERE data_id >= ? AND data_id < ?";
+
+    private static final String DELETE_BY_DATA_ID_RANGE_RECEIVED_BEFORE =
+            "DELETE a FROM alerts a JOIN sensor_data d ON a.data_id = d.id " +
+            "WHERE d.id >= ? AND d.id < ? AND d.received_time < ?";
+
+    private static final String DELETE_ALL = "DELETE FROM alerts";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 加载全部已启用规则
+     * 订阅端不处理的传感器类型(light、air_quality)在此跳过
+     */
+    public List<AlertRule> findEnabledRules() {
+        List<AlertRule> rules = new ArrayList<>();
+        jdbcTemplate.query(SELECT_ENABLED_RULES, rs -> {
+            AlertRule rule = mapRule(rs);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        });
+        return rules;
+    }
+
+    /**
+     * 查询规则表的变更指纹
+     */
+    public String findRulesFingerprint() {
+        return jdbcTemplate.queryForObject(SELECT_RULES_FINGERPRINT, String.class);
+    }
+
+    /**
+     * 批量写入告警记录，调用方需保证dataId已回填
+     *
+     * @return 写入的行数
+     */
+    public int insertBatch(List<PendingAlert> alerts) {
+        int inserted = 0;
+        for (int from = 0; from < alerts.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, alerts.size());
+            List<PendingAlert> chunk = alerts.subList(from, to);
+
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+            List<Object> args = new ArrayList<>(chunk.size() * 4);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(ROW_PLACEHOLDER);
+
+                PendingAlert alert = chunk.get(i);
+                args.add(alert.getRuleId());
+                args.add(alert.getDataId());
+                args.add(alert.getAlertLevel());
+                args.add(alert.getAlertMessage());
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+
+    /**
+     * 删除接收时间早于cutoffTime的数据所关联的告警
+     */
+    public int deleteByDataReceivedBefore(LocalDateTime cutoffTime) {
+        return jdbcTemplate.update(DELETE_BY_DATA_RECEIVED_BEFORE, cutoffTime);
+    }
+
+    /**
+     * 删除数据id在[fromId, toId)区间内的告警，receivedBefore不为null时只删除早于该时间的数据的告警
+     */
+    public int deleteByDataIdRange(long fromId, long toId, LocalDateTime receivedBefore) {
+        if (receivedBefore == null) {
+            return jdbcTemplate.update(DELETE_BY_DATA_ID_RANGE, fromId, toId);
+        }
+        return jdbcTemplate.update(DELETE_BY_DATA_ID_RANGE_RECEIVED_BEFORE, fromId, toId, receivedBefore);
+    }
+
+    /**
+     * 删除全部告警记录
+     */
+    public int deleteAll() {
+        return jdbcTemplate.update(DELETE_ALL);
+    }
+
+    private AlertRule mapRule(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        SensorType type = findSensorType(rs.getString("sensor_type"));
+        if (type == null) {
+            return null;
+        }
+
+        AlertRule.Condition condition;
+        try {
+            condition = AlertRule.Condition.fromCode(rs.getString("condition_type"));
+        } catch (IllegalArgumentException e) {
+            logger.warn("跳过无法识别的告警规则: id={}, {}", id, e.getMessage());
+            return null;
+        }
+
+        int nodeId = rs.getInt("node_id");
+        return new AlertRule(id,
+                rs.wasNull() ? null : nodeId,
+                type,
+                rs.getString("rule_name"),
+                condition,
+                toDouble(rs.getBigDecimal("threshold_min")),
+                toDouble(rs.getBigDecimal("threshold_max")));
+    }
+
+    private static SensorType findSensorType(String code) {
+        for (SensorType type : SensorType.values()) {
+            if (type.getCode().equals(code)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+}
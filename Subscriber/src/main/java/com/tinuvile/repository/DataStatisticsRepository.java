@@ -0,0 +1,99 @@
+package com.tinuvile.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数据统计表(data_statistics)仓储
+ * 小时行按增量合并写入，日行由当天的小时行汇总得到
+ *
+ * @author tinuvile
+ */
+@Repository
+public class DataStatisticsRepository {
+
+    // 以增量方式合并小时统计
+    // ON DUPLICATE KEY UPDATE按书写顺序赋值，avg_value必须在count_valid更新之前计算
+    private static final String UPSERT_HOURLY_PREFIX = "INSERT INTO data_statistics (" +
+            "node_id, sensor_type, stat_date, stat_hour, avg_value, min_value, max_value, " +
+            "count_total, count_valid) VALUES ";
+
+    private static final String UPSERT_HOURLY_SUFFIX = " ON DUPLICATE KEY UPDATE " +
+            "avg_value = (COALESCE(avg_value, 0) * count_valid + COALESCE(VALUES(avg_value), 0) * VALUES(count_valid)) " +
+            "/ NULLIF(count_valid + VALUES(count_valid), 0), " +
+            "min_value = COALESCE(LEAST(min_value, VALUES(min_value)), min_value, VALUES(min_value)), " +
+            "max_value = COALESCE(GREATEST(max_value, VALUES(max_value)), max_value, VALUES(max_value)), " +
+            "count_total = count_total + VALUES(count_total), " +
+            "count_valid = count_valid + VALUES(count_valid)";
+
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // uk_stat_daily中stat_hour为NULL的日行不会触发唯一键冲突，因此先删后插
+    private static final String DELETE_DAILY =
+            "DELETE FROM data_statistics WHERE stat_date = ? AND stat_hour IS NULL";
+
+    private static final String INSERT_DAILY_FROM_HOURLY = "INSERT INTO data_statistics (" +
+            "node_id, sensor_type, stat_date, stat_hour, avg_value, min_value, max_value, " +
+            "count_total, count_valid) " +
+            "SELECT node_id, sensor_type, stat_date, NULL, " +
+            "SUM(avg_value * count_valid) / NULLIF(SUM(count_valid), 0), " +
+            "MIN(min_value), MAX(max_value), SUM(count_total), SUM(count_valid) " +
+            "FROM data_statistics WHERE stat_date = ? AND stat_hour IS NOT NULL " +
+            "GROUP BY node_id, sensor_type";
+
+    private static final String DELETE_ALL = "DELETE FROM data_statistics";
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量合并小时统计增量
+     *
+     * @param rows 每行依次为node_id, sensor_type, stat_date, stat_hour, avg, min, max, count_total, count_valid
+     * @return 影响的行数
+     */
+    public int upsertHourly(List<Object[]> rows) {
+        int affected = 0;
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size());
+            List<Object[]> chunk = rows.subList(from, to);
+
+            StringBuilder sql = new StringBuilder(UPSERT_HOURLY_PREFIX);
+            List<Object> args = new ArrayList<>(chunk.size() * 9);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(ROW_PLACEHOLDER);
+                for (Object value : chunk.get(i)) {
+                    args.add(value);
+                }
+            }
+            sql.append(UPSERT_HOURLY_SUFFIX);
+            affected += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return affected;
+    }
+
+    /**
+     * 由当天的小时统计重新汇总日统计
+     */
+    public int refreshDaily(LocalDate statDate) {
+        jdbcTemplate.update(DELETE_DAILY, statDate);
+        return jdbcTemplate.update(INSERT_DAILY_FROM_HOURLY, statDate);
+    }
+
+    /**
+     * 删除全部小时和日统计
+     */
+    public int deleteAll() {
+        return jdbcTemplate.update(DELETE_ALL);
+    }
+}
@@ -0,0 +1,173 @@
+package com.tinuvile.repository;
+
+import com.tinuvile.model.SensorDataEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 传感器数据批量写入仓储
+ * 绕过JPA逐行save，使用多行INSERT一次写入一批数据
+ *
+ * @author tinuvile
+ */
+@Repository
+public class SensorDataBatchRepository {
+
+    private static final String INSERT_PREFIX = "INSERT INTO sensor_data (" +
+            "node_id, sensor_type, sensor_location, value, unit, timestamp, mqtt_topic, " +
+            "received_time, raw_data, quality_score, anomaly_detected, is_valid, created_at) VALUES ";
+
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int COLUMN_COUNT = 13;
+
+    // 自动登记未知节点，节点ID已存在时忽略
+    private static final String REGISTER_NODE_PREFIX =
+            "INSERT IGNORE INTO sensor_nodes (id, node_name, location, description, status) VALUES ";
+
+    private static final String NODE_PLACEHOLDER = "(?, ?, ?, ?, 'active')";
+
+    // 单条语句的最大行数，避免超出MySQL占位符上限(65535)和max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 已确认存在于sensor_nodes中的节点ID
+    private final Set<Integer> knownNodeIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 批量插入传感器数据，并将生成的自增ID回填到实体
+     *
+     * @return 写入的行数
+     */
+    public int insertBatch(List<SensorDataEntity> entities) {
+        registerUnknownNodes(entities);
+
+        int inserted = 0;
+        for (int from = 0; from < entities.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_ROWS_PER_STATEMENT, entities.size());
+            inserted += insertChunk(entities.subList(from, to));
+        }
+        return inserted;
+    }
+
+    /**
+     * 登记批次中首次出现的节点，使视图和统计查询能按node_id关联到sensor_nodes
+     * 仿真集群的节点ID只在发布端生成，订阅端第一次见到时才写入节点表
+     */
+    private void registerUnknownNodes(List<SensorDataEntity> entities) {
+        Map<Integer, String> unknown = new LinkedHashMap<>();
+        for (SensorDataEntity entity : entities) {
+            Integer nodeId = entity.getNodeId();
+            if (nodeId != null && !knownNodeIds.contains(nodeId)) {
+                unknown.putIfAbsent(nodeId, entity.getSensorLocation());
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder(REGISTER_NODE_PREFIX);
+        List<Object> args = new ArrayList<>(unknown.size() * 4);
+        for (Map.Entry<Integer, String> node : unknown.entrySet()) {
+            if (!args.isEmpty()) {
+                sql.append(", ");
+            }
+            sql.append(NODE_PLACEHOLDER);
+            args.add(node.getKey());
+            args.add("虚拟节点-" + node.getKey());
+            args.add(node.getValue() != null ? node.getValue() : "未知");
+            args.add("订阅端自动登记的节点");
+        }
+
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        rememberAfterCommit(unknown.keySet());
+    }
+
+    /**
+     * 事务提交后才把节点记为已登记，回滚时节点行随之撤销，下一批需要重新登记
+     */
+    private void rememberAfterCommit(Set<Integer> nodeIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            knownNodeIds.addAll(nodeIds);
+            return;
+        }
+        List<Integer> pending = new ArrayList<>(nodeIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                knownNodeIds.addAll(pending);
+            }
+        });
+    }
+
+    private int insertChunk(List<SensorDataEntity> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW_PLACEHOLDER.length() + 2));
+        sql.append(INSERT_PREFIX);
+
+        List<Object> args = new ArrayList<>(chunk.size() * COLUMN_COUNT);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+
+            SensorDataEntity entity = chunk.get(i);
+            args.add(entity.getNodeId());
+            args.add(entity.getSensorType().getCode());
+            args.add(entity.getSensorLocation());
+            args.add(entity.getValue());
+            args.add(entity.getUnit());
+            args.add(entity.getTimestamp());
+            args.add(entity.getMqttTopic());
+            args.add(entity.getReceivedTime() != null ? entity.getReceivedTime() : now);
+            args.add(entity.getRawData());
+            args.add(entity.getQualityScore());
+            args.add(entity.getAnomalyDetected());
+            args.add(entity.getIsValid());
+            args.add(entity.getCreatedAt() != null ? entity.getCreatedAt() : now);
+        }
+
+        // 多行INSERT的自增ID在单条语句内连续分配，驱动按行序返回
+        String statement = sql.toString();
+        Object[] params = args.toArray();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int rows = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS);
+            new ArgumentPreparedStatementSetter(params).setValues(ps);
+            return ps;
+        }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() == chunk.size()) {
+            for (int i = 0; i < chunk.size(); i++) {
+                Object key = keys.get(i).values().iterator().next();
+                chunk.get(i).setId(((Number) key).longValue());
+            }
+        }
+        return rows;
+    }
+}
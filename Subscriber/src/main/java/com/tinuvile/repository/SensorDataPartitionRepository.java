@@ -0,0 +1,92 @@
+package com.tinuvile.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * sensor_data分区管理仓储
+ * 表按received_time做RANGE COLUMNS分区，最后一个分区p_future以MAXVALUE兜底
+ *
+ * @author tinuvile
+ */
+@Repository
+public class SensorDataPartitionRepository {
+
+    public static final String FUTURE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter BOUND_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String SELECT_PARTITIONS =
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sensor_data' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 按顺序列出sensor_data的分区，表未分区时返回空列表
+     */
+    public List<PartitionInfo> findPartitions() {
+        return jdbcTemplate.query(SELECT_PARTITIONS, (rs, rowNum) -> new PartitionInfo(
+                rs.getString("PARTITION_NAME"),
+                parseBound(rs.getString("PARTITION_DESCRIPTION")),
+                rs.getLong("TABLE_ROWS")));
+    }
+
+    /**
+     * 从p_future中拆出新的分区，p_future保持为最后一个分区
+     *
+     * @param partitions 分区名 -> 上界(不含)，按上界升序
+     */
+    public void splitFuturePartition(Map<String, LocalDateTime> partitions) {
+        String definitions = partitions.entrySet().stream()
+                .map(p -> "PARTITION " + p.getKey() + " VALUES LESS THAN ('" + p.getValue().format(BOUND_FORMATTER) + "')")
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE sensor_data REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" +
+                definitions + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+    }
+
+    /**
+     * 删除分区，分区内的数据随之整体丢弃
+     */
+    public void dropPartitions(List<String> names) {
+        jdbcTemplate.execute("ALTER TABLE sensor_data DROP PARTITION " + String.join(", ", names));
+    }
+
+    private static LocalDateTime parseBound(String description) {
+        if (description == null || "MAXVALUE".equalsIgnoreCase(description)) {
+            return null;
+        }
+        return LocalDateTime.parse(description.replace("'", ""), BOUND_FORMATTER);
+    }
+
+    /**
+     * 单个分区的名称、上界和估算行数
+     */
+    public static class PartitionInfo {
+
+        private final String name;
+        private final LocalDateTime upperBound; // 不含，MAXVALUE分区为null
+        private final long estimatedRows;
+
+        public PartitionInfo(String name, LocalDateTime upperBound, long estimatedRows) {
+            this.name = name;
+            this.upperBound = upperBound;
+            this.estimatedRows = estimatedRows;
+        }
+
+        public String getName() { return name; }
+
+        public LocalDateTime getUpperBound() { return upperBound; }
+
+        public long getEstimatedRows() { return estimatedRows; }
+    }
+}
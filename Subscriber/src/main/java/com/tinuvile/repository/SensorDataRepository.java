@@ -13,6 +13,7 @@ import java.util.List;
 
 /**
  * 传感器数据仓储接口
+ * sensor_data按received_time分区，所有查询都带接收时间下界，使MySQL只扫描下界之后的分区
  * 
  * @author tinuvile
  */
@@ -22,7 +23,12 @@ public interface SensorDataRepository extends JpaRepository<SensorDataEntity, Lo
     /**
      * 根据传感器类型查询最新数据
      */
-    List<SensorDataEntity> findBySensorTypeOrderByReceivedTimeDesc(SensorType sensorType, Pageable pageable);
+    @Query("SELECT s FROM SensorDataEntity s " +
+           "WHERE s.sensorType = :sensorType AND s.receivedTime >= :receivedFrom " +
+           "ORDER BY s.receivedTime DESC")
+    List<SensorDataEntity> findLatest(@Param("sensorType") SensorType sensorType,
+                                      @Param("receivedFrom") LocalDateTime receivedFrom,
+                                      Pageable pageable);
     
     /**
      * 根据时间范围和传感器类型查询数据
@@ -33,8 +39,9 @@ public interface SensorDataRepository extends JpaRepository<SensorDataEntity, Lo
     /**
      * 统计各类型传感器数据数量
      */
-    @Query("SELECT s.sensorType, COUNT(s) FROM SensorDataEntity s WHERE s.isValid = true GROUP BY s.sensorType")
-    List<Object[]> countBySensorType();
+    @Query("SELECT s.sensorType, COUNT(s) FROM SensorDataEntity s " +
+           "WHERE s.receivedTime >= :receivedFrom AND s.isValid = true GROUP BY s.sensorType")
+    List<Object[]> countBySensorType(@Param("receivedFrom") LocalDateTime receivedFrom);
     
     /**
      * 查询指定传感器类型的统计数据
@@ -45,8 +52,9 @@ public interface SensorDataRepository extends JpaRepository<SensorDataEntity, Lo
            "MAX(s.value) as maxValue, " +
            "AVG(s.value) as avgValue " +
            "FROM SensorDataEntity s " +
-           "WHERE s.sensorType = :sensorType AND s.isValid = true")
-    Object[] getStatisticsBySensorType(@Param("sensorType") SensorType sensorType);
+           "WHERE s.sensorType = :sensorType AND s.receivedTime >= :receivedFrom AND s.isValid = true")
+    Object[] getStatisticsBySensorType(@Param("sensorType") SensorType sensorType,
+                                       @Param("receivedFrom") LocalDateTime receivedFrom);
     
     /**
      * 查询指定传感器类型在时间范围内的统计数据
@@ -71,29 +79,30 @@ public interface SensorDataRepository extends JpaRepository<SensorDataEntity, Lo
      * 查询指定传感器类型的最新N条数据用于趋势分析
      */
     @Query("SELECT s FROM SensorDataEntity s " +
-           "WHERE s.sensorType = :sensorType AND s.isValid = true " +
+           "WHERE s.sensorType = :sensorType AND s.receivedTime >= :receivedFrom AND s.isValid = true " +
            "ORDER BY s.receivedTime DESC")
-    List<SensorDataEntity> findLatestBySensorType(@Param("sensorType") SensorType sensorType, Pageable pageable);
+    List<SensorDataEntity> findLatestBySensorType(@Param("sensorType") SensorType sensorType,
+                                                  @Param("receivedFrom") LocalDateTime receivedFrom,
+                                                  Pageable pageable);
     
     /**
      * 查询异常数据
      */
-    List<SensorDataEntity> findByAnomalyDetectedTrueOrderByReceivedTimeDesc(Pageable pageable);
+    @Query("SELECT s FROM SensorDataEntity s " +
+           "WHERE s.anomalyDetected = true AND s.receivedTime >= :receivedFrom " +
+           "ORDER BY s.receivedTime DESC")
+    List<SensorDataEntity> findLatestAnomalies(@Param("receivedFrom") LocalDateTime receivedFrom, Pageable pageable);
     
     /**
      * 统计总数据量
      */
-    @Query("SELECT COUNT(s) FROM SensorDataEntity s WHERE s.isValid = true")
-    long countValidData();
+    @Query("SELECT COUNT(s) FROM SensorDataEntity s WHERE s.receivedTime >= :receivedFrom AND s.isValid = true")
+    long countValidData(@Param("receivedFrom") LocalDateTime receivedFrom);
     
     /**
      * 统计异常数据量
      */
-    @Query("SELECT COUNT(s) FROM SensorDataEntity s WHERE s.anomalyDetected = true")
-    long countAnomalyData();
-    
-    /**
-     * 删除过期数据
-     */
-    void deleteByReceivedTimeBefore(LocalDateTime cutoffTime);
+    @Query("SELECT COUNT(s) FROM SensorDataEntity s WHERE s.receivedTime >= :receivedFrom AND s.anomalyDetected = true")
+    long countAnomalyData(@Param("receivedFrom") LocalDateTime receivedFrom);
+
 }
@@ -0,0 +1,79 @@
+package com.tinuvile.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * sensor_data按行清理仓储
+ * 所有删除都限定在主键id区间内，单条语句影响的行数不超过区间宽度
+ *
+ * @author tinuvile
+ */
+@Repository
+public class SensorDataRetentionRepository {
+
+    private static final String SELECT_MIN_ID = "SELECT MIN(id) FROM sensor_data";
+
+    private static final String SELECT_MAX_ID = "SELECT MAX(id) FROM sensor_data";
+
+    // 走idx_received_time，只读取一行
+    private static final String SELECT_FIRST_ID_RECEIVED_FROM =
+            "SELECT id FROM sensor_data WHERE received_time >= ? ORDER BY received_time ASC LIMIT 1";
+
+    private static final String SELECT_ID_FROM_NEWEST =
+            "SELECT id FROM sensor_data ORDER BY id DESC LIMIT 1 OFFSET ?";
+
+    private static final String DELETE_RANGE =
+            "DELETE FROM sensor_data WHERE id >= ? AND id < ?";
+
+    private static final String DELETE_RANGE_RECEIVED_BEFORE =
+            "DELETE FROM sensor_data WHERE id >= ? AND id < ? AND received_time < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Long findMinId() {
+        return jdbcTemplate.queryForObject(SELECT_MIN_ID, Long.class);
+    }
+
+    public Long findMaxId() {
+        return jdbcTemplate.queryForObject(SELECT_MAX_ID, Long.class);
+    }
+
+    /**
+     * 查询接收时间不早于cutoffTime的第一条数据的id
+     * id随写入顺序递增，这个id之前的数据基本都早于cutoffTime
+     *
+     * @return 不存在时返回null
+     */
+    public Long findFirstIdReceivedFrom(LocalDateTime cutoffTime) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_FIRST_ID_RECEIVED_FROM, Long.class, cutoffTime);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * 查询按id倒序第offset+1条数据的id，即保留最新offset条时需要删除的最大id
+     *
+     * @return 数据不足offset+1条时返回null
+     */
+    public Long findIdFromNewest(long offset) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_ID_FROM_NEWEST, Long.class, offset);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * 删除[fromId, toId)区间内的数据，receivedBefore不为null时只删除早于该时间的数据
+     *
+     * @return 删除的行数
+     */
+    public int deleteRange(long fromId, long toId, LocalDateTime receivedBefore) {
+        if (receivedBefore == null) {
+            return jdbcTemplate.update(DELETE_RANGE, fromId, toId);
+        }
+        return jdbcTemplate.update(DELETE_RANGE_RECEIVED_BEFORE, fromId, toId, receivedBefore);
+    }
+}
@@ -0,0 +1,314 @@
+package com.tinuvile.service;
+
+import com.tinuvile.analysis.AlertRule;
+import com.tinuvile.analysis.AlertRuleIndex;
+import com.tinuvile.model.PendingAlert;
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorDataEntity;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.AlertRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 规则告警引擎
+ * 将alert_rules中已启用的规则加载为按(node_id, sensor_type)分组的内存索引，
+ * 在MQTT消息路径上逐条评估；触发的告警挂在数据上，随入库批次写入alerts表
+ *
+ * @author tinuvile
+ */
+@Service
+public class AlertEngineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertEngineService.class);
+
+    private static final int SENSOR_TYPE_COUNT = SensorType.values().length;
+
+    private static final Integer DEFAULT_NODE_ID = 1;
+
+    @Autowired
+    private AlertRepository alertRepository;
+
+    @Value("${subscriber.alert.enabled:true}")
+    private boolean enabled;
+
+    @Value("${subscriber.alert.cooldown:300000}")
+    private long cooldownMillis;
+
+    // 当前规则索引，热加载时整体替换
+    private volatile AlertRuleIndex index = AlertRuleIndex.EMPTY;
+
+    // 已加载规则对应的规则表指纹
+    private volatile String fingerprint;
+
+    // 节点ID -> 按SensorType序号排列的上一次读数，供deviation规则使用
+    private final Map<Integer, double[]> lastValues = new ConcurrentHashMap<>();
+
+    private final AtomicLong evaluatedCount = new AtomicLong(0);
+    private final AtomicLong firedCount = new AtomicLong(0);
+    private final AtomicLong duplicateCount = new AtomicLong(0);
+    private final AtomicLong cooldownCount = new AtomicLong(0);
+    private final AtomicLong writtenCount = new AtomicLong(0);
+    private final AtomicLong writeFailedCount = new AtomicLong(0);
+    private final AtomicLong revertedCount = new AtomicLong(0);
+    private final AtomicLong reloadCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("规则告警引擎已禁用");
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.warn("加载告警规则失败，将在下次检查时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 评估一条接收数据，触发的告警挂到数据上等待入库
+     * 只做一次索引查找和若干次比较，未触发时不分配对象
+     */
+    public void evaluate(ReceivedData receivedData) {
+        if (!enabled) {
+            return;
+        }
+
+        SensorType type = receivedData.getSensorType();
+        Double value = receivedData.getValue();
+        if (type == null || value == null) {
+            return;
+        }
+
+        Integer nodeId = receivedData.getNodeId() != null ? receivedData.getNodeId() : DEFAULT_NODE_ID;
+        double previous = swapLastValue(nodeId, type, value);
+        long now = System.currentTimeMillis();
+
+        AlertRuleIndex current = index;
+        evaluateRules(current.nodeRules(nodeId, type), receivedData, nodeId, value, previous, now);
+        evaluateRules(current.globalRules(type), receivedData, nodeId, value, previous, now);
+        evaluatedCount.incrementAndGet();
+    }
+
+    private void evaluateRules(AlertRule[] rules, ReceivedData receivedData, Integer nodeId,
+                               double value, double previous, long now) {
+        for (AlertRule rule : rules) {
+            double excess = rule.excess(value, previous);
+            if (excess <= 0.0) {
+                rule.onRecovery(nodeId);
+                continue;
+            }
+
+            long previousFiredAt = rule.getLastFiredAt(nodeId);
+            switch (rule.onViolation(nodeId, now, cooldownMillis)) {
+                case AlertRule.DUPLICATE:
+                    duplicateCount.incrementAndGet();
+                    break;
+                case AlertRule.COOLDOWN:
+                    cooldownCount.incrementAndGet();
+                    break;
+                default:
+                    firedCount.incrementAndGet();
+                    receivedData.addPendingAlert(new PendingAlert(rule.getId(), rule.levelFor(excess),
+                            buildMessage(rule, nodeId, receivedData.getSensorType(), value, previous),
+                            nodeId, now, previousFiredAt));
+                    logger.info("触发告警: 规则={}, 节点={}, 类型={}, 值={}",
+                            rule.getRuleName(), nodeId, receivedData.getSensorType(), value);
+            }
+        }
+    }
+
+    /**
+     * 记录本次读数并返回上一次读数，没有时返回NaN
+     */
+    private double swapLastValue(Integer nodeId, SensorType type, double value) {
+        double[] values = lastValues.get(nodeId);
+        if (values == null) {
+            double[] created = new double[SENSOR_TYPE_COUNT];
+            Arrays.fill(created, Double.NaN);
+            double[] existing = lastValues.putIfAbsent(nodeId, created);
+            values = existing != null ? existing : created;
+        }
+        double previous = values[type.ordinal()];
+        values[type.ordinal()] = value;
+        return previous;
+    }
+
+    private String buildMessage(AlertRule rule, Integer nodeId, SensorType type, double value, double previous) {
+        String condition;
+        switch (rule.getCondition()) {
+            case GREATER_THAN:
+                condition = String.format("高于阈值%.2f", Double.isNaN(rule.getThresholdMax())
+                        ? rule.getThresholdMin() : rule.getThresholdMax());
+                break;
+            case LESS_THAN:
+                condition = String.format("低于阈值%.2f", Double.isNaN(rule.getThresholdMin())
+                        ? rule.getThresholdMax() : rule.getThresholdMin());
+                break;
+            case RANGE:
+                condition = String.format("超出范围[%.2f, %.2f]", rule.getThresholdMin(), rule.getThresholdMax());
+                break;
+            default:
+                condition = String.format("较上次读数变化%.2f", Math.abs(value - previous));
+        }
+        return String.format("%s: 节点%d的%s读数%.2f%s，%s",
+                rule.getRuleName(), nodeId, type.getDisplayName(), value, type.getUnit(), condition);
+    }
+
+    /**
+     * 将一个入库批次上挂载的告警写入alerts表
+     * 由写入线程在sensor_data批量插入之后调用，entities与batch一一对应且已回填自增ID
+     */
+    public void persistAlerts(List<ReceivedData> batch, List<SensorDataEntity> entities) {
+        List<PendingAlert> alerts = null;
+        for (int i = 0; i < batch.size(); i++) {
+            List<PendingAlert> pending = batch.get(i).getPendingAlerts();
+            if (pending == null) {
+                continue;
+            }
+            Long dataId = entities.get(i).getId();
+            if (dataId == null) {
+                writeFailedCount.addAndGet(pending.size());
+                revert(pending);
+                continue;
+            }
+            if (alerts == null) {
+                alerts = new ArrayList<>();
+            }
+            for (PendingAlert alert : pending) {
+                alert.setDataId(dataId);
+                alerts.add(alert);
+            }
+        }
+        if (alerts == null) {
+            return;
+        }
+
+        // 告警写入失败不影响传感器数据入库
+        try {
+            writtenCount.addAndGet(alertRepository.insertBatch(alerts));
+        } catch (Exception e) {
+            writeFailedCount.addAndGet(alerts.size());
+            revert(alerts);
+            logger.error("写入 {} 条告警失败: {}", alerts.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 撤销未能入库的数据上挂载的告警，由入库队列丢弃数据或批次写入失败时调用
+     */
+    public void revertAlerts(List<ReceivedData> batch) {
+        for (ReceivedData receivedData : batch) {
+            revertAlerts(receivedData);
+        }
+    }
+
+    public void revertAlerts(ReceivedData receivedData) {
+        List<PendingAlert> pending = receivedData.getPendingAlerts();
+        if (pending != null) {
+            revert(pending);
+        }
+    }
+
+    private void revert(List<PendingAlert> alerts) {
+        // 只在失败路径上执行，按规则ID线性查找即可；规则已被删除时无需撤销
+        List<AlertRule> rules = index.getAllRules();
+        for (PendingAlert alert : alerts) {
+            for (AlertRule rule : rules) {
+                if (rule.getId() == alert.getRuleId()) {
+                    rule.revertFiring(alert.getNodeId(), alert.getFiredAt(), alert.getPreviousFiredAt());
+                    break;
+                }
+            }
+            revertedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 定时检查规则表是否变更，变更后重新加载索引，同时清理过期的节点触发状态
+     */
+    @Scheduled(fixedDelayString = "${subscriber.alert.reload-interval:10000}")
+    public void checkForChanges() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String latest = alertRepository.findRulesFingerprint();
+            if (!latest.equals(fingerprint)) {
+                reload();
+            }
+        } catch (Exception e) {
+            logger.warn("检查告警规则变更失败: {}", e.getMessage());
+        }
+
+        long expireBefore = System.currentTimeMillis() - cooldownMillis;
+        for (AlertRule rule : index.getAllRules()) {
+            rule.expireStates(expireBefore);
+        }
+    }
+
+    /**
+     * 重新加载全部已启用规则并替换索引
+     * 先读指纹再读规则，两次查询之间的变更最多导致下一轮多加载一次
+     *
+     * @return 加载的规则数
+     */
+    public synchronized int reload() {
+        String latest = alertRepository.findRulesFingerprint();
+        List<AlertRule> loaded = alertRepository.findEnabledRules();
+
+        Map<Integer, AlertRule> previous = new HashMap<>();
+        for (AlertRule rule : index.getAllRules()) {
+            previous.put(rule.getId(), rule);
+        }
+
+        List<AlertRule> rules = new ArrayList<>(loaded.size());
+        for (AlertRule rule : loaded) {
+            AlertRule old = previous.get(rule.getId());
+            rules.add(old != null ? rule.withStatesOf(old) : rule);
+        }
+
+        AlertRuleIndex rebuilt = AlertRuleIndex.build(rules);
+        index = rebuilt;
+        fingerprint = latest;
+        reloadCount.incrementAndGet();
+
+        logger.info("告警规则已加载: {} 条, 涉及节点 {} 个", rebuilt.size(), rebuilt.nodeCount());
+        return rebuilt.size();
+    }
+
+    /**
+     * 获取告警引擎统计
+     */
+    public Map<String, Object> getStatistics() {
+        AlertRuleIndex current = index;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("rule_count", current.size());
+        stats.put("node_count", current.nodeCount());
+        stats.put("cooldown_ms", cooldownMillis);
+        stats.put("reload_count", reloadCount.get());
+        stats.put("evaluated", evaluatedCount.get());
+        stats.put("fired", firedCount.get());
+        stats.put("suppressed_duplicate", duplicateCount.get());
+        stats.put("suppressed_cooldown", cooldownCount.get());
+        stats.put("written", writtenCount.get());
+        stats.put("write_failed", writeFailedCount.get());
+        stats.put("reverted", revertedCount.get());
+        return stats;
+    }
+}
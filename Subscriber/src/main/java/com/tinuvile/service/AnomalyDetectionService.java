@@ -0,0 +1,144 @@
+package com.tinuvile.service;
+
+import com.tinuvile.analysis.AnomalyRule;
+import com.tinuvile.analysis.StreamingAnomalyDetector;
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式异常检测服务
+ * 在MQTT消息路径上为每个节点的每种传感器维护一个检测器，数据入库前即标记anomaly_detected
+ *
+ * @author tinuvile
+ */
+@Service
+public class AnomalyDetectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyDetectionService.class);
+
+    private static final int SENSOR_TYPE_COUNT = SensorType.values().length;
+
+    @Value("${subscriber.anomaly.enabled:true}")
+    private boolean enabled;
+
+    @Value("${subscriber.anomaly.ewma-alpha:0.1}")
+    private double alpha;
+
+    @Value("${subscriber.anomaly.z-threshold:4.0}")
+    private double zThreshold;
+
+    @Value("${subscriber.anomaly.warmup:20}")
+    private int warmup;
+
+    @Value("${subscriber.anomaly.max-step.temperature:10}")
+    private double temperatureMaxStep;
+
+    @Value("${subscriber.anomaly.max-step.humidity:30}")
+    private double humidityMaxStep;
+
+    @Value("${subscriber.anomaly.max-step.pressure:10}")
+    private double pressureMaxStep;
+
+    private final Map<SensorType, AnomalyRule> rules = new EnumMap<>(SensorType.class);
+
+    // 节点ID -> 按SensorType序号排列的检测器
+    private final Map<Integer, StreamingAnomalyDetector[]> detectors = new ConcurrentHashMap<>();
+
+    // 按规则统计的异常数
+    private final AtomicLong outOfRangeCount = new AtomicLong(0);
+    private final AtomicLong rateOfChangeCount = new AtomicLong(0);
+    private final AtomicLong zScoreCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        // 合法范围 [minValue, maxValue]
+        rules.put(SensorType.TEMPERATURE, new AnomalyRule(-50.0, 100.0, temperatureMaxStep, alpha, zThreshold, warmup));
+        rules.put(SensorType.HUMIDITY, new AnomalyRule(0.0, 100.0, humidityMaxStep, alpha, zThreshold, warmup));
+        rules.put(SensorType.PRESSURE, new AnomalyRule(800.0, 1200.0, pressureMaxStep, alpha, zThreshold, warmup));
+
+        logger.info("流式异常检测: {}, EWMA系数={}, z阈值={}, 预热样本={}",
+                enabled ? "已启用" : "已禁用", alpha, zThreshold, warmup);
+    }
+
+    /**
+     * 检测一条接收数据，并设置其anomalyDetected标记
+     *
+     * @return 是否为异常数据
+     */
+    public boolean detect(ReceivedData receivedData) {
+        if (!enabled) {
+            return false;
+        }
+
+        SensorType type = receivedData.getSensorType();
+        Double value = receivedData.getValue();
+        if (type == null || value == null) {
+            return false;
+        }
+
+        int verdict = getDetector(receivedData.getNodeId(), type).update(value);
+        switch (verdict) {
+            case StreamingAnomalyDetector.OUT_OF_RANGE:
+                outOfRangeCount.incrementAndGet();
+                break;
+            case StreamingAnomalyDetector.RATE_OF_CHANGE:
+                rateOfChangeCount.incrementAndGet();
+                break;
+            case StreamingAnomalyDetector.Z_SCORE:
+                zScoreCount.incrementAndGet();
+                break;
+            default:
+                return false;
+        }
+
+        receivedData.setAnomalyDetected(true);
+        if (logger.isDebugEnabled()) {
+            logger.debug("检测到异常数据: 节点={}, 类型={}, 值={}, 规则={}",
+                    receivedData.getNodeId(), type, value, verdict);
+        }
+        return true;
+    }
+
+    /**
+     * 获取节点对应类型的检测器，首次出现的节点按需创建
+     * 节点ID直接使用SensorData中已装箱的Integer，查找本身不分配对象
+     */
+    private StreamingAnomalyDetector getDetector(Integer nodeId, SensorType type) {
+        Integer key = nodeId != null ? nodeId : 1;
+        StreamingAnomalyDetector[] nodeDetectors = detectors.get(key);
+        if (nodeDetectors == null) {
+            StreamingAnomalyDetector[] created = new StreamingAnomalyDetector[SENSOR_TYPE_COUNT];
+            for (SensorType sensorType : SensorType.values()) {
+                created[sensorType.ordinal()] = new StreamingAnomalyDetector(rules.get(sensorType));
+            }
+            StreamingAnomalyDetector[] existing = detectors.putIfAbsent(key, created);
+            nodeDetectors = existing != null ? existing : created;
+        }
+        return nodeDetectors[type.ordinal()];
+    }
+
+    /**
+     * 获取异常检测统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tracked_nodes", detectors.size());
+        stats.put("out_of_range", outOfRangeCount.get());
+        stats.put("rate_of_change", rateOfChangeCount.get());
+        stats.put("z_score", zScoreCount.get());
+        stats.put("total", outOfRangeCount.get() + rateOfChangeCount.get() + zScoreCount.get());
+        return stats;
+    }
+}
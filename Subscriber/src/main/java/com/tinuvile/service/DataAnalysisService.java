@@ -1,24 +1,29 @@
 package com.tinuvile.service;
 
+import com.tinuvile.analysis.SlidingWindowStats;
 import com.tinuvile.model.AnalysisResult;
+import com.tinuvile.model.ReceivedData;
 import com.tinuvile.model.SensorDataEntity;
 import com.tinuvile.model.SensorType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * 数据分析服务
- * 负责对传感器数据进行实时统计分析、趋势分析和异常检测
+ * 负责对传感器数据进行实时统计分析、趋势分析和异常检测。
+ * 每种传感器类型维护一个内存滑动窗口，由入库流程直接写入并增量更新统计量，
+ * 生成分析结果不再读取数据库
  * 
  * @author tinuvile
  */
@@ -27,6 +32,9 @@ public class DataAnalysisService {
     
     private static final Logger logger = LoggerFactory.getLogger(DataAnalysisService.class);
     
+    // 趋势只看最新的数据点数
+    private static final int TREND_POINTS = 20;
+    
     @Autowired
     private DataStorageService dataStorageService;
     
@@ -39,14 +47,61 @@ public class DataAnalysisService {
     // 缓存最新的分析结果
     private final Map<SensorType, AnalysisResult> cachedResults = new ConcurrentHashMap<>();
     
-    // 异常检测阈值配置
-    private final Map<SensorType, Double[]> anomalyThresholds = new HashMap<>();
+    // 每种传感器类型的滑动窗口，访问时以窗口对象自身加锁
+    private final Map<SensorType, SlidingWindowStats> windows = new EnumMap<>(SensorType.class);
+    
+    @PostConstruct
+    public void init() {
+        for (SensorType type : SensorType.values()) {
+            windows.put(type, new SlidingWindowStats(windowSize));
+        }
+        
+        // 启动时用数据库中的最新数据预热窗口，之后只由入库流程写入
+        for (SensorType type : SensorType.values()) {
+            prefillWindow(type);
+        }
+    }
+    
+    /**
+     * 预热单个类型的窗口，数据库不可用时以空窗口启动，不影响服务启动
+     */
+    private void prefillWindow(SensorType type) {
+        List<SensorDataEntity> latest;
+        try {
+            latest = dataStorageService.getDataForTrendAnalysis(type, windowSize);
+        } catch (Exception e) {
+            logger.warn("{} 分析窗口预热失败，以空窗口启动: {}", type.getDisplayName(), e.getMessage());
+            return;
+        }
+        
+        SlidingWindowStats window = windows.get(type);
+        synchronized (window) {
+            // 查询结果按接收时间倒序，逆序写入保持时间顺序
+            for (int i = latest.size() - 1; i >= 0; i--) {
+                SensorDataEntity entity = latest.get(i);
+                if (entity.getValue() != null && entity.getReceivedTime() != null) {
+                    window.add(entity.getValue().doubleValue(), toEpochMillis(entity.getReceivedTime()),
+                            Boolean.TRUE.equals(entity.getAnomalyDetected()));
+                }
+            }
+        }
+        logger.info("{} 分析窗口预热完成: {} 条", type.getDisplayName(), latest.size());
+    }
     
-    public DataAnalysisService() {
-        // 初始化异常检测阈值 [minValue, maxValue]
-        anomalyThresholds.put(SensorType.TEMPERATURE, new Double[]{-50.0, 100.0});
-        anomalyThresholds.put(SensorType.HUMIDITY, new Double[]{0.0, 100.0});
-        anomalyThresholds.put(SensorType.PRESSURE, new Double[]{800.0, 1200.0});
+    /**
+     * 将一条接收数据写入对应类型的滑动窗口
+     */
+    public void accept(ReceivedData receivedData) {
+        SensorType type = receivedData.getSensorType();
+        Double value = receivedData.getValue();
+        if (type == null || value == null) {
+            return;
+        }
+        
+        SlidingWindowStats window = windows.get(type);
+        synchronized (window) {
+            window.add(value, toEpochMillis(receivedData.getReceivedTime()), receivedData.isAnomalyDetected());
+        }
     }
     
     /**
@@ -78,38 +133,36 @@ public class DataAnalysisService {
     
     /**
      * 执行指定传感器类型的数据分析
+     * 所有统计量均由滑动窗口增量维护，耗时与窗口大小无关
      */
-    @Async
     public AnalysisResult performAnalysis(SensorType sensorType) {
         try {
-            logger.debug("开始分析 {} 数据", sensorType.getDisplayName());
-            
-            // 获取最新的分析窗口数据
-            List<SensorDataEntity> data = dataStorageService.getDataForTrendAnalysis(sensorType, windowSize);
-            
             AnalysisResult result = new AnalysisResult(sensorType);
             
-            if (data.isEmpty()) {
-                logger.debug("没有可用的 {} 数据进行分析", sensorType.getDisplayName());
-                cachedResults.put(sensorType, result);
-                return result;
+            SlidingWindowStats window = windows.get(sensorType);
+            synchronized (window) {
+                if (window.getCount() == 0) {
+                    logger.debug("没有可用的 {} 数据进行分析", sensorType.getDisplayName());
+                    cachedResults.put(sensorType, result);
+                    return result;
+                }
+                
+                // 基础统计计算
+                calculateBasicStatistics(result, window);
+                
+                // 趋势分析
+                calculateTrendAnalysis(result, window);
+                
+                // 异常数：入库前由流式检测器标记
+                result.setAnomalyCount(window.getAnomalyCount());
+                
+                // 数据质量评估
+                calculateDataQuality(result, window);
+                
+                // 简单预测
+                performPrediction(result, window);
             }
             
-            // 基础统计计算
-            calculateBasicStatistics(result, data);
-            
-            // 趋势分析
-            calculateTrendAnalysis(result, data);
-            
-            // 异常检测
-            performAnomalyDetection(result, data);
-            
-            // 数据质量评估
-            calculateDataQuality(result, data);
-            
-            // 简单预测
-            performPrediction(result, data);
-            
             // 缓存结果
             cachedResults.put(sensorType, result);
             
@@ -125,84 +178,41 @@ public class DataAnalysisService {
     /**
      * 计算基础统计信息
      */
-    private void calculateBasicStatistics(AnalysisResult result, List<SensorDataEntity> data) {
-        List<Double> values = data.stream()
-                .map(entity -> entity.getValue().doubleValue())
-                .collect(Collectors.toList());
-        
-        if (values.isEmpty()) return;
-        
-        result.setSampleCount(values.size());
+    private void calculateBasicStatistics(AnalysisResult result, SlidingWindowStats window) {
+        result.setSampleCount(window.getCount());
         
         // 最小值、最大值
-        result.setMinValue(Collections.min(values));
-        result.setMaxValue(Collections.max(values));
+        result.setMinValue(window.getMin());
+        result.setMaxValue(window.getMax());
         
-        // 平均值
-        double average = values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-        result.setAvgValue(Math.round(average * 100.0) / 100.0);
-        
-        // 中位数
-        List<Double> sortedValues = new ArrayList<>(values);
-        Collections.sort(sortedValues);
-        double median = calculateMedian(sortedValues);
-        result.setMedianValue(Math.round(median * 100.0) / 100.0);
+        // 平均值、中位数
+        result.setAvgValue(Math.round(window.getMean() * 100.0) / 100.0);
+        result.setMedianValue(Math.round(window.getMedian() * 100.0) / 100.0);
         
         // 方差和标准差
-        double variance = values.stream()
-                .mapToDouble(val -> Math.pow(val - average, 2))
-                .average()
-                .orElse(0.0);
+        double variance = window.getVariance();
         result.setVariance(Math.round(variance * 100.0) / 100.0);
         result.setStandardDeviation(Math.round(Math.sqrt(variance) * 100.0) / 100.0);
         
         // 时间范围
-        LocalDateTime startTime = data.stream()
-                .map(SensorDataEntity::getReceivedTime)
-                .min(LocalDateTime::compareTo)
-                .orElse(LocalDateTime.now());
-        LocalDateTime endTime = data.stream()
-                .map(SensorDataEntity::getReceivedTime)
-                .max(LocalDateTime::compareTo)
-                .orElse(LocalDateTime.now());
-        
         Map<String, LocalDateTime> timeRange = new HashMap<>();
-        timeRange.put("start", startTime);
-        timeRange.put("end", endTime);
+        timeRange.put("start", toLocalDateTime(window.getOldestTime()));
+        timeRange.put("end", toLocalDateTime(window.getNewestTime()));
         result.setTimeRange(timeRange);
     }
     
-    /**
-     * 计算中位数
-     */
-    private double calculateMedian(List<Double> sortedValues) {
-        int size = sortedValues.size();
-        if (size == 0) return 0.0;
-        
-        if (size % 2 == 0) {
-            return (sortedValues.get(size / 2 - 1) + sortedValues.get(size / 2)) / 2.0;
-        } else {
-            return sortedValues.get(size / 2);
-        }
-    }
-    
     /**
      * 趋势分析
      */
-    private void calculateTrendAnalysis(AnalysisResult result, List<SensorDataEntity> data) {
-        if (data.size() < 2) {
+    private void calculateTrendAnalysis(AnalysisResult result, SlidingWindowStats window) {
+        if (window.getCount() < 2) {
             result.setTrendDirection("STABLE");
             result.setTrendStrength(0.0);
             return;
         }
         
-        // 按时间排序（最新的在前）
-        List<SensorDataEntity> sortedData = data.stream()
-                .sorted((a, b) -> b.getReceivedTime().compareTo(a.getReceivedTime()))
-                .collect(Collectors.toList());
-        
-        // 使用简单的线性回归计算趋势
-        double trendSlope = calculateTrendSlope(sortedData);
+        // 只用最新的TREND_POINTS个数据点回归，x为按时间先后的序号
+        double trendSlope = window.getRecentSlope(TREND_POINTS);
         
         // 判断趋势方向
         String trendDirection;
@@ -223,90 +233,29 @@ public class DataAnalysisService {
         result.setTrendStrength(Math.round(trendStrength * 100.0) / 100.0);
     }
     
-    /**
-     * 计算趋势斜率
-     */
-    private double calculateTrendSlope(List<SensorDataEntity> sortedData) {
-        int n = Math.min(sortedData.size(), 20); // 只使用最新的20个数据点
-        
-        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
-        
-        for (int i = 0; i < n; i++) {
-            double x = i; // 时间索引
-            double y = sortedData.get(i).getValue().doubleValue();
-            
-            sumX += x;
-            sumY += y;
-            sumXY += x * y;
-            sumX2 += x * x;
-        }
-        
-        double denominator = n * sumX2 - sumX * sumX;
-        if (Math.abs(denominator) < 1e-10) return 0.0;
-        
-        return (n * sumXY - sumX * sumY) / denominator;
-    }
-    
-    /**
-     * 异常检测
-     */
-    private void performAnomalyDetection(AnalysisResult result, List<SensorDataEntity> data) {
-        Double[] thresholds = anomalyThresholds.get(result.getSensorType());
-        if (thresholds == null) {
-            result.setAnomalyCount(0);
-            return;
-        }
-        
-        double minThreshold = thresholds[0];
-        double maxThreshold = thresholds[1];
-        
-        long anomalyCount = data.stream()
-                .mapToLong(entity -> {
-                    double value = entity.getValue().doubleValue();
-                    return (value < minThreshold || value > maxThreshold) ? 1 : 0;
-                })
-                .sum();
-        
-        result.setAnomalyCount((int) anomalyCount);
-    }
-    
     /**
      * 数据质量评估
      */
-    private void calculateDataQuality(AnalysisResult result, List<SensorDataEntity> data) {
-        if (data.isEmpty()) {
-            result.setDataQualityScore(0.0);
-            return;
-        }
+    private void calculateDataQuality(AnalysisResult result, SlidingWindowStats window) {
+        int count = window.getCount();
         
         // 基于多个因素计算数据质量分数
         double qualityScore = 100.0;
         
         // 异常数据惩罚
-        double anomalyRatio = (double) result.getAnomalyCount() / data.size();
+        double anomalyRatio = (double) result.getAnomalyCount() / count;
         qualityScore -= anomalyRatio * 50; // 异常数据每占1%扣0.5分
         
-        // 数据完整性检查（检查空值或无效值）
-        long invalidCount = data.stream()
-                .mapToLong(entity -> (entity.getValue() == null || entity.getValue().doubleValue() == 0) ? 1 : 0)
-                .sum();
-        double invalidRatio = (double) invalidCount / data.size();
+        // 数据完整性检查（检查无效值）
+        double invalidRatio = (double) window.getZeroCount() / count;
         qualityScore -= invalidRatio * 30; // 无效数据每占1%扣0.3分
         
         // 时间连续性检查（简单版本，检查数据间隔是否合理）
-        if (data.size() > 1) {
-            List<SensorDataEntity> sortedData = data.stream()
-                    .sorted(Comparator.comparing(SensorDataEntity::getReceivedTime))
-                    .collect(Collectors.toList());
-            
-            long totalMinutes = java.time.Duration.between(
-                    sortedData.get(0).getReceivedTime(),
-                    sortedData.get(sortedData.size() - 1).getReceivedTime()
-            ).toMinutes();
-            
+        if (count > 1) {
+            long totalMinutes = (window.getNewestTime() - window.getOldestTime()) / 60_000;
             if (totalMinutes > 0) {
                 double expectedCount = totalMinutes / 5.0; // 假设每5分钟一个数据点
-                double completenessRatio = Math.min(data.size() / expectedCount, 1.0);
+                double completenessRatio = Math.min(count / expectedCount, 1.0);
                 qualityScore = qualityScore * completenessRatio;
             }
         }
@@ -317,21 +266,15 @@ public class DataAnalysisService {
     /**
      * 简单预测
      */
-    private void performPrediction(AnalysisResult result, List<SensorDataEntity> data) {
-        if (data.size() < 3) {
+    private void performPrediction(AnalysisResult result, SlidingWindowStats window) {
+        if (window.getCount() < 3) {
             result.setPrediction(result.getAvgValue());
             result.setConfidenceLevel(0.0);
             return;
         }
         
-        // 使用移动平均进行简单预测
-        List<Double> recentValues = data.stream()
-                .sorted((a, b) -> b.getReceivedTime().compareTo(a.getReceivedTime()))
-                .limit(5) // 最近5个值
-                .map(entity -> entity.getValue().doubleValue())
-                .collect(Collectors.toList());
-        
-        double prediction = recentValues.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        // 使用最近5个值的移动平均进行简单预测
+        double prediction = window.getRecentMean(5);
         
         // 计算置信度（基于数据稳定性）
         double variance = result.getVariance();
@@ -396,4 +339,12 @@ public class DataAnalysisService {
             return new AnalysisResult(sensorType);
         }
     }
+    
+    private static long toEpochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : System.currentTimeMillis();
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
 }
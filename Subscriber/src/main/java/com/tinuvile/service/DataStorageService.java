@@ -3,14 +3,15 @@ package com.tinuvile.service;
 import com.tinuvile.model.ReceivedData;
 import com.tinuvile.model.SensorDataEntity;
 import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.AlertRepository;
+import com.tinuvile.repository.DataStatisticsRepository;
+import com.tinuvile.repository.SensorDataBatchRepository;
 import com.tinuvile.repository.SensorDataRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,36 +30,74 @@ public class DataStorageService {
     
     private static final Logger logger = LoggerFactory.getLogger(DataStorageService.class);
     
+    // 不限制接收时间时使用的下界
+    private static final LocalDateTime ALL_DATA_FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
     @Autowired
     private SensorDataRepository sensorDataRepository;
     
-    @Value("${subscriber.storage.max-records:10000}")
-    private int maxRecords;
+    @Autowired
+    private SensorDataBatchRepository sensorDataBatchRepository;
+    
+    @Autowired
+    private AlertEngineService alertEngineService;
+    
+    @Autowired
+    private RawDataWriter rawDataWriter;
+    
+    @Autowired
+    private AlertRepository alertRepository;
+    
+    @Autowired
+    private DataStatisticsRepository dataStatisticsRepository;
+    
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+    
+    // 最新数据查询只回看这段时间内接收的数据
+    @Value("${subscriber.storage.latest-lookback-hours:24}")
+    private int latestLookbackHours;
     
+    // 总量统计的范围与保留期一致，更早的数据会被清理
     @Value("${subscriber.storage.retention-days:30}")
     private int retentionDays;
     
     /**
-     * 存储接收到的数据
+     * 批量存储接收到的数据
+     * 由数据入库流水线的写入线程调用，一个批次对应一条多行INSERT
      */
-    @Async
     @Transactional
-    public void storeData(ReceivedData receivedData) {
-        try {
-            // 转换为数据库实体
+    public void storeBatch(List<ReceivedData> batch) {
+        List<SensorDataEntity> entities = new ArrayList<>(batch.size());
+        for (ReceivedData receivedData : batch) {
             SensorDataEntity entity = SensorDataEntity.fromReceivedData(receivedData);
-            
-            // 保存到数据库
-            sensorDataRepository.save(entity);
-            
-            // 标记为已处理
+            entity.setRawData(rawDataWriter.toRawData(receivedData));
+            entities.add(entity);
+        }
+        
+        sensorDataBatchRepository.insertBatch(entities);
+        alertEngineService.persistAlerts(batch, entities);
+        
+        for (ReceivedData receivedData : batch) {
             receivedData.setProcessed(true);
-            
-            logger.debug("数据存储成功: {}", entity);
-            
-        } catch (Exception e) {
-            logger.error("存储数据失败: {}", e.getMessage(), e);
         }
+        
+        logger.debug("批量数据存储成功: {} 条", entities.size());
+    }
+    
+    /**
+     * 最新数据、异常和趋势查询的接收时间下界
+     * 回看窗口内不足所需条数时(如采集中断或回放历史数据)由调用方去掉下界重查
+     */
+    private LocalDateTime latestReceivedFrom() {
+        return LocalDateTime.now().minusHours(latestLookbackHours);
+    }
+    
+    /**
+     * 总量统计的接收时间下界，未配置保留期时统计全部数据
+     */
+    private LocalDateTime retainedFrom() {
+        return retentionDays > 0 ? LocalDateTime.now().minusDays(retentionDays) : ALL_DATA_FROM;
     }
     
     /**
@@ -67,7 +106,10 @@ public class DataStorageService {
     public List<ReceivedData> getLatestData(SensorType sensorType, int limit) {
         try {
             List<SensorDataEntity> entities = sensorDataRepository
-                    .findBySensorTypeOrderByReceivedTimeDesc(sensorType, PageRequest.of(0, limit));
+                    .findLatest(sensorType, latestReceivedFrom(), PageRequest.of(0, limit));
+            if (entities.size() < limit) {
+                entities = sensorDataRepository.findLatest(sensorType, ALL_DATA_FROM, PageRequest.of(0, limit));
+            }
             
             return entities.stream()
                     .map(this::convertToReceivedData)
@@ -79,6 +121,27 @@ public class DataStorageService {
         }
     }
     
+    /**
+     * 获取最新的异常数据，走anomaly_detected索引
+     */
+    public List<ReceivedData> getLatestAnomalies(int limit) {
+        try {
+            List<SensorDataEntity> entities = sensorDataRepository
+                    .findLatestAnomalies(latestReceivedFrom(), PageRequest.of(0, limit));
+            if (entities.size() < limit) {
+                entities = sensorDataRepository.findLatestAnomalies(ALL_DATA_FROM, PageRequest.of(0, limit));
+            }
+            
+            return entities.stream()
+                    .map(this::convertToReceivedData)
+                    .collect(Collectors.toList());
+                    
+        } catch (Exception e) {
+            logger.error("查询异常数据失败: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+    
     /**
      * 获取所有类型的最新数据
      */
@@ -121,11 +184,12 @@ public class DataStorageService {
         
         try {
             // 总数据量
-            long totalCount = sensorDataRepository.countValidData();
+            LocalDateTime receivedFrom = retainedFrom();
+            long totalCount = sensorDataRepository.countValidData(receivedFrom);
             stats.setTotalStoredCount((int) totalCount);
             
             // 各类型数据量统计
-            List<Object[]> typeCounts = sensorDataRepository.countBySensorType();
+            List<Object[]> typeCounts = sensorDataRepository.countBySensorType(receivedFrom);
             for (Object[] row : typeCounts) {
                 SensorType type = (SensorType) row[0];
                 Long count = (Long) row[1];
@@ -157,7 +221,7 @@ public class DataStorageService {
      */
     public SensorStatistics getSensorStatistics(SensorType sensorType) {
         try {
-            Object[] result = sensorDataRepository.getStatisticsBySensorType(sensorType);
+            Object[] result = sensorDataRepository.getStatisticsBySensorType(sensorType, retainedFrom());
             
             if (result != null && result.length >= 4) {
                 SensorStatistics stats = new SensorStatistics();
@@ -207,47 +271,29 @@ public class DataStorageService {
     
     /**
      * 获取用于趋势分析的数据
+     * 查询失败时直接抛出，由调用方决定如何降级
      */
     public List<SensorDataEntity> getDataForTrendAnalysis(SensorType sensorType, int count) {
-        try {
-            return sensorDataRepository.findLatestBySensorType(
-                    sensorType, PageRequest.of(0, count));
-        } catch (Exception e) {
-            logger.error("获取趋势分析数据失败: {}", e.getMessage(), e);
-            return Collections.emptyList();
-        }
-    }
-    
-    /**
-     * 定期清理过期数据
-     */
-    @Scheduled(cron = "0 0 2 * * ?") // 每天凌晨2点执行
-    @Transactional
-    public void scheduledCleanup() {
-        try {
-            LocalDateTime cutoffTime = LocalDateTime.now().minusDays(retentionDays);
-            
-            long deletedCount = sensorDataRepository.count();
-            sensorDataRepository.deleteByReceivedTimeBefore(cutoffTime);
-            deletedCount -= sensorDataRepository.count();
-            
-            if (deletedCount > 0) {
-                logger.info("定期清理过期数据: {} 条", deletedCount);
-            }
-            
-        } catch (Exception e) {
-            logger.error("定期清理数据失败: {}", e.getMessage(), e);
+        List<SensorDataEntity> entities = sensorDataRepository
+                .findLatestBySensorType(sensorType, latestReceivedFrom(), PageRequest.of(0, count));
+        if (entities.size() < count) {
+            entities = sensorDataRepository.findLatestBySensorType(sensorType, ALL_DATA_FROM, PageRequest.of(0, count));
         }
+        return entities;
     }
     
     /**
      * 清空所有数据
+     * 同时清空统计汇总表并丢弃内存中尚未写入的汇总增量，避免下次汇总把旧数据写回
      */
     @Transactional
     public void clearAllData() {
         try {
+            int discarded = statisticsRollupService.reset();
+            alertRepository.deleteAll();
             sensorDataRepository.deleteAll();
-            logger.info("已清空所有存储数据");
+            dataStatisticsRepository.deleteAll();
+            logger.info("已清空所有存储数据，丢弃 {} 个未写入的汇总分组", discarded);
         } catch (Exception e) {
             logger.error("清空数据失败: {}", e.getMessage(), e);
         }
@@ -0,0 +1,89 @@
+package com.tinuvile.service;
+
+import com.tinuvile.metrics.LatencySummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 入库延迟指标
+ * 记录一条数据从发布端发出到写入MySQL的各阶段耗时，以Micrometer Timer输出到actuator，
+ * 并提供p50/p99/p999快照，用于判断积压发生在哪个阶段。
+ * transit和end_to_end依赖发布端时间，两端时钟需要同步
+ *
+ * @author tinuvile
+ */
+@Service
+public class IngestLatencyMetrics {
+
+    public static final String METRIC_NAME = "subscriber.ingest.latency";
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    /**
+     * 计时阶段
+     */
+    public enum Stage {
+        TRANSIT("transit"),         // 发布端发送 -> 订阅端收到
+        PARSE("parse"),             // 负载解码
+        QUEUE_WAIT("queue_wait"),   // 入队 -> 写入线程取出
+        DB_COMMIT("db_commit"),     // 一个批次的写入与提交
+        END_TO_END("end_to_end");   // 发布端发送 -> 提交完成
+
+        private final String code;
+
+        Stage(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Timer[] timers = new Timer[Stage.values().length];
+
+    @PostConstruct
+    public void init() {
+        for (Stage stage : Stage.values()) {
+            timers[stage.ordinal()] = Timer.builder(METRIC_NAME)
+                    .description("订阅端入库各阶段耗时")
+                    .tag("stage", stage.getCode())
+                    .publishPercentiles(PERCENTILES)
+                    .distributionStatisticExpiry(Duration.ofMinutes(1))
+                    .register(meterRegistry);
+        }
+    }
+
+    public void recordNanos(Stage stage, long nanos) {
+        timers[stage.ordinal()].record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录跨进程的耗时，时钟偏差导致的负值按0计
+     */
+    public void recordMillis(Stage stage, long millis) {
+        timers[stage.ordinal()].record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取各阶段的分位数快照（毫秒）
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            result.put(stage.getCode(), LatencySummary.of(timers[stage.ordinal()].takeSnapshot()));
+        }
+        return result;
+    }
+}
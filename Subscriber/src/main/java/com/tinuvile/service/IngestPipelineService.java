@@ -0,0 +1,248 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SubscriberStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据入库流水线服务
+ * MQTT回调线程只负责入队，由单独的写入线程按批次大小或等待时长批量写入MySQL
+ *
+ * @author tinuvile
+ */
+@Service
+public class IngestPipelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestPipelineService.class);
+
+    @Autowired
+    private DataStorageService dataStorageService;
+
+    @Autowired
+    private IngestLatencyMetrics latencyMetrics;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+
+    @Autowired
+    private AlertEngineService alertEngineService;
+
+    @Value("${subscriber.storage.batch.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${subscriber.storage.batch.batch-size:500}")
+    private int batchSize;
+
+    @Value("${subscriber.storage.batch.flush-interval:1000}")
+    private long flushInterval;
+
+    @Value("${subscriber.storage.batch.offer-timeout:100}")
+    private long offerTimeout;
+
+    private BlockingQueue<ReceivedData> queue;
+    private Thread writerThread;
+    private volatile boolean running = false;
+
+    // 统计信息
+    private final AtomicLong storedCount = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong failedCount = new AtomicLong(0);
+    private final AtomicLong flushCount = new AtomicLong(0);
+    private final AtomicLong totalFlushNanos = new AtomicLong(0);
+    private volatile int lastBatchSize = 0;
+    private volatile double lastFlushLatencyMs = 0.0;
+    private volatile double storeRate = 0.0;
+
+    // 用于计算写入速率
+    private long lastStoredCount = 0;
+    private long lastRateCalculation = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "ingest-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("数据入库流水线已启动: 队列容量={}, 批次大小={}, 最长等待={}ms",
+                queueCapacity, batchSize, flushInterval);
+    }
+
+    /**
+     * 提交一条待入库数据
+     * 队列满时最多阻塞offer-timeout毫秒，以此向MQTT回调线程施加背压
+     *
+     * @return 是否成功入队
+     */
+    public boolean submit(ReceivedData receivedData) {
+        receivedData.setEnqueuedNanos(System.nanoTime());
+        try {
+            if (queue.offer(receivedData, offerTimeout, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long dropped = droppedCount.incrementAndGet();
+        if (dropped % 1000 == 1) {
+            logger.warn("入库队列已满，丢弃数据: 累计丢弃 {} 条", dropped);
+        }
+        return false;
+    }
+
+    /**
+     * 写入线程主循环
+     */
+    private void writeLoop() {
+        List<ReceivedData> buffer = new ArrayList<>(batchSize);
+        long firstArrival = 0;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                long waitMs = buffer.isEmpty()
+                        ? flushInterval
+                        : Math.max(0, firstArrival + flushInterval - System.currentTimeMillis());
+
+                ReceivedData item = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    if (buffer.isEmpty()) {
+                        firstArrival = System.currentTimeMillis();
+                    }
+                    buffer.add(item);
+                    queue.drainTo(buffer, batchSize - buffer.size());
+                }
+
+                boolean full = buffer.size() >= batchSize;
+                boolean expired = !buffer.isEmpty()
+                        && System.currentTimeMillis() - firstArrival >= flushInterval;
+                if (full || expired) {
+                    flush(buffer);
+                }
+
+            } catch (InterruptedException e) {
+                // 停止信号，退出前写完剩余数据
+                running = false;
+            } catch (Exception e) {
+                logger.error("入库写入线程异常: {}", e.getMessage(), e);
+            }
+        }
+
+        queue.drainTo(buffer);
+        flush(buffer);
+        logger.info("数据入库写入线程已退出");
+    }
+
+    /**
+     * 写入一个批次
+     */
+    private void flush(List<ReceivedData> buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        int size = buffer.size();
+        long start = System.nanoTime();
+        for (ReceivedData item : buffer) {
+            latencyMetrics.recordNanos(IngestLatencyMetrics.Stage.QUEUE_WAIT, start - item.getEnqueuedNanos());
+        }
+
+        boolean stored = false;
+        try {
+            dataStorageService.storeBatch(buffer);
+            stored = true;
+            storedCount.addAndGet(size);
+            latencyMetrics.recordNanos(IngestLatencyMetrics.Stage.DB_COMMIT, System.nanoTime() - start);
+            statisticsRollupService.accept(buffer);
+
+            long committedAt = System.currentTimeMillis();
+            for (ReceivedData item : buffer) {
+                Long sentAt = item.getSentAt();
+                if (sentAt != null) {
+                    latencyMetrics.recordMillis(IngestLatencyMetrics.Stage.END_TO_END, committedAt - sentAt);
+                }
+            }
+        } catch (Exception e) {
+            failedCount.addAndGet(size);
+            logger.error("批量写入 {} 条数据失败: {}", size, e.getMessage(), e);
+            // 批次事务已回滚，其中的告警没有写入
+            if (!stored) {
+                alertEngineService.revertAlerts(buffer);
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            flushCount.incrementAndGet();
+            totalFlushNanos.addAndGet(elapsed);
+            lastBatchSize = size;
+            lastFlushLatencyMs = Math.round(elapsed / 10_000.0) / 100.0;
+            buffer.clear();
+        }
+
+        logger.debug("批量写入完成: {} 条, 耗时 {}ms", size, lastFlushLatencyMs);
+    }
+
+    /**
+     * 定期更新写入速率（每秒执行一次）
+     */
+    @Scheduled(fixedRate = 1000)
+    public void scheduledUpdateStoreRate() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - lastRateCalculation;
+        if (elapsed >= 1000) {
+            long current = storedCount.get();
+            double rate = (current - lastStoredCount) * 1000.0 / elapsed;
+            storeRate = Math.round(rate * 100.0) / 100.0;
+            lastStoredCount = current;
+            lastRateCalculation = now;
+        }
+    }
+
+    /**
+     * 将入库统计写入订阅状态
+     */
+    public void applyStatistics(SubscriberStatus status) {
+        long flushes = flushCount.get();
+        long flushedRows = storedCount.get() + failedCount.get();
+
+        status.setStoredCount(storedCount.get());
+        status.setStoreFailedCount(failedCount.get());
+        status.setDroppedCount(droppedCount.get());
+        status.setQueueSize(queue.size());
+        status.setQueueCapacity(queueCapacity);
+        status.setStoreRate(storeRate);
+        status.setLastBatchSize(lastBatchSize);
+        status.setAvgBatchSize(flushes > 0 ? Math.round(flushedRows * 100.0 / flushes) / 100.0 : 0.0);
+        status.setLastFlushLatencyMs(lastFlushLatencyMs);
+        status.setAvgFlushLatencyMs(flushes > 0
+                ? Math.round(totalFlushNanos.get() / (double) flushes / 10_000.0) / 100.0 : 0.0);
+        status.setLatency(latencyMetrics.snapshot());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("停止数据入库流水线，剩余 {} 条待写入...", queue.size());
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            try {
+                writerThread.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
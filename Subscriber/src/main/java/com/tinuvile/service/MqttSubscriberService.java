@@ -1,6 +1,8 @@
 package com.tinuvile.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.tinuvile.codec.SensorDataBinaryCodec;
+import com.tinuvile.codec.SensorDataJsonDecoder;
 import com.tinuvile.model.ReceivedData;
 import com.tinuvile.model.SensorData;
 import com.tinuvile.model.SensorType;
@@ -16,8 +18,10 @@ import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import org.springframework.scheduling.annotation.Scheduled;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -56,14 +60,29 @@ public class MqttSubscriberService implements MqttCallback {
     @Value("${mqtt.qos}")
     private int qos;
 
+    @Value("${mqtt.binary-topic-suffix:/bin}")
+    private String binaryTopicSuffix;
+
     @Value("${subscriber.analysis.auto-start:true}")
     private boolean autoStart;
 
     @Autowired
-    private DataStorageService dataStorageService;
+    private IngestPipelineService ingestPipelineService;
+
+    @Autowired
+    private IngestLatencyMetrics latencyMetrics;
+
+    @Autowired
+    private DataAnalysisService dataAnalysisService;
+
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+    
+    @Autowired
+    private AlertEngineService alertEngineService;
 
     private MqttClient mqttClient;
-    private final ObjectMapper objectMapper;
+    private final SensorDataJsonDecoder sensorDataDecoder;
     private volatile boolean connected = false;
     private volatile boolean subscribing = false;
     private final SubscriberStatus subscriberStatus = new SubscriberStatus();
@@ -75,10 +94,9 @@ public class MqttSubscriberService implements MqttCallback {
     // 防止连接丢失时无限创建重连线程
     private final AtomicBoolean reconnecting = new AtomicBoolean(false);
 
-    // 构造函数中初始化ObjectMapper
+    // 构造函数中初始化流式解码器
     public MqttSubscriberService() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.findAndRegisterModules(); // 自动注册所有可用模块，包括JSR310
+        this.sensorDataDecoder = new SensorDataJsonDecoder(new JsonFactory());
     }
 
     @PostConstruct
@@ -180,9 +198,10 @@ public class MqttSubscriberService implements MqttCallback {
 
                 logger.info("开始订阅传感器数据主题...");
 
-                // 订阅所有传感器主题
-                String[] topics = { temperatureTopic, humidityTopic, pressureTopic };
-                int[] qosLevels = { qos, qos, qos };
+                // 订阅所有传感器主题（JSON及二进制格式）
+                String[] topics = getSubscribedTopics();
+                int[] qosLevels = new int[topics.length];
+                Arrays.fill(qosLevels, qos);
 
                 mqttClient.subscribe(topics, qosLevels);
 
@@ -220,8 +239,7 @@ public class MqttSubscriberService implements MqttCallback {
 
                 if (mqttClient != null && mqttClient.isConnected()) {
                     // 取消订阅所有主题
-                    String[] topics = { temperatureTopic, humidityTopic, pressureTopic };
-                    mqttClient.unsubscribe(topics);
+                    mqttClient.unsubscribe(getSubscribedTopics());
                 }
 
                 subscribing = false;
@@ -257,6 +275,8 @@ public class MqttSubscriberService implements MqttCallback {
     public SubscriberStatus getSubscriberStatus() {
         // 更新接收速率
         updateReceiveRate();
+        // 更新入库流水线统计
+        ingestPipelineService.applyStatistics(subscriberStatus);
         return subscriberStatus;
     }
 
@@ -311,10 +331,32 @@ public class MqttSubscriberService implements MqttCallback {
         return info;
     }
 
+    /**
+     * 获取需要订阅的全部主题
+     */
+    private String[] getSubscribedTopics() {
+        return new String[] {
+                temperatureTopic, humidityTopic, pressureTopic,
+                temperatureTopic + binaryTopicSuffix,
+                humidityTopic + binaryTopicSuffix,
+                pressureTopic + binaryTopicSuffix
+        };
+    }
+
+    /**
+     * 判断主题是否为二进制负载主题
+     */
+    private boolean isBinaryTopic(String topic) {
+        return topic.endsWith(binaryTopicSuffix);
+    }
+
     /**
      * 根据主题获取传感器类型
      */
     private SensorType getSensorTypeFromTopic(String topic) {
+        if (isBinaryTopic(topic)) {
+            topic = topic.substring(0, topic.length() - binaryTopicSuffix.length());
+        }
         if (topic.equals(temperatureTopic)) {
             return SensorType.TEMPERATURE;
         } else if (topic.equals(humidityTopic)) {
@@ -395,13 +437,26 @@ public class MqttSubscriberService implements MqttCallback {
 
     @Override
     public void messageArrived(String topic, MqttMessage message) throws Exception {
+        long receivedAt = System.currentTimeMillis();
+        byte[] payload = message.getPayload();
         try {
-            String payload = new String(message.getPayload());
-            logger.info("收到MQTT消息: {} -> {}", topic,
-                    payload.substring(0, Math.min(100, payload.length())) + (payload.length() > 100 ? "..." : ""));
+            boolean binary = isBinaryTopic(topic);
+
+            // 仅在DEBUG级别才渲染负载文本
+            if (logger.isDebugEnabled()) {
+                logger.debug("收到MQTT消息: {} -> {}", topic,
+                        binary ? payload.length + " 字节" : abbreviatePayload(payload));
+            }
 
-            // 解析传感器数据
-            SensorData sensorData = objectMapper.readValue(payload, SensorData.class);
+            // 直接从字节数组解析传感器数据，按主题后缀选择解码器
+            long parseStart = System.nanoTime();
+            SensorData sensorData = binary
+                    ? SensorDataBinaryCodec.decode(payload)
+                    : sensorDataDecoder.decode(payload);
+            latencyMetrics.recordNanos(IngestLatencyMetrics.Stage.PARSE, System.nanoTime() - parseStart);
+            if (sensorData.getSentAt() != null) {
+                latencyMetrics.recordMillis(IngestLatencyMetrics.Stage.TRANSIT, receivedAt - sensorData.getSentAt());
+            }
 
             // 验证数据类型是否与主题匹配
             SensorType expectedType = getSensorTypeFromTopic(topic);
@@ -412,28 +467,46 @@ public class MqttSubscriberService implements MqttCallback {
                 return;
             }
 
-            // 创建接收数据记录
+            // 创建接收数据记录，入库前完成异常标记和规则告警评估
             ReceivedData receivedData = new ReceivedData(sensorData, topic);
+            anomalyDetectionService.detect(receivedData);
+            alertEngineService.evaluate(receivedData);
 
-            // 存储数据
-            dataStorageService.storeData(receivedData);
+            // 提交到入库队列，由写入线程批量存储；被丢弃的数据撤销其告警触发状态
+            if (!ingestPipelineService.submit(receivedData)) {
+                alertEngineService.revertAlerts(receivedData);
+                subscriberStatus.incrementErrorCount();
+                return;
+            }
+
+            // 更新分析窗口
+            dataAnalysisService.accept(receivedData);
 
             // 更新统计信息
             subscriberStatus.incrementCounter(sensorData.getSensorType());
 
-            logger.info("成功存储传感器数据: {} 类型={}, 值={}",
-                    sensorData.getSensorType(), sensorData.getSensorType(), sensorData.getValue());
-
-            // 更新接收速率（每次接收时计算）
-            updateReceiveRate();
+            logger.debug("成功接收传感器数据: 类型={}, 值={}",
+                    sensorData.getSensorType(), sensorData.getValue());
 
         } catch (Exception e) {
+            String text = isBinaryTopic(topic)
+                    ? payload.length + " 字节"
+                    : new String(payload, StandardCharsets.UTF_8);
             logger.error("处理MQTT消息失败: topic={}, message={}, error={}",
-                    topic, new String(message.getPayload()), e.getMessage(), e);
+                    topic, text, e.getMessage(), e);
             subscriberStatus.incrementErrorCount();
         }
     }
 
+    /**
+     * 截取负载前100字节用于日志输出
+     */
+    private String abbreviatePayload(byte[] payload) {
+        int length = Math.min(100, payload.length);
+        String text = new String(payload, 0, length, StandardCharsets.UTF_8);
+        return payload.length > length ? text + "..." : text;
+    }
+
     @Override
     public void deliveryComplete(IMqttDeliveryToken token) {
         // 订阅者通常不需要发送消息，但保留接口实现
@@ -0,0 +1,194 @@
+package com.tinuvile.service;
+
+import com.tinuvile.repository.AlertRepository;
+import com.tinuvile.repository.SensorDataPartitionRepository;
+import com.tinuvile.repository.SensorDataPartitionRepository.PartitionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * sensor_data分区维护服务
+ * 提前创建未来若干天的分区，过期数据按整个分区删除，避免逐行DELETE
+ * 表未分区(旧库未迁移)时不做任何操作，由RetentionService回退为按行清理
+ *
+ * @author tinuvile
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private static final DateTimeFormatter NAME_FORMATTER = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    @Autowired
+    private SensorDataPartitionRepository partitionRepository;
+
+    @Autowired
+    private AlertRepository alertRepository;
+
+    @Value("${subscriber.storage.partition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${subscriber.storage.partition.interval-days:1}")
+    private int intervalDays;
+
+    @Value("${subscriber.storage.partition.days-ahead:7}")
+    private int daysAhead;
+
+    private volatile boolean partitioned = false;
+    private volatile LocalDateTime lastMaintenanceTime;
+    private volatile long droppedPartitionCount = 0;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("sensor_data分区维护已禁用");
+            return;
+        }
+        try {
+            ensureUpcomingPartitions();
+        } catch (Exception e) {
+            logger.warn("初始化sensor_data分区失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每天创建后续分区
+     */
+    @Scheduled(cron = "${subscriber.storage.partition.cron:0 10 0 * * ?}")
+    public void scheduledMaintenance() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ensureUpcomingPartitions();
+        } catch (Exception e) {
+            logger.error("创建sensor_data分区失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 保证从最后一个分区上界到今天之后daysAhead天都有独立分区
+     * 上界落后于今天时(服务长时间未运行)先用一个分区补齐到今天
+     */
+    public synchronized void ensureUpcomingPartitions() {
+        List<PartitionInfo> partitions = partitionRepository.findPartitions();
+        partitioned = !partitions.isEmpty();
+        if (!partitioned) {
+            logger.warn("sensor_data未分区，过期数据将按行清理；迁移方式见docs/devops/mysql/sql/init.sql");
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate lastBound = null;
+        boolean hasFuture = false;
+        for (PartitionInfo partition : partitions) {
+            if (partition.getUpperBound() == null) {
+                hasFuture = SensorDataPartitionRepository.FUTURE_PARTITION.equals(partition.getName());
+            } else {
+                lastBound = partition.getUpperBound().toLocalDate();
+            }
+        }
+        if (!hasFuture) {
+            logger.warn("sensor_data缺少{}分区，无法自动创建后续分区", SensorDataPartitionRepository.FUTURE_PARTITION);
+            return;
+        }
+
+        LocalDate start = lastBound != null ? lastBound : today;
+        LocalDate target = today.plusDays(daysAhead + 1L);
+        Map<String, LocalDateTime> created = new LinkedHashMap<>();
+
+        if (start.isBefore(today)) {
+            created.put(start.format(NAME_FORMATTER), today.atStartOfDay());
+            start = today;
+        }
+        while (start.isBefore(target)) {
+            LocalDate end = start.plusDays(intervalDays);
+            created.put(start.format(NAME_FORMATTER), end.atStartOfDay());
+            start = end;
+        }
+
+        if (!created.isEmpty()) {
+            partitionRepository.splitFuturePartition(created);
+            logger.info("已创建sensor_data分区: {}", created.keySet());
+        }
+        lastMaintenanceTime = LocalDateTime.now();
+    }
+
+    /**
+     * 删除上界不晚于cutoffTime的分区
+     *
+     * @return 删除的分区估算行数之和；表未分区时返回-1，调用方应回退为按行清理
+     */
+    public synchronized long dropPartitionsBefore(LocalDateTime cutoffTime) {
+        List<PartitionInfo> partitions = partitionRepository.findPartitions();
+        partitioned = !partitions.isEmpty();
+        if (!enabled || !partitioned) {
+            return -1;
+        }
+
+        List<String> expired = new ArrayList<>();
+        LocalDateTime dropBound = null;
+        long estimatedRows = 0;
+        for (PartitionInfo partition : partitions) {
+            LocalDateTime upperBound = partition.getUpperBound();
+            if (upperBound != null && !upperBound.isAfter(cutoffTime)) {
+                expired.add(partition.getName());
+                dropBound = upperBound;
+                estimatedRows += partition.getEstimatedRows();
+            }
+        }
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        // 分区表不支持外键，先删除这些数据关联的告警以免留下悬空记录
+        alertRepository.deleteByDataReceivedBefore(dropBound);
+        partitionRepository.dropPartitions(expired);
+        droppedPartitionCount += expired.size();
+        logger.info("已删除过期sensor_data分区: {}, 约 {} 条数据", expired, estimatedRows);
+        return estimatedRows;
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * 获取分区状态
+     */
+    public Map<String, Object> getPartitionInfo() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("enabled", enabled);
+        info.put("interval_days", intervalDays);
+        info.put("days_ahead", daysAhead);
+        info.put("dropped_partitions", droppedPartitionCount);
+        info.put("last_maintenance_time", lastMaintenanceTime != null ? lastMaintenanceTime.toString() : null);
+
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        for (PartitionInfo partition : partitionRepository.findPartitions()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", partition.getName());
+            item.put("upper_bound", partition.getUpperBound() != null ? partition.getUpperBound().toString() : "MAXVALUE");
+            item.put("estimated_rows", partition.getEstimatedRows());
+            partitions.add(item);
+        }
+        info.put("partitioned", !partitions.isEmpty());
+        info.put("partitions", partitions);
+        return info;
+    }
+}
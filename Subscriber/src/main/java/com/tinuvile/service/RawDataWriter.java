@@ -0,0 +1,143 @@
+package com.tinuvile.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * raw_data列写入策略
+ * raw_data中的字段与sensor_data其他列重复，默认不存储；
+ * 需要保留原始负载排查问题时可全部存储或按比例抽样，序列化复用同一个预先配置好的ObjectWriter
+ *
+ * @author tinuvile
+ */
+@Service
+public class RawDataWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RawDataWriter.class);
+
+    public static final String METRIC_SERIALIZATION_FAILURES = "subscriber.raw_data.serialization.failures";
+
+    /**
+     * 存储模式
+     */
+    public enum Mode {
+        NONE("none"),       // 不存储
+        SAMPLE("sample"),   // 按sample-rate抽样存储
+        ALL("all");         // 每条都存储
+
+        private final String code;
+
+        Mode(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public static Mode fromCode(String code) {
+            for (Mode mode : values()) {
+                if (mode.code.equalsIgnoreCase(code)) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("Unknown raw data mode: " + code);
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${subscriber.storage.raw-data.mode:none}")
+    private String modeCode;
+
+    @Value("${subscriber.storage.raw-data.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${subscriber.storage.raw-data.keep-anomalies:true}")
+    private boolean keepAnomalies;
+
+    private Mode mode;
+
+    private ObjectWriter sensorDataWriter;
+
+    private Counter serializationFailureCounter;
+
+    @PostConstruct
+    public void init() {
+        mode = Mode.fromCode(modeCode);
+        // 取反写法同时拒绝NaN
+        if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+            throw new IllegalArgumentException("raw data sample-rate must be in [0, 1]: " + sampleRate);
+        }
+        sensorDataWriter = objectMapper.writerFor(SensorData.class);
+        serializationFailureCounter = Counter.builder(METRIC_SERIALIZATION_FAILURES)
+                .description("raw_data序列化失败、改为不存储的记录数")
+                .register(meterRegistry);
+        logger.info("raw_data存储模式: mode={}, sampleRate={}, keepAnomalies={}",
+                mode.getCode(), sampleRate, keepAnomalies);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 生成raw_data列的值
+     *
+     * @return JSON字符串，按当前模式不需要存储时返回null
+     */
+    public String toRawData(ReceivedData receivedData) {
+        if (!shouldKeep(receivedData)) {
+            return null;
+        }
+
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName("sensor_data");
+            sensorDataWriter.writeValue(generator, receivedData.getOriginalData());
+            generator.writeStringField("mqtt_topic", receivedData.getMqttTopic());
+            generator.writeStringField("received_time", String.valueOf(receivedData.getReceivedTime()));
+            generator.writeEndObject();
+        } catch (IOException e) {
+            serializationFailureCounter.increment();
+            logger.warn("raw_data序列化失败，本条不存储raw_data: topic={}, error={}",
+                    receivedData.getMqttTopic(), e.getMessage());
+            return null;
+        }
+        return out.toString();
+    }
+
+    private boolean shouldKeep(ReceivedData receivedData) {
+        switch (mode) {
+            case ALL:
+                return true;
+            case SAMPLE:
+                // 异常数据数量少且最需要原始负载，抽样模式下始终保留
+                return (keepAnomalies && receivedData.isAnomalyDetected())
+                        || ThreadLocalRandom.current().nextDouble() < sampleRate;
+            case NONE:
+            default:
+                return false;
+        }
+    }
+}
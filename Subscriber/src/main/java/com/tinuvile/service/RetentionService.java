@@ -0,0 +1,266 @@
+package com.tinuvile.service;
+
+import com.tinuvile.repository.AlertRepository;
+import com.tinuvile.repository.SensorDataRetentionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 数据保留清理服务
+ * 按保留天数和最大记录数清理sensor_data：已分区时过期数据整分区删除，
+ * 否则按主键id区间分块删除，每块限制行数和耗时、块间暂停，单次运行有总时长上限，未完成的部分留到下次继续。
+ * 最大记录数默认关闭；单次运行会占用一个定时任务线程，调度线程池大小见spring.task.scheduling.pool.size
+ *
+ * @author tinuvile
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    public static final String METRIC_PREFIX = "subscriber.retention";
+
+    private static final String REASON_AGE = "age";
+    private static final String REASON_MAX_RECORDS = "max_records";
+
+    @Autowired
+    private SensorDataRetentionRepository retentionRepository;
+
+    @Autowired
+    private AlertRepository alertRepository;
+
+    @Autowired
+    private PartitionMaintenanceService partitionMaintenanceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${subscriber.storage.retention-days:30}")
+    private int retentionDays;
+
+    // 全表最大保留行数，0表示不按行数清理
+    @Value("${subscriber.storage.max-records:0}")
+    private long maxRecords;
+
+    @Value("${subscriber.storage.retention.chunk-size:5000}")
+    private long maxChunkSize;
+
+    @Value("${subscriber.storage.retention.min-chunk-size:500}")
+    private long minChunkSize;
+
+    @Value("${subscriber.storage.retention.max-chunk-millis:500}")
+    private long maxChunkMillis;
+
+    @Value("${subscriber.storage.retention.pause-millis:100}")
+    private long pauseMillis;
+
+    @Value("${subscriber.storage.retention.max-run-millis:60000}")
+    private long maxRunMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean shuttingDown = false;
+
+    // 分块大小根据上一块的耗时自适应调整，跨运行保留
+    private volatile long chunkSize;
+
+    private Counter ageDeletedCounter;
+    private Counter maxRecordsDeletedCounter;
+    private Timer chunkTimer;
+
+    private volatile double progress = 1.0;
+    private volatile double lastDeleteRate = 0.0;
+    private volatile long lastRunDeleted = 0;
+    private volatile long lastRunMillis = 0;
+    private volatile boolean lastRunCompleted = true;
+    private volatile LocalDateTime lastRunTime;
+
+    @PostConstruct
+    public void init() {
+        chunkSize = maxChunkSize;
+        ageDeletedCounter = Counter.builder(METRIC_PREFIX + ".deleted")
+                .description("保留清理删除的数据行数")
+                .tag("reason", REASON_AGE)
+                .register(meterRegistry);
+        maxRecordsDeletedCounter = Counter.builder(METRIC_PREFIX + ".deleted")
+                .description("保留清理删除的数据行数")
+                .tag("reason", REASON_MAX_RECORDS)
+                .register(meterRegistry);
+        chunkTimer = Timer.builder(METRIC_PREFIX + ".chunk")
+                .description("单个分块删除耗时")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".progress", this, s -> s.progress)
+                .description("当前清理区间的完成比例")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".rate", this, s -> s.lastDeleteRate)
+                .description("最近一次清理每秒删除行数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+    }
+
+    @Scheduled(fixedDelayString = "${subscriber.storage.retention.interval:600000}",
+               initialDelayString = "${subscriber.storage.retention.initial-delay:60000}")
+    public void scheduledRetention() {
+        try {
+            runRetention();
+        } catch (Exception e) {
+            logger.error("数据保留清理失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行一次保留清理
+     *
+     * @return 本次删除的行数，已有清理在运行时返回-1
+     */
+    public long runRetention() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        long deadline = System.currentTimeMillis() + maxRunMillis;
+        long deleted = 0;
+        boolean completed = true;
+        try {
+            // 按保留天数清理，已分区时整分区删除
+            LocalDateTime cutoffTime = LocalDateTime.now().minusDays(retentionDays);
+            long droppedRows = partitionMaintenanceService.dropPartitionsBefore(
+                    LocalDate.now().minusDays(retentionDays).atStartOfDay());
+            if (droppedRows >= 0) {
+                ageDeletedCounter.increment(droppedRows);
+                deleted += droppedRows;
+            } else {
+                Long fromId = retentionRepository.findMinId();
+                if (fromId != null) {
+                    Long toId = retentionRepository.findFirstIdReceivedFrom(cutoffTime);
+                    if (toId == null) {
+                        toId = retentionRepository.findMaxId() + 1;
+                    }
+                    PurgeResult result = purgeRange(fromId, toId, cutoffTime, ageDeletedCounter, deadline);
+                    deleted += result.deleted;
+                    completed = result.completed;
+                }
+            }
+
+            // 超出最大记录数时删除最旧的数据
+            if (completed && maxRecords > 0) {
+                Long lastId = retentionRepository.findIdFromNewest(maxRecords);
+                Long fromId = retentionRepository.findMinId();
+                if (lastId != null && fromId != null) {
+                    PurgeResult result = purgeRange(fromId, lastId + 1, null, maxRecordsDeletedCounter, deadline);
+                    deleted += result.deleted;
+                    completed = result.completed;
+                }
+            }
+        } finally {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            lastRunDeleted = deleted;
+            lastRunMillis = elapsedMillis;
+            lastRunCompleted = completed;
+            lastRunTime = LocalDateTime.now();
+            lastDeleteRate = elapsedMillis > 0 ? deleted * 1000.0 / elapsedMillis : 0.0;
+            running.set(false);
+        }
+
+        if (deleted > 0 || !completed) {
+            logger.info("数据保留清理: 删除 {} 条, 耗时 {}ms, {}", deleted, lastRunMillis,
+                    completed ? "已完成" : "达到单次时长上限，剩余部分下次继续");
+        }
+        return deleted;
+    }
+
+    /**
+     * 分块删除[fromId, toId)区间的数据
+     * 每块的id跨度不超过chunkSize，耗时超过max-chunk-millis时减半，远低于时加倍
+     */
+    private PurgeResult purgeRange(long fromId, long toId, LocalDateTime receivedBefore,
+                                   Counter counter, long deadline) {
+        PurgeResult result = new PurgeResult();
+        long span = Math.max(1, toId - fromId);
+        long position = fromId;
+        progress = 0.0;
+
+        while (position < toId) {
+            if (shuttingDown || System.currentTimeMillis() >= deadline) {
+                result.completed = false;
+                break;
+            }
+
+            long end = Math.min(position + chunkSize, toId);
+            long chunkStart = System.nanoTime();
+            alertRepository.deleteByDataIdRange(position, end, receivedBefore);
+            int deleted = retentionRepository.deleteRange(position, end, receivedBefore);
+            long chunkNanos = System.nanoTime() - chunkStart;
+
+            chunkTimer.record(chunkNanos, TimeUnit.NANOSECONDS);
+            counter.increment(deleted);
+            result.deleted += deleted;
+            position = end;
+            progress = (double) (position - fromId) / span;
+
+            long chunkMillis = TimeUnit.NANOSECONDS.toMillis(chunkNanos);
+            if (chunkMillis > maxChunkMillis) {
+                chunkSize = Math.max(minChunkSize, chunkSize / 2);
+            } else if (chunkMillis < maxChunkMillis / 4) {
+                chunkSize = Math.min(maxChunkSize, chunkSize * 2);
+            }
+
+            if (position < toId && pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completed = false;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取保留清理状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("retention_days", retentionDays);
+        status.put("max_records", maxRecords);
+        status.put("partitioned", partitionMaintenanceService.isPartitioned());
+        status.put("chunk_size", chunkSize);
+        status.put("progress", progress);
+        status.put("deleted_by_age", (long) ageDeletedCounter.count());
+        status.put("deleted_by_max_records", (long) maxRecordsDeletedCounter.count());
+        status.put("last_run_deleted", lastRunDeleted);
+        status.put("last_run_millis", lastRunMillis);
+        status.put("last_run_completed", lastRunCompleted);
+        status.put("last_delete_rate", lastDeleteRate);
+        status.put("last_run_time", lastRunTime != null ? lastRunTime.toString() : null);
+        return status;
+    }
+
+    private static class PurgeResult {
+        long deleted = 0;
+        boolean completed = true;
+    }
+}
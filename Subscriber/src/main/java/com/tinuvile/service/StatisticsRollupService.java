@@ -0,0 +1,235 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.DataStatisticsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 小时/日统计汇总服务
+ * 写入线程每提交一批数据，就把它累加到按(节点, 类型, 小时)分组的内存增量中；
+ * 定时任务将增量合并写入data_statistics，并由小时行重新汇总受影响日期的日行
+ *
+ * @author tinuvile
+ */
+@Service
+public class StatisticsRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsRollupService.class);
+
+    @Autowired
+    private DataStatisticsRepository dataStatisticsRepository;
+
+    // 定时任务与关闭时都经由此模板开启事务，不依赖代理调用
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${subscriber.rollup.enabled:true}")
+    private boolean enabled;
+
+    // 尚未写入数据库的增量，由写入线程累加、定时任务整体取走
+    private Map<RollupKey, Accumulator> pending = new HashMap<>();
+
+    private final AtomicLong flushedRows = new AtomicLong(0);
+    private final AtomicLong flushFailures = new AtomicLong(0);
+    private volatile LocalDateTime lastFlushTime;
+
+    /**
+     * 累加一批已成功入库的数据
+     */
+    public void accept(List<ReceivedData> batch) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            for (ReceivedData receivedData : batch) {
+                SensorType type = receivedData.getSensorType();
+                Double value = receivedData.getValue();
+                if (type == null || value == null) {
+                    continue;
+                }
+                LocalDateTime timestamp = receivedData.getOriginalTimestamp() != null
+                        ? receivedData.getOriginalTimestamp()
+                        : receivedData.getReceivedTime();
+                int nodeId = receivedData.getNodeId() != null ? receivedData.getNodeId() : 1;
+
+                RollupKey key = new RollupKey(nodeId, type, timestamp.truncatedTo(ChronoUnit.HOURS));
+                pending.computeIfAbsent(key, k -> new Accumulator()).add(value);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("关闭前写入统计汇总失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 丢弃尚未写入的增量，清空data_statistics时调用
+     *
+     * @return 丢弃的分组数
+     */
+    public int reset() {
+        synchronized (this) {
+            int discarded = pending.size();
+            pending = new HashMap<>();
+            return discarded;
+        }
+    }
+
+    /**
+     * 定时写入当前累积的全部增量
+     * 小时行合并和日行汇总在同一事务内完成，失败时整体回滚并把增量合并回待写集合，避免重试时重复累加
+     */
+    @Scheduled(fixedDelayString = "${subscriber.rollup.flush-interval:60000}")
+    public void flush() {
+        transactionTemplate.executeWithoutResult(status -> flushPending());
+    }
+
+    private void flushPending() {
+        Map<RollupKey, Accumulator> drained;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            pending = new HashMap<>();
+        }
+
+        List<Object[]> rows = new ArrayList<>(drained.size());
+        TreeSet<LocalDate> dates = new TreeSet<>();
+        for (Map.Entry<RollupKey, Accumulator> entry : drained.entrySet()) {
+            RollupKey key = entry.getKey();
+            Accumulator acc = entry.getValue();
+            LocalDate statDate = key.hour.toLocalDate();
+            dates.add(statDate);
+            rows.add(new Object[]{
+                    key.nodeId,
+                    key.sensorType.getCode(),
+                    statDate,
+                    key.hour.getHour(),
+                    decimal(acc.sum / acc.count),
+                    decimal(acc.min),
+                    decimal(acc.max),
+                    acc.count,
+                    acc.count
+            });
+        }
+
+        try {
+            dataStatisticsRepository.upsertHourly(rows);
+            for (LocalDate date : dates) {
+                dataStatisticsRepository.refreshDaily(date);
+            }
+            flushedRows.addAndGet(rows.size());
+            lastFlushTime = LocalDateTime.now();
+            logger.debug("统计汇总已写入: {} 个小时分组, {} 个日期", rows.size(), dates.size());
+
+        } catch (Exception e) {
+            flushFailures.incrementAndGet();
+            synchronized (this) {
+                for (Map.Entry<RollupKey, Accumulator> entry : drained.entrySet()) {
+                    pending.merge(entry.getKey(), entry.getValue(), Accumulator::merge);
+                }
+            }
+            logger.warn("写入统计汇总失败，将在下次重试: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 获取汇总统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("pending_groups", pending.size());
+        }
+        stats.put("enabled", enabled);
+        stats.put("flushed_rows", flushedRows.get());
+        stats.put("flush_failures", flushFailures.get());
+        stats.put("last_flush_time", lastFlushTime != null ? lastFlushTime.toString() : null);
+        return stats;
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(3, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 汇总分组键：节点、传感器类型、整点小时
+     */
+    private static final class RollupKey {
+        final int nodeId;
+        final SensorType sensorType;
+        final LocalDateTime hour;
+
+        RollupKey(int nodeId, SensorType sensorType, LocalDateTime hour) {
+            this.nodeId = nodeId;
+            this.sensorType = sensorType;
+            this.hour = hour;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RollupKey)) return false;
+            RollupKey that = (RollupKey) o;
+            return nodeId == that.nodeId && sensorType == that.sensorType && hour.equals(that.hour);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nodeId, sensorType, hour);
+        }
+    }
+
+    /**
+     * 单个分组的计数、求和与极值
+     */
+    private static final class Accumulator {
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            count++;
+            sum += value;
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+
+        Accumulator merge(Accumulator other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            return this;
+        }
+    }
+}
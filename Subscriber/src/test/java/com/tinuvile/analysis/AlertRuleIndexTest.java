@@ -0,0 +1,59 @@
+package com.tinuvile.analysis;
+
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertRuleIndexTest {
+
+    private static AlertRule rule(int id, Integer nodeId, SensorType type) {
+        return new AlertRule(id, nodeId, type, "rule-" + id, AlertRule.Condition.GREATER_THAN,
+                Double.NaN, 40.0);
+    }
+
+    @Test
+    void groupsNodeRulesByNodeAndType() {
+        AlertRule node1Temp = rule(1, 1, SensorType.TEMPERATURE);
+        AlertRule node1Temp2 = rule(2, 1, SensorType.TEMPERATURE);
+        AlertRule node1Humidity = rule(3, 1, SensorType.HUMIDITY);
+        AlertRule node2Temp = rule(4, 2, SensorType.TEMPERATURE);
+
+        AlertRuleIndex index = AlertRuleIndex.build(Arrays.asList(node1Temp, node1Temp2, node1Humidity, node2Temp));
+
+        assertThat(index.nodeRules(1, SensorType.TEMPERATURE)).containsExactly(node1Temp, node1Temp2);
+        assertThat(index.nodeRules(1, SensorType.HUMIDITY)).containsExactly(node1Humidity);
+        assertThat(index.nodeRules(1, SensorType.PRESSURE)).isEmpty();
+        assertThat(index.nodeRules(2, SensorType.TEMPERATURE)).containsExactly(node2Temp);
+        assertThat(index.nodeRules(9, SensorType.TEMPERATURE)).isEmpty();
+        assertThat(index.nodeCount()).isEqualTo(2);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void globalRulesAreKeptSeparateFromNodeRules() {
+        AlertRule global = rule(1, null, SensorType.PRESSURE);
+        AlertRule node = rule(2, 5, SensorType.PRESSURE);
+
+        AlertRuleIndex index = AlertRuleIndex.build(Arrays.asList(global, node));
+
+        assertThat(index.globalRules(SensorType.PRESSURE)).containsExactly(global);
+        assertThat(index.globalRules(SensorType.TEMPERATURE)).isEmpty();
+        assertThat(index.nodeRules(5, SensorType.PRESSURE)).containsExactly(node);
+        // 全局规则不计入节点数，节点ID为NULL的读数也查不到节点规则
+        assertThat(index.nodeCount()).isEqualTo(1);
+        assertThat(index.nodeRules(null, SensorType.PRESSURE)).isEmpty();
+        assertThat(index.getAllRules()).containsExactly(global, node);
+    }
+
+    @Test
+    void emptyIndexHasNoRules() {
+        assertThat(AlertRuleIndex.EMPTY.size()).isZero();
+        for (SensorType type : SensorType.values()) {
+            assertThat(AlertRuleIndex.EMPTY.globalRules(type)).isEmpty();
+            assertThat(AlertRuleIndex.EMPTY.nodeRules(1, type)).isEmpty();
+        }
+    }
+}
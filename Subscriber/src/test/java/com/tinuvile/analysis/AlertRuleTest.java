@@ -0,0 +1,147 @@
+package com.tinuvile.analysis;
+
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AlertRuleTest {
+
+    private static final long COOLDOWN = 60_000L;
+
+    private static AlertRule rule(AlertRule.Condition condition, double min, double max) {
+        return new AlertRule(1, null, SensorType.TEMPERATURE, "test", condition, min, max);
+    }
+
+    @Test
+    void greaterThanUsesMaxOrFallsBackToMin() {
+        AlertRule withMax = rule(AlertRule.Condition.GREATER_THAN, Double.NaN, 40.0);
+        assertThat(withMax.excess(45.0, Double.NaN)).isCloseTo(5.0, within(1e-9));
+        assertThat(withMax.excess(40.0, Double.NaN)).isZero();
+
+        AlertRule withMin = rule(AlertRule.Condition.GREATER_THAN, 30.0, Double.NaN);
+        assertThat(withMin.excess(31.5, Double.NaN)).isCloseTo(1.5, within(1e-9));
+    }
+
+    @Test
+    void lessThanUsesMinOrFallsBackToMax() {
+        AlertRule withMin = rule(AlertRule.Condition.LESS_THAN, 10.0, Double.NaN);
+        assertThat(withMin.excess(7.0, Double.NaN)).isCloseTo(3.0, within(1e-9));
+        assertThat(withMin.excess(10.0, Double.NaN)).isZero();
+
+        AlertRule withMax = rule(AlertRule.Condition.LESS_THAN, Double.NaN, 5.0);
+        assertThat(withMax.excess(4.0, Double.NaN)).isCloseTo(1.0, within(1e-9));
+    }
+
+    @Test
+    void rangeMeasuresDistanceToNearestBound() {
+        AlertRule range = rule(AlertRule.Condition.RANGE, 10.0, 30.0);
+        assertThat(range.excess(5.0, Double.NaN)).isCloseTo(5.0, within(1e-9));
+        assertThat(range.excess(33.0, Double.NaN)).isCloseTo(3.0, within(1e-9));
+        assertThat(range.excess(20.0, Double.NaN)).isZero();
+
+        // 缺失的一端不触发
+        AlertRule openUpper = rule(AlertRule.Condition.RANGE, 10.0, Double.NaN);
+        assertThat(openUpper.excess(1000.0, Double.NaN)).isZero();
+        assertThat(openUpper.excess(9.0, Double.NaN)).isCloseTo(1.0, within(1e-9));
+    }
+
+    @Test
+    void deviationComparesAgainstPreviousReading() {
+        AlertRule deviation = rule(AlertRule.Condition.DEVIATION, Double.NaN, 2.0);
+        assertThat(deviation.excess(25.0, 20.0)).isCloseTo(3.0, within(1e-9));
+        assertThat(deviation.excess(15.0, 20.0)).isCloseTo(3.0, within(1e-9));
+        assertThat(deviation.excess(21.0, 20.0)).isZero();
+        // 没有上一次读数时不触发
+        assertThat(deviation.excess(100.0, Double.NaN)).isZero();
+    }
+
+    @Test
+    void levelScalesWithExcessRatio() {
+        AlertRule greater = rule(AlertRule.Condition.GREATER_THAN, Double.NaN, 40.0);
+        assertThat(greater.levelFor(2.0)).isEqualTo("warning");
+        assertThat(greater.levelFor(8.0)).isEqualTo("error");
+        assertThat(greater.levelFor(20.0)).isEqualTo("critical");
+
+        // 区间规则以区间宽度为尺度
+        AlertRule range = rule(AlertRule.Condition.RANGE, 10.0, 30.0);
+        assertThat(range.levelFor(1.0)).isEqualTo("warning");
+        assertThat(range.levelFor(4.0)).isEqualTo("error");
+        assertThat(range.levelFor(6.0)).isEqualTo("critical");
+
+        // 阈值很小时尺度至少为1
+        AlertRule nearZero = rule(AlertRule.Condition.LESS_THAN, 0.0, Double.NaN);
+        assertThat(nearZero.levelFor(0.05)).isEqualTo("warning");
+    }
+
+    @Test
+    void violationFiresOnceUntilRecovery() {
+        AlertRule rule = rule(AlertRule.Condition.GREATER_THAN, Double.NaN, 40.0);
+
+        assertThat(rule.onViolation(3, 1_000L, COOLDOWN)).isEqualTo(AlertRule.FIRED);
+        assertThat(rule.onViolation(3, 2_000L, COOLDOWN)).isEqualTo(AlertRule.DUPLICATE);
+        assertThat(rule.getLastFiredAt(3)).isEqualTo(1_000L);
+
+        rule.onRecovery(3);
+        assertThat(rule.onViolation(3, 30_000L, COOLDOWN)).isEqualTo(AlertRule.COOLDOWN);
+        rule.onRecovery(3);
+        assertThat(rule.onViolation(3, 61_000L, COOLDOWN)).isEqualTo(AlertRule.FIRED);
+        assertThat(rule.getLastFiredAt(3)).isEqualTo(61_000L);
+    }
+
+    @Test
+    void statesAreTrackedPerNode() {
+        AlertRule rule = rule(AlertRule.Condition.GREATER_THAN, Double.NaN, 40.0);
+
+        assertThat(rule.onViolation(1, 1_000L, COOLDOWN)).isEqualTo(AlertRule.FIRED);
+        assertThat(rule.onViolation(2, 1_000L, COOLDOWN)).isEqualTo(AlertRule.FIRED);
+        assertThat(rule.getLastFiredAt(4)).isZero();
+    }
+
+    @Test
+    void revertRestoresPreviousStateUnlessOverwritten() {
+        AlertRule rule = rule(AlertRule.Condition.GREATER_THAN, Double.NaN, 40.0);
+        rule.onViolation(3, 1_000L, COOLDOWN);
+        rule.onRecovery(3);
+        rule.onViolation(3, 70_000L, COOLDOWN);
+
+        rule.revertFiring(3, 70_000L, 1_000L);
+        assertThat(rule.getLastFiredAt(3)).isEqualTo(1_000L);
+        // 已退出越限状态，冷却期按恢复后的上次告警时间计算
+        assertThat(rule.onViolation(3, 75_000L, COOLDOWN)).isEqualTo(AlertRule.FIRED);
+
+        // 被之后的触发覆盖时不撤销
+        rule.revertFiring(3, 70_000L, 1_000L);
+        assertThat(rule.getLastFiredAt(3)).isEqualTo(75_000L);
+    }
+
+    @Test
+    void expireStatesDropsOnlyRecoveredAndOldStates() {
+        AlertRule rule = rule(AlertRule.Condition.GREATER_THAN, Double.NaN, 40.0);
+        rule.onViolation(1, 1_000L, COOLDOWN);
+        rule.onRecovery(1);
+        rule.onViolation(2, 1_000L, COOLDOWN);
+        rule.onViolation(3, 90_000L, COOLDOWN);
+        rule.onRecovery(3);
+
+        rule.expireStates(50_000L);
+
+        assertThat(rule.getLastFiredAt(1)).isZero();
+        assertThat(rule.getLastFiredAt(2)).isEqualTo(1_000L);
+        assertThat(rule.getLastFiredAt(3)).isEqualTo(90_000L);
+    }
+
+    @Test
+    void reloadedRuleKeepsStatesOfPrevious() {
+        AlertRule old = rule(AlertRule.Condition.GREATER_THAN, Double.NaN, 40.0);
+        old.onViolation(3, 1_000L, COOLDOWN);
+
+        AlertRule reloaded = new AlertRule(1, null, SensorType.TEMPERATURE, "test",
+                AlertRule.Condition.GREATER_THAN, Double.NaN, 35.0).withStatesOf(old);
+
+        assertThat(reloaded.getThresholdMax()).isEqualTo(35.0);
+        assertThat(reloaded.getLastFiredAt(3)).isEqualTo(1_000L);
+        assertThat(reloaded.onViolation(3, 2_000L, COOLDOWN)).isEqualTo(AlertRule.DUPLICATE);
+    }
+}
@@ -0,0 +1,83 @@
+package com.tinuvile.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexedHeapTest {
+
+    private static void runAgainstBruteForce(boolean maxHeap, long seed) {
+        int slots = 32;
+        double[] values = new double[slots];
+        Random random = new Random(seed);
+        for (int i = 0; i < slots; i++) {
+            // 取值范围小，堆中有大量重复值
+            values[i] = random.nextInt(6);
+        }
+        IndexedHeap heap = new IndexedHeap(values, maxHeap);
+        List<Integer> present = new ArrayList<>();
+        Comparator<Integer> order = Comparator.comparingDouble(slot -> values[slot]);
+        if (maxHeap) {
+            order = order.reversed();
+        }
+
+        for (int step = 0; step < 2000; step++) {
+            int action = random.nextInt(3);
+            if (action == 0 && present.size() < slots) {
+                int slot;
+                do {
+                    slot = random.nextInt(slots);
+                } while (present.contains(slot));
+                heap.push(slot);
+                present.add(slot);
+            } else if (action == 1 && !present.isEmpty()) {
+                // 按槽位删除任意元素
+                Integer slot = present.remove(random.nextInt(present.size()));
+                heap.remove(slot);
+            } else if (!present.isEmpty()) {
+                int top = heap.pop();
+                assertThat(values[top]).isEqualTo(values[present.stream().min(order).get()]);
+                present.remove(Integer.valueOf(top));
+            }
+
+            assertThat(heap.size()).isEqualTo(present.size());
+            for (int slot = 0; slot < slots; slot++) {
+                assertThat(heap.contains(slot)).isEqualTo(present.contains(slot));
+            }
+            if (!present.isEmpty()) {
+                assertThat(heap.peekValue()).isEqualTo(values[present.stream().min(order).get()]);
+                assertThat(present).contains(heap.peek());
+            }
+        }
+    }
+
+    @Test
+    void minHeapMatchesBruteForce() {
+        runAgainstBruteForce(false, 3);
+    }
+
+    @Test
+    void maxHeapMatchesBruteForce() {
+        runAgainstBruteForce(true, 5);
+    }
+
+    @Test
+    void clearResetsMembership() {
+        double[] values = {3, 1, 2};
+        IndexedHeap heap = new IndexedHeap(values, false);
+        heap.push(0);
+        heap.push(1);
+
+        heap.clear();
+
+        assertThat(heap.size()).isZero();
+        assertThat(heap.contains(0)).isFalse();
+        heap.push(2);
+        assertThat(heap.peek()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,175 @@
+package com.tinuvile.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SlidingWindowStatsTest {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * 暴力计算的对照窗口
+     */
+    private static final class Point {
+        private final double value;
+        private final long time;
+        private final boolean anomaly;
+
+        private Point(double value, long time, boolean anomaly) {
+            this.value = value;
+            this.time = time;
+            this.anomaly = anomaly;
+        }
+    }
+
+    private static double slope(List<Point> points) {
+        int n = points.size();
+        if (n < 2) {
+            return 0.0;
+        }
+        double meanX = (n - 1) / 2.0;
+        double meanY = points.stream().mapToDouble(p -> p.value).average().orElse(0);
+        double num = 0;
+        double den = 0;
+        for (int i = 0; i < n; i++) {
+            num += (i - meanX) * (points.get(i).value - meanY);
+            den += (i - meanX) * (i - meanX);
+        }
+        return num / den;
+    }
+
+    private static void assertMatches(SlidingWindowStats stats, Deque<Point> window) {
+        List<Point> points = new ArrayList<>(window);
+        List<Double> sorted = new ArrayList<>();
+        for (Point point : points) {
+            sorted.add(point.value);
+        }
+        Collections.sort(sorted);
+        int n = sorted.size();
+        double mean = sorted.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double variance = sorted.stream().mapToDouble(v -> (v - mean) * (v - mean)).sum() / n;
+        double median = n % 2 == 1 ? sorted.get(n / 2) : (sorted.get(n / 2 - 1) + sorted.get(n / 2)) / 2.0;
+        List<Point> recent = points.subList(Math.max(0, n - 5), n);
+
+        assertThat(stats.getCount()).isEqualTo(n);
+        assertThat(stats.getMin()).isEqualTo(sorted.get(0));
+        assertThat(stats.getMax()).isEqualTo(sorted.get(n - 1));
+        assertThat(stats.getMean()).isCloseTo(mean, within(EPSILON));
+        assertThat(stats.getVariance()).isCloseTo(variance, within(1e-6));
+        assertThat(stats.getMedian()).isEqualTo(median);
+        assertThat(stats.getSlope()).isCloseTo(slope(points), within(1e-6));
+        assertThat(stats.getRecentSlope(5)).isCloseTo(slope(recent), within(1e-9));
+        assertThat(stats.getRecentMean(5))
+                .isCloseTo(recent.stream().mapToDouble(p -> p.value).average().orElse(0), within(EPSILON));
+        assertThat(stats.getAnomalyCount()).isEqualTo((int) points.stream().filter(p -> p.anomaly).count());
+        assertThat(stats.getZeroCount()).isEqualTo((int) points.stream().filter(p -> p.value == 0).count());
+        assertThat(stats.getOldestTime()).isEqualTo(points.get(0).time);
+        assertThat(stats.getNewestTime()).isEqualTo(points.get(n - 1).time);
+    }
+
+    private static void runAgainstBruteForce(int capacity, int rounds, Random random, boolean fewDistinctValues) {
+        SlidingWindowStats stats = new SlidingWindowStats(capacity);
+        Deque<Point> window = new ArrayDeque<>();
+        for (int i = 0; i < rounds; i++) {
+            double value = fewDistinctValues ? random.nextInt(4) : Math.round(random.nextGaussian() * 1000) / 100.0;
+            Point point = new Point(value, 1_000L * i, random.nextInt(10) == 0);
+            if (window.size() == capacity) {
+                window.removeFirst();
+            }
+            window.addLast(point);
+            stats.add(point.value, point.time, point.anomaly);
+            assertMatches(stats, window);
+        }
+    }
+
+    @Test
+    void matchesBruteForceAcrossEvictions() {
+        Random random = new Random(7);
+        for (int capacity : new int[]{1, 2, 3, 8, 33}) {
+            runAgainstBruteForce(capacity, 400, random, false);
+        }
+    }
+
+    @Test
+    void matchesBruteForceWithManyDuplicates() {
+        // 只有0~3四种取值，堆和单调队列中大量相等元素，零值计数也会反复增减
+        Random random = new Random(11);
+        for (int capacity : new int[]{4, 9, 20}) {
+            runAgainstBruteForce(capacity, 400, random, true);
+        }
+    }
+
+    @Test
+    void monotonicInputKeepsDequesCorrect() {
+        SlidingWindowStats stats = new SlidingWindowStats(5);
+        Deque<Point> window = new ArrayDeque<>();
+        for (int i = 0; i < 30; i++) {
+            // 先升后降，分别让最小值和最大值队列只保留一个元素
+            double value = i < 15 ? i : 30 - i;
+            Point point = new Point(value, i, false);
+            if (window.size() == 5) {
+                window.removeFirst();
+            }
+            window.addLast(point);
+            stats.add(value, i, false);
+            assertMatches(stats, window);
+        }
+    }
+
+    @Test
+    void slopeSignFollowsTimeOrder() {
+        SlidingWindowStats rising = new SlidingWindowStats(50);
+        SlidingWindowStats falling = new SlidingWindowStats(50);
+        for (int i = 0; i < 50; i++) {
+            rising.add(i * 0.5, i, false);
+            falling.add(-i * 0.5, i, false);
+        }
+
+        assertThat(rising.getSlope()).isCloseTo(0.5, within(EPSILON));
+        assertThat(falling.getSlope()).isCloseTo(-0.5, within(EPSILON));
+        assertThat(rising.getRecentSlope(20)).isCloseTo(0.5, within(EPSILON));
+    }
+
+    @Test
+    void recentSlopeIgnoresOlderPoints() {
+        SlidingWindowStats stats = new SlidingWindowStats(100);
+        for (int i = 0; i < 80; i++) {
+            stats.add(100 - i, i, false);
+        }
+        for (int i = 0; i < 20; i++) {
+            stats.add(20 + i, 80 + i, false);
+        }
+
+        assertThat(stats.getSlope()).isNegative();
+        assertThat(stats.getRecentSlope(20)).isCloseTo(1.0, within(EPSILON));
+    }
+
+    @Test
+    void emptyWindowReturnsZeros() {
+        SlidingWindowStats stats = new SlidingWindowStats(3);
+
+        assertThat(stats.getCount()).isZero();
+        assertThat(stats.getMin()).isZero();
+        assertThat(stats.getMax()).isZero();
+        assertThat(stats.getMedian()).isZero();
+        assertThat(stats.getVariance()).isZero();
+        assertThat(stats.getSlope()).isZero();
+        assertThat(stats.getRecentSlope(20)).isZero();
+        assertThat(stats.getOldestTime()).isZero();
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new SlidingWindowStats(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
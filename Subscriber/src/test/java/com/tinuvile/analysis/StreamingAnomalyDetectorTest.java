@@ -0,0 +1,100 @@
+package com.tinuvile.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingAnomalyDetectorTest {
+
+    private static StreamingAnomalyDetector detector(double maxStep, int warmup) {
+        return new StreamingAnomalyDetector(new AnomalyRule(-50.0, 100.0, maxStep, 0.1, 4.0, warmup));
+    }
+
+    /**
+     * 在20和21之间交替，EWMA均值约20.5，标准差约0.5
+     */
+    private static void feedAlternating(StreamingAnomalyDetector detector, int n) {
+        for (int i = 0; i < n; i++) {
+            assertThat(detector.update(i % 2 == 0 ? 20.0 : 21.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+        }
+    }
+
+    @Test
+    void outOfRangeIsFlaggedAndKeptOutOfState() {
+        StreamingAnomalyDetector detector = detector(10, 5);
+        feedAlternating(detector, 4);
+        double mean = detector.getMean();
+
+        assertThat(detector.update(150.0)).isEqualTo(StreamingAnomalyDetector.OUT_OF_RANGE);
+        assertThat(detector.update(-51.0)).isEqualTo(StreamingAnomalyDetector.OUT_OF_RANGE);
+        assertThat(detector.getCount()).isEqualTo(4);
+        assertThat(detector.getMean()).isEqualTo(mean);
+        // 坏值不作为变化率的基准
+        assertThat(detector.update(21.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+    }
+
+    @Test
+    void boundsAreInclusive() {
+        StreamingAnomalyDetector detector = detector(0, 5);
+
+        assertThat(detector.update(-50.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+        assertThat(detector.update(100.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+    }
+
+    @Test
+    void rateOfChangeComparesWithPreviousReading() {
+        StreamingAnomalyDetector detector = detector(10, 1000);
+
+        // 第一个读数没有前值，不检查变化率
+        assertThat(detector.update(60.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+        assertThat(detector.update(70.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+        assertThat(detector.update(80.5)).isEqualTo(StreamingAnomalyDetector.RATE_OF_CHANGE);
+        // 跳变后的读数成为新的基准
+        assertThat(detector.update(81.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+        assertThat(detector.update(70.0)).isEqualTo(StreamingAnomalyDetector.RATE_OF_CHANGE);
+    }
+
+    @Test
+    void zeroMaxStepDisablesRateRule() {
+        StreamingAnomalyDetector detector = detector(0, 1000);
+
+        assertThat(detector.update(0.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+        assertThat(detector.update(90.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+    }
+
+    @Test
+    void zScoreOnlyAfterWarmup() {
+        StreamingAnomalyDetector warming = detector(10, 20);
+        feedAlternating(warming, 19);
+        // 预热期内偏离再大也不按z分数判定
+        assertThat(warming.update(25.0)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+
+        StreamingAnomalyDetector warmed = detector(10, 20);
+        feedAlternating(warmed, 40);
+        assertThat(warmed.getMean()).isBetween(20.0, 21.0);
+        assertThat(warmed.update(25.0)).isEqualTo(StreamingAnomalyDetector.Z_SCORE);
+        assertThat(warmed.update(21.5)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+    }
+
+    @Test
+    void zScoreNeedsNonZeroVariance() {
+        StreamingAnomalyDetector detector = detector(10, 5);
+        for (int i = 0; i < 30; i++) {
+            detector.update(20.0);
+        }
+
+        assertThat(detector.getVariance()).isZero();
+        assertThat(detector.update(20.5)).isEqualTo(StreamingAnomalyDetector.NORMAL);
+    }
+
+    @Test
+    void ruleOrderPrefersRangeThenRate() {
+        StreamingAnomalyDetector detector = detector(5, 1);
+        feedAlternating(detector, 10);
+
+        // 同时违反变化率和z分数时报告变化率
+        assertThat(detector.update(40.0)).isEqualTo(StreamingAnomalyDetector.RATE_OF_CHANGE);
+        // 同时违反范围和变化率时报告范围
+        assertThat(detector.update(200.0)).isEqualTo(StreamingAnomalyDetector.OUT_OF_RANGE);
+    }
+}
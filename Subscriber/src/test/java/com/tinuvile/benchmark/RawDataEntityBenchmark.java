@@ -0,0 +1,114 @@
+package com.tinuvile.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorDataEntity;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.service.RawDataWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 入库实体构建基准
+ * 对比raw_data三种存储模式下每条ReceivedData转换为SensorDataEntity的耗时和分配（加 -prof gc）。
+ * 辅助计数器rows和rawDataBytes分别是每次迭代构建的实体数与raw_data的UTF-8字节数，
+ * rawDataBytes / rows * 1000000 即每百万行raw_data列带来的表数据量（不含InnoDB页和JSON二进制格式的额外开销），
+ * none模式下为0。
+ * 运行：
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main RawDataEntityBenchmark -prof gc"
+ * </pre>
+ *
+ * @author tinuvile
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RawDataEntityBenchmark {
+
+    @Param({"none", "sample", "all"})
+    private String mode;
+
+    private RawDataWriter rawDataWriter;
+
+    private ReceivedData receivedData;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+        rawDataWriter = new RawDataWriter();
+        ReflectionTestUtils.setField(rawDataWriter, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(rawDataWriter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rawDataWriter, "modeCode", mode);
+        ReflectionTestUtils.setField(rawDataWriter, "sampleRate", 0.01);
+        ReflectionTestUtils.setField(rawDataWriter, "keepAnomalies", true);
+        rawDataWriter.init();
+
+        SensorData reading = new SensorData(LocalDateTime.of(2024, 3, 1, 12, 30, 5), SensorType.TEMPERATURE,
+                23.57, "°C");
+        reading.setNodeId(12);
+        reading.setLocation("实验室A区");
+        reading.setSentAt(1709296205123L);
+        receivedData = new ReceivedData(reading, "iot/sensors/temperature");
+    }
+
+    /**
+     * 每次迭代构建的实体数和raw_data字节数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RawDataCounter {
+        public long rows;
+        public long rawDataBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            rawDataBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public SensorDataEntity buildEntity(RawDataCounter counter) {
+        SensorDataEntity entity = SensorDataEntity.fromReceivedData(receivedData);
+        String rawData = rawDataWriter.toRawData(receivedData);
+        entity.setRawData(rawData);
+        counter.rows++;
+        if (rawData != null) {
+            counter.rawDataBytes += rawData.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return entity;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RawDataEntityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
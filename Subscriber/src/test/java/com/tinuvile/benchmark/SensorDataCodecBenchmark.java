@@ -0,0 +1,119 @@
+package com.tinuvile.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinuvile.codec.SensorDataBinaryCodec;
+import com.tinuvile.codec.SensorDataJsonDecoder;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编码、解码分项基准
+ * 分别给出JSON（ObjectMapper序列化 + 流式解码）与二进制格式编码、解码每条消息的耗时，
+ * 编码基准的辅助计数器payloadBytes / messages 即每条消息的负载字节数。
+ * 运行方式同SensorDataDecodeBenchmark：
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main SensorDataCodecBenchmark"
+ * </pre>
+ *
+ * @author tinuvile
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorDataCodecBenchmark {
+
+    private SensorData reading;
+
+    private ObjectMapper objectMapper;
+
+    private SensorDataJsonDecoder jsonDecoder;
+
+    private byte[] jsonPayload;
+
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        reading = new SensorData(LocalDateTime.of(2024, 3, 1, 12, 30, 5), SensorType.PRESSURE, 1013.27, "hPa");
+        reading.setNodeId(12);
+        reading.setSentAt(1709296205123L);
+        objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+        jsonDecoder = new SensorDataJsonDecoder(new JsonFactory());
+        jsonPayload = objectMapper.writeValueAsBytes(reading);
+        binaryPayload = SensorDataBinaryCodec.encode(reading);
+    }
+
+    /**
+     * 每次迭代编码的消息数和负载字节数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadCounter {
+        public long messages;
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            messages = 0;
+            payloadBytes = 0;
+        }
+
+        byte[] count(byte[] payload) {
+            messages++;
+            payloadBytes += payload.length;
+            return payload;
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonEncode(PayloadCounter counter) throws JsonProcessingException {
+        return counter.count(objectMapper.writeValueAsBytes(reading));
+    }
+
+    @Benchmark
+    public SensorData jsonDecode() throws IOException {
+        return jsonDecoder.decode(jsonPayload);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode(PayloadCounter counter) {
+        return counter.count(SensorDataBinaryCodec.encode(reading));
+    }
+
+    @Benchmark
+    public SensorData binaryDecode() {
+        return SensorDataBinaryCodec.decode(binaryPayload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SensorDataCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
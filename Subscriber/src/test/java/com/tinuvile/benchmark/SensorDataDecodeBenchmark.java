@@ -0,0 +1,75 @@
+package com.tinuvile.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinuvile.codec.SensorDataJsonDecoder;
+import com.tinuvile.model.SensorData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MQTT负载解码基准
+ * 对比原来的 new String(payload) + ObjectMapper.readValue 与字节数组上的流式解码。
+ * 运行（加 -prof gc 可查看每次解码的分配字节数）：
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main SensorDataDecodeBenchmark -prof gc"
+ * </pre>
+ *
+ * @author tinuvile
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorDataDecodeBenchmark {
+
+    private byte[] payload;
+
+    private ObjectMapper objectMapper;
+
+    private SensorDataJsonDecoder decoder;
+
+    @Setup
+    public void setup() {
+        payload = ("{\"timestamp\":\"2024-03-01T12:30:05\",\"sensor_type\":\"temperature\",\"value\":23.57,"
+                + "\"unit\":\"°C\",\"node_id\":12,\"location\":\"实验室A区\",\"sent_at\":1709296205123}")
+                .getBytes(StandardCharsets.UTF_8);
+        objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+        decoder = new SensorDataJsonDecoder(new JsonFactory());
+    }
+
+    @Benchmark
+    public SensorData objectMapperFromString() throws IOException {
+        return objectMapper.readValue(new String(payload, StandardCharsets.UTF_8), SensorData.class);
+    }
+
+    @Benchmark
+    public SensorData streamingFromBytes() throws IOException {
+        return decoder.decode(payload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SensorDataDecodeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,149 @@
+package com.tinuvile.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SensorDataJsonDecoderTest {
+
+    private final SensorDataJsonDecoder decoder = new SensorDataJsonDecoder(new JsonFactory());
+
+    private SensorData decode(String json) throws IOException {
+        return decoder.decode(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodesAllFields() throws IOException {
+        SensorData data = decode("{\"timestamp\":\"2024-03-01T12:30:05\",\"sensor_type\":\"temperature\","
+                + "\"value\":23.5,\"unit\":\"°C\",\"node_id\":7,\"location\":\"实验室A区\",\"sent_at\":1709296205000}");
+
+        assertThat(data.getTimestamp()).isEqualTo(LocalDateTime.of(2024, 3, 1, 12, 30, 5));
+        assertThat(data.getSensorType()).isEqualTo(SensorType.TEMPERATURE);
+        assertThat(data.getValue()).isEqualTo(23.5);
+        assertThat(data.getUnit()).isEqualTo("°C");
+        assertThat(data.getNodeId()).isEqualTo(7);
+        assertThat(data.getLocation()).isEqualTo("实验室A区");
+        assertThat(data.getSentAt()).isEqualTo(1709296205000L);
+    }
+
+    @Test
+    void decodesSubRangeOfBuffer() throws IOException {
+        byte[] json = "{\"timestamp\":\"2024-03-01T00:00:00\",\"sensor_type\":\"humidity\",\"value\":41}"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] framed = new byte[json.length + 4];
+        System.arraycopy(json, 0, framed, 2, json.length);
+
+        SensorData data = decoder.decode(framed, 2, json.length);
+
+        assertThat(data.getSensorType()).isEqualTo(SensorType.HUMIDITY);
+        assertThat(data.getValue()).isEqualTo(41.0);
+    }
+
+    @Test
+    void skipsUnknownFieldsAndNulls() throws IOException {
+        SensorData data = decode("{\"extra\":{\"nested\":[1,2,{\"a\":3}]},\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"pressure\",\"value\":1013.2,\"location\":null,\"tags\":[\"x\"]}");
+
+        assertThat(data.getSensorType()).isEqualTo(SensorType.PRESSURE);
+        assertThat(data.getValue()).isEqualTo(1013.2);
+        assertThat(data.getLocation()).isNull();
+        assertThat(data.getSentAt()).isNull();
+    }
+
+    @Test
+    void acceptsNumericStrings() throws IOException {
+        SensorData data = decode("{\"timestamp\":\"2024-03-01T00:00:00\",\"sensor_type\":\"temperature\","
+                + "\"value\":\" 21.25 \",\"node_id\":\"3\"}");
+
+        assertThat(data.getValue()).isEqualTo(21.25);
+        assertThat(data.getNodeId()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsMalformedValueInsteadOfStoringZero() {
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":\"abc\"}"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("value");
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":true}"))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":{\"v\":1}}"))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":\"NaN\"}"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsMalformedIntegers() {
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":1,\"node_id\":\"node-1\"}"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("node_id");
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":1,\"node_id\":1.5}"))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":1,\"node_id\":4294967296}"))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"temperature\",\"value\":1,\"sent_at\":\"yesterday\"}"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("sent_at");
+    }
+
+    @Test
+    void rejectsMissingRequiredFields() {
+        assertThatThrownBy(() -> decode("{\"sensor_type\":\"temperature\",\"value\":1}"))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\",\"value\":1}"))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\",\"sensor_type\":\"temperature\"}"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void parsesOtherIsoTimestampsThroughFallback() throws IOException {
+        SensorData data = decode("{\"timestamp\":\"2024-03-01T12:30:05.250\",\"sensor_type\":\"temperature\",\"value\":1}");
+        assertThat(data.getTimestamp()).isEqualTo(LocalDateTime.of(2024, 3, 1, 12, 30, 5, 250_000_000));
+
+        data = decode("{\"timestamp\":\"2024-03-01T12:30\",\"sensor_type\":\"temperature\",\"value\":1}");
+        assertThat(data.getTimestamp()).isEqualTo(LocalDateTime.of(2024, 3, 1, 12, 30));
+    }
+
+    @Test
+    void rejectsInvalidTimestamps() {
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-13-01T12:30:05\",\"sensor_type\":\"temperature\",\"value\":1}"))
+                .isInstanceOf(DateTimeException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-02-30T12:30:05\",\"sensor_type\":\"temperature\",\"value\":1}"))
+                .isInstanceOf(DateTimeException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-0a-01T12:30:05\",\"sensor_type\":\"temperature\",\"value\":1}"))
+                .isInstanceOf(DateTimeException.class);
+        assertThatThrownBy(() -> decode("{\"timestamp\":1709296205,\"sensor_type\":\"temperature\",\"value\":1}"))
+                .isInstanceOf(DateTimeException.class);
+    }
+
+    @Test
+    void rejectsNonObjectPayload() {
+        assertThatThrownBy(() -> decode("[1,2,3]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("not json")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsUnknownSensorType() {
+        assertThatThrownBy(() -> decode("{\"timestamp\":\"2024-03-01T00:00:00\","
+                + "\"sensor_type\":\"wind\",\"value\":1}"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
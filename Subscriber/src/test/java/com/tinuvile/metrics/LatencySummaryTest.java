@@ -0,0 +1,39 @@
+package com.tinuvile.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencySummaryTest {
+
+    @Test
+    void summarizesPercentilesInMillis() {
+        Timer timer = Timer.builder("test.latency")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(new SimpleMeterRegistry());
+        for (int i = 1; i <= 100; i++) {
+            timer.record(i * 1_000_000L + 123_456L, TimeUnit.NANOSECONDS);
+        }
+
+        Map<String, Object> summary = LatencySummary.of(timer.takeSnapshot());
+
+        assertThat(summary).containsOnlyKeys("count", "p50_ms", "p99_ms", "p999_ms", "max_ms");
+        assertThat(summary.get("count")).isEqualTo(100L);
+        assertThat(summary.get("max_ms")).isEqualTo(100.123);
+        assertThat((Double) summary.get("p50_ms")).isBetween(40.0, 60.0);
+    }
+
+    @Test
+    void emptyTimerHasZeroCount() {
+        Timer timer = Timer.builder("test.latency").register(new SimpleMeterRegistry());
+
+        Map<String, Object> summary = LatencySummary.of(timer.takeSnapshot());
+
+        assertThat(summary).containsEntry("count", 0L).containsEntry("max_ms", 0.0);
+    }
+}
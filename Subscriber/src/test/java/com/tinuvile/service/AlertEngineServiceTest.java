@@ -0,0 +1,177 @@
+package com.tinuvile.service;
+
+import com.tinuvile.analysis.AlertRule;
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorDataEntity;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.AlertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AlertEngineServiceTest {
+
+    private AlertRepository alertRepository;
+
+    private AlertEngineService service;
+
+    @BeforeEach
+    void setUp() {
+        alertRepository = mock(AlertRepository.class);
+        when(alertRepository.findRulesFingerprint()).thenReturn("v1");
+        when(alertRepository.findEnabledRules()).thenReturn(Collections.singletonList(
+                new AlertRule(7, null, SensorType.TEMPERATURE, "高温", AlertRule.Condition.GREATER_THAN,
+                        Double.NaN, 40.0)));
+        when(alertRepository.insertBatch(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        service = new AlertEngineService();
+        ReflectionTestUtils.setField(service, "alertRepository", alertRepository);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "cooldownMillis", 60_000L);
+        service.init();
+    }
+
+    private static ReceivedData reading(double value) {
+        SensorData data = new SensorData(LocalDateTime.of(2024, 3, 1, 12, 0), SensorType.TEMPERATURE, value, "°C");
+        return new ReceivedData(data, "iot/sensors/temperature");
+    }
+
+    private ReceivedData evaluate(double value) {
+        ReceivedData receivedData = reading(value);
+        service.evaluate(receivedData);
+        return receivedData;
+    }
+
+    private static SensorDataEntity stored(long id) {
+        SensorDataEntity entity = new SensorDataEntity();
+        entity.setId(id);
+        return entity;
+    }
+
+    @Test
+    void firesOnceWhileViolationPersistsAndHonoursCooldown() {
+        assertThat(evaluate(45.0).getPendingAlerts()).hasSize(1);
+        assertThat(evaluate(46.0).getPendingAlerts()).isNull();
+        assertThat(evaluate(20.0).getPendingAlerts()).isNull();
+        // 恢复后再次越限，但仍在冷却期内
+        assertThat(evaluate(47.0).getPendingAlerts()).isNull();
+
+        assertThat(service.getStatistics())
+                .containsEntry("fired", 1L)
+                .containsEntry("suppressed_duplicate", 1L)
+                .containsEntry("suppressed_cooldown", 1L);
+    }
+
+    @Test
+    void revertedAlertLetsNextViolationFire() {
+        ReceivedData dropped = evaluate(45.0);
+        assertThat(dropped.getPendingAlerts()).hasSize(1);
+
+        // 数据被入库队列丢弃或批次回滚
+        service.revertAlerts(Collections.singletonList(dropped));
+
+        ReceivedData next = evaluate(45.5);
+        assertThat(next.getPendingAlerts()).hasSize(1);
+        assertThat(service.getStatistics()).containsEntry("reverted", 1L).containsEntry("fired", 2L);
+    }
+
+    @Test
+    void revertRestoresPreviousCooldownBase() {
+        ReceivedData first = evaluate(45.0);
+        service.persistAlerts(Collections.singletonList(first), Collections.singletonList(stored(1)));
+        evaluate(20.0);
+        ReflectionTestUtils.setField(service, "cooldownMillis", 0L);
+        ReceivedData second = evaluate(50.0);
+        assertThat(second.getPendingAlerts()).hasSize(1);
+
+        service.revertAlerts(second);
+        ReflectionTestUtils.setField(service, "cooldownMillis", 60_000L);
+
+        // 撤销后冷却期重新以第一次告警为基准
+        assertThat(evaluate(51.0).getPendingAlerts()).isNull();
+        assertThat(service.getStatistics()).containsEntry("suppressed_cooldown", 1L);
+    }
+
+    @Test
+    void revertIgnoresStateOverwrittenByLaterFiring() throws InterruptedException {
+        ReflectionTestUtils.setField(service, "cooldownMillis", 0L);
+        ReceivedData first = evaluate(45.0);
+        evaluate(20.0);
+        Thread.sleep(2);
+        ReceivedData second = evaluate(46.0);
+        assertThat(second.getPendingAlerts()).hasSize(1);
+
+        // 第一条的撤销来得晚，不能把第二次触发的越限状态清掉
+        service.revertAlerts(first);
+
+        assertThat(evaluate(47.0).getPendingAlerts()).isNull();
+        assertThat(service.getStatistics()).containsEntry("suppressed_duplicate", 1L);
+    }
+
+    @Test
+    void failedAlertInsertRevertsState() {
+        when(alertRepository.insertBatch(anyList())).thenThrow(new IllegalStateException("db down"));
+        ReceivedData violating = evaluate(45.0);
+        ReceivedData normal = evaluate(20.0);
+
+        service.persistAlerts(Arrays.asList(violating, normal), Arrays.asList(stored(1), stored(2)));
+
+        assertThat(service.getStatistics()).containsEntry("write_failed", 1L).containsEntry("reverted", 1L);
+        assertThat(evaluate(45.0).getPendingAlerts()).hasSize(1);
+    }
+
+    @Test
+    void persistedAlertsCarryDataIds() {
+        ReceivedData violating = evaluate(45.0);
+
+        service.persistAlerts(Collections.singletonList(violating), Collections.singletonList(stored(42)));
+
+        assertThat(violating.getPendingAlerts().get(0).getDataId()).isEqualTo(42L);
+        assertThat(service.getStatistics()).containsEntry("written", 1L).containsEntry("reverted", 0L);
+    }
+
+    @Test
+    void checkForChangesReloadsOnlyWhenFingerprintChanges() {
+        service.checkForChanges();
+        assertThat(service.getStatistics()).containsEntry("reload_count", 1L);
+
+        when(alertRepository.findRulesFingerprint()).thenReturn("v2");
+        when(alertRepository.findEnabledRules()).thenReturn(Arrays.asList(
+                new AlertRule(7, null, SensorType.TEMPERATURE, "高温", AlertRule.Condition.GREATER_THAN,
+                        Double.NaN, 40.0),
+                new AlertRule(8, 3, SensorType.TEMPERATURE, "节点3低温", AlertRule.Condition.LESS_THAN,
+                        0.0, Double.NaN)));
+        service.checkForChanges();
+
+        assertThat(service.getStatistics())
+                .containsEntry("reload_count", 2L)
+                .containsEntry("rule_count", 2)
+                .containsEntry("node_count", 1);
+    }
+
+    @Test
+    void reloadKeepsFiringStateOfUnchangedRuleIds() {
+        assertThat(evaluate(45.0).getPendingAlerts()).hasSize(1);
+
+        // 同ID规则调整阈值后仍处于越限状态，不重复告警
+        when(alertRepository.findRulesFingerprint()).thenReturn("v2");
+        when(alertRepository.findEnabledRules()).thenReturn(Collections.singletonList(
+                new AlertRule(7, null, SensorType.TEMPERATURE, "高温", AlertRule.Condition.GREATER_THAN,
+                        Double.NaN, 42.0)));
+        service.checkForChanges();
+
+        assertThat(evaluate(46.0).getPendingAlerts()).isNull();
+        assertThat(service.getStatistics()).containsEntry("suppressed_duplicate", 1L);
+    }
+}
@@ -0,0 +1,94 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnomalyDetectionServiceTest {
+
+    private AnomalyDetectionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AnomalyDetectionService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "alpha", 0.1);
+        ReflectionTestUtils.setField(service, "zThreshold", 4.0);
+        ReflectionTestUtils.setField(service, "warmup", 5);
+        ReflectionTestUtils.setField(service, "temperatureMaxStep", 10.0);
+        ReflectionTestUtils.setField(service, "humidityMaxStep", 30.0);
+        ReflectionTestUtils.setField(service, "pressureMaxStep", 10.0);
+        service.init();
+    }
+
+    private static ReceivedData reading(Integer nodeId, SensorType type, double value) {
+        SensorData data = new SensorData(LocalDateTime.of(2024, 3, 1, 12, 0), type, value, type.getUnit());
+        data.setNodeId(nodeId);
+        return new ReceivedData(data, "iot/sensors/" + type.getCode());
+    }
+
+    private boolean detect(Integer nodeId, SensorType type, double value) {
+        return service.detect(reading(nodeId, type, value));
+    }
+
+    @Test
+    void flagsReadingAndCountsRule() {
+        ReceivedData outOfRange = reading(1, SensorType.PRESSURE, 500.0);
+
+        assertThat(service.detect(outOfRange)).isTrue();
+        assertThat(outOfRange.isAnomalyDetected()).isTrue();
+
+        assertThat(detect(1, SensorType.TEMPERATURE, 20.0)).isFalse();
+        assertThat(detect(1, SensorType.TEMPERATURE, 35.0)).isTrue();
+        assertThat(service.getStatistics())
+                .containsEntry("out_of_range", 1L)
+                .containsEntry("rate_of_change", 1L)
+                .containsEntry("z_score", 0L)
+                .containsEntry("total", 2L);
+    }
+
+    @Test
+    void rangesFollowSensorType() {
+        assertThat(detect(1, SensorType.HUMIDITY, 100.5)).isTrue();
+        assertThat(detect(1, SensorType.PRESSURE, 799.0)).isTrue();
+        assertThat(detect(2, SensorType.TEMPERATURE, 99.0)).isFalse();
+    }
+
+    @Test
+    void eachNodeAndTypeHasItsOwnDetector() {
+        assertThat(detect(1, SensorType.TEMPERATURE, 20.0)).isFalse();
+        // 另一个节点的首个读数没有前值，不受节点1的影响
+        assertThat(detect(2, SensorType.TEMPERATURE, 45.0)).isFalse();
+        // 同一节点的另一种类型也是独立序列
+        assertThat(detect(1, SensorType.HUMIDITY, 80.0)).isFalse();
+        assertThat(detect(2, SensorType.TEMPERATURE, 46.0)).isFalse();
+        assertThat(detect(1, SensorType.TEMPERATURE, 21.0)).isFalse();
+        assertThat(service.getStatistics()).containsEntry("tracked_nodes", 2);
+    }
+
+    @Test
+    void missingNodeIdSharesDefaultNodeDetector() {
+        assertThat(detect(1, SensorType.TEMPERATURE, 20.0)).isFalse();
+
+        // 没有节点ID的数据入库时归到默认节点1，检测状态也与节点1共用
+        assertThat(detect(null, SensorType.TEMPERATURE, 45.0)).isTrue();
+        assertThat(service.getStatistics()).containsEntry("tracked_nodes", 1);
+    }
+
+    @Test
+    void disabledDetectionLeavesReadingUntouched() {
+        ReflectionTestUtils.setField(service, "enabled", false);
+        ReceivedData outOfRange = reading(1, SensorType.PRESSURE, 500.0);
+
+        assertThat(service.detect(outOfRange)).isFalse();
+        assertThat(outOfRange.isAnomalyDetected()).isFalse();
+        assertThat(service.getStatistics()).containsEntry("tracked_nodes", 0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorDataEntity;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DataAnalysisServiceTest {
+
+    private DataStorageService dataStorageService;
+
+    private DataAnalysisService service;
+
+    @BeforeEach
+    void setUp() {
+        dataStorageService = mock(DataStorageService.class);
+        service = new DataAnalysisService();
+        ReflectionTestUtils.setField(service, "dataStorageService", dataStorageService);
+        ReflectionTestUtils.setField(service, "windowSize", 10);
+    }
+
+    @Test
+    void startsWithEmptyWindowsWhenDatabaseIsDown() {
+        when(dataStorageService.getDataForTrendAnalysis(eq(SensorType.TEMPERATURE), anyInt()))
+                .thenThrow(new DataAccessResourceFailureException("数据库不可用"));
+        when(dataStorageService.getDataForTrendAnalysis(eq(SensorType.HUMIDITY), anyInt()))
+                .thenThrow(new DataAccessResourceFailureException("数据库不可用"));
+        when(dataStorageService.getDataForTrendAnalysis(eq(SensorType.PRESSURE), anyInt()))
+                .thenReturn(Collections.singletonList(entity(SensorType.PRESSURE, 1013.0)));
+
+        assertThatCode(service::init).doesNotThrowAnyException();
+
+        assertThat(service.performAnalysis(SensorType.TEMPERATURE).getSampleCount()).isZero();
+        assertThat(service.performAnalysis(SensorType.PRESSURE).getSampleCount()).isEqualTo(1);
+
+        // 预热失败的窗口照常接收后续数据
+        service.accept(new ReceivedData(new SensorData(LocalDateTime.now(), SensorType.TEMPERATURE, 21.5, "°C"),
+                "sensors/temperature"));
+        assertThat(service.performAnalysis(SensorType.TEMPERATURE).getSampleCount()).isEqualTo(1);
+    }
+
+    private static SensorDataEntity entity(SensorType type, double value) {
+        SensorDataEntity entity = new SensorDataEntity();
+        entity.setSensorType(type);
+        entity.setValue(BigDecimal.valueOf(value));
+        entity.setReceivedTime(LocalDateTime.now());
+        entity.setAnomalyDetected(false);
+        return entity;
+    }
+}
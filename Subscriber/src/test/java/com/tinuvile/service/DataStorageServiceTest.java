@@ -0,0 +1,102 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorDataEntity;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.SensorDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataStorageServiceTest {
+
+    private static final LocalDateTime ALL_DATA_FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private SensorDataRepository sensorDataRepository;
+
+    private DataStorageService service;
+
+    @BeforeEach
+    void setUp() {
+        sensorDataRepository = mock(SensorDataRepository.class);
+        service = new DataStorageService();
+        ReflectionTestUtils.setField(service, "sensorDataRepository", sensorDataRepository);
+        ReflectionTestUtils.setField(service, "latestLookbackHours", 24);
+    }
+
+    private static List<SensorDataEntity> entities(int count) {
+        List<SensorDataEntity> entities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SensorDataEntity entity = new SensorDataEntity();
+            entity.setId((long) i + 1);
+            entity.setNodeId(1);
+            entity.setSensorType(SensorType.TEMPERATURE);
+            entity.setValue(BigDecimal.valueOf(20 + i));
+            entity.setUnit("°C");
+            entity.setTimestamp(LocalDateTime.of(2024, 3, 1, 12, 0).minusMinutes(i));
+            entity.setReceivedTime(entity.getTimestamp());
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    @Test
+    void latestDataFallsBackToUnboundedQueryWhenWindowIsShort() {
+        // 回看窗口内只有1条，例如采集停了超过窗口长度
+        when(sensorDataRepository.findLatest(eq(SensorType.TEMPERATURE), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(entities(1));
+        when(sensorDataRepository.findLatest(eq(SensorType.TEMPERATURE), eq(ALL_DATA_FROM), any(Pageable.class)))
+                .thenReturn(entities(5));
+
+        List<ReceivedData> latest = service.getLatestData(SensorType.TEMPERATURE, 5);
+
+        assertThat(latest).hasSize(5);
+    }
+
+    @Test
+    void latestDataSkipsFallbackWhenWindowIsFull() {
+        when(sensorDataRepository.findLatest(eq(SensorType.TEMPERATURE), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(entities(5));
+
+        assertThat(service.getLatestData(SensorType.TEMPERATURE, 5)).hasSize(5);
+        verify(sensorDataRepository, never())
+                .findLatest(eq(SensorType.TEMPERATURE), eq(ALL_DATA_FROM), any(Pageable.class));
+    }
+
+    @Test
+    void anomaliesFallBackToUnboundedQuery() {
+        when(sensorDataRepository.findLatestAnomalies(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        when(sensorDataRepository.findLatestAnomalies(eq(ALL_DATA_FROM), any(Pageable.class)))
+                .thenReturn(entities(2));
+
+        assertThat(service.getLatestAnomalies(10)).hasSize(2);
+        verify(sensorDataRepository, times(2)).findLatestAnomalies(any(LocalDateTime.class), any(Pageable.class));
+    }
+
+    @Test
+    void trendWarmUpFallsBackToUnboundedQuery() {
+        when(sensorDataRepository.findLatestBySensorType(eq(SensorType.TEMPERATURE), any(LocalDateTime.class),
+                any(Pageable.class))).thenReturn(entities(3));
+        when(sensorDataRepository.findLatestBySensorType(eq(SensorType.TEMPERATURE), eq(ALL_DATA_FROM),
+                any(Pageable.class))).thenReturn(entities(20));
+
+        assertThat(service.getDataForTrendAnalysis(SensorType.TEMPERATURE, 20)).hasSize(20);
+    }
+}
@@ -0,0 +1,73 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class IngestPipelineServiceTest {
+
+    private DataStorageService dataStorageService;
+
+    private AlertEngineService alertEngineService;
+
+    private IngestPipelineService service;
+
+    @BeforeEach
+    void setUp() {
+        dataStorageService = mock(DataStorageService.class);
+        alertEngineService = mock(AlertEngineService.class);
+
+        service = new IngestPipelineService();
+        ReflectionTestUtils.setField(service, "dataStorageService", dataStorageService);
+        ReflectionTestUtils.setField(service, "alertEngineService", alertEngineService);
+        ReflectionTestUtils.setField(service, "latencyMetrics", mock(IngestLatencyMetrics.class));
+        ReflectionTestUtils.setField(service, "statisticsRollupService", mock(StatisticsRollupService.class));
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+        ReflectionTestUtils.setField(service, "flushInterval", 10L);
+        ReflectionTestUtils.setField(service, "offerTimeout", 10L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static ReceivedData reading() {
+        SensorData data = new SensorData(LocalDateTime.of(2024, 3, 1, 12, 0), SensorType.TEMPERATURE, 45.0, "°C");
+        return new ReceivedData(data, "iot/sensors/temperature");
+    }
+
+    @Test
+    void failedBatchRevertsItsAlerts() {
+        doThrow(new IllegalStateException("db down")).when(dataStorageService).storeBatch(anyList());
+
+        assertThat(service.submit(reading())).isTrue();
+
+        verify(alertEngineService, timeout(2000)).revertAlerts(anyList());
+    }
+
+    @Test
+    void storedBatchKeepsItsAlerts() {
+        assertThat(service.submit(reading())).isTrue();
+
+        verify(dataStorageService, timeout(2000)).storeBatch(anyList());
+        service.shutdown();
+        verify(alertEngineService, never()).revertAlerts(anyList());
+    }
+}
@@ -0,0 +1,78 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MqttSubscriberServiceTest {
+
+    private static final String TOPIC = "iot/sensors/temperature";
+
+    private IngestPipelineService ingestPipelineService;
+
+    private AlertEngineService alertEngineService;
+
+    private DataAnalysisService dataAnalysisService;
+
+    private MqttSubscriberService service;
+
+    @BeforeEach
+    void setUp() {
+        ingestPipelineService = mock(IngestPipelineService.class);
+        alertEngineService = mock(AlertEngineService.class);
+        dataAnalysisService = mock(DataAnalysisService.class);
+
+        service = new MqttSubscriberService();
+        ReflectionTestUtils.setField(service, "temperatureTopic", TOPIC);
+        ReflectionTestUtils.setField(service, "humidityTopic", "iot/sensors/humidity");
+        ReflectionTestUtils.setField(service, "pressureTopic", "iot/sensors/pressure");
+        ReflectionTestUtils.setField(service, "binaryTopicSuffix", "/bin");
+        ReflectionTestUtils.setField(service, "ingestPipelineService", ingestPipelineService);
+        ReflectionTestUtils.setField(service, "latencyMetrics", mock(IngestLatencyMetrics.class));
+        ReflectionTestUtils.setField(service, "dataAnalysisService", dataAnalysisService);
+        ReflectionTestUtils.setField(service, "anomalyDetectionService", mock(AnomalyDetectionService.class));
+        ReflectionTestUtils.setField(service, "alertEngineService", alertEngineService);
+    }
+
+    private void arrive() throws Exception {
+        String json = "{\"timestamp\":\"2024-03-01T12:00:00\",\"sensor_type\":\"temperature\",\"value\":45.0,"
+                + "\"unit\":\"°C\",\"node_id\":3}";
+        service.messageArrived(TOPIC, new MqttMessage(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void droppedSubmitRevertsEvaluatedAlerts() throws Exception {
+        when(ingestPipelineService.submit(any(ReceivedData.class))).thenReturn(false);
+
+        arrive();
+
+        ArgumentCaptor<ReceivedData> evaluated = ArgumentCaptor.forClass(ReceivedData.class);
+        verify(alertEngineService).evaluate(evaluated.capture());
+        verify(alertEngineService).revertAlerts(evaluated.getValue());
+        verify(dataAnalysisService, never()).accept(any(ReceivedData.class));
+    }
+
+    @Test
+    void acceptedSubmitKeepsAlerts() throws Exception {
+        when(ingestPipelineService.submit(any(ReceivedData.class))).thenReturn(true);
+
+        arrive();
+
+        verify(alertEngineService).evaluate(any(ReceivedData.class));
+        verify(alertEngineService, never()).revertAlerts(any(ReceivedData.class));
+        verify(dataAnalysisService).accept(any(ReceivedData.class));
+        assertThat(service.getSubscriberStatus().getErrorCount()).isZero();
+    }
+}
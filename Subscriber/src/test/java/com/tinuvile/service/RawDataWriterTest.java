@@ -0,0 +1,104 @@
+package com.tinuvile.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RawDataWriterTest {
+
+    private ObjectMapper objectMapper;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.findAndRegisterModules();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private RawDataWriter writer(String mode, double sampleRate) {
+        RawDataWriter writer = new RawDataWriter();
+        ReflectionTestUtils.setField(writer, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(writer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(writer, "modeCode", mode);
+        ReflectionTestUtils.setField(writer, "sampleRate", sampleRate);
+        ReflectionTestUtils.setField(writer, "keepAnomalies", true);
+        writer.init();
+        return writer;
+    }
+
+    private static ReceivedData reading(boolean anomaly) {
+        SensorData data = new SensorData(LocalDateTime.of(2024, 3, 1, 12, 0), SensorType.TEMPERATURE, 21.5, "°C");
+        data.setNodeId(3);
+        ReceivedData receivedData = new ReceivedData(data, "iot/sensors/temperature");
+        receivedData.setAnomalyDetected(anomaly);
+        return receivedData;
+    }
+
+    private double failures() {
+        return meterRegistry.counter(RawDataWriter.METRIC_SERIALIZATION_FAILURES).count();
+    }
+
+    @Test
+    void allModeWrapsPayloadWithTopicAndReceivedTime() {
+        String raw = writer("all", 0.0).toRawData(reading(false));
+
+        assertThat(raw).startsWith("{\"sensor_data\":{")
+                .contains("\"mqtt_topic\":\"iot/sensors/temperature\"")
+                .contains("\"received_time\":");
+    }
+
+    @Test
+    void noneModeStoresNothing() {
+        assertThat(writer("none", 1.0).toRawData(reading(true))).isNull();
+    }
+
+    @Test
+    void sampleModeHonoursRateBoundsAndKeepsAnomalies() {
+        RawDataWriter never = writer("sample", 0.0);
+        RawDataWriter always = writer("sample", 1.0);
+
+        assertThat(never.toRawData(reading(false))).isNull();
+        assertThat(never.toRawData(reading(true))).isNotNull();
+        assertThat(always.toRawData(reading(false))).isNotNull();
+    }
+
+    @Test
+    void sampleRateOutsideUnitIntervalIsRejected() {
+        assertThatThrownBy(() -> writer("sample", 1.5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer("sample", -0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer("sample", Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void serializationFailureIsCountedAndSkipsRawData() {
+        objectMapper.registerModule(new SimpleModule().addSerializer(SensorData.class, new JsonSerializer<SensorData>() {
+            @Override
+            public void serialize(SensorData value, JsonGenerator generator, SerializerProvider provider)
+                    throws IOException {
+                throw new IOException("broken");
+            }
+        }));
+        RawDataWriter writer = writer("all", 0.0);
+
+        assertThat(writer.toRawData(reading(false))).isNull();
+        assertThat(writer.toRawData(reading(false))).isNull();
+        assertThat(failures()).isEqualTo(2.0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.tinuvile.service;
+
+import com.tinuvile.model.ReceivedData;
+import com.tinuvile.model.SensorData;
+import com.tinuvile.model.SensorType;
+import com.tinuvile.repository.DataStatisticsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatisticsRollupServiceTest {
+
+    private DataStatisticsRepository repository;
+
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(DataStatisticsRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        service = new StatisticsRollupService();
+        ReflectionTestUtils.setField(service, "dataStatisticsRepository", repository);
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "enabled", true);
+    }
+
+    @Test
+    void shutdownFlushesInsideTransaction() {
+        service.accept(Arrays.asList(reading(SensorType.TEMPERATURE, 20.0), reading(SensorType.HUMIDITY, 40.0)));
+
+        service.shutdown();
+
+        verify(repository).upsertHourly(anyList());
+        verify(transactionManager).commit(any(TransactionStatus.class));
+        assertThat(service.getStatistics()).containsEntry("pending_groups", 0);
+    }
+
+    @Test
+    void resetDiscardsPendingGroups() {
+        service.accept(Arrays.asList(reading(SensorType.TEMPERATURE, 20.0), reading(SensorType.HUMIDITY, 40.0)));
+
+        assertThat(service.reset()).isEqualTo(2);
+        service.flush();
+
+        verify(repository, never()).upsertHourly(anyList());
+        assertThat(service.getStatistics()).containsEntry("pending_groups", 0);
+    }
+
+    private static ReceivedData reading(SensorType type, double value) {
+        return new ReceivedData(new SensorData(LocalDateTime.of(2024, 3, 1, 12, 30), type, value, type.getUnit()),
+                "sensors/" + type.getCode());
+    }
+}
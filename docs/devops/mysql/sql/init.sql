@@ -20,8 +20,18 @@ CREATE TABLE sensor_nodes (
 ) COMMENT '传感器节点表';
 
 -- 创建传感器数据表
+-- 按接收时间做RANGE COLUMNS分区，订阅端每天从p_future中拆出后续分区，过期数据整分区删除
+-- 分区表不支持外键，且主键必须包含分区列
+-- 旧库迁移(数据量大时请在维护窗口执行):
+--   ALTER TABLE alerts DROP FOREIGN KEY <fk_alert_data对应的约束名>;
+--   ALTER TABLE sensor_data DROP FOREIGN KEY <fk_sensor_node对应的约束名>;
+--   ALTER TABLE sensor_data MODIFY received_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+--       DROP PRIMARY KEY, ADD PRIMARY KEY (id, received_time);
+--   ALTER TABLE sensor_data PARTITION BY RANGE COLUMNS(received_time) (
+--       PARTITION p_history VALUES LESS THAN ('<今天> 00:00:00'),
+--       PARTITION p_future VALUES LESS THAN (MAXVALUE));
 CREATE TABLE sensor_data (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT,
     node_id INT NOT NULL COMMENT '节点ID',
     sensor_type ENUM('temperature', 'humidity', 'pressure', 'light', 'air_quality') NOT NULL COMMENT '传感器类型',
     sensor_location VARCHAR(100) COMMENT '传感器具体位置',
@@ -29,20 +39,26 @@ CREATE TABLE sensor_data (
     unit VARCHAR(10) NOT NULL COMMENT '单位',
     timestamp DATETIME NOT NULL COMMENT '数据时间戳',
     mqtt_topic VARCHAR(255) COMMENT 'MQTT主题',
-    received_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '接收时间',
+    received_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '接收时间(分区键)',
     raw_data JSON COMMENT '原始数据JSON',
     quality_score TINYINT DEFAULT 100 COMMENT '数据质量评分(0-100)',
     anomaly_detected BOOLEAN DEFAULT FALSE COMMENT '是否检测到异常',
     is_valid BOOLEAN DEFAULT TRUE COMMENT '数据是否有效',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '记录创建时间',
-    FOREIGN KEY fk_sensor_node (node_id) REFERENCES sensor_nodes(id),
+    PRIMARY KEY (id, received_time),
     INDEX idx_sensor_type (sensor_type),
     INDEX idx_timestamp (timestamp),
     INDEX idx_node_sensor (node_id, sensor_type),
     INDEX idx_timestamp_type (timestamp, sensor_type),
+    INDEX idx_type_timestamp (sensor_type, timestamp),
     INDEX idx_received_time (received_time),
-    INDEX idx_location (sensor_location)
-) COMMENT '传感器数据表';
+    INDEX idx_location (sensor_location),
+    INDEX idx_anomaly_received (anomaly_detected, received_time)
+) COMMENT '传感器数据表'
+PARTITION BY RANGE COLUMNS(received_time) (
+    PARTITION p_history VALUES LESS THAN ('2026-01-01 00:00:00'),
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
 
 -- 创建数据统计表
 CREATE TABLE data_statistics (
@@ -61,7 +77,8 @@ CREATE TABLE data_statistics (
     FOREIGN KEY fk_stat_node (node_id) REFERENCES sensor_nodes(id),
     UNIQUE KEY uk_stat_daily (node_id, sensor_type, stat_date, stat_hour),
     INDEX idx_stat_date (stat_date),
-    INDEX idx_node_type_date (node_id, sensor_type, stat_date)
+    INDEX idx_node_type_date (node_id, sensor_type, stat_date),
+    INDEX idx_type_date_hour (sensor_type, stat_date, stat_hour)
 ) COMMENT '数据统计表';
 
 -- 创建告警规则表
@@ -84,14 +101,14 @@ CREATE TABLE alert_rules (
 CREATE TABLE alerts (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     rule_id INT NOT NULL COMMENT '规则ID',
-    data_id BIGINT NOT NULL COMMENT '触发告警的数据ID',
+    data_id BIGINT NOT NULL COMMENT '触发告警的数据ID(sensor_data为分区表，不设外键)',
     alert_level ENUM('info', 'warning', 'error', 'critical') NOT NULL COMMENT '告警级别',
     alert_message TEXT NOT NULL COMMENT '告警消息',
     is_resolved BOOLEAN DEFAULT FALSE COMMENT '是否已解决',
     resolved_at DATETIME COMMENT '解决时间',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     FOREIGN KEY fk_alert_rule (rule_id) REFERENCES alert_rules(id),
-    FOREIGN KEY fk_alert_data (data_id) REFERENCES sensor_data(id),
+    INDEX idx_data_id (data_id),
     INDEX idx_level_created (alert_level, created_at),
     INDEX idx_resolved (is_resolved, created_at)
 ) COMMENT '告警记录表';